@@ -0,0 +1,21 @@
+package com.daimlertrucksasia.it.dsc.localization.exceptions;
+
+/**
+ * Exception thrown when work is about to start, or continue, after the deadline of the request it serves.
+ *
+ * <p>The caller has already given up on the request by then, so any further work would be wasted.
+ * Thrown by {@code RequestDeadline#checkpoint()}.</p>
+ *
+ * @since 1.0
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    /**
+     * Constructs a new {@code DeadlineExceededException} with the specified detail message.
+     *
+     * @param msg the detail message describing the missed deadline
+     */
+    public DeadlineExceededException(String msg) {
+        super(msg);
+    }
+}
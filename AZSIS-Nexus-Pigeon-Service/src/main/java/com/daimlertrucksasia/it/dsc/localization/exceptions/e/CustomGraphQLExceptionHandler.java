@@ -1,5 +1,6 @@
 package com.daimlertrucksasia.it.dsc.localization.exceptions.e;
 
+import com.daimlertrucksasia.it.dsc.localization.exceptions.DeadlineExceededException;
 import com.daimlertrucksasia.it.dsc.localization.kafka.service.producer.KafkaProducerService;
 import com.daimlertrucksasia.it.dsc.localization.localization.service.MessageService;
 import graphql.execution.DataFetcherExceptionHandler;
@@ -31,6 +32,7 @@ import static io.leangen.graphql.util.ClassFinder.log;
  * - {@link ResourceNotFoundException}
  * - {@link ValidationException}
  * - {@link DataAccessException}
+ * - {@link DeadlineExceededException}
  * - Any {@link Throwable} (as fallback)
  * <p>
  * Error messages are localized using {@link MessageService} and logged appropriately.
@@ -111,6 +113,17 @@ public class CustomGraphQLExceptionHandler implements DataFetcherExceptionHandle
                 .timestamp(OffsetDateTime.now())
                 .build());
 
+        // Handler for work refused after the request's deadline
+        handlers.put(DeadlineExceededException.class, params -> GraphQLErrorResponse.builder()
+                .message(params.getException().getMessage())
+                .status(504)
+                .errorCode("DEADLINE_EXCEEDED")
+                .details("The request's deadline passed before it was processed")
+                .path(params.getPath().toList())
+                .locations(List.of(params.getSourceLocation()))
+                .timestamp(OffsetDateTime.now())
+                .build());
+
         // Fallback handler for all other uncaught exceptions
         handlers.put(Throwable.class, params -> GraphQLErrorResponse.builder()
                 .message(messageService.getMessage(
@@ -128,8 +141,8 @@ public class CustomGraphQLExceptionHandler implements DataFetcherExceptionHandle
     /**
      * Handles exceptions thrown during GraphQL data fetching.
      *
-     * Looks up the appropriate handler for the thrown exception and builds a {@link DataFetcherExceptionHandlerResult}
-     * to return as a GraphQL error response.
+     * Looks up the handler of the exception's most specific class that has one and builds a
+     * {@link DataFetcherExceptionHandlerResult} to return as a GraphQL error response.
      *
      * @param parameters the parameters including the exception and source location
      * @return a completed future containing the error result
@@ -139,11 +152,12 @@ public class CustomGraphQLExceptionHandler implements DataFetcherExceptionHandle
         Throwable exception = parameters.getException();
         log.error("GraphQL error: {}", exception.getMessage(), exception);
 
-        GraphQLErrorResponse error = handlers.entrySet().stream()
-                .filter(entry -> entry.getKey().isInstance(exception))
-                .findFirst()
-                .map(entry -> entry.getValue().apply(parameters))
-                .orElse(handlers.get(Throwable.class).apply(parameters)); // fallback
+        // walk up the class hierarchy, so the Throwable fallback never shadows a specific handler
+        Function<DataFetcherExceptionHandlerParameters, GraphQLErrorResponse> handler = null;
+        for (Class<?> type = exception.getClass(); handler == null && type != null; type = type.getSuperclass()) {
+            handler = handlers.get(type);
+        }
+        GraphQLErrorResponse error = handler.apply(parameters);
 
         DataFetcherExceptionHandlerResult result = DataFetcherExceptionHandlerResult.newResult()
                 .error(error)
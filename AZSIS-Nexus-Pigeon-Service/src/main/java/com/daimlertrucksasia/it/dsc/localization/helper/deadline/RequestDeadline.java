@@ -0,0 +1,130 @@
+package com.daimlertrucksasia.it.dsc.localization.helper.deadline;
+
+import com.daimlertrucksasia.it.dsc.localization.exceptions.DeadlineExceededException;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * The absolute deadline of the request handled by the current thread, as propagated by the API gateway.
+ * <p>
+ * The gateway sends the time left in the {@value #TIMEOUT_HEADER} header as milliseconds and the deadline in the
+ * {@value #HEADER} header as epoch milliseconds. The deadline is taken as the arrival time plus the time left, so
+ * that it does not depend on this host's clock agreeing with the gateway's; the absolute header is only used when
+ * the time left is missing or malformed. {@link RequestDeadlineFilter} refuses requests that arrive after the
+ * deadline and makes it available here for the rest of the request. Code about to start expensive work calls
+ * {@link #checkpoint()}, which aborts the request once nobody waits for the result.
+ * </p>
+ *
+ * <b>Example Usage:</b>
+ * <pre>{@code
+ * RequestDeadline.checkpoint();
+ * return messageRepo.save(entity);
+ * }</pre>
+ *
+ * @since 1.0
+ */
+public final class RequestDeadline {
+
+    /**
+     * Header carrying the deadline in epoch milliseconds.
+     */
+    public static final String HEADER = "X-Request-Deadline";
+
+    /**
+     * Header carrying the time left until the deadline in milliseconds.
+     */
+    public static final String TIMEOUT_HEADER = "X-Request-Timeout";
+
+    private static final ThreadLocal<RequestDeadline> CURRENT = new ThreadLocal<>();
+
+    private final long epochMillis;
+
+    private RequestDeadline(long epochMillis) {
+        this.epochMillis = epochMillis;
+    }
+
+    /**
+     * Parses a deadline header value.
+     *
+     * @param header the header value, may be {@code null}
+     * @return the deadline, or empty if the header is absent or not a number
+     */
+    public static Optional<RequestDeadline> parse(String header) {
+        if (header == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new RequestDeadline(Long.parseLong(header.trim())));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Resolves the deadline of a request from its headers, preferring the time left over the absolute deadline.
+     *
+     * @param timeoutHeader  the {@value #TIMEOUT_HEADER} header value, may be {@code null}
+     * @param deadlineHeader the {@value #HEADER} header value, may be {@code null}
+     * @param arrivalMillis  the request's arrival time in epoch milliseconds
+     * @return the deadline, or empty if neither header holds a number
+     */
+    public static Optional<RequestDeadline> resolve(String timeoutHeader, String deadlineHeader, long arrivalMillis) {
+        if (timeoutHeader != null) {
+            try {
+                return Optional.of(new RequestDeadline(arrivalMillis + Long.parseLong(timeoutHeader.trim())));
+            } catch (NumberFormatException e) {
+                // fall back to the absolute deadline
+            }
+        }
+        return parse(deadlineHeader);
+    }
+
+    /**
+     * @return the deadline of the current request, or empty if it has none
+     */
+    public static Optional<RequestDeadline> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    /**
+     * Aborts the current request if its deadline has passed; does nothing for requests without a deadline.
+     *
+     * @throws DeadlineExceededException if the deadline has passed
+     */
+    public static void checkpoint() {
+        RequestDeadline deadline = CURRENT.get();
+        if (deadline != null && deadline.isExpired()) {
+            throw new DeadlineExceededException("Request deadline passed " + -deadline.remaining().toMillis() + " ms ago");
+        }
+    }
+
+    /**
+     * @return the time left until the deadline; negative once it has passed
+     */
+    public Duration remaining() {
+        return Duration.ofMillis(epochMillis - System.currentTimeMillis());
+    }
+
+    /**
+     * @return {@code true} if the deadline has passed
+     */
+    public boolean isExpired() {
+        return System.currentTimeMillis() >= epochMillis;
+    }
+
+    /**
+     * @return the deadline in epoch milliseconds
+     */
+    public long epochMillis() {
+        return epochMillis;
+    }
+
+    static void set(RequestDeadline deadline) {
+        CURRENT.set(deadline);
+    }
+
+    static void clear() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,80 @@
+package com.daimlertrucksasia.it.dsc.localization.helper.deadline;
+
+import com.daimlertrucksasia.it.dsc.localization.exceptions.ErrorResponse;
+import com.daimlertrucksasia.it.dsc.localization.helper.HttpStatusCode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.Optional;
+
+/**
+ * Servlet filter that honours the deadline the API gateway propagates in the {@value RequestDeadline#TIMEOUT_HEADER}
+ * and {@value RequestDeadline#HEADER} headers, see {@link RequestDeadline#resolve}.
+ * <p>
+ * A request arriving after its deadline is answered with {@code 504 Gateway Timeout} right away, before any
+ * GraphQL or database work is done. Any other request carrying a deadline runs with it available through
+ * {@link RequestDeadline#current()} and {@link RequestDeadline#checkpoint()}.
+ * </p>
+ *
+ * @since 1.0
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestDeadlineFilter extends OncePerRequestFilter {
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Constructs a new {@code RequestDeadlineFilter}.
+     *
+     * @param objectMapper the mapper used to write the error response
+     */
+    public RequestDeadlineFilter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Optional<RequestDeadline> deadline = RequestDeadline.resolve(request.getHeader(RequestDeadline.TIMEOUT_HEADER),
+                request.getHeader(RequestDeadline.HEADER), System.currentTimeMillis());
+        if (deadline.isEmpty()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (deadline.get().isExpired()) {
+            log.warn("Refusing {} {}, its deadline passed {} ms ago",
+                    request.getMethod(), request.getRequestURI(), -deadline.get().remaining().toMillis());
+            response.setStatus(HttpStatusCode.GATEWAY_TIMEOUT.code());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), ErrorResponse.builder()
+                    .timestamp(OffsetDateTime.now())
+                    .status(HttpStatusCode.GATEWAY_TIMEOUT.code())
+                    .errorCode("DEADLINE_EXCEEDED")
+                    .message("Request deadline has already passed")
+                    .path(request.getRequestURI())
+                    .build());
+            return;
+        }
+
+        RequestDeadline.set(deadline.get());
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestDeadline.clear();
+        }
+    }
+}
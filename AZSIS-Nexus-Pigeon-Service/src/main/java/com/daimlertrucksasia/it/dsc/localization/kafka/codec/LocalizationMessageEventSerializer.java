@@ -0,0 +1,16 @@
+package com.daimlertrucksasia.it.dsc.localization.kafka.codec;
+
+import com.daimlertrucksasia.it.dsc.localization.kafka.model.LocalizationMessageEvent;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka {@link Serializer} writing {@link LocalizationMessageEvent}s in the binary format of
+ * {@link LocalizationMessageEventCodec}.
+ */
+public class LocalizationMessageEventSerializer implements Serializer<LocalizationMessageEvent> {
+
+    @Override
+    public byte[] serialize(String topic, LocalizationMessageEvent event) {
+        return event == null ? null : LocalizationMessageEventCodec.encode(event);
+    }
+}
@@ -1,22 +1,27 @@
 package com.daimlertrucksasia.it.dsc.localization.kafka.service.consumer;
 
 import com.daimlertrucksasia.it.dsc.localization.exceptions.InvalidEventTypeException;
+import com.daimlertrucksasia.it.dsc.localization.kafka.codec.LocalizationMessageEventDeserializer;
+import com.daimlertrucksasia.it.dsc.localization.kafka.model.KafkaEventHeaders;
 import com.daimlertrucksasia.it.dsc.localization.kafka.model.LocalizationMessageEvent;
 import com.daimlertrucksasia.it.dsc.localization.kafka.service.TopicDiscoveryService;
 import com.daimlertrucksasia.it.dsc.localization.kafka.service.producer.KafkaProducerService;
 import com.daimlertrucksasia.it.dsc.localization.localization.infra.MessageEventAuditEntryRepo;
 import com.daimlertrucksasia.it.dsc.localization.localization.model.MessageEventAuditEntity;
 import com.daimlertrucksasia.it.dsc.localization.localization.service.MessageService;
-import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.errors.SerializationException;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 
 /**
  * Kafka consumer service for listening to messages published to Kafka topics by the Pigeon system.
@@ -51,6 +56,8 @@ public class KafkaConsumerService {
 
     private final TopicDiscoveryService topicDiscoveryService;
 
+    private final LocalizationMessageEventDeserializer deserializer = new LocalizationMessageEventDeserializer();
+
     public KafkaConsumerService(MessageService messageService, KafkaProducerService kafkaProducerService,
                                 MessageEventAuditEntryRepo auditEntryRepo, TopicDiscoveryService topicDiscoveryService) {
         this.messageService = messageService;
@@ -63,19 +70,31 @@ public class KafkaConsumerService {
      * Consumes messages from the configured Kafka topic.
      * This method is automatically triggered when a new message is published to the topic.
      *
-     * @param messages the list of message content received from the Kafka topic
+     * <p>
+     * Records are screened by their {@link KafkaEventHeaders} before the payload is deserialized: records of another
+     * event type or an unsupported schema version are skipped, and so are repeated {@code requestId}s within the
+     * batch. Records without headers are processed as before.
+     * </p>
+     * <p>
+     * Requests may be binary encoded or JSON; replies are always sent in the binary localization event format.
+     * </p>
+     *
+     * @param records the records received from the Kafka topic, with their headers
      */
     @KafkaListener(topics = "${spring.localization.kafka.consumer.topic}", groupId = "${spring.localization.kafka.consumer.group-id}",
-            concurrency = "5", containerFactory = "kafkaListenerContainerFactory")
-    public void consume(List<String> messages) {
+            concurrency = "5", containerFactory = "localizationListenerContainerFactory")
+    public void consume(List<ConsumerRecord<String, ByteBuffer>> records) {
 
         List<MessageEventAuditEntity> saveAllAuditLogsInBatch = new ArrayList<>();
+        Set<String> batchRequestIds = new HashSet<>();
 
-        messages.forEach(message -> {
+        records.forEach(record -> {
+            if (!isProcessable(record, batchRequestIds)) {
+                return;
+            }
             try {
 
-                ObjectMapper jsonObjectMapper = new ObjectMapper();
-                LocalizationMessageEvent event = jsonObjectMapper.readValue(message, LocalizationMessageEvent.class);
+                LocalizationMessageEvent event = deserializer.deserialize(record.topic(), record.headers(), record.value());
 
                 String convertedMsg = messageService.getMessage(event.getMsgTemplateID(), event.getArgs() != null ?
                         event.getArgs().toArray(new String[0]) : new Object[]{}, Locale.ENGLISH);
@@ -86,22 +105,23 @@ public class KafkaConsumerService {
                         .userCoRelationID(event.getUserCoRelationID())
                         .serviceCoRelationID(event.getServiceCoRelationID())
                         .msgTemplateID(event.getMsgTemplateID())
-                        .args(String.join(",", event.getArgs()))
+                        .args(event.getArgs() != null ? String.join(",", event.getArgs()) : "")
                         .content(event.getContent())
                         .locale(event.getLocale())
                         .resolvedMessage(convertedMsg)
                         .msgCreationTimestamp(Instant.parse(event.getMsgCreationTimestamp()))
-                        .msgResolutionTimestamp(Instant.parse(Instant.now().getEpochSecond() + "")).build();
+                        .msgResolutionTimestamp(Instant.now()).build();
 
                 saveAllAuditLogsInBatch.add(eventAuditEntry);
                 event.setResolvedMessage(convertedMsg);
                 event.setMsgResolutionTimestamp(Instant.now().getEpochSecond() + "");
-                kafkaProducerService.sendMsg(topicDiscoveryService.resolveTopic(event.getServiceCoRelationID()), event.getRequestId(), event.toString());
+                kafkaProducerService.sendEvent(topicDiscoveryService.resolveTopic(event.getServiceCoRelationID()), event.getRequestId(), event,
+                        KafkaEventHeaders.of(event));
 
-            } catch (JsonParseException jsonParseException) {
-                log.error("Required Event of Type Message but received invalid Event {}", jsonParseException.getMessage());
+            } catch (SerializationException serializationException) {
+                log.error("Required Event of Type Message but received invalid Event {}", serializationException.getMessage());
                 kafkaProducerService.sendMsg("", "", "");
-                throw new InvalidEventTypeException("Required Event of Type Message but received invalid Event" + jsonParseException.getMessage());
+                throw new InvalidEventTypeException("Required Event of Type Message but received invalid Event" + serializationException.getMessage());
             } catch (Exception ex) {
                 log.error("Error processing Kafka message: {} ", ex.getMessage());
                 kafkaProducerService.sendMsg("", "", "");
@@ -127,4 +147,30 @@ public class KafkaConsumerService {
             auditEntryRepo.saveAll(newEntries);
 
     }
+
+    /**
+     * Decides from the record headers alone whether a record is worth deserializing.
+     *
+     * @param record          the received record
+     * @param batchRequestIds request ids already seen in the current batch; updated by this call
+     * @return {@code false} for records of another event type, an unsupported schema version or a duplicate request id
+     */
+    private boolean isProcessable(ConsumerRecord<String, ByteBuffer> record, Set<String> batchRequestIds) {
+        String eventType = KafkaEventHeaders.get(record.headers(), KafkaEventHeaders.EVENT_TYPE);
+        if (eventType != null && !KafkaEventHeaders.LOCALIZATION_EVENT_TYPE.equals(eventType)) {
+            log.debug("Skipping event of type {} at offset {}", eventType, record.offset());
+            return false;
+        }
+        String schemaVersion = KafkaEventHeaders.get(record.headers(), KafkaEventHeaders.SCHEMA_VERSION);
+        if (schemaVersion != null && !KafkaEventHeaders.CURRENT_SCHEMA_VERSION.equals(schemaVersion)) {
+            log.warn("Skipping event with unsupported schema version {} at offset {}", schemaVersion, record.offset());
+            return false;
+        }
+        String requestId = KafkaEventHeaders.get(record.headers(), KafkaEventHeaders.REQUEST_ID);
+        if (requestId != null && !batchRequestIds.add(requestId)) {
+            log.debug("Skipping duplicate request {} at offset {}", requestId, record.offset());
+            return false;
+        }
+        return true;
+    }
 }
@@ -1,11 +1,19 @@
 package com.daimlertrucksasia.it.dsc.localization.kafka.service.producer;
 
+import com.daimlertrucksasia.it.dsc.localization.kafka.model.LocalizationMessageEvent;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.retry.support.RetryTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Qualifier;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
 /**
  * Service class responsible for sending messages to Kafka topics related to the Pigeon system.
  * <p>
@@ -19,6 +27,12 @@ import org.springframework.beans.factory.annotation.Qualifier;
  * <p>
  * Logging is enabled to trace message send attempts and failures.
  * </p>
+ * <p>
+ * Correlation metadata travels as record headers (see {@link com.daimlertrucksasia.it.dsc.localization.kafka.model.KafkaEventHeaders})
+ * passed to {@link #sendMsg(String, String, String, Iterable)}. Localization events are sent as typed records in the
+ * binary format of {@link com.daimlertrucksasia.it.dsc.localization.kafka.codec.LocalizationMessageEventCodec} through
+ * {@link #sendEvent(String, String, LocalizationMessageEvent, Iterable)}.
+ * </p>
  *
  */
 @Slf4j
@@ -31,15 +45,21 @@ public class KafkaProducerService {
     @Qualifier("kafkaProducerRetryTemplate")
     private RetryTemplate kafkaProducerRetryTemplate;
 
+    private final KafkaTemplate<String, LocalizationMessageEvent> localizationKafkaTemplate;
+
     /**
      * Constructs a {@code KafkaProducerService} with injected KafkaTemplate and RetryTemplate.
      *
      * @param pigeonKafkaTemplate        the Kafka template used to send messages to Kafka topics
      * @param kafkaProducerRetryTemplate the retry template used to retry sending messages on failure
+     * @param localizationKafkaTemplate  the Kafka template used to send binary encoded localization events
      */
-    public KafkaProducerService(KafkaTemplate<String, String> pigeonKafkaTemplate, RetryTemplate kafkaProducerRetryTemplate) {
+    public KafkaProducerService(@Qualifier("pigeonKafkaTemplate") KafkaTemplate<String, String> pigeonKafkaTemplate,
+                                RetryTemplate kafkaProducerRetryTemplate,
+                                @Qualifier("localizationKafkaTemplate") KafkaTemplate<String, LocalizationMessageEvent> localizationKafkaTemplate) {
         this.pigeonKafkaTemplate = pigeonKafkaTemplate;
         this.kafkaProducerRetryTemplate = kafkaProducerRetryTemplate;
+        this.localizationKafkaTemplate = localizationKafkaTemplate;
     }
 
     /**
@@ -58,12 +78,46 @@ public class KafkaProducerService {
      * @throws Exception if sending the message fails after all retry attempts
      */
     public void sendMsg(String pigeonTopic, String key, String msgContent) {
+        sendMsg(pigeonTopic, key, msgContent, List.of());
+    }
+
+    /**
+     * Sends a message with record headers to the specified Kafka topic with retry logic.
+     *
+     * @param pigeonTopic the name of the Kafka topic to send the message to
+     * @param key         the key for the message
+     * @param msgContent  the content of the message to send
+     * @param headers     the record headers, e.g. {@link com.daimlertrucksasia.it.dsc.localization.kafka.model.KafkaEventHeaders#of}
+     * @see #sendMsg(String, String, String)
+     */
+    public void sendMsg(String pigeonTopic, String key, String msgContent, Iterable<Header> headers) {
         log.info("Sending message to topic: {}, key: {}, message: {}", pigeonTopic, key, msgContent);
 
+        sendWithRetry(pigeonTopic, () -> pigeonKafkaTemplate.send(new ProducerRecord<>(pigeonTopic, null, key, msgContent, headers)));
+    }
+
+    /**
+     * Sends a localization event with record headers to the specified Kafka topic with retry logic.
+     *
+     * @param pigeonTopic the name of the Kafka topic to send the event to
+     * @param key         the key for the record
+     * @param event       the event; serialized in the binary localization event format
+     * @param headers     the record headers, usually {@link com.daimlertrucksasia.it.dsc.localization.kafka.model.KafkaEventHeaders#of}
+     */
+    public void sendEvent(String pigeonTopic, String key, LocalizationMessageEvent event, Iterable<Header> headers) {
+        log.info("Sending event to topic: {}, key: {}, event: {}", pigeonTopic, key, event);
+
+        sendWithRetry(pigeonTopic, () -> localizationKafkaTemplate.send(new ProducerRecord<>(pigeonTopic, null, key, event, headers)));
+    }
+
+    /**
+     * Sends a fresh record per attempt and blocks until it is acknowledged or all retry attempts failed.
+     */
+    private void sendWithRetry(String pigeonTopic, Supplier<? extends CompletableFuture<? extends SendResult<String, ?>>> sender) {
         try {
 
             kafkaProducerRetryTemplate.execute(context -> {
-                pigeonKafkaTemplate.send(pigeonTopic, key, msgContent).get(); // blocks until send completes
+                sender.get().get(); // blocks until send completes
                 log.info("Message sent on attempt #{}", context.getRetryCount() + 1);
                 return null;
             }, context -> {
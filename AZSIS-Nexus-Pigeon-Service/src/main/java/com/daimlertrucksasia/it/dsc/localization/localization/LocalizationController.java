@@ -1,5 +1,7 @@
 package com.daimlertrucksasia.it.dsc.localization.localization;
 
+import com.daimlertrucksasia.it.dsc.localization.exceptions.DeadlineExceededException;
+import com.daimlertrucksasia.it.dsc.localization.helper.deadline.RequestDeadline;
 import com.daimlertrucksasia.it.dsc.localization.localization.infra.MessageRepository;
 import com.daimlertrucksasia.it.dsc.localization.localization.model.LocalizedMessageEntity;
 import com.daimlertrucksasia.it.dsc.localization.localization.model.LocalizedMsgRequest;
@@ -78,9 +80,11 @@ public class LocalizationController {
      *
      * @param newMsg the new localized message template to be created (must not be null and must be valid)
      * @return the persisted {@link LocalizedMessageEntity}
+     * @throws DeadlineExceededException if the request's deadline passed before the template was saved
      */
     @GraphQLMutation(name = "createMsgTemplate", deprecationReason = "MSG template Registration")
     public LocalizedMessageEntity createLocalizedMsg(@GraphQLArgument(name = "newMsg") @GraphQLNonNull @Valid LocalizedMsgRequest newMsg) {
+        RequestDeadline.checkpoint();
         return messageRepo.save(LocalizedMessageEntity.builder()
                 .locale(newMsg.getLocale())
                 .message(newMsg.getMessage())
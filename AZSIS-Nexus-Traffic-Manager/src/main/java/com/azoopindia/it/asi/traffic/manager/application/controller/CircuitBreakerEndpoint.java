@@ -0,0 +1,52 @@
+package com.azoopindia.it.asi.traffic.manager.application.controller;
+
+import com.azoopindia.it.asi.traffic.manager.model.dto.CircuitBreakerSnapshot;
+import com.azoopindia.it.asi.traffic.manager.service.ServiceCircuitBreakerRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Actuator endpoint exposing the per-service circuit breakers of the universal router.
+ * <p>
+ * Example usage:
+ * <pre>
+ * GET /actuator/circuitbreakers
+ * GET /actuator/circuitbreakers/{serviceId}
+ * </pre>
+ * The endpoint must be included in {@code management.endpoints.web.exposure.include}.
+ *
+ * @see ServiceCircuitBreakerRegistry
+ */
+@Component
+@Endpoint(id = "circuitbreakers")
+@RequiredArgsConstructor
+public class CircuitBreakerEndpoint {
+
+    private final ServiceCircuitBreakerRegistry circuitBreakerRegistry;
+
+    /**
+     * Lists the state of every circuit breaker.
+     *
+     * @return snapshots keyed by service id
+     */
+    @ReadOperation
+    public Map<String, CircuitBreakerSnapshot> circuitBreakers() {
+        return circuitBreakerRegistry.snapshots();
+    }
+
+    /**
+     * Returns the state of one service's circuit breaker.
+     *
+     * @param serviceId the downstream service id
+     * @return the snapshot; actuator answers {@code 404} if the service has not been called yet
+     */
+    @ReadOperation
+    public CircuitBreakerSnapshot circuitBreaker(@Selector String serviceId) {
+        return circuitBreakerRegistry.snapshot(serviceId);
+    }
+}
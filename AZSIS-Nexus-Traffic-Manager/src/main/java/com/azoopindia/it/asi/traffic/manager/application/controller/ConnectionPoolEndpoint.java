@@ -0,0 +1,54 @@
+package com.azoopindia.it.asi.traffic.manager.application.controller;
+
+import com.azoopindia.it.asi.traffic.manager.model.dto.ConnectionPoolSnapshot;
+import com.azoopindia.it.asi.traffic.manager.service.ServiceConnectionPools;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Actuator endpoint exposing the utilization of the per-service downstream connection pools.
+ * <p>
+ * Example usage:
+ * <pre>
+ * GET /actuator/connectionpools
+ * GET /actuator/connectionpools/{serviceId}
+ * </pre>
+ * The endpoint must be included in {@code management.endpoints.web.exposure.include}. The same figures are
+ * published as {@code gateway.connection.pool.*} gauges under {@code /actuator/metrics}.
+ *
+ * @see ServiceConnectionPools
+ */
+@Component
+@Endpoint(id = "connectionpools")
+@RequiredArgsConstructor
+public class ConnectionPoolEndpoint {
+
+    private final ServiceConnectionPools connectionPools;
+
+    /**
+     * Lists the pools of every service.
+     *
+     * @return snapshots per instance, keyed by service id
+     */
+    @ReadOperation
+    public Map<String, List<ConnectionPoolSnapshot>> connectionPools() {
+        return connectionPools.snapshots();
+    }
+
+    /**
+     * Returns the pools of one service.
+     *
+     * @param serviceId the downstream service id
+     * @return snapshots per instance; actuator answers {@code 404} if no connection to the service was opened yet
+     */
+    @ReadOperation
+    public List<ConnectionPoolSnapshot> connectionPool(@Selector String serviceId) {
+        return connectionPools.snapshot(serviceId);
+    }
+}
@@ -0,0 +1,67 @@
+package com.azoopindia.it.asi.traffic.manager.application.controller;
+
+import com.azoopindia.it.asi.traffic.manager.model.dto.BulkImportRowResult;
+import com.azoopindia.it.asi.traffic.manager.model.dto.RateLimitConfigRequest;
+import com.azoopindia.it.asi.traffic.manager.service.RateLimitConfigBulkService;
+import com.azoopindia.it.asi.traffic.manager.service.RateLimitConfigBulkService.Format;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+/**
+ * REST controller for importing and exporting rate limit configurations in bulk.
+ * <p>
+ * Both endpoints stream: the upload is processed chunk by chunk while it is still being received,
+ * and results are written back as newline-delimited JSON as soon as each chunk is committed.
+ * </p>
+ * <p>
+ * Example usage:
+ * <pre>
+ * curl -X POST -H 'Content-Type: text/csv' --data-binary @limits.csv /rate/limit/bulk/import
+ * curl -X POST -H 'Content-Type: application/x-ndjson' --data-binary @limits.ndjson /rate/limit/bulk/import
+ * curl /rate/limit/bulk/export &gt; limits.ndjson
+ * </pre>
+ *
+ * @see RateLimitConfigBulkService
+ */
+@RestController
+@RequestMapping("/rate/limit/bulk")
+@RequiredArgsConstructor
+public class RateLimitConfigBulkController {
+
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
+    private final RateLimitConfigBulkService bulkService;
+
+    /**
+     * Imports configurations from an NDJSON or CSV upload. Existing configurations with the same
+     * client and route are updated; all others are created.
+     *
+     * @param request the HTTP request, used to pick the input format from its {@code Content-Type}
+     * @param lines   the uploaded body, line by line
+     * @return one {@link BulkImportRowResult} per input row
+     */
+    @PostMapping(value = "/import",
+            consumes = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BulkImportRowResult> importConfigs(ServerHttpRequest request, @RequestBody Flux<String> lines) {
+        MediaType contentType = request.getHeaders().getContentType();
+        Format format = contentType != null && contentType.isCompatibleWith(MediaType.valueOf(TEXT_CSV_VALUE))
+                ? Format.CSV
+                : Format.NDJSON;
+
+        return bulkService.importConfigs(lines, format);
+    }
+
+    /**
+     * Exports all configurations as NDJSON, in a form accepted by {@link #importConfigs}.
+     *
+     * @return all configurations, one per line
+     */
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<RateLimitConfigRequest> exportConfigs() {
+        return bulkService.exportConfigs();
+    }
+}
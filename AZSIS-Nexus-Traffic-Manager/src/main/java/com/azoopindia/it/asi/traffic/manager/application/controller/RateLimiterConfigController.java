@@ -54,6 +54,7 @@ public class RateLimiterConfigController {
      * to avoid duplicates.
      */
     @PostMapping("/register")
+    @SuppressWarnings("deprecation") // requestsPerMinute is copied so the entity listener can reject it
     public ResponseEntity<RateLimitConfig> registerRateLimit(@RequestBody RateLimitConfig config) {
         RateLimitConfig savedConfig = configRepository.save(
                 RateLimitConfig.builder()
@@ -64,6 +65,9 @@ public class RateLimiterConfigController {
                         .timeWindow(config.getTimeWindow())
                         .timeUnit(config.getTimeUnit())
                         .burstCapacity(config.getBurstCapacity())
+                        .algorithm(config.getAlgorithm())
+                        .dailyQuota(config.getDailyQuota())
+                        .monthlyQuota(config.getMonthlyQuota())
                         .priority(config.getPriority())
                         .expirationDate(config.getExpirationDate())
                         .createdAt(LocalDateTime.now())
@@ -89,6 +93,7 @@ public class RateLimiterConfigController {
      * @implNote This endpoint performs a full-field update on the found configuration.
      */
     @PutMapping("/update/{id}")
+    @SuppressWarnings("deprecation") // requestsPerMinute is copied so the entity listener can reject it
     public ResponseEntity<RateLimitConfig> updateRateLimit(@PathVariable String id, @RequestBody RateLimitConfig config) {
         return configRepository.findById(id)
                 .map(existing -> {
@@ -99,6 +104,9 @@ public class RateLimiterConfigController {
                     existing.setTimeWindow(config.getTimeWindow());
                     existing.setTimeUnit(config.getTimeUnit());
                     existing.setBurstCapacity(config.getBurstCapacity());
+                    existing.setAlgorithm(config.getAlgorithm());
+                    existing.setDailyQuota(config.getDailyQuota());
+                    existing.setMonthlyQuota(config.getMonthlyQuota());
                     existing.setPriority(config.getPriority());
                     existing.setExpirationDate(config.getExpirationDate());
                     existing.setStatus(config.getStatus());
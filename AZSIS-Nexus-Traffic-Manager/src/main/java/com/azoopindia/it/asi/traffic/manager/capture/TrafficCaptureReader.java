@@ -0,0 +1,97 @@
+package com.azoopindia.it.asi.traffic.manager.capture;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Sequential reader of a capture file written by {@link TrafficCaptureWriter}.
+ * <p>
+ * A file whose writer died mid-record ends with a partial record; it is treated as the end of the file.
+ * </p>
+ */
+public class TrafficCaptureReader implements Closeable {
+
+    /**
+     * Upper bound of a record payload; larger lengths can only come from a corrupt file.
+     */
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+
+    private final DataInputStream in;
+
+    /**
+     * Opens a capture file and checks its header.
+     *
+     * @param file the capture file
+     * @throws IOException if the file cannot be read or is not a capture file of a supported version
+     */
+    public TrafficCaptureReader(Path file) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024));
+        try {
+            byte[] magic = in.readNBytes(TrafficCaptureRecord.MAGIC.length);
+            if (!Arrays.equals(magic, TrafficCaptureRecord.MAGIC)) {
+                throw new IOException("Not a traffic capture file: " + file);
+            }
+            int version = in.read();
+            if (version < 1 || version > TrafficCaptureRecord.FORMAT_VERSION) {
+                throw new IOException("Unsupported traffic capture format version " + version + ": " + file);
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Lists the capture files to read.
+     *
+     * @param fileOrDirectory a capture file, or a directory whose {@code *.cap} files are listed
+     * @return the files, sorted by name, which is the order they were written in by one instance
+     * @throws IOException if the directory cannot be listed
+     */
+    public static List<Path> files(Path fileOrDirectory) throws IOException {
+        if (!Files.isDirectory(fileOrDirectory)) {
+            return List.of(fileOrDirectory);
+        }
+        try (Stream<Path> files = Files.list(fileOrDirectory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(TrafficCaptureRecord.FILE_SUFFIX))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return the record, or {@code null} at the end of the file
+     * @throws IOException if the file cannot be read or a complete record is malformed
+     */
+    public TrafficCaptureRecord next() throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (length < 0 || length > MAX_RECORD_BYTES) {
+            throw new IOException("Corrupt traffic capture record length " + length);
+        }
+        byte[] payload = in.readNBytes(length);
+        if (payload.length < length) {
+            return null;
+        }
+        return TrafficCaptureRecord.decode(payload);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,160 @@
+package com.azoopindia.it.asi.traffic.manager.capture;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One captured inbound request.
+ * <p>
+ * Capture files ({@code *.cap}) start with the magic bytes {@code AZTC} and a format version byte, followed by
+ * records, each written as a 4-byte big-endian length and the payload produced by {@link #encode()}:
+ * </p>
+ *
+ * <pre>
+ *  long   arrivalEpochMicros
+ *  int    durationMicros
+ *  short  status
+ *  UTF    method
+ *  UTF    path
+ *  byte   header count, then UTF name and UTF value per header
+ *  byte   flags: 1 = operation name, 2 = body hash, 4 = body
+ *  UTF    operationName             (if flagged)
+ *  byte   hash length + hash bytes  (if flagged)
+ *  int    body length + body bytes  (if flagged)
+ * </pre>
+ *
+ * <p>
+ * Records are appended when their response completes, so a file is ordered by completion rather than by arrival;
+ * readers that replay traffic order by {@link #arrivalEpochMicros()} themselves.
+ * </p>
+ *
+ * @param arrivalEpochMicros when the request arrived, in microseconds since the epoch
+ * @param durationMicros     time from arrival to response completion
+ * @param status             response status code, {@code 0} if none was set
+ * @param method             HTTP method
+ * @param path               raw request path, with the query string only if captured
+ * @param headers            captured headers; hashed headers hold the hex hash of their value
+ * @param operationName      GraphQL operation name, or {@code null}
+ * @param bodyHash           SHA-256 of the request body, or {@code null} if the body was not read
+ * @param body               the request body, or {@code null} if it was not captured
+ */
+public record TrafficCaptureRecord(long arrivalEpochMicros,
+                                   int durationMicros,
+                                   int status,
+                                   String method,
+                                   String path,
+                                   Map<String, String> headers,
+                                   String operationName,
+                                   byte[] bodyHash,
+                                   byte[] body) {
+
+    static final byte[] MAGIC = {'A', 'Z', 'T', 'C'};
+
+    static final byte FORMAT_VERSION = 1;
+
+    static final String FILE_SUFFIX = ".cap";
+
+    private static final int FLAG_OPERATION = 1;
+
+    private static final int FLAG_HASH = 2;
+
+    private static final int FLAG_BODY = 4;
+
+    /**
+     * Hashes a header value that must not be stored as is: the first 16 bytes of its SHA-256, in hex.
+     * Tools reading captures apply the same function to match known values, e.g. client ids, against them.
+     *
+     * @param value the header value
+     * @return the hash
+     */
+    public static String hashValue(String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Serializes the record payload, without the length prefix.
+     *
+     * @return the payload
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128 + (body == null ? 0 : body.length));
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(arrivalEpochMicros);
+            out.writeInt(durationMicros);
+            out.writeShort(status);
+            out.writeUTF(method);
+            out.writeUTF(path);
+            out.writeByte(headers.size());
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                out.writeUTF(header.getKey());
+                out.writeUTF(header.getValue());
+            }
+            out.writeByte((operationName != null ? FLAG_OPERATION : 0)
+                    | (bodyHash != null ? FLAG_HASH : 0)
+                    | (body != null ? FLAG_BODY : 0));
+            if (operationName != null) {
+                out.writeUTF(operationName);
+            }
+            if (bodyHash != null) {
+                out.writeByte(bodyHash.length);
+                out.write(bodyHash);
+            }
+            if (body != null) {
+                out.writeInt(body.length);
+                out.write(body);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserializes a payload written by {@link #encode()}.
+     *
+     * @param payload the payload
+     * @return the record
+     * @throws IOException if the payload is malformed
+     */
+    public static TrafficCaptureRecord decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        long arrivalEpochMicros = in.readLong();
+        int durationMicros = in.readInt();
+        int status = in.readUnsignedShort();
+        String method = in.readUTF();
+        String path = in.readUTF();
+        int headerCount = in.readUnsignedByte();
+        Map<String, String> headers = new LinkedHashMap<>(headerCount * 2);
+        for (int i = 0; i < headerCount; i++) {
+            headers.put(in.readUTF(), in.readUTF());
+        }
+        int flags = in.readUnsignedByte();
+        String operationName = (flags & FLAG_OPERATION) != 0 ? in.readUTF() : null;
+        byte[] bodyHash = (flags & FLAG_HASH) != 0 ? readBytes(in, in.readUnsignedByte()) : null;
+        byte[] body = (flags & FLAG_BODY) != 0 ? readBytes(in, in.readInt()) : null;
+        return new TrafficCaptureRecord(arrivalEpochMicros, durationMicros, status, method, path, headers,
+                operationName, bodyHash, body);
+    }
+
+    private static byte[] readBytes(DataInputStream in, int length) throws IOException {
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Truncated capture record");
+        }
+        return in.readNBytes(length);
+    }
+}
@@ -0,0 +1,187 @@
+package com.azoopindia.it.asi.traffic.manager.capture;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends captured requests to capture files on a single background thread.
+ * <p>
+ * Request threads only {@link #submit(TrafficCaptureRecord) offer} records to a bounded queue; when the disk cannot
+ * keep up, records are dropped and counted instead of slowing the gateway down. Files are named
+ * {@code traffic-<timestamp>-<pid>-<sequence>.cap}, so several instances can share a directory, and are rotated
+ * once they reach {@code dynamic-routing.capture.max-file-bytes}. The format is described in
+ * {@link TrafficCaptureRecord}.
+ * </p>
+ *
+ * <p>Metrics: {@code gateway.capture.records} (written) and {@code gateway.capture.dropped} (queue full or I/O error).</p>
+ */
+@Slf4j
+@Component
+public class TrafficCaptureWriter {
+
+    private static final int HEADER_BYTES = TrafficCaptureRecord.MAGIC.length + 1;
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    private final DynamicRoutingProperties.Capture props;
+
+    private final BlockingQueue<TrafficCaptureRecord> queue;
+
+    private final Counter written;
+
+    private final Counter dropped;
+
+    private volatile boolean running;
+
+    private Thread thread;
+
+    /**
+     * Current file; only touched by the writer thread.
+     */
+    private DataOutputStream out;
+
+    private long fileBytes;
+
+    private int fileSequence;
+
+    public TrafficCaptureWriter(DynamicRoutingProperties props, MeterRegistry meterRegistry) {
+        this.props = props.getCapture();
+        this.queue = new ArrayBlockingQueue<>(this.props.getQueueCapacity());
+        this.written = meterRegistry.counter("gateway.capture.records");
+        this.dropped = meterRegistry.counter("gateway.capture.dropped");
+    }
+
+    /**
+     * Starts the writer thread if capturing is enabled.
+     */
+    @PostConstruct
+    public void start() {
+        if (!props.isEnabled() || running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "traffic-capture-writer");
+        thread.setDaemon(true);
+        thread.start();
+        log.info("Capturing {}% of clients' traffic into {}", props.getSampleRate() * 100, props.getDirectory());
+    }
+
+    /**
+     * Writes the records still queued and closes the current file.
+     */
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues a record for writing without blocking.
+     *
+     * @param record the captured request
+     * @return {@code false} if the record was dropped
+     */
+    public boolean submit(TrafficCaptureRecord record) {
+        if (running && queue.offer(record)) {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    private void run() {
+        List<TrafficCaptureRecord> batch = new ArrayList<>(256);
+        try {
+            while (running || !queue.isEmpty()) {
+                TrafficCaptureRecord first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, 255);
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeFile();
+        }
+    }
+
+    /**
+     * Appends a batch and flushes it, so a crash loses at most the batch being written.
+     */
+    private void write(List<TrafficCaptureRecord> batch) {
+        try {
+            for (TrafficCaptureRecord record : batch) {
+                byte[] payload = record.encode();
+                if (out == null || fileBytes > HEADER_BYTES && fileBytes + 4 + payload.length > props.getMaxFileBytes()) {
+                    openFile();
+                }
+                out.writeInt(payload.length);
+                out.write(payload);
+                fileBytes += 4 + payload.length;
+                written.increment();
+            }
+            out.flush();
+        } catch (IOException e) {
+            log.warn("Failed to write traffic capture: {}", e.getMessage());
+            dropped.increment(batch.size());
+            closeFile();
+        }
+    }
+
+    private void openFile() throws IOException {
+        closeFile();
+        Path directory = Path.of(props.getDirectory());
+        Files.createDirectories(directory);
+        String name = "traffic-" + LocalDateTime.now().format(FILE_TIMESTAMP) + "-" + ProcessHandle.current().pid()
+                + "-" + fileSequence++ + TrafficCaptureRecord.FILE_SUFFIX;
+        Path file = directory.resolve(name);
+        out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), 64 * 1024));
+        out.write(TrafficCaptureRecord.MAGIC);
+        out.writeByte(TrafficCaptureRecord.FORMAT_VERSION);
+        fileBytes = HEADER_BYTES;
+        log.debug("Started traffic capture file {}", file);
+    }
+
+    private void closeFile() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            log.warn("Failed to close traffic capture file: {}", e.getMessage());
+        }
+        out = null;
+    }
+}
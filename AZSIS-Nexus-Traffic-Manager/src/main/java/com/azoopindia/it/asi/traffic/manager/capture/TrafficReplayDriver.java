@@ -0,0 +1,228 @@
+package com.azoopindia.it.asi.traffic.manager.capture;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Re-issues captured traffic against a gateway, keeping the original inter-arrival times scaled by a speed factor.
+ * <p>
+ * Capture files of several instances are merged by arrival time. Each request is sent with its recorded method,
+ * path, headers and, if captured, body. Requests whose non-empty body was only recorded as a hash cannot be
+ * reproduced and are skipped; requests whose body was never read (e.g. rejected at admission) are sent without one.
+ * Hashed header values are sent as recorded, which keeps distinct clients distinct for the rate limiter.
+ * </p>
+ *
+ * <p>Run it against a local stack from the built jar:</p>
+ * <pre>
+ * java -cp target/app.jar -Dloader.main=com.azoopindia.it.asi.traffic.manager.capture.TrafficReplayDriver \
+ *      org.springframework.boot.loader.launch.PropertiesLauncher capture/ http://localhost:8080 4
+ * </pre>
+ *
+ * <p>
+ * At most {@value #MAX_OUTSTANDING} requests are in flight; when the target cannot keep up, the driver falls
+ * behind schedule rather than queueing without bound, and reports how far behind it fell.
+ * </p>
+ */
+public class TrafficReplayDriver {
+
+    static final int MAX_OUTSTANDING = 1024;
+
+    private static final byte[] EMPTY_BODY_HASH = sha256(new byte[0]);
+
+    private final WebClient webClient;
+
+    private final String target;
+
+    private final double speed;
+
+    private final Semaphore outstanding = new Semaphore(MAX_OUTSTANDING);
+
+    private final LongAdder failed = new LongAdder();
+
+    private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+    private final ConcurrentLinkedQueue<Long> latenciesMicros = new ConcurrentLinkedQueue<>();
+
+    /**
+     * @param webClient client used to send the requests
+     * @param target    base URL of the gateway, e.g. {@code http://localhost:8080}
+     * @param speed     replay speed, {@code 1} for real time, {@code 4} for four times as fast
+     */
+    public TrafficReplayDriver(WebClient webClient, String target, double speed) {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Replay speed must be positive: " + speed);
+        }
+        this.webClient = webClient;
+        this.target = target.endsWith("/") ? target.substring(0, target.length() - 1) : target;
+        this.speed = speed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: TrafficReplayDriver <capture file or directory> <target base URL> [speed]");
+            System.exit(2);
+        }
+        double speed = args.length > 2 ? Double.parseDouble(args[2]) : 1;
+        TrafficReplayDriver driver = new TrafficReplayDriver(WebClient.create(), args[1], speed);
+        System.out.println(driver.replay(TrafficCaptureReader.files(Path.of(args[0]))));
+    }
+
+    /**
+     * Replays the given capture files and waits for all responses.
+     *
+     * @param files capture files, in any order
+     * @return the outcome of the replay
+     * @throws IOException          if a file cannot be read
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Summary replay(List<Path> files) throws IOException, InterruptedException {
+        PriorityQueue<Source> sources = new PriorityQueue<>(Comparator.comparingLong(source -> source.head.arrivalEpochMicros()));
+        List<TrafficCaptureReader> readers = new ArrayList<>(files.size());
+        long sent = 0;
+        long skipped = 0;
+        long maxLagMicros = 0;
+        try {
+            for (Path file : files) {
+                TrafficCaptureReader reader = new TrafficCaptureReader(file);
+                readers.add(reader);
+                Source source = new Source(reader);
+                if (source.advance()) {
+                    sources.add(source);
+                }
+            }
+
+            long firstArrival = sources.isEmpty() ? 0 : sources.peek().head.arrivalEpochMicros();
+            long startNanos = System.nanoTime();
+            while (!sources.isEmpty()) {
+                Source source = sources.poll();
+                TrafficCaptureRecord record = source.head;
+                if (source.advance()) {
+                    sources.add(source);
+                }
+                if (!isReplayable(record)) {
+                    skipped++;
+                    continue;
+                }
+
+                long due = startNanos + (long) ((record.arrivalEpochMicros() - firstArrival) * 1000 / speed);
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                }
+                outstanding.acquire();
+                maxLagMicros = Math.max(maxLagMicros, (System.nanoTime() - due) / 1000);
+                send(record);
+                sent++;
+            }
+            outstanding.acquire(MAX_OUTSTANDING);
+            outstanding.release(MAX_OUTSTANDING);
+        } finally {
+            for (TrafficCaptureReader reader : readers) {
+                reader.close();
+            }
+        }
+
+        long[] latencies = latenciesMicros.stream().mapToLong(Long::longValue).sorted().toArray();
+        Map<Integer, Long> statusCounts = new TreeMap<>();
+        statuses.forEach((status, count) -> statusCounts.put(status, count.sum()));
+        return new Summary(sent, skipped, failed.sum(), statusCounts,
+                percentile(latencies, 0.5), percentile(latencies, 0.99),
+                latencies.length == 0 ? 0 : latencies[latencies.length - 1], maxLagMicros);
+    }
+
+    private boolean isReplayable(TrafficCaptureRecord record) {
+        return record.body() != null || record.bodyHash() == null || Arrays.equals(record.bodyHash(), EMPTY_BODY_HASH);
+    }
+
+    /**
+     * Sends a request asynchronously; the caller has acquired a permit, which is released on completion.
+     */
+    private void send(TrafficCaptureRecord record) {
+        long start = System.nanoTime();
+        WebClient.RequestBodySpec request = webClient.method(HttpMethod.valueOf(record.method()))
+                .uri(URI.create(target + record.path()))
+                .headers(headers -> record.headers().forEach(headers::set));
+        (record.body() != null ? request.bodyValue(record.body()) : request)
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()))
+                .switchIfEmpty(Mono.just(0))
+                .doFinally(signal -> outstanding.release())
+                .subscribe(status -> {
+                    latenciesMicros.add((System.nanoTime() - start) / 1000);
+                    statuses.computeIfAbsent(status, key -> new LongAdder()).increment();
+                }, error -> failed.increment());
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, (long) (sorted.length * quantile))];
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Outcome of a replay.
+     *
+     * @param sent          requests sent
+     * @param skipped       requests not sent because their body was not captured
+     * @param failed        requests that got no response
+     * @param statuses      number of responses per status code
+     * @param p50Micros     median latency
+     * @param p99Micros     99th percentile latency
+     * @param maxMicros     highest latency
+     * @param maxLagMicros  how far behind the scaled schedule a request was sent at worst
+     */
+    public record Summary(long sent, long skipped, long failed, Map<Integer, Long> statuses,
+                          long p50Micros, long p99Micros, long maxMicros, long maxLagMicros) {
+
+        @Override
+        public String toString() {
+            return String.format("sent=%d skipped=%d failed=%d statuses=%s latency p50=%.1fms p99=%.1fms max=%.1fms max-lag=%.1fms",
+                    sent, skipped, failed, statuses, p50Micros / 1000.0, p99Micros / 1000.0, maxMicros / 1000.0,
+                    maxLagMicros / 1000.0);
+        }
+    }
+
+    /**
+     * A capture file positioned at its next record.
+     */
+    private static final class Source {
+
+        private final TrafficCaptureReader reader;
+
+        private TrafficCaptureRecord head;
+
+        private Source(TrafficCaptureReader reader) {
+            this.reader = reader;
+        }
+
+        private boolean advance() throws IOException {
+            head = reader.next();
+            return head != null;
+        }
+    }
+}
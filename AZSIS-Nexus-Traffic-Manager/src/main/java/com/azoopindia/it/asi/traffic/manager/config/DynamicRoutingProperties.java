@@ -1,12 +1,24 @@
 package com.azoopindia.it.asi.traffic.manager.config;
 
+import com.azoopindia.it.asi.traffic.manager.kafka.helper.InstanceIdentity;
 
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.validation.annotation.Validated;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Configuration class that binds properties prefixed with {@code dynamic-routing}
  * from the application configuration (e.g., application.yml or application.properties).
@@ -19,6 +31,16 @@ import org.springframework.validation.annotation.Validated;
  *   <li>{@code gatewayPrefix}: Common REST path prefix used for identifying routes.</li>
  *   <li>{@code graphql}: Nested GraphQL-specific routing configuration.</li>
  *   <li>{@code rest}: Nested REST-specific routing configuration.</li>
+ *   <li>{@code loadBalancing}: Tuning of the latency-aware load balancer used for {@code lb://} URIs.</li>
+ *   <li>{@code circuitBreaker}: Per-service circuit breakers applied by the universal router.</li>
+ *   <li>{@code connectionPool}: Per-service downstream connection pools and their warm-up.</li>
+ *   <li>{@code admission}: Header-only, per-client admission check applied before any request body is read.</li>
+ *   <li>{@code capture}: Sampled, privacy-filtered recording of inbound traffic for offline replay.</li>
+ *   <li>{@code rateLimiting}: Tuning of the rate limiter's buckets.</li>
+ *   <li>{@code quota}: Accounting of daily and monthly call quotas across gateway nodes.</li>
+ *   <li>{@code bucketSnapshot}: Persistence of rate-limit bucket state across restarts.</li>
+ *   <li>{@code routingSnapshot}: Last known routing table kept on disk for startup and registry outages.</li>
+ *   <li>{@code deadlines}: Per-service and per-operation timeouts and the deadline header propagated to services.</li>
  * </ul>
  *
  * <p>Example configuration in application.yml:
@@ -53,6 +75,36 @@ public class DynamicRoutingProperties {
     @NotNull
     private Rest rest;
 
+    @NotNull
+    private LoadBalancing loadBalancing = new LoadBalancing();
+
+    @NotNull
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    @NotNull
+    private ConnectionPool connectionPool = new ConnectionPool();
+
+    @NotNull
+    private Admission admission = new Admission();
+
+    @NotNull
+    private Capture capture = new Capture();
+
+    @NotNull
+    private RateLimiting rateLimiting = new RateLimiting();
+
+    @NotNull
+    private Quota quota = new Quota();
+
+    @NotNull
+    private BucketSnapshot bucketSnapshot = new BucketSnapshot();
+
+    @NotNull
+    private RoutingSnapshot routingSnapshot = new RoutingSnapshot();
+
+    @NotNull
+    private Deadlines deadlines = new Deadlines();
+
     /**
      * Configuration properties related to GraphQL routing.
      * Used for matching and routing incoming GraphQL requests.
@@ -75,6 +127,152 @@ public class DynamicRoutingProperties {
 
         @NotBlank
         private String servicePath;
+
+        /**
+         * Opt-in request hedging for read-only GraphQL operations.
+         */
+        @NotNull
+        private Hedging hedging = new Hedging();
+
+        /**
+         * Cost analysis of GraphQL documents, used for rate limiting and for rejecting oversized queries.
+         */
+        @NotNull
+        private QueryCost cost = new QueryCost();
+
+        /**
+         * GraphQL subscriptions over WebSocket and their multiplexing onto upstream connections.
+         */
+        @NotNull
+        private Subscriptions subscriptions = new Subscriptions();
+    }
+
+    /**
+     * Configuration properties of GraphQL subscriptions.
+     * <p>
+     * WebSocket upgrades of a {@code /graphql} path are served with the {@code graphql-transport-ws} protocol; each
+     * subscription is routed by its operation name and shares one of a few connections to its service with the
+     * subscriptions of other clients.
+     */
+    @Data
+    public static class Subscriptions {
+        /**
+         * Whether subscriptions are served at all. When disabled, WebSocket upgrades are left to the routing chain.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Upstream WebSocket connections opened per service at most.
+         */
+        @Min(1)
+        private int connectionsPerService = 2;
+
+        /**
+         * Subscriptions carried by one upstream connection at most; further subscriptions are rejected.
+         */
+        @Min(1)
+        private int maxSubscriptionsPerConnection = 1000;
+
+        /**
+         * Subscriptions one client connection may hold at once; further subscriptions are rejected.
+         */
+        @Min(1)
+        private int maxSubscriptionsPerClient = 100;
+
+        /**
+         * Messages held for a client that reads slower than its subscriptions produce. A client whose buffer is
+         * full is disconnected with close code {@code 4413}.
+         */
+        @Min(1)
+        private int clientBufferSize = 1000;
+    }
+
+    /**
+     * Configuration properties of GraphQL query cost analysis.
+     * <p>
+     * Every selected field costs one token, multiplied by the page size requested by each enclosing list field
+     * (the value of its first argument named in {@code listArguments}). A client is charged the cost of its
+     * document from its rate-limit bucket; documents above {@code maxCost} or nested deeper than {@code maxDepth}
+     * are rejected before they are forwarded.
+     */
+    @Data
+    public static class QueryCost {
+        /**
+         * Whether cost analysis is applied at all. When disabled, every GraphQL call is forwarded uncharged.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Highest cost a single document may have.
+         */
+        @Min(1)
+        private long maxCost = 1000;
+
+        /**
+         * Deepest field nesting a single document may have.
+         */
+        @Min(1)
+        private int maxDepth = 12;
+
+        /**
+         * Most fragment spreads a single document may contain; documents with more are rejected as too costly.
+         */
+        @Min(1)
+        private int maxFragmentSpreads = 500;
+
+        /**
+         * Argument names that state how many list elements a field returns.
+         */
+        @NotNull
+        private Set<String> listArguments = new LinkedHashSet<>(List.of("first", "last", "limit", "size", "pageSize"));
+    }
+
+    /**
+     * Configuration properties of GraphQL request hedging.
+     * <p>
+     * A hedged {@code query} is sent to a second instance when the first has not answered within the
+     * operation's observed latency percentile; the first response wins. Mutations and subscriptions are never hedged.
+     */
+    @Data
+    public static class Hedging {
+        /**
+         * Whether hedging is enabled at all.
+         */
+        private boolean enabled = false;
+
+        /**
+         * GraphQL operation names that may be hedged. Only listed operations are hedged.
+         */
+        @NotNull
+        private Set<String> operations = new HashSet<>();
+
+        /**
+         * Maximum extra load caused by hedges, as a percentage of hedge-eligible requests.
+         */
+        private double budgetPercent = 5;
+
+        /**
+         * Latency percentile of an operation after which the hedge is sent.
+         */
+        private double percentile = 0.95;
+
+        /**
+         * Number of latency samples an operation needs before its percentile is trusted;
+         * until then {@code maxDelay} is used.
+         */
+        private int minSamples = 50;
+
+        /**
+         * Lower bound of the hedge delay.
+         */
+        @NotNull
+        private Duration minDelay = Duration.ofMillis(5);
+
+        /**
+         * Upper bound of the hedge delay, also used while an operation has too few samples.
+         */
+        @NotNull
+        private Duration maxDelay = Duration.ofMillis(500);
     }
 
     /**
@@ -91,5 +289,518 @@ public class DynamicRoutingProperties {
         @NotNull
         private Boolean stripPrefix;
     }
-}
 
+    /**
+     * Configuration properties of the latency-aware power-of-two-choices load balancer
+     * that resolves {@code lb://} URIs built by the routing filters.
+     */
+    @Data
+    public static class LoadBalancing {
+        /**
+         * Whether the latency-aware balancer replaces the default round-robin balancer.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Time constant of the latency EWMA. Samples older than this weigh roughly a third
+         * as much as a fresh one, so a recovered instance regains traffic within a few multiples of it.
+         */
+        @NotNull
+        private Duration latencyDecay = Duration.ofSeconds(10);
+
+        /**
+         * Backoff applied to an instance after its first consecutive failure; doubled for every further failure.
+         */
+        @NotNull
+        private Duration failureBackoff = Duration.ofSeconds(1);
+
+        /**
+         * Upper bound for the failure backoff of a single instance.
+         */
+        @NotNull
+        private Duration maxFailureBackoff = Duration.ofSeconds(30);
+
+        /**
+         * Slow-start period of a newly discovered instance, during which its share of traffic ramps up linearly.
+         */
+        @NotNull
+        private Duration warmUp = Duration.ofSeconds(30);
+
+        /**
+         * Client affinity: pinning the requests of a client to one instance per service.
+         */
+        @NotNull
+        private Affinity affinity = new Affinity();
+    }
+
+    /**
+     * Client affinity of the load balancer.
+     * <p>
+     * When enabled, the instance of a request is chosen by a rendezvous hash of an affinity key header over the
+     * service's instances, so each client's working set stays in the caches of one instance. An instance already
+     * carrying more than {@code loadFactor} times the average number of requests in flight is skipped for the next
+     * one in hash order, which keeps hot keys from overloading a single instance. Requests without the header are
+     * balanced as usual.
+     * </p>
+     */
+    @Data
+    public static class Affinity {
+        /**
+         * Whether requests are routed by affinity key at all.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Request header holding the affinity key.
+         */
+        @NotBlank
+        private String header = "X-Client-Id";
+
+        /**
+         * Services routed by affinity, in lower case; empty for all services.
+         */
+        @NotNull
+        private Set<String> services = new LinkedHashSet<>();
+
+        /**
+         * Factor over the average number of requests in flight an instance may carry before affinity
+         * requests spill over to the next instance.
+         */
+        @DecimalMin("1.0")
+        private double loadFactor = 1.25;
+    }
+
+    /**
+     * Configuration properties of the per-service circuit breakers of the universal router.
+     * <p>
+     * A breaker opens when at least {@code minimumCalls} of the last {@code slidingWindowSize} calls to a service
+     * were recorded and {@code failureRateThreshold} percent of them failed. While open, requests fail fast with
+     * {@code 503}; after {@code openDuration} up to {@code halfOpenProbes} requests are let through, and the breaker
+     * closes if all of them succeed.
+     */
+    @Data
+    public static class CircuitBreaker {
+        /**
+         * Whether circuit breaking is applied at all.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Number of most recent calls the failure rate is computed over.
+         */
+        @Min(1)
+        private int slidingWindowSize = 50;
+
+        /**
+         * Number of calls that must be recorded before the breaker can open.
+         */
+        @Min(1)
+        private int minimumCalls = 20;
+
+        /**
+         * Failure rate, in percent, at which the breaker opens.
+         */
+        private double failureRateThreshold = 50;
+
+        /**
+         * Time an open breaker rejects calls before probing the service again.
+         */
+        @NotNull
+        private Duration openDuration = Duration.ofSeconds(15);
+
+        /**
+         * Number of probe calls let through in the half-open state.
+         */
+        @Min(1)
+        private int halfOpenProbes = 3;
+    }
+
+    /**
+     * Configuration properties of the downstream HTTP connection pools.
+     * <p>
+     * Every service ID gets its own pool, sized by the defaults below unless an entry in {@code services}
+     * overrides them. When discovery reports a new instance, {@code warmUpConnections} connections are opened to it
+     * ahead of the first routed request.
+     */
+    @Data
+    public static class ConnectionPool {
+        /**
+         * Whether per-service pools are used. When disabled, all routes share the gateway's default HTTP client.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Maximum number of connections per instance of a service.
+         */
+        @Min(1)
+        private int maxConnections = 100;
+
+        /**
+         * Maximum number of requests waiting for a connection per instance; {@code -1} for no limit.
+         */
+        private int pendingAcquireMaxCount = 500;
+
+        /**
+         * Time a request waits for a free connection before it fails.
+         */
+        @NotNull
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Time after which an idle connection is closed.
+         */
+        @NotNull
+        private Duration maxIdleTime = Duration.ofSeconds(30);
+
+        /**
+         * Time after which a connection is closed once it is released, however busy it has been.
+         */
+        @NotNull
+        private Duration maxLifeTime = Duration.ofMinutes(10);
+
+        /**
+         * Interval of the background sweep that closes idle and expired connections; {@code 0} to only check on acquire.
+         */
+        @NotNull
+        private Duration evictionInterval = Duration.ofSeconds(30);
+
+        /**
+         * Number of connections opened to a newly discovered instance; {@code 0} disables warm-up.
+         */
+        @Min(0)
+        private int warmUpConnections = 2;
+
+        /**
+         * Path requested with {@code HEAD} to open the warm-up connections. Any response status will do.
+         */
+        @NotBlank
+        private String warmUpPath = "/";
+
+        /**
+         * Time allowed for the warm-up of one instance.
+         */
+        @NotNull
+        private Duration warmUpTimeout = Duration.ofSeconds(5);
+
+        /**
+         * Per-service overrides, keyed by lower-case service ID.
+         */
+        @NotNull
+        private Map<String, ServicePool> services = new HashMap<>();
+    }
+
+    /**
+     * Pool settings of a single service. Unset fields fall back to the {@link ConnectionPool} defaults.
+     */
+    @Data
+    public static class ServicePool {
+        private Integer maxConnections;
+
+        private Integer pendingAcquireMaxCount;
+
+        private Duration maxIdleTime;
+
+        private Integer warmUpConnections;
+    }
+
+    /**
+     * Configuration properties of the early admission stage.
+     * <p>
+     * Every request is charged one token from its client's admission bucket before any filter reads the body.
+     * The client is identified by {@code X-Client-Id}, or by its IP address as {@code ip:<address>}. A rate-limit
+     * configuration with route {@code *} sets a client's admission limit; clients without one get
+     * {@code requestsPerMinute}.
+     */
+    @Data
+    public static class Admission {
+        /**
+         * Whether the admission stage runs at all.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Admission limit of clients without a {@code *} rate-limit configuration.
+         */
+        @Min(1)
+        private long requestsPerMinute = 1000;
+
+        /**
+         * Interval at which the {@code *} configurations of all clients are reloaded from the database. They are
+         * held in memory so the admission stage never queries the database on the event loop; changes made through
+         * the API reach them immediately, changes made directly in the database within one interval.
+         */
+        @NotNull
+        private Duration configRefreshInterval = Duration.ofMinutes(1);
+
+        /**
+         * Number of proxies in front of the gateway that append to {@code X-Forwarded-For}; the client address of
+         * requests without {@code X-Client-Id} is the entry this many places from the end.
+         */
+        @Min(1)
+        private int trustedProxies = 1;
+    }
+
+    /**
+     * Recording of a sample of inbound traffic into append-only capture files.
+     * <p>
+     * Clients are sampled as a whole, so a sampled client's request stream is captured completely and
+     * its rate-limit behaviour can be replayed faithfully. Query strings and bodies are left out and only
+     * allow-listed headers are kept unless configured otherwise.
+     * </p>
+     */
+    @Data
+    public static class Capture {
+        /**
+         * Whether traffic is captured at all.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Fraction of clients, between 0 and 1, whose requests are captured.
+         */
+        @DecimalMin("0.0")
+        @DecimalMax("1.0")
+        private double sampleRate = 0.01;
+
+        /**
+         * Directory the capture files are written to.
+         */
+        @NotBlank
+        private String directory = "capture";
+
+        /**
+         * Size in bytes after which the current capture file is closed and a new one started.
+         */
+        @Min(1024)
+        private long maxFileBytes = 256L * 1024 * 1024;
+
+        /**
+         * Number of captured requests that may wait for the writer; further ones are dropped.
+         */
+        @Min(1)
+        private int queueCapacity = 10000;
+
+        /**
+         * Whether the query string is kept in the recorded path.
+         */
+        private boolean includeQuery = false;
+
+        /**
+         * Whether request bodies are stored. When {@code false}, only a SHA-256 hash of the body is kept.
+         */
+        private boolean includeBody = false;
+
+        /**
+         * Bodies larger than this are stored as a hash even when {@link #includeBody} is set.
+         */
+        @Min(0)
+        private int maxBodyBytes = 64 * 1024;
+
+        /**
+         * Request headers recorded verbatim (case-insensitive).
+         */
+        @NotNull
+        private Set<String> headers = new LinkedHashSet<>(List.of("Content-Type", "Accept"));
+
+        /**
+         * Request headers recorded as a hash of their value, keeping callers apart without storing who they are.
+         */
+        @NotNull
+        private Set<String> hashedHeaders = new LinkedHashSet<>(List.of("X-Client-Id"));
+    }
+
+    /**
+     * Tuning of the rate limiter's buckets.
+     * <p>
+     * Configurations with the custom attribute {@code striped=true} are enforced by a bucket split into stripes,
+     * for single clients sending so many requests that one bucket becomes a point of contention.
+     * </p>
+     * <p>
+     * Buckets left full for the idle timeout are evicted, and configurations are dropped at their expiration date;
+     * both are scheduled on a timing wheel advancing once per wheel tick.
+     * </p>
+     */
+    @Data
+    public static class RateLimiting {
+        /**
+         * Number of stripes of a striped bucket; {@code 0} uses one per available processor.
+         */
+        @Min(0)
+        private int stripes = 0;
+
+        /**
+         * Share of the limit, between 0 and 1, the admitted rate of a striped bucket may fall short of it
+         * because its stripes are used unevenly. Smaller values rebalance the stripes more often.
+         */
+        @DecimalMin("0.001")
+        @DecimalMax("1.0")
+        private double stripeTolerance = 0.05;
+
+        /**
+         * Time after which a bucket that has refilled completely is evicted. Evicting a full bucket loses nothing:
+         * the next request creates it full again.
+         */
+        @NotNull
+        private Duration idleTimeout = Duration.ofMinutes(10);
+
+        /**
+         * Resolution of the timing wheel; idle buckets and expired configurations are handled up to one tick late.
+         */
+        @NotNull
+        private Duration wheelTick = Duration.ofSeconds(1);
+
+        /**
+         * Maximum number of client:route pairs without a configuration whose absence is cached. Pairs with a
+         * configuration are always cached; beyond this size, lookups of unconfigured pairs are not.
+         */
+        @Min(1)
+        private int configCacheSize = 100_000;
+
+        /**
+         * Time after which a cached configuration lookup is read from the database again.
+         */
+        @NotNull
+        private Duration configCacheTtl = Duration.ofMinutes(10);
+    }
+
+    /**
+     * Accounting of the daily and monthly call quotas of rate-limit configurations.
+     * <p>
+     * Every node counts calls in memory and adds them to its own rows in the database once per flush interval,
+     * reading the sums of all nodes back at the same time. Quotas are checked against the last sums plus the calls
+     * counted locally since, so the nodes together may exceed a quota by about what the other nodes admit within one
+     * flush interval.
+     * </p>
+     */
+    @Data
+    public static class Quota {
+        /**
+         * Whether quotas are enforced at all.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Interval at which the counters are written to and read back from the database.
+         */
+        @NotNull
+        private Duration flushInterval = Duration.ofSeconds(10);
+
+        /**
+         * Time zone whose calendar days and months the quotas are counted in.
+         */
+        @NotBlank
+        private String zone = "UTC";
+
+        /**
+         * Name this node counts under; blank for host name and process id.
+         */
+        private String nodeId = "";
+
+        /**
+         * Time the rows of past periods are kept before they are deleted. Rows of the current day and month are
+         * never deleted, however short the retention.
+         */
+        @NotNull
+        private Duration retention = Duration.ofDays(90);
+    }
+
+    /**
+     * Persistence of the rate limiter's token buckets across restarts.
+     * <p>
+     * The tokens left in partly drained buckets are written to a snapshot file at every checkpoint and on shutdown.
+     * At startup the snapshot is read back and each bucket is restored, refilled for the time since the snapshot,
+     * when it is first used, so a rollout does not hand every throttled client a fresh burst.
+     * </p>
+     */
+    @Data
+    public static class BucketSnapshot {
+        /**
+         * Whether bucket state is written and restored at all.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Snapshot file; it is replaced atomically at each checkpoint. It has to outlive the container and must not
+         * be shared with other instances, so it defaults to a directory of this pod on the persistent mount.
+         */
+        @NotBlank
+        private String file = "/mnt/azure/state/" + InstanceIdentity.name() + "/rate-limit-buckets.snap";
+
+        /**
+         * Interval between checkpoints, bounding the state lost when the gateway does not shut down gracefully.
+         */
+        @NotNull
+        private Duration checkpointInterval = Duration.ofMinutes(1);
+    }
+
+    /**
+     * Local copy of the routing table built from discovery: GraphQL operations, services and their instances.
+     * <p>
+     * The table is written whenever a discovery refresh changes it. At startup the gateway routes from the copy
+     * right away while discovery is queried in the background, and the load balancer falls back to its instances
+     * while discovery cannot be reached.
+     * </p>
+     */
+    @Data
+    public static class RoutingSnapshot {
+        /**
+         * Whether the routing table is written to and read from disk.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Snapshot file; it is replaced atomically on every change. Like the bucket snapshot, it defaults to a
+         * directory of this pod on the persistent mount.
+         */
+        @NotBlank
+        private String file = "/mnt/azure/state/" + InstanceIdentity.name() + "/routing-table.json";
+    }
+
+    /**
+     * Timeouts of routed calls and the absolute deadline propagated with them.
+     * <p>
+     * A call's timeout is the one of its GraphQL operation, else the one of its service, else {@code defaultTimeout}.
+     * The deadline is the call's start plus its timeout, or the deadline the client sent in {@code header} if that is
+     * earlier. It is forwarded in {@code header} as epoch milliseconds, so services can stop working on requests the
+     * gateway has already given up on; calls arriving after their deadline are refused with {@code 504}.
+     * </p>
+     */
+    @Data
+    public static class Deadlines {
+        /**
+         * Whether timeouts are applied and deadlines propagated at all.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Header carrying the absolute deadline in epoch milliseconds, accepted from clients and sent to services.
+         */
+        @NotBlank
+        private String header = "X-Request-Deadline";
+
+        /**
+         * Header carrying the time left until the deadline in milliseconds, sent to services alongside
+         * {@code header} so they can compute the deadline from their own clock.
+         */
+        @NotBlank
+        private String timeoutHeader = "X-Request-Timeout";
+
+        /**
+         * Timeout of calls whose service and operation have none configured.
+         */
+        @NotNull
+        private Duration defaultTimeout = Duration.ofSeconds(30);
+
+        /**
+         * Timeouts by service ID, in lower case.
+         */
+        @NotNull
+        private Map<String, Duration> services = new HashMap<>();
+
+        /**
+         * Timeouts by GraphQL operation name.
+         */
+        @NotNull
+        private Map<String, Duration> operations = new HashMap<>();
+    }
+}
@@ -5,7 +5,11 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import reactor.core.publisher.Mono;
 
-//TODO: this class is not required as of now. For the future it will be helpful.
+/**
+ * Provides the {@code ipKeyResolver} bean, which keys a request by the caller's IP address.
+ * Used by {@link com.azoopindia.it.asi.traffic.manager.filter.TrafficCaptureFilter} for requests without
+ * an {@code X-Client-Id} header.
+ */
 @Configuration
 public class IPKeyResolver {
 
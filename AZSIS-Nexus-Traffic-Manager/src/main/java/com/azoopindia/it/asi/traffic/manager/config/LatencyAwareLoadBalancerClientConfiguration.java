@@ -0,0 +1,43 @@
+package com.azoopindia.it.asi.traffic.manager.config;
+
+import com.azoopindia.it.asi.traffic.manager.service.InstanceLoadTracker;
+import com.azoopindia.it.asi.traffic.manager.service.PowerOfTwoChoicesLoadBalancer;
+import com.azoopindia.it.asi.traffic.manager.service.RoutingTableSnapshotStore;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.loadbalancer.core.ReactorLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+/**
+ * Load balancer configuration applied to the child context of every load-balanced service.
+ *
+ * <p>Deliberately not annotated with {@code @Configuration}: it must only be registered through
+ * {@link LatencyAwareLoadBalancerConfig}, never by component scanning into the main context,
+ * where the service name property it reads does not exist.</p>
+ */
+public class LatencyAwareLoadBalancerClientConfiguration {
+
+    /**
+     * Creates the balancer of the service this child context belongs to.
+     *
+     * @param environment               the child context environment, carrying the service id
+     * @param loadBalancerClientFactory factory providing the service's instance list supplier
+     * @param loadTracker               shared per-instance load statistics
+     * @param routingSnapshot           last known routing table, used while discovery is unreachable
+     * @param routingProperties         routing properties, providing the client affinity settings
+     * @return the latency-aware balancer for the service
+     */
+    @Bean
+    public ReactorLoadBalancer<ServiceInstance> reactorServiceInstanceLoadBalancer(Environment environment,
+                                                                                   LoadBalancerClientFactory loadBalancerClientFactory,
+                                                                                   InstanceLoadTracker loadTracker,
+                                                                                   RoutingTableSnapshotStore routingSnapshot,
+                                                                                   DynamicRoutingProperties routingProperties) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new PowerOfTwoChoicesLoadBalancer(
+                loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class),
+                serviceId, loadTracker, routingSnapshot, routingProperties);
+    }
+}
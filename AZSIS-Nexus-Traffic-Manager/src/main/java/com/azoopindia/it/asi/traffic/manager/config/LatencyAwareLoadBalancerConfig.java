@@ -0,0 +1,21 @@
+package com.azoopindia.it.asi.traffic.manager.config;
+
+import com.azoopindia.it.asi.traffic.manager.service.PowerOfTwoChoicesLoadBalancer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Replaces the default round-robin balancer of every load-balanced service with the
+ * {@link PowerOfTwoChoicesLoadBalancer}, so {@code lb://} URIs built by the routing filters
+ * prefer fast, lightly loaded and healthy instances.
+ *
+ * <p>Can be switched off with {@code dynamic-routing.load-balancing.enabled=false}.</p>
+ *
+ * @see LatencyAwareLoadBalancerClientConfiguration
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "dynamic-routing.load-balancing", name = "enabled", havingValue = "true", matchIfMissing = true)
+@LoadBalancerClients(defaultConfiguration = LatencyAwareLoadBalancerClientConfiguration.class)
+public class LatencyAwareLoadBalancerConfig {
+}
@@ -1,6 +1,16 @@
 package com.azoopindia.it.asi.traffic.manager.filter;
 
 import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.azoopindia.it.asi.traffic.manager.service.AliasTable;
+import com.azoopindia.it.asi.traffic.manager.service.GraphQLHedgingService;
+import com.azoopindia.it.asi.traffic.manager.service.GraphQLQueryCostCalculator;
+import com.azoopindia.it.asi.traffic.manager.service.GraphQLSubscriptionMultiplexer;
+import com.azoopindia.it.asi.traffic.manager.service.RateLimiterService;
+import com.azoopindia.it.asi.traffic.manager.service.RequestDeadlines;
+import com.azoopindia.it.asi.traffic.manager.service.RoutingTableSnapshotStore;
+import com.azoopindia.it.asi.traffic.manager.service.RoutingWeights;
+import com.azoopindia.it.asi.traffic.manager.service.ServiceCircuitBreakerRegistry;
+import com.azoopindia.it.asi.traffic.manager.service.ServiceConnectionPools;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.PostConstruct;
@@ -16,22 +26,28 @@ import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
 import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
 import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Gateway filter for dynamically routing REST and GraphQL requests based on service discovery metadata.
@@ -40,7 +56,18 @@ import java.util.concurrent.ConcurrentHashMap;
  * <ul>
  *   <li>Routes REST calls using a prefixed URI pattern (e.g., /api/serviceId/...).</li>
  *   <li>Routes GraphQL calls by matching GraphQL operation names to registered services via Eureka metadata.</li>
+ *   <li>Charges each GraphQL call its query cost from the client's rate-limit bucket and rejects documents
+ *   that are too expensive or too deep before forwarding them.</li>
  *   <li>Refreshes service metadata every 60 seconds automatically.</li>
+ *   <li>Hands opted-in GraphQL queries to {@link GraphQLHedgingService} for hedged forwarding.</li>
+ *   <li>Serves GraphQL subscriptions on WebSocket upgrades of a {@code /graphql} path through
+ *   {@link GraphQLSubscriptionMultiplexer}, routing each subscription by its operation name.</li>
+ *   <li>Fails fast with {@code 503} while the resolved service's circuit breaker is open.</li>
+ *   <li>Applies per-service and per-operation timeouts and propagates the resulting deadline through
+ *   {@link RequestDeadlines}.</li>
+ *   <li>Warms up the connection pools of newly discovered instances on every refresh.</li>
+ *   <li>Starts from the routing table persisted by {@link RoutingTableSnapshotStore} and keeps routing from the
+ *   last known table while discovery cannot be reached.</li>
  * </ul>
  * <p>
  * GraphQL services must expose their supported operations via the Eureka metadata field:
@@ -48,6 +75,12 @@ import java.util.concurrent.ConcurrentHashMap;
  *     eureka.instance.metadata-map:
  *         graphql.operations: createUser,updateUser,deleteUser
  * </pre>
+ * <p>
+ * An operation registered by several services, e.g. two versions deployed under different service IDs, is split
+ * between them in proportion to the summed {@link RoutingWeights#WEIGHT_METADATA routing.weight} of the instances
+ * registering it. The split is precomputed into an {@link AliasTable} on every refresh; a client with an
+ * {@code X-Client-Id} always draws the same service.
+ * </p>
  */
 @Slf4j
 @Component("DynamicUniversalRoutingFilter")
@@ -55,6 +88,11 @@ import java.util.concurrent.ConcurrentHashMap;
 @RefreshScope
 public class DynamicUniversalRoutingFilter extends AbstractGatewayFilterFactory<Object> {
 
+    /**
+     * Exchange attribute holding the operation name of a GraphQL request once its body has been parsed.
+     */
+    public static final String GRAPHQL_OPERATION_NAME_ATTR = DynamicUniversalRoutingFilter.class.getName() + ".graphqlOperationName";
+
     /**
      * Load balancer URI prefix (default is "lb://").
      * Used to build request URI dynamically for routing.
@@ -72,6 +110,46 @@ public class DynamicUniversalRoutingFilter extends AbstractGatewayFilterFactory<
      */
     private final DynamicRoutingProperties props;
 
+    /**
+     * Forwards hedge-eligible GraphQL queries itself instead of handing them to the routing chain.
+     */
+    private final GraphQLHedgingService hedgingService;
+
+    /**
+     * Per-service circuit breakers, keyed by the resolved service ID.
+     */
+    private final ServiceCircuitBreakerRegistry circuitBreakers;
+
+    /**
+     * Per-service downstream connection pools, warmed up for instances that appear in discovery.
+     */
+    private final ServiceConnectionPools connectionPools;
+
+    /**
+     * Computes the cost of GraphQL documents before they are forwarded.
+     */
+    private final GraphQLQueryCostCalculator costCalculator;
+
+    /**
+     * Rate-limit buckets the GraphQL query cost is charged to.
+     */
+    private final RateLimiterService rateLimiterService;
+
+    /**
+     * Local copy of the routing table, used at startup and while discovery is unreachable.
+     */
+    private final RoutingTableSnapshotStore routingSnapshot;
+
+    /**
+     * Serves GraphQL subscriptions over shared upstream WebSocket connections.
+     */
+    private final GraphQLSubscriptionMultiplexer subscriptionMultiplexer;
+
+    /**
+     * Applies timeouts to forwarded calls and propagates their deadline.
+     */
+    private final RequestDeadlines deadlines;
+
     /**
      * Jackson ObjectMapper for parsing GraphQL request bodies.
      */
@@ -83,6 +161,12 @@ public class DynamicUniversalRoutingFilter extends AbstractGatewayFilterFactory<
      */
     private final Map<String, String> gqlCache = new ConcurrentHashMap<>();
 
+    /**
+     * Weighted choice of service per GraphQL operation registered by more than one service.
+     * Replaced as a whole on every refresh.
+     */
+    private volatile Map<String, AliasTable<String>> gqlSplits = Map.of();
+
     /**
      * Set of currently active service IDs discovered from Eureka.
      */
@@ -91,8 +175,9 @@ public class DynamicUniversalRoutingFilter extends AbstractGatewayFilterFactory<
     /**
      * Cached Mono that completes when the initial metadata load is done.
      * Ensures routing does not proceed before initialization is complete.
+     * Completes right away once a persisted routing table has been loaded.
      */
-    private Mono<Void> initComplete = Mono.defer(this::refreshOnce).cache();
+    private volatile Mono<Void> initComplete = Mono.defer(this::refreshOnce).cache();
 
     /**
      * Builds the filter with a specific order of execution.
@@ -106,11 +191,20 @@ public class DynamicUniversalRoutingFilter extends AbstractGatewayFilterFactory<
     }
 
     /**
-     * Initializes a periodic refresh of service metadata every 60 seconds.
+     * Loads the persisted routing table, if any, so requests are routed without waiting for discovery,
+     * then initializes a periodic refresh of service metadata every 60 seconds.
      * Runs after Spring context initialization.
      */
     @PostConstruct
     void refreshLoop() {
+        routingSnapshot.load().ifPresent(snapshot -> {
+            gqlCache.putAll(snapshot.getOperations());
+            activeServiceIds.addAll(snapshot.getServices());
+            initComplete = Mono.empty();
+            log.info("Routing from persisted table with {} operations of {} services until discovery answers",
+                    snapshot.getOperations().size(), snapshot.getServices().size());
+        });
+
         Mono.defer(this::refreshOnce)
                 .thenMany(Flux.interval(Duration.ofSeconds(60)))
                 .flatMap(tick -> refreshOnce())
@@ -119,7 +213,11 @@ public class DynamicUniversalRoutingFilter extends AbstractGatewayFilterFactory<
 
     /**
      * Refreshes the GraphQL operation mappings and service discovery metadata from Eureka.
-     * Parses the `graphql.operations` metadata entry to update internal routing cache.
+     * Parses the `graphql.operations` metadata entry to update internal routing cache,
+     * and starts the connection warm-up of instances not seen before without waiting for it.
+     * The new table is handed to the {@link RoutingTableSnapshotStore}. If discovery fails, or returns no instances
+     * at all while a table exists, the current table is kept and neither replaced nor persisted: an empty answer
+     * from a Eureka server that has just restarted is no reason to drop every route.
      *
      * @return a Mono that completes after refresh
      */
@@ -128,8 +226,13 @@ public class DynamicUniversalRoutingFilter extends AbstractGatewayFilterFactory<
                 .flatMap(discovery::getInstances)
                 .collectList()
                 .flatMap(instances -> {
+                    if (instances.isEmpty() && !activeServiceIds.isEmpty()) {
+                        routingSnapshot.discoveryFailed();
+                        log.warn("Service discovery returned no instances, keeping the last known routing table");
+                        return Mono.<Void>empty();
+                    }
                     Set<String> discoveredServices = new LinkedHashSet<>();
-                    gqlCache.clear();
+                    Map<String, Map<String, Integer>> operationWeights = new HashMap<>();
 
                     for (ServiceInstance inst : instances) {
                         String serviceId = inst.getServiceId().toLowerCase();
@@ -142,14 +245,43 @@ public class DynamicUniversalRoutingFilter extends AbstractGatewayFilterFactory<
                             Arrays.stream(ops.split(","))
                                     .map(String::trim)
                                     .filter(op -> !op.isEmpty())
-                                    .forEach(op -> gqlCache.put(op, serviceId));
+                                    .forEach(op -> operationWeights.computeIfAbsent(op, k -> new LinkedHashMap<>())
+                                            .merge(serviceId, RoutingWeights.weightOf(inst), Integer::sum));
                             log.info("Service '{}' registered GraphQL ops via metadata: {}", serviceId, ops);
                         }
                     }
 
-                    activeServiceIds.clear();
-                    activeServiceIds.addAll(discoveredServices);
+                    // the heaviest service is the operation's primary one; the others share it through the split
+                    Map<String, String> operations = new HashMap<>();
+                    Map<String, AliasTable<String>> splits = new HashMap<>();
+                    operationWeights.forEach((op, weights) -> {
+                        operations.put(op, weights.entrySet().stream()
+                                .max(Map.Entry.comparingByValue())
+                                .orElseThrow()
+                                .getKey());
+                        if (weights.values().stream().filter(weight -> weight > 0).count() > 1) {
+                            splits.put(op, AliasTable.of(weights));
+                            log.info("GraphQL operation '{}' split by weight between services {}", op, weights);
+                        }
+                    });
 
+                    // replace entries in place, so lookups never see an empty table mid-refresh
+                    gqlCache.putAll(operations);
+                    gqlCache.keySet().retainAll(operations.keySet());
+                    gqlSplits = splits;
+                    activeServiceIds.addAll(discoveredServices);
+                    activeServiceIds.retainAll(discoveredServices);
+
+                    connectionPools.warmUpNewInstances(instances).subscribe();
+                    Mono.fromRunnable(() -> routingSnapshot.record(operations, discoveredServices, instances))
+                            .subscribeOn(Schedulers.boundedElastic())
+                            .subscribe();
+
+                    return Mono.<Void>empty();
+                })
+                .onErrorResume(e -> {
+                    routingSnapshot.discoveryFailed();
+                    log.warn("Service discovery refresh failed, keeping the last known routing table: {}", e.getMessage());
                     return Mono.empty();
                 });
     }
@@ -166,6 +298,11 @@ public class DynamicUniversalRoutingFilter extends AbstractGatewayFilterFactory<
         String path = exchange.getRequest().getPath().value();
         MediaType contentType = exchange.getRequest().getHeaders().getContentType();
 
+        if (path.endsWith("/graphql") && props.getGraphql().getSubscriptions().isEnabled()
+                && "websocket".equalsIgnoreCase(exchange.getRequest().getHeaders().getUpgrade())) {
+            return initComplete.then(subscriptionMultiplexer.handle(exchange, payload -> routeSubscription(payload, exchange)));
+        }
+
         if (path.endsWith("/graphql") && MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
             return routeGraphQL(exchange, chain);
         }
@@ -195,18 +332,33 @@ public class DynamicUniversalRoutingFilter extends AbstractGatewayFilterFactory<
 
                             String bodyStr = new String(rawBody, StandardCharsets.UTF_8);
                             String operationName = extractOperationName(bodyStr);
+                            if (operationName != null) {
+                                exchange.getAttributes().put(GRAPHQL_OPERATION_NAME_ATTR, operationName);
+                            }
+
+                            GraphQLQueryCostCalculator.QueryCost cost = analyse(bodyStr, operationName);
+                            Mono<Void> rejection = chargeQueryCost(exchange, cost, operationName);
+                            if (rejection != null) {
+                                return rejection;
+                            }
 
                             if (!StringUtils.hasText(operationName)) {
                                 log.debug("No operation name found in GraphQL request.");
                                 return chain.filter(exchange);
                             }
 
-                            String serviceId = gqlCache.get(operationName);
+                            String serviceId = serviceFor(operationName, exchange);
                             if (!StringUtils.hasText(serviceId)) {
                                 log.warn("Operation '{}' not mapped to any service yet.", operationName);
                                 return refreshOnce().then(chain.filter(exchange));
                             }
 
+                            if (hedgingService.isHedgeable(operationName, cost != null ? cost.operation() : null)) {
+                                return deadlines.forward(exchange, serviceId, operationName,
+                                        routed -> circuitBreakers.execute(routed, serviceId,
+                                                () -> hedgingService.forward(routed, serviceId, operationName, rawBody)));
+                            }
+
                             URI uri = URI.create(loadBalancerURI + serviceId + props.getGraphql().getServicePath());
                             exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR, uri);
 
@@ -217,10 +369,128 @@ public class DynamicUniversalRoutingFilter extends AbstractGatewayFilterFactory<
                                 }
                             };
 
-                            return chain.filter(exchange.mutate().request(decoratedRequest).build());
+                            return deadlines.forward(exchange.mutate().request(decoratedRequest).build(), serviceId, operationName,
+                                    routed -> circuitBreakers.execute(routed, serviceId, () -> chain.filter(routed)));
                         }));
     }
 
+    /**
+     * Resolves the service a GraphQL subscription is forwarded to, by its operation name like a query.
+     *
+     * @param payload  the JSON payload of the client's {@code subscribe} message
+     * @param exchange the WebSocket handshake exchange
+     * @return the service ID, or {@code null} if the subscription has no operation name or no service registers it
+     */
+    private String routeSubscription(String payload, ServerWebExchange exchange) {
+        String operationName = extractOperationName(payload);
+        if (!StringUtils.hasText(operationName)) {
+            return null;
+        }
+        String serviceId = serviceFor(operationName, exchange);
+        if (!StringUtils.hasText(serviceId)) {
+            log.warn("Subscription '{}' not mapped to any service yet.", operationName);
+            return null;
+        }
+        return serviceId;
+    }
+
+    /**
+     * Resolves the service of a GraphQL operation, drawing from the operation's weighted split if several
+     * services register it.
+     *
+     * @param operationName the operation name
+     * @param exchange      the current exchange, whose {@code X-Client-Id} keeps a client on one service
+     * @return the service ID, or {@code null} if no service registers the operation
+     */
+    private String serviceFor(String operationName, ServerWebExchange exchange) {
+        AliasTable<String> split = gqlSplits.get(operationName);
+        if (split == null) {
+            return gqlCache.get(operationName);
+        }
+        String clientId = exchange.getRequest().getHeaders().getFirst("X-Client-Id");
+        return split.sample(StringUtils.hasText(clientId)
+                ? RoutingWeights.mix(clientId)
+                : ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Parses a GraphQL document once for everything that needs its structure: cost analysis and, for listed
+     * operations, the hedging decision.
+     *
+     * @param body          the raw GraphQL JSON body
+     * @param operationName the operation name extracted by the router, or {@code null}
+     * @return the document's cost and operation type, or {@code null} if nothing needs them or it cannot be parsed
+     */
+    private GraphQLQueryCostCalculator.QueryCost analyse(String body, String operationName) {
+        DynamicRoutingProperties.Hedging hedging = props.getGraphql().getHedging();
+        boolean hedgeable = hedging.isEnabled() && hedging.getOperations().contains(operationName);
+        return props.getGraphql().getCost().isEnabled() || hedgeable ? costCalculator.calculate(body) : null;
+    }
+
+    /**
+     * Checks the cost of a GraphQL document against the configured limits and charges it to the client's
+     * rate-limit bucket. The bucket is the operation's own ({@code graphql:<operationName>}) if the client has
+     * a configuration for it, otherwise the one of the request path. Only operations known from discovery
+     * metadata are looked up, so arbitrary operation names cannot grow the configuration index.
+     * Documents that cannot be parsed are charged one token and left for the service to reject.
+     * Requests without an {@code X-Client-Id} are checked but not charged.
+     *
+     * @param exchange      the current exchange
+     * @param cost          the document's cost as calculated by {@link #analyse}, or {@code null} if it cannot be parsed
+     * @param operationName the operation name extracted by the router, or {@code null}
+     * @return a Mono writing the rejection, or {@code null} if the request may proceed
+     */
+    private Mono<Void> chargeQueryCost(ServerWebExchange exchange, GraphQLQueryCostCalculator.QueryCost cost,
+                                       String operationName) {
+        DynamicRoutingProperties.QueryCost limits = props.getGraphql().getCost();
+        if (!limits.isEnabled()) {
+            return null;
+        }
+
+        if (cost != null && cost.depth() > limits.getMaxDepth()) {
+            return rejectGraphQL(exchange, HttpStatus.BAD_REQUEST,
+                    "Query depth " + cost.depth() + " exceeds the maximum of " + limits.getMaxDepth());
+        }
+        if (cost != null && cost.cost() > limits.getMaxCost()) {
+            return rejectGraphQL(exchange, HttpStatus.BAD_REQUEST,
+                    "Query cost " + cost.cost() + " exceeds the maximum of " + limits.getMaxCost());
+        }
+
+        String clientId = exchange.getRequest().getHeaders().getFirst("X-Client-Id");
+        if (!StringUtils.hasText(clientId)) {
+            return null;
+        }
+
+        long tokens = cost != null ? cost.cost() : 1;
+        String knownOperation = operationName != null && gqlCache.containsKey(operationName) ? operationName : null;
+        String route = rateLimiterService.resolveRoute(clientId, exchange.getRequest().getPath().value(), knownOperation);
+        if (!rateLimiterService.tryConsume(clientId, route, tokens)) {
+            log.warn("❌ Rate limit exceeded - clientId: {}, route: {}, query cost: {}", clientId, route, tokens);
+            return rejectGraphQL(exchange, HttpStatus.TOO_MANY_REQUESTS, "Rate limit exceeded");
+        }
+        return null;
+    }
+
+    /**
+     * Completes the response with a status and a GraphQL-style {@code errors} body.
+     *
+     * @param exchange the current exchange
+     * @param status   the response status
+     * @param message  the error message for the client
+     * @return a Mono completing when the response is written
+     */
+    private Mono<Void> rejectGraphQL(ServerWebExchange exchange, HttpStatus status, String message) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+
+        byte[] body = mapper.createObjectNode()
+                .set("errors", mapper.createArrayNode().add(mapper.createObjectNode().put("message", message)))
+                .toString()
+                .getBytes(StandardCharsets.UTF_8);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
     /**
      * Extracts the GraphQL operation name from a JSON request body.
      * Falls back to parsing the query text if `operationName` is not present.
@@ -254,6 +524,8 @@ public class DynamicUniversalRoutingFilter extends AbstractGatewayFilterFactory<
     /**
      * Routes a REST request based on URI prefix mapping (e.g., /api/serviceId/...).
      * Optionally strips the prefix from the outgoing request path.
+     * Only services known from discovery run under a circuit breaker, so arbitrary path prefixes cannot grow
+     * the breaker registry; calls to any other prefix are left for the load balancer to reject.
      *
      * @param exchange the current exchange
      * @param chain    the Gateway filter chain
@@ -277,7 +549,11 @@ public class DynamicUniversalRoutingFilter extends AbstractGatewayFilterFactory<
 
         exchange.getAttributes().put(ServerWebExchangeUtils.GATEWAY_REQUEST_URL_ATTR, uri);
         log.info("Routing REST path '{}' → '{}'", fullPath, uri);
-        return chain.filter(exchange);
+        if (!activeServiceIds.contains(serviceId)) {
+            return deadlines.forward(exchange, serviceId, null, chain::filter);
+        }
+        return deadlines.forward(exchange, serviceId, null,
+                routed -> circuitBreakers.execute(routed, serviceId, () -> chain.filter(routed)));
     }
 }
 
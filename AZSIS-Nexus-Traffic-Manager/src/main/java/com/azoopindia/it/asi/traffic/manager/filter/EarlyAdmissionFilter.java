@@ -0,0 +1,88 @@
+package com.azoopindia.it.asi.traffic.manager.filter;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.azoopindia.it.asi.traffic.manager.service.RateLimiterService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.support.ipresolver.XForwardedRemoteAddressResolver;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Global filter that admits or rejects a request by looking at its headers only.
+ * <p>
+ * It runs before every filter that reads the request body, including {@link DynamicUniversalRoutingFilter}
+ * and {@link RateLimiterFilter}, and charges one token from the client's admission bucket
+ * ({@link RateLimiterService#ADMISSION_ROUTE}). A client that has exhausted it is answered with
+ * {@code 429 Too Many Requests} before its payload is buffered or parsed, so abusive traffic costs little more
+ * than a map lookup. The finer per-route, per-operation and cost-based limits still apply afterward.
+ * </p>
+ * <p>
+ * The client is identified by the {@code X-Client-Id} header; requests without it are keyed by the caller's IP
+ * address as {@code ip:<address>}. Behind the ingress the peer address is the proxy's, so the address is taken from
+ * {@code X-Forwarded-For}, trusting the last {@code dynamic-routing.admission.trusted-proxies} entries.
+ * </p>
+ */
+@Slf4j
+@Component
+public class EarlyAdmissionFilter implements GlobalFilter, Ordered {
+
+    /**
+     * Runs after the gateway's own request-preparing global filters and before all route filters.
+     */
+    public static final int ORDER = Ordered.HIGHEST_PRECEDENCE + 2000;
+
+    private final RateLimiterService rateLimiterService;
+
+    private final DynamicRoutingProperties props;
+
+    private final XForwardedRemoteAddressResolver addressResolver;
+
+    public EarlyAdmissionFilter(RateLimiterService rateLimiterService, DynamicRoutingProperties props) {
+        this.rateLimiterService = rateLimiterService;
+        this.props = props;
+        this.addressResolver = XForwardedRemoteAddressResolver.maxTrustedIndex(props.getAdmission().getTrustedProxies());
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (!props.getAdmission().isEnabled()) {
+            return chain.filter(exchange);
+        }
+
+        String clientKey = clientKey(exchange);
+        if (rateLimiterService.tryConsume(clientKey, RateLimiterService.ADMISSION_ROUTE, 1)) {
+            return chain.filter(exchange);
+        }
+        log.warn("❌ Admission rejected - client: {}, path: {}", clientKey, exchange.getRequest().getPath());
+        exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        return exchange.getResponse().setComplete();
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    /**
+     * Resolves the admission key of the caller.
+     *
+     * @param exchange the current exchange
+     * @return the client id, or {@code ip:<address>}; {@code ip:unknown} if neither is available
+     */
+    private String clientKey(ServerWebExchange exchange) {
+        String clientId = exchange.getRequest().getHeaders().getFirst("X-Client-Id");
+        if (StringUtils.hasText(clientId)) {
+            return clientId;
+        }
+        InetSocketAddress address = addressResolver.resolve(exchange);
+        return "ip:" + (address != null ? address.getHostString() : "unknown");
+    }
+}
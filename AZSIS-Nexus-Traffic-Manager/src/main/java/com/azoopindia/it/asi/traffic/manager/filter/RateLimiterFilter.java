@@ -17,7 +17,8 @@ import java.time.Duration;
 
 /**
  * Custom rate limiter filter for Spring Cloud Gateway using Bucket4j.
- * This filter enforces request rate limits per client and route.
+ * This filter enforces request rate limits per client and route, with the
+ * algorithm and bucket layout of the route's configuration.
  */
 @Slf4j
 @Component("RateLimiterFilter")
@@ -74,53 +75,84 @@ public class RateLimiterFilter extends AbstractGatewayFilterFactory<RateLimiterF
                 return exchange.getResponse().setComplete();
             }
 
-            RateLimitConfig configObj = rateLimiterService.getConfig(clientId, path);
+            RateLimitConfig rateLimitConfig = rateLimiterService.getConfig(clientId, path);
+            RetryPolicy retryPolicy = RetryPolicy.of(rateLimitConfig);
 
-            int maxRetries = 0;
-            long retryDelay = 1000; // Default: 1 second
-
-            if (configObj != null && configObj.getCustomAttributes() != null) {
-                try {
-                    String maxRetriesStr = configObj.getCustomAttributes().get("maxRetries");
-                    String retryDelayStr = configObj.getCustomAttributes().get("retryDelay");
+            return applyRateLimitWithRetry(exchange, chain, clientId, path, RateLimiterService.hasSingleBucket(rateLimitConfig),
+                    retryPolicy.maxRetries(), retryPolicy.retryDelay(), 0);
+        };
+    }
 
-                    if (maxRetriesStr != null) maxRetries = Integer.parseInt(maxRetriesStr);
-                    if (retryDelayStr != null) retryDelay = Long.parseLong(retryDelayStr);
-                } catch (NumberFormatException e) {
-                    log.error("Error parsing customAttributes for clientId {}: {}", clientId, e.getMessage());
-                }
+    /**
+     * How often, and how far apart, a rate-limited request is retried before it is rejected.
+     * Read from the {@code maxRetries} and {@code retryDelay} (milliseconds) custom attributes of the configuration;
+     * without them a request is rejected at once.
+     *
+     * @param maxRetries the maximum number of retry attempts
+     * @param retryDelay the delay between retries (in milliseconds)
+     */
+    public record RetryPolicy(int maxRetries, long retryDelay) {
+
+        /**
+         * Retry policy of requests without a configuration.
+         */
+        public static final RetryPolicy NONE = new RetryPolicy(0, 1000);
+
+        /**
+         * Reads the retry policy of a configuration.
+         *
+         * @param config the active configuration, or {@code null}
+         * @return the policy; attributes that cannot be parsed are ignored
+         */
+        public static RetryPolicy of(RateLimitConfig config) {
+            if (config == null || config.getCustomAttributes() == null) {
+                return NONE;
             }
 
-            return applyRateLimitWithRetry(exchange, chain, clientId, path, maxRetries, retryDelay, 0);
-        };
+            int maxRetries = NONE.maxRetries();
+            long retryDelay = NONE.retryDelay(); // Default: 1 second
+            try {
+                String maxRetriesStr = config.getCustomAttributes().get("maxRetries");
+                String retryDelayStr = config.getCustomAttributes().get("retryDelay");
+
+                if (maxRetriesStr != null) maxRetries = Integer.parseInt(maxRetriesStr);
+                if (retryDelayStr != null) retryDelay = Long.parseLong(retryDelayStr);
+            } catch (NumberFormatException e) {
+                log.error("Error parsing customAttributes for clientId {}: {}", config.getClientId(), e.getMessage());
+            }
+            return new RetryPolicy(maxRetries, retryDelay);
+        }
     }
 
     /**
      * Attempts to apply rate limiting with retries based on configuration.
      *
-     * @param exchange   the current server exchange
-     * @param chain      the current gateway filter chain
-     * @param clientId   the client identifier
-     * @param path       the request path
-     * @param maxRetries the maximum number of retry attempts
-     * @param retryDelay the delay between retries (in milliseconds)
-     * @param attempt    the current retry attempt count
+     * @param exchange     the current server exchange
+     * @param chain        the current gateway filter chain
+     * @param clientId     the client identifier
+     * @param path         the request path
+     * @param singleBucket whether the route is limited by the single bucket of {@link RateLimiterService#resolveBucket}
+     * @param maxRetries   the maximum number of retry attempts
+     * @param retryDelay   the delay between retries (in milliseconds)
+     * @param attempt      the current retry attempt count
      * @return a {@link Mono<Void>} indicating the result of the request handling
      */
     private Mono<Void> applyRateLimitWithRetry(ServerWebExchange exchange, GatewayFilterChain chain,
-                                               String clientId, String path, int maxRetries, long retryDelay, int attempt) {
+                                               String clientId, String path, boolean singleBucket,
+                                               int maxRetries, long retryDelay, int attempt) {
 
-        Bucket bucket = rateLimiterService.resolveBucket(clientId, path);
+        Bucket bucket = singleBucket ? rateLimiterService.resolveBucket(clientId, path) : null;
 
         return Mono.defer(() -> {
-            if (bucket.tryConsume(1)) {
+            if (bucket != null ? bucket.tryConsume(1) : rateLimiterService.tryConsume(clientId, path, 1)) {
                 log.debug("✅ Request allowed - clientId: {}, path: {}, attempt: {}", clientId, path, attempt);
                 return chain.filter(exchange);
             } else {
                 log.warn("❌ Rate limit exceeded - clientId: {}, path: {}, attempt: {}", clientId, path, attempt);
                 if (attempt < maxRetries) {
                     return Mono.delay(Duration.ofMillis(retryDelay))
-                            .then(applyRateLimitWithRetry(exchange, chain, clientId, path, maxRetries, retryDelay, attempt + 1));
+                            .then(applyRateLimitWithRetry(exchange, chain, clientId, path, singleBucket,
+                                    maxRetries, retryDelay, attempt + 1));
                 } else {
                     exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
                     return exchange.getResponse().setComplete();
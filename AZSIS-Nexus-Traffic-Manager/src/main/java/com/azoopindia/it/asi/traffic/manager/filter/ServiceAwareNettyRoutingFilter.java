@@ -0,0 +1,69 @@
+package com.azoopindia.it.asi.traffic.manager.filter;
+
+import com.azoopindia.it.asi.traffic.manager.service.ServiceConnectionPools;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.filter.NettyRoutingFilter;
+import org.springframework.cloud.gateway.filter.headers.HttpHeadersFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.RouteMetadataUtils;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.netty.http.client.HttpClient;
+
+import java.util.List;
+
+/**
+ * Netty routing filter that sends each request through the connection pool of the service it was load balanced to.
+ * <p>
+ * It replaces the gateway's default {@link NettyRoutingFilter}, which must be switched off with
+ * {@code spring.cloud.gateway.global-filter.netty-routing.enabled: false}. Requests that were not resolved through
+ * the load balancer, or arrive while per-service pools are disabled, use the shared client as before.
+ * </p>
+ *
+ * @see ServiceConnectionPools
+ */
+@Component
+public class ServiceAwareNettyRoutingFilter extends NettyRoutingFilter {
+
+    private final ServiceConnectionPools connectionPools;
+
+    public ServiceAwareNettyRoutingFilter(HttpClient httpClient,
+                                          ObjectProvider<List<HttpHeadersFilter>> headersFiltersProvider,
+                                          HttpClientProperties properties,
+                                          ServiceConnectionPools connectionPools) {
+        super(httpClient, headersFiltersProvider, properties);
+        this.connectionPools = connectionPools;
+    }
+
+    /**
+     * Picks the client of the load-balanced service, applying a route's {@code connect-timeout} metadata
+     * the same way the default filter does.
+     *
+     * @param route    the matched route
+     * @param exchange the current exchange
+     * @return the service's pooled client, or the shared client
+     */
+    @Override
+    protected HttpClient getHttpClient(Route route, ServerWebExchange exchange) {
+        Response<ServiceInstance> lbResponse = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_LOADBALANCER_RESPONSE_ATTR);
+        if (lbResponse == null || !lbResponse.hasServer()) {
+            return super.getHttpClient(route, exchange);
+        }
+
+        HttpClient client = connectionPools.clientFor(lbResponse.getServer().getServiceId());
+        if (client == null) {
+            return super.getHttpClient(route, exchange);
+        }
+
+        Object connectTimeout = route.getMetadata().get(RouteMetadataUtils.CONNECT_TIMEOUT_ATTR);
+        if (connectTimeout != null) {
+            client = client.option(ChannelOption.CONNECT_TIMEOUT_MILLIS, Integer.parseInt(connectTimeout.toString()));
+        }
+        return client;
+    }
+}
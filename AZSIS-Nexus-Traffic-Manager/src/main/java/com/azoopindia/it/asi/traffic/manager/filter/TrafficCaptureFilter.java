@@ -0,0 +1,241 @@
+package com.azoopindia.it.asi.traffic.manager.filter;
+
+import com.azoopindia.it.asi.traffic.manager.capture.TrafficCaptureRecord;
+import com.azoopindia.it.asi.traffic.manager.capture.TrafficCaptureWriter;
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Global filter that records a sample of inbound requests for offline replay.
+ * <p>
+ * It runs just before {@link EarlyAdmissionFilter}, so requests rejected at admission are recorded as well.
+ * Sampling is per client ({@code X-Client-Id}, else the caller's IP address): a client is either captured completely
+ * or not at all, which keeps the per-client request rates in a capture equal to production's. Requests of other
+ * clients pass through untouched.
+ * </p>
+ * <p>
+ * A captured request's body is not buffered by this filter; it is observed while the routing filters read it and
+ * hashed with SHA-256, and copied only if {@code dynamic-routing.capture.include-body} is set and it is small enough.
+ * Query strings are dropped unless {@code include-query} is set, and only the configured headers are kept, those
+ * in {@code hashed-headers} as a hash of their value. When the response completes, the record is handed to the
+ * {@link TrafficCaptureWriter}, together with the GraphQL operation name the router found.
+ * </p>
+ */
+@Component
+public class TrafficCaptureFilter implements GlobalFilter, Ordered {
+
+    public static final int ORDER = EarlyAdmissionFilter.ORDER - 1;
+
+    /**
+     * Longest path and header value recorded, in characters.
+     */
+    private static final int MAX_TEXT_LENGTH = 4096;
+
+    private final DynamicRoutingProperties props;
+
+    private final TrafficCaptureWriter writer;
+
+    private final KeyResolver ipKeyResolver;
+
+    public TrafficCaptureFilter(DynamicRoutingProperties props,
+                                TrafficCaptureWriter writer,
+                                @Qualifier("ipKeyResolver") KeyResolver ipKeyResolver) {
+        this.props = props;
+        this.writer = writer;
+        this.ipKeyResolver = ipKeyResolver;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        DynamicRoutingProperties.Capture capture = props.getCapture();
+        if (!capture.isEnabled() || capture.getSampleRate() <= 0) {
+            return chain.filter(exchange);
+        }
+        return clientKey(exchange).flatMap(clientKey -> isSampled(clientKey, capture.getSampleRate())
+                ? capture(exchange, chain, capture)
+                : chain.filter(exchange));
+    }
+
+    @Override
+    public int getOrder() {
+        return ORDER;
+    }
+
+    /**
+     * Decides whether a client is sampled. The decision only depends on the client key, so it is the same for all
+     * of a client's requests and on every gateway instance.
+     *
+     * @param clientKey  the client key
+     * @param sampleRate fraction of clients to sample
+     * @return {@code true} if the client's requests are captured
+     */
+    private static boolean isSampled(String clientKey, double sampleRate) {
+        if (sampleRate >= 1) {
+            return true;
+        }
+        int hash = clientKey.hashCode() * 0x9E3779B9;
+        hash ^= hash >>> 16;
+        return Integer.toUnsignedLong(hash) < sampleRate * 0x1p32;
+    }
+
+    private Mono<Void> capture(ServerWebExchange exchange, GatewayFilterChain chain,
+                               DynamicRoutingProperties.Capture capture) {
+        long arrivalEpochMicros = ChronoUnit.MICROS.between(Instant.EPOCH, Instant.now());
+        long start = System.nanoTime();
+        ServerHttpRequest request = exchange.getRequest();
+        BodyObserver body = new BodyObserver(capture.isIncludeBody() ? capture.getMaxBodyBytes() : -1);
+
+        ServerHttpRequestDecorator observed = new ServerHttpRequestDecorator(request) {
+            @Override
+            public Flux<DataBuffer> getBody() {
+                return super.getBody().doOnNext(body::update).doOnComplete(body::complete);
+            }
+        };
+
+        return chain.filter(exchange.mutate().request(observed).build())
+                .doFinally(signal -> {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    String operationName = exchange.getAttribute(DynamicUniversalRoutingFilter.GRAPHQL_OPERATION_NAME_ATTR);
+                    writer.submit(new TrafficCaptureRecord(
+                            arrivalEpochMicros,
+                            (int) Math.min(Integer.MAX_VALUE, (System.nanoTime() - start) / 1000),
+                            status == null ? 0 : status.value(),
+                            request.getMethod().name(),
+                            truncate(path(request, capture)),
+                            headers(request.getHeaders(), capture),
+                            operationName == null ? null : truncate(operationName),
+                            body.hash(),
+                            body.copy()));
+                });
+    }
+
+    private static String path(ServerHttpRequest request, DynamicRoutingProperties.Capture capture) {
+        String path = request.getPath().value();
+        String query = request.getURI().getRawQuery();
+        return capture.isIncludeQuery() && query != null ? path + "?" + query : path;
+    }
+
+    private static Map<String, String> headers(HttpHeaders headers, DynamicRoutingProperties.Capture capture) {
+        Map<String, String> captured = new LinkedHashMap<>();
+        for (String name : capture.getHeaders()) {
+            String value = headers.getFirst(name);
+            if (value != null) {
+                captured.put(name, truncate(value));
+            }
+        }
+        for (String name : capture.getHashedHeaders()) {
+            String value = headers.getFirst(name);
+            if (value != null) {
+                captured.put(name, TrafficCaptureRecord.hashValue(value));
+            }
+        }
+        return captured;
+    }
+
+    private static String truncate(String value) {
+        return value.length() > MAX_TEXT_LENGTH ? value.substring(0, MAX_TEXT_LENGTH) : value;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Resolves the sampling key of the caller, like {@link EarlyAdmissionFilter} does for admission.
+     */
+    private Mono<String> clientKey(ServerWebExchange exchange) {
+        String clientId = exchange.getRequest().getHeaders().getFirst("X-Client-Id");
+        if (StringUtils.hasText(clientId)) {
+            return Mono.just(clientId);
+        }
+        return Mono.defer(() -> ipKeyResolver.resolve(exchange))
+                .onErrorResume(e -> Mono.empty())
+                .defaultIfEmpty("unknown")
+                .map(address -> "ip:" + address);
+    }
+
+    /**
+     * Hashes, and optionally copies, the request body as downstream filters consume it.
+     */
+    private static final class BodyObserver {
+
+        private final MessageDigest digest = sha256();
+
+        private final int maxCopyBytes;
+
+        private ByteArrayOutputStream copy;
+
+        private boolean complete;
+
+        /**
+         * @param maxCopyBytes largest body copied, or {@code -1} to only hash it
+         */
+        private BodyObserver(int maxCopyBytes) {
+            this.maxCopyBytes = maxCopyBytes;
+            this.copy = maxCopyBytes >= 0 ? new ByteArrayOutputStream() : null;
+        }
+
+        private synchronized void update(DataBuffer buffer) {
+            try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+                while (iterator.hasNext()) {
+                    ByteBuffer chunk = iterator.next();
+                    if (copy != null) {
+                        if (copy.size() + chunk.remaining() > maxCopyBytes) {
+                            copy = null;
+                        } else {
+                            byte[] bytes = new byte[chunk.remaining()];
+                            chunk.duplicate().get(bytes);
+                            copy.writeBytes(bytes);
+                        }
+                    }
+                    digest.update(chunk);
+                }
+            }
+        }
+
+        private synchronized void complete() {
+            complete = true;
+        }
+
+        /**
+         * @return the hash of the body, or {@code null} if it was not read completely
+         */
+        private synchronized byte[] hash() {
+            return complete ? digest.digest() : null;
+        }
+
+        /**
+         * @return the body, or {@code null} if it was not read completely or not copied
+         */
+        private synchronized byte[] copy() {
+            return complete && copy != null ? copy.toByteArray() : null;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.azoopindia.it.asi.traffic.manager.infrastructure;
+
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity.QuotaPeriod;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity.QuotaUsage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * JDBC repository for the per-node quota counters in the {@code quota_usage} table (see {@link QuotaUsage}).
+ * <p>
+ * Nodes add the calls counted since their last flush to their own rows in one batch, and read the usage of all
+ * nodes back as sums in one query, so quota accounting costs two statements per flush interval regardless of
+ * traffic. The upsert relies on PostgreSQL's {@code INSERT ... ON CONFLICT} against the
+ * {@code quota_usage_node_idx} unique constraint. Rows of past periods are deleted once they are older than the
+ * retention.
+ * </p>
+ */
+@Repository
+@RequiredArgsConstructor
+public class QuotaUsageRepository {
+
+    private static final String ADD_USAGE = """
+            INSERT INTO quota_usage (id, client_id, route, period, period_start, node_id, used, updated_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (client_id, route, period, period_start, node_id) DO UPDATE SET
+                used       = quota_usage.used + EXCLUDED.used,
+                updated_at = EXCLUDED.updated_at
+            """;
+
+    private static final String SUM_USAGE = """
+            SELECT client_id, route, period, period_start, SUM(used) AS used
+            FROM quota_usage
+            WHERE (period = 'DAILY' AND period_start = ?) OR (period = 'MONTHLY' AND period_start = ?)
+            GROUP BY client_id, route, period, period_start
+            """;
+
+    private static final String DELETE_USAGE_BEFORE = """
+            DELETE FROM quota_usage
+            WHERE (period = 'DAILY' AND period_start < ?) OR (period = 'MONTHLY' AND period_start < ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds calls counted by a node to its rows, using one JDBC batch.
+     *
+     * @param nodeId the node that counted the calls
+     * @param deltas calls counted since the node's last flush
+     */
+    public void addUsage(String nodeId, List<UsageDelta> deltas) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(ADD_USAGE, deltas, deltas.size(), (ps, delta) -> {
+            ps.setObject(1, UUID.randomUUID());
+            ps.setString(2, delta.key().clientId());
+            ps.setString(3, delta.key().route());
+            ps.setString(4, delta.key().period().name());
+            ps.setDate(5, Date.valueOf(delta.key().periodStart()));
+            ps.setString(6, nodeId);
+            ps.setLong(7, delta.calls());
+            ps.setTimestamp(8, now);
+        });
+    }
+
+    /**
+     * Sums the usage of all nodes for the daily and monthly periods starting on the given days.
+     *
+     * @param dayStart   first day of the current daily period
+     * @param monthStart first day of the current monthly period
+     * @return calls per quota counted by all nodes together
+     */
+    public Map<UsageKey, Long> sumUsage(LocalDate dayStart, LocalDate monthStart) {
+        Map<UsageKey, Long> usage = new HashMap<>();
+        jdbcTemplate.query(SUM_USAGE, rs -> {
+            usage.put(new UsageKey(rs.getString("client_id"), rs.getString("route"),
+                    QuotaPeriod.valueOf(rs.getString("period")), rs.getDate("period_start").toLocalDate()),
+                    rs.getLong("used"));
+        }, Date.valueOf(dayStart), Date.valueOf(monthStart));
+        return usage;
+    }
+
+    /**
+     * Deletes the rows of all nodes for daily and monthly periods starting before the given days.
+     *
+     * @param dayBefore   daily periods starting before this day are deleted
+     * @param monthBefore monthly periods starting before this day are deleted
+     * @return the number of rows deleted
+     */
+    public int deleteUsageBefore(LocalDate dayBefore, LocalDate monthBefore) {
+        return jdbcTemplate.update(DELETE_USAGE_BEFORE, Date.valueOf(dayBefore), Date.valueOf(monthBefore));
+    }
+
+    /**
+     * Identifies the counter of one quota in one period.
+     *
+     * @param clientId    the client
+     * @param route       route of the configuration that defines the quota
+     * @param period      the period the quota applies to
+     * @param periodStart first day of the period
+     */
+    public record UsageKey(String clientId, String route, QuotaPeriod period, LocalDate periodStart) {
+    }
+
+    /**
+     * Calls counted against a quota since the last flush.
+     *
+     * @param key   the quota and period
+     * @param calls number of calls
+     */
+    public record UsageDelta(UsageKey key, long calls) {
+    }
+}
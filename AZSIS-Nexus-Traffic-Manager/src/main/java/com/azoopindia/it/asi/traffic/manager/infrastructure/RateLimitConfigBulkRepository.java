@@ -0,0 +1,190 @@
+package com.azoopindia.it.asi.traffic.manager.infrastructure;
+
+import com.azoopindia.it.asi.traffic.manager.model.dto.RateLimitConfigRequest;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity.RateLimitAlgorithm;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * JDBC repository for bulk reads and writes of rate limit configurations.
+ * <p>
+ * {@link RateLimitConfigRepository} goes through JPA, which costs one transaction, one entity load and one
+ * {@code rate_limit_custom_attributes} collection load per configuration. This repository works directly on the
+ * {@code rate_limit_config} and {@code rate_limit_custom_attributes} tables with JDBC batching instead, and is
+ * meant for imports and exports of many thousands of rows.
+ * </p>
+ * <p>
+ * The upsert relies on PostgreSQL's {@code INSERT ... ON CONFLICT} against the {@code client_route_idx}
+ * unique constraint.
+ * </p>
+ */
+@Repository
+@RequiredArgsConstructor
+public class RateLimitConfigBulkRepository {
+
+    private static final String UPSERT_CONFIG = """
+            INSERT INTO rate_limit_config (id, client_id, route, requests_per_minute, max_tokens_per_window,
+                                           time_window, time_unit, burst_capacity, priority, expiration_date,
+                                           status, created_at, updated_at, algorithm, daily_quota, monthly_quota)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (client_id, route) DO UPDATE SET
+                requests_per_minute   = EXCLUDED.requests_per_minute,
+                max_tokens_per_window = EXCLUDED.max_tokens_per_window,
+                time_window           = EXCLUDED.time_window,
+                time_unit             = EXCLUDED.time_unit,
+                burst_capacity        = EXCLUDED.burst_capacity,
+                priority              = EXCLUDED.priority,
+                expiration_date       = EXCLUDED.expiration_date,
+                status                = EXCLUDED.status,
+                updated_at            = EXCLUDED.updated_at,
+                algorithm             = EXCLUDED.algorithm,
+                daily_quota           = EXCLUDED.daily_quota,
+                monthly_quota         = EXCLUDED.monthly_quota
+            """;
+
+    private static final String DELETE_ATTRIBUTES = """
+            DELETE FROM rate_limit_custom_attributes
+            WHERE rate_limit_config_id = (SELECT id FROM rate_limit_config WHERE client_id = ? AND route = ?)
+            """;
+
+    private static final String INSERT_ATTRIBUTE = """
+            INSERT INTO rate_limit_custom_attributes (rate_limit_config_id, attribute_key, attribute_value)
+            SELECT id, ?, ? FROM rate_limit_config WHERE client_id = ? AND route = ?
+            """;
+
+    private static final String SELECT_COLUMNS = """
+            SELECT client_id, route, max_tokens_per_window, time_window, time_unit, burst_capacity,
+                   priority, expiration_date, status, algorithm, daily_quota, monthly_quota
+            FROM rate_limit_config
+            """;
+
+    private static final String SELECT_ATTRIBUTES = """
+            SELECT c.client_id, c.route, a.attribute_key, a.attribute_value
+            FROM rate_limit_custom_attributes a
+            JOIN rate_limit_config c ON c.id = a.rate_limit_config_id
+            WHERE (c.client_id, c.route) >= (?, ?) AND (c.client_id, c.route) <= (?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts or updates all given configurations, keyed by client and route, using JDBC batches.
+     * <p>
+     * Rows that carry {@code customAttributes} have their attributes replaced; rows without
+     * {@code customAttributes} keep the attributes already stored. Must be called inside a transaction.
+     * </p>
+     *
+     * @param rows validated configurations to write
+     */
+    public void upsertAll(List<RateLimitConfigRequest> rows) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        jdbcTemplate.batchUpdate(UPSERT_CONFIG, rows, rows.size(), (ps, row) -> {
+            ps.setObject(1, UUID.randomUUID());
+            ps.setString(2, row.getClientId());
+            ps.setString(3, row.getRoute());
+            ps.setLong(4, 0L); // deprecated requests_per_minute, superseded by max_tokens_per_window
+            ps.setLong(5, row.getMaxTokensPerWindow());
+            ps.setLong(6, row.getTimeWindow());
+            ps.setString(7, row.getTimeUnit());
+            ps.setLong(8, row.getBurstCapacity());
+            ps.setInt(9, row.getPriority());
+            ps.setTimestamp(10, row.getExpirationDate() != null ? Timestamp.valueOf(row.getExpirationDate()) : null);
+            ps.setString(11, row.getStatus());
+            ps.setTimestamp(12, now);
+            ps.setTimestamp(13, now);
+            ps.setString(14, row.getAlgorithm() != null ? row.getAlgorithm().name() : null);
+            ps.setLong(15, row.getDailyQuota());
+            ps.setLong(16, row.getMonthlyQuota());
+        });
+
+        List<RateLimitConfigRequest> withAttributes = rows.stream()
+                .filter(row -> row.getCustomAttributes() != null)
+                .toList();
+        if (withAttributes.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.batchUpdate(DELETE_ATTRIBUTES, withAttributes, withAttributes.size(), (ps, row) -> {
+            ps.setString(1, row.getClientId());
+            ps.setString(2, row.getRoute());
+        });
+
+        List<Object[]> attributeRows = new ArrayList<>();
+        for (RateLimitConfigRequest row : withAttributes) {
+            row.getCustomAttributes().forEach((key, value) ->
+                    attributeRows.add(new Object[]{key, value, row.getClientId(), row.getRoute()}));
+        }
+        jdbcTemplate.batchUpdate(INSERT_ATTRIBUTE, attributeRows);
+    }
+
+    /**
+     * Reads one page of configurations in {@code (client_id, route)} order, starting after the given key.
+     * Keyset pagination keeps every page an index range scan on {@code client_route_idx},
+     * no matter how deep into the table the export is.
+     *
+     * @param afterClientId client identifier of the last row of the previous page, or {@code null} for the first page
+     * @param afterRoute    route of the last row of the previous page, or {@code null} for the first page
+     * @param limit         maximum number of rows to return
+     * @return the page, including custom attributes; empty when the end of the table has been reached
+     */
+    public List<RateLimitConfigRequest> findPageAfter(String afterClientId, String afterRoute, int limit) {
+        List<RateLimitConfigRequest> page = afterClientId == null
+                ? jdbcTemplate.query(SELECT_COLUMNS + " ORDER BY client_id, route LIMIT ?",
+                (rs, i) -> mapRow(rs), limit)
+                : jdbcTemplate.query(SELECT_COLUMNS + " WHERE (client_id, route) > (?, ?) ORDER BY client_id, route LIMIT ?",
+                (rs, i) -> mapRow(rs), afterClientId, afterRoute, limit);
+
+        if (page.isEmpty()) {
+            return page;
+        }
+
+        Map<String, RateLimitConfigRequest> byKey = new HashMap<>();
+        page.forEach(row -> byKey.put(row.getClientId() + ":" + row.getRoute(), row));
+
+        RateLimitConfigRequest first = page.get(0);
+        RateLimitConfigRequest last = page.get(page.size() - 1);
+        jdbcTemplate.query(SELECT_ATTRIBUTES, rs -> {
+            RateLimitConfigRequest row = byKey.get(rs.getString("client_id") + ":" + rs.getString("route"));
+            if (row != null) {
+                if (row.getCustomAttributes() == null) {
+                    row.setCustomAttributes(new LinkedHashMap<>());
+                }
+                row.getCustomAttributes().put(rs.getString("attribute_key"), rs.getString("attribute_value"));
+            }
+        }, first.getClientId(), first.getRoute(), last.getClientId(), last.getRoute());
+
+        return page;
+    }
+
+    private RateLimitConfigRequest mapRow(ResultSet rs) throws SQLException {
+        Timestamp expiration = rs.getTimestamp("expiration_date");
+        String algorithm = rs.getString("algorithm");
+        return RateLimitConfigRequest.builder()
+                .clientId(rs.getString("client_id"))
+                .route(rs.getString("route"))
+                .maxTokensPerWindow(rs.getLong("max_tokens_per_window"))
+                .timeWindow(rs.getLong("time_window"))
+                .timeUnit(rs.getString("time_unit"))
+                .burstCapacity(rs.getLong("burst_capacity"))
+                .priority(rs.getInt("priority"))
+                .expirationDate(expiration != null ? expiration.toLocalDateTime() : null)
+                .status(rs.getString("status"))
+                .algorithm(algorithm != null ? RateLimitAlgorithm.valueOf(algorithm) : null)
+                .dailyQuota(rs.getLong("daily_quota"))
+                .monthlyQuota(rs.getLong("monthly_quota"))
+                .build();
+    }
+}
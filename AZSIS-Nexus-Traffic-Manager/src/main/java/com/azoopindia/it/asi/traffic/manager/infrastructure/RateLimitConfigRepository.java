@@ -4,6 +4,7 @@ import com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity.RateLim
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -25,4 +26,14 @@ public interface RateLimitConfigRepository extends JpaRepository<RateLimitConfig
      */
     Optional<RateLimitConfig> findFirstByClientIdAndRouteAndStatus(
             String clientId, String route, String status);
+
+    /**
+     * Finds all {@link RateLimitConfig} entries of a route with the given status, e.g. every client's
+     * admission configuration.
+     *
+     * @param route  the specific route for which the rate limits apply
+     * @param status the status of the rate limit configs (e.g., "ACTIVE", "INACTIVE")
+     * @return the matching configurations
+     */
+    List<RateLimitConfig> findByRouteAndStatus(String route, String status);
 }
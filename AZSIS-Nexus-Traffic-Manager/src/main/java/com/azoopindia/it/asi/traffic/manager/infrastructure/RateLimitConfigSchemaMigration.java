@@ -0,0 +1,60 @@
+package com.azoopindia.it.asi.traffic.manager.infrastructure;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Drops the single-column unique constraints that earlier versions of the entity put on
+ * {@code rate_limit_config.client_id} and {@code rate_limit_config.route}.
+ * <p>
+ * Those constraints allowed one configuration per client and one per route, so a client could not have limits on
+ * two routes and the upsert of {@link RateLimitConfigBulkRepository} failed. The entity now declares only the
+ * composite {@code client_route_idx}, but {@code ddl-auto=update} never drops constraints, so databases created
+ * before still carry them. This runs once the schema is up to date, is a no-op when the constraints are gone,
+ * and only touches PostgreSQL databases.
+ * </p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RateLimitConfigSchemaMigration {
+
+    private static final String FIND_SINGLE_COLUMN_UNIQUES = """
+            SELECT con.conname
+            FROM pg_constraint con
+            JOIN pg_class rel ON rel.oid = con.conrelid
+            JOIN pg_attribute att ON att.attrelid = rel.oid AND att.attnum = con.conkey[1]
+            WHERE rel.relname = 'rate_limit_config'
+              AND con.contype = 'u'
+              AND array_length(con.conkey, 1) = 1
+              AND att.attname IN ('client_id', 'route')
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Drops the obsolete constraints, if any.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void dropSingleColumnUniqueConstraints() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equalsIgnoreCase(database)) {
+            return;
+        }
+
+        List<String> constraints = jdbcTemplate.queryForList(FIND_SINGLE_COLUMN_UNIQUES, String.class);
+        for (String constraint : constraints) {
+            jdbcTemplate.execute("ALTER TABLE rate_limit_config DROP CONSTRAINT IF EXISTS \""
+                    + constraint.replace("\"", "\"\"") + "\"");
+            log.info("Dropped obsolete unique constraint {} on rate_limit_config", constraint);
+        }
+    }
+}
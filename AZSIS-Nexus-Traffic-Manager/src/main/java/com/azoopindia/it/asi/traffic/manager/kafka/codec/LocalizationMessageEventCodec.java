@@ -0,0 +1,305 @@
+package com.azoopindia.it.asi.traffic.manager.kafka.codec;
+
+import com.azoopindia.it.asi.traffic.manager.kafka.model.LocalizationMessageEvent;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of {@link LocalizationMessageEvent}, shared on the wire with the Pigeon service.
+ * <p>
+ * A payload starts with the marker byte {@value #MARKER} and a format version byte, followed by fields in
+ * Protocol Buffers style: every field is a varint tag {@code (fieldId << 3) | wireType} and a value. All fields of
+ * the event are strings, written as wire type {@value #WIRE_LENGTH_DELIMITED} (varint length + UTF-8 bytes); the
+ * {@code args} list is a repeated field. {@code null} fields are omitted; as a repeated field cannot tell an empty
+ * list from a missing one, {@code args} always decodes to a list, empty if the field is absent.
+ * </p>
+ *
+ * <pre>
+ *  1 requestId              5 sourceService   9 content
+ *  2 userCoRelationID       6 targetService  10 resolvedMessage
+ *  3 serviceCoRelationID    7 locale         11 msgResolutionTimestamp
+ *  4 msgTemplateID          8 args (repeated) 12 msgCreationTimestamp
+ * </pre>
+ *
+ * <p>
+ * Schema evolution follows the Protocol Buffers rules: field ids are never reused, new fields get new ids, and
+ * decoders skip fields they do not know, so producers and consumers can be upgraded independently. The Pigeon
+ * service holds an identical copy of this class; both must be changed together.
+ * </p>
+ */
+public final class LocalizationMessageEventCodec {
+
+    /**
+     * First byte of every binary payload. JSON payloads start with {@code '{'} and are told apart by it.
+     */
+    public static final byte MARKER = (byte) 0xC1;
+
+    public static final byte FORMAT_VERSION = 1;
+
+    static final int WIRE_VARINT = 0;
+
+    static final int WIRE_LENGTH_DELIMITED = 2;
+
+    static final int REQUEST_ID = 1;
+    static final int USER_CORRELATION_ID = 2;
+    static final int SERVICE_CORRELATION_ID = 3;
+    static final int MSG_TEMPLATE_ID = 4;
+    static final int SOURCE_SERVICE = 5;
+    static final int TARGET_SERVICE = 6;
+    static final int LOCALE = 7;
+    static final int ARGS = 8;
+    static final int CONTENT = 9;
+    static final int RESOLVED_MESSAGE = 10;
+    static final int MSG_RESOLUTION_TIMESTAMP = 11;
+    static final int MSG_CREATION_TIMESTAMP = 12;
+
+    private LocalizationMessageEventCodec() {
+    }
+
+    /**
+     * @param data a payload; its position is not changed
+     * @return {@code true} if the payload is in this binary format rather than JSON
+     */
+    public static boolean isBinary(ByteBuffer data) {
+        return data.remaining() > 0 && data.get(data.position()) == MARKER;
+    }
+
+    /**
+     * Encodes an event into an exactly sized array.
+     * <p>
+     * {@code null} elements of {@code args} are written as empty strings, as a repeated field cannot hold nulls.
+     * </p>
+     *
+     * @param event the event
+     * @return the binary payload
+     */
+    public static byte[] encode(LocalizationMessageEvent event) {
+        int size = 2
+                + fieldSize(REQUEST_ID, event.getRequestId())
+                + fieldSize(USER_CORRELATION_ID, event.getUserCoRelationID())
+                + fieldSize(SERVICE_CORRELATION_ID, event.getServiceCoRelationID())
+                + fieldSize(MSG_TEMPLATE_ID, event.getMsgTemplateID())
+                + fieldSize(SOURCE_SERVICE, event.getSourceService())
+                + fieldSize(TARGET_SERVICE, event.getTargetService())
+                + fieldSize(LOCALE, event.getLocale())
+                + fieldSize(CONTENT, event.getContent())
+                + fieldSize(RESOLVED_MESSAGE, event.getResolvedMessage())
+                + fieldSize(MSG_RESOLUTION_TIMESTAMP, event.getMsgResolutionTimestamp())
+                + fieldSize(MSG_CREATION_TIMESTAMP, event.getMsgCreationTimestamp());
+        if (event.getArgs() != null) {
+            for (String arg : event.getArgs()) {
+                size += fieldSize(ARGS, arg == null ? "" : arg);
+            }
+        }
+
+        Writer out = new Writer(new byte[size]);
+        out.bytes[out.position++] = MARKER;
+        out.bytes[out.position++] = FORMAT_VERSION;
+        out.field(REQUEST_ID, event.getRequestId());
+        out.field(USER_CORRELATION_ID, event.getUserCoRelationID());
+        out.field(SERVICE_CORRELATION_ID, event.getServiceCoRelationID());
+        out.field(MSG_TEMPLATE_ID, event.getMsgTemplateID());
+        out.field(SOURCE_SERVICE, event.getSourceService());
+        out.field(TARGET_SERVICE, event.getTargetService());
+        out.field(LOCALE, event.getLocale());
+        if (event.getArgs() != null) {
+            for (String arg : event.getArgs()) {
+                out.field(ARGS, arg == null ? "" : arg);
+            }
+        }
+        out.field(CONTENT, event.getContent());
+        out.field(RESOLVED_MESSAGE, event.getResolvedMessage());
+        out.field(MSG_RESOLUTION_TIMESTAMP, event.getMsgResolutionTimestamp());
+        out.field(MSG_CREATION_TIMESTAMP, event.getMsgCreationTimestamp());
+        return out.bytes;
+    }
+
+    /**
+     * Decodes a binary payload, reading strings straight from the buffer's backing array when it has one.
+     *
+     * @param data the payload; its position is not changed
+     * @return the event
+     * @throws SerializationException if the payload is not a well-formed binary event
+     */
+    public static LocalizationMessageEvent decode(ByteBuffer data) {
+        ByteBuffer in = data.duplicate();
+        try {
+            if (in.get() != MARKER) {
+                throw new SerializationException("Not a binary LocalizationMessageEvent");
+            }
+            if (in.get() < 1) {
+                throw new SerializationException("Invalid LocalizationMessageEvent format version");
+            }
+
+            LocalizationMessageEvent event = new LocalizationMessageEvent();
+            List<String> args = null;
+            while (in.hasRemaining()) {
+                int tag = readVarint(in);
+                int fieldId = tag >>> 3;
+                int wireType = tag & 7;
+                if (wireType == WIRE_VARINT) {
+                    readVarint(in);
+                    continue;
+                }
+                if (wireType != WIRE_LENGTH_DELIMITED) {
+                    throw new SerializationException("Unsupported wire type " + wireType + " of field " + fieldId);
+                }
+                int length = readVarint(in);
+                if (length < 0 || length > in.remaining()) {
+                    throw new SerializationException("Truncated field " + fieldId);
+                }
+                switch (fieldId) {
+                    case REQUEST_ID -> event.setRequestId(readString(in, length));
+                    case USER_CORRELATION_ID -> event.setUserCoRelationID(readString(in, length));
+                    case SERVICE_CORRELATION_ID -> event.setServiceCoRelationID(readString(in, length));
+                    case MSG_TEMPLATE_ID -> event.setMsgTemplateID(readString(in, length));
+                    case SOURCE_SERVICE -> event.setSourceService(readString(in, length));
+                    case TARGET_SERVICE -> event.setTargetService(readString(in, length));
+                    case LOCALE -> event.setLocale(readString(in, length));
+                    case ARGS -> {
+                        if (args == null) {
+                            args = new ArrayList<>();
+                        }
+                        args.add(readString(in, length));
+                    }
+                    case CONTENT -> event.setContent(readString(in, length));
+                    case RESOLVED_MESSAGE -> event.setResolvedMessage(readString(in, length));
+                    case MSG_RESOLUTION_TIMESTAMP -> event.setMsgResolutionTimestamp(readString(in, length));
+                    case MSG_CREATION_TIMESTAMP -> event.setMsgCreationTimestamp(readString(in, length));
+                    default -> in.position(in.position() + length);
+                }
+            }
+            event.setArgs(args != null ? args : List.of());
+            return event;
+        } catch (RuntimeException e) {
+            if (e instanceof SerializationException serializationException) {
+                throw serializationException;
+            }
+            throw new SerializationException("Malformed LocalizationMessageEvent", e);
+        }
+    }
+
+    private static int fieldSize(int fieldId, String value) {
+        if (value == null) {
+            return 0;
+        }
+        int length = utf8Length(value);
+        return varintSize(fieldId << 3 | WIRE_LENGTH_DELIMITED) + varintSize(length) + length;
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new SerializationException("Malformed varint");
+    }
+
+    private static String readString(ByteBuffer in, int length) {
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            in.get(in.position(), bytes);
+            value = new String(bytes, StandardCharsets.UTF_8);
+        }
+        in.position(in.position() + length);
+        return value;
+    }
+
+    /**
+     * Writes fields into a pre-sized array.
+     */
+    private static final class Writer {
+
+        private final byte[] bytes;
+
+        private int position;
+
+        private Writer(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private void field(int fieldId, String value) {
+            if (value == null) {
+                return;
+            }
+            varint(fieldId << 3 | WIRE_LENGTH_DELIMITED);
+            varint(utf8Length(value));
+            utf8(value);
+        }
+
+        private void varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                bytes[position++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            bytes[position++] = (byte) value;
+        }
+
+        /**
+         * Encodes UTF-8 in place; unpaired surrogates become U+FFFD.
+         */
+        private void utf8(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    bytes[position++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[position++] = (byte) (0xC0 | c >> 6);
+                    bytes[position++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    bytes[position++] = (byte) (0xF0 | codePoint >> 18);
+                    bytes[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    bytes[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    bytes[position++] = (byte) (0x80 | codePoint & 0x3F);
+                } else if (Character.isSurrogate(c)) {
+                    bytes[position++] = (byte) 0xEF;
+                    bytes[position++] = (byte) 0xBF;
+                    bytes[position++] = (byte) 0xBD;
+                } else {
+                    bytes[position++] = (byte) (0xE0 | c >> 12);
+                    bytes[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    bytes[position++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+        }
+    }
+}
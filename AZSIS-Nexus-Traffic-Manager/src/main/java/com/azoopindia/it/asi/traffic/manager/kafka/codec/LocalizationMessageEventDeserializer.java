@@ -0,0 +1,46 @@
+package com.azoopindia.it.asi.traffic.manager.kafka.codec;
+
+import com.azoopindia.it.asi.traffic.manager.kafka.model.LocalizationMessageEvent;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.utils.ByteBufferInputStream;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Kafka {@link Deserializer} reading {@link LocalizationMessageEvent}s.
+ * <p>
+ * Binary payloads ({@link LocalizationMessageEventCodec}) are decoded directly from the record buffer. Payloads
+ * written before the binary format was introduced are JSON and are still accepted, so producers can be switched
+ * over without draining the topics first.
+ * </p>
+ */
+public class LocalizationMessageEventDeserializer implements Deserializer<LocalizationMessageEvent> {
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Override
+    public LocalizationMessageEvent deserialize(String topic, byte[] data) {
+        return data == null ? null : deserialize(topic, null, ByteBuffer.wrap(data));
+    }
+
+    @Override
+    public LocalizationMessageEvent deserialize(String topic, Headers headers, ByteBuffer data) {
+        if (data == null) {
+            return null;
+        }
+        if (LocalizationMessageEventCodec.isBinary(data)) {
+            return LocalizationMessageEventCodec.decode(data);
+        }
+        try {
+            return objectMapper.readValue(new ByteBufferInputStream(data.duplicate()), LocalizationMessageEvent.class);
+        } catch (IOException e) {
+            throw new SerializationException("Payload is neither a binary nor a JSON LocalizationMessageEvent", e);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.azoopindia.it.asi.traffic.manager.kafka.codec;
+
+import com.azoopindia.it.asi.traffic.manager.kafka.model.LocalizationMessageEvent;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Kafka {@link Serializer} writing {@link LocalizationMessageEvent}s in the binary format of
+ * {@link LocalizationMessageEventCodec}.
+ */
+public class LocalizationMessageEventSerializer implements Serializer<LocalizationMessageEvent> {
+
+    @Override
+    public byte[] serialize(String topic, LocalizationMessageEvent event) {
+        return event == null ? null : LocalizationMessageEventCodec.encode(event);
+    }
+}
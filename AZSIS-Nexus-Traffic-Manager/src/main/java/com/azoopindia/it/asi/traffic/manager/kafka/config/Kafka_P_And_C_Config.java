@@ -1,9 +1,14 @@
 package com.azoopindia.it.asi.traffic.manager.kafka.config;
 
+import com.azoopindia.it.asi.traffic.manager.kafka.codec.LocalizationMessageEventSerializer;
+import com.azoopindia.it.asi.traffic.manager.kafka.model.LocalizationMessageEvent;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.ByteBufferDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -11,6 +16,7 @@ import org.springframework.kafka.annotation.EnableKafka;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.*;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -88,6 +94,20 @@ public class Kafka_P_And_C_Config {
         return new KafkaTemplate<>(kafkaPigeonProducerFactory());
     }
 
+    /**
+     * Defines a {@link KafkaTemplate} for {@link LocalizationMessageEvent}s, written in the binary localization event format.
+     *
+     * <p>It shares the producer settings of {@code kafkaPigeonProducerFactory()}; only the value serializer differs.</p>
+     *
+     * @return a {@link KafkaTemplate} for publishing localization events
+     */
+    @Bean
+    @Qualifier("localizationKafkaTemplate")
+    public KafkaTemplate<String, LocalizationMessageEvent> localizationKafkaTemplate() {
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(kafkaPigeonProducerFactory().getConfigurationProperties(),
+                new StringSerializer(), new LocalizationMessageEventSerializer()));
+    }
+
     /**
      * Creates and configures a {@link ConsumerFactory} for String key-value pairs.
      *
@@ -145,6 +165,28 @@ public class Kafka_P_And_C_Config {
         return factory;
     }
 
+    /**
+     * Kafka Listener Container Factory for localization events.
+     * <p>
+     * Record values are handed to the listener as {@link ByteBuffer} views of the fetched data, without copying, so
+     * that records can be screened by their headers and only the relevant ones decoded
+     * (see {@link com.azoopindia.it.asi.traffic.manager.kafka.codec.LocalizationMessageEventDeserializer}).
+     * The buffers are only valid while the listener method runs.
+     *
+     * @return a batch listener container factory with {@link ByteBuffer} values
+     */
+    @Bean
+    @Qualifier("localizationListenerContainerFactory")
+    public ConcurrentKafkaListenerContainerFactory<String, ByteBuffer> localizationListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, ByteBuffer> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(kafkaPigeonConsumerFactory().getConfigurationProperties(),
+                new StringDeserializer(), new ByteBufferDeserializer()));
+        factory.setBatchListener(true);
+        factory.setConcurrency(5);
+        return factory;
+    }
+
     /**
      * Configures a {@link ConcurrentKafkaListenerContainerFactory} for concurrent Kafka listeners.
      *
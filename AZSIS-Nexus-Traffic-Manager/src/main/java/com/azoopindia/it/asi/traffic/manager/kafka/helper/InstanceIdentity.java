@@ -0,0 +1,35 @@
+package com.azoopindia.it.asi.traffic.manager.kafka.helper;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Utility class resolving a name for this gateway instance that stays the same across restarts.
+ *
+ * <p>In Kubernetes the {@code HOSTNAME} variable holds the pod name, which for a StatefulSet pod carries its
+ * ordinal (e.g. {@code api-gateway-0}) and survives restarts and rescheduling. Outside Kubernetes the host
+ * name is used instead.</p>
+ *
+ * <p>Per-instance Kafka consumer groups are named after it, so a restarted instance rejoins its own group
+ * instead of leaving an orphaned group behind on every start.</p>
+ */
+public final class InstanceIdentity {
+
+    private InstanceIdentity() {
+    }
+
+    /**
+     * @return the pod name, else the host name, else {@code "localhost"}
+     */
+    public static String name() {
+        String hostname = System.getenv("HOSTNAME");
+        if (hostname != null && !hostname.isBlank()) {
+            return hostname.trim();
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.azoopindia.it.asi.traffic.manager.kafka.model;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeader;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Kafka record headers carrying the correlation metadata of an event.
+ * <p>
+ * Producers copy the routing-relevant fields of an event into headers so that consumers can filter, route and
+ * dedupe records by reading a few header bytes instead of deserializing the whole payload. The header names and
+ * values are part of the contract with the Pigeon service, which defines the same constants.
+ * </p>
+ *
+ * <ul>
+ *   <li>{@value #REQUEST_ID} - the event's {@code requestId}</li>
+ *   <li>{@value #SERVICE_CORRELATION_ID} - the event's {@code serviceCoRelationID}</li>
+ *   <li>{@value #EVENT_TYPE} - the simple name of the event class, e.g. {@value #LOCALIZATION_EVENT_TYPE}</li>
+ *   <li>{@value #SCHEMA_VERSION} - the version of the payload format</li>
+ * </ul>
+ *
+ * <p>All values are UTF-8 strings. Records produced before headers were introduced carry none, so consumers must
+ * fall back to the payload when a header is missing.</p>
+ *
+ * @see LocalizationMessageEvent
+ */
+public final class KafkaEventHeaders {
+
+    public static final String REQUEST_ID = "x-request-id";
+
+    public static final String SERVICE_CORRELATION_ID = "x-service-correlation-id";
+
+    public static final String EVENT_TYPE = "x-event-type";
+
+    public static final String SCHEMA_VERSION = "x-schema-version";
+
+    /**
+     * {@value #EVENT_TYPE} value of {@link LocalizationMessageEvent} records.
+     */
+    public static final String LOCALIZATION_EVENT_TYPE = "LocalizationMessageEvent";
+
+    /**
+     * {@value #SCHEMA_VERSION} value of the payload format currently produced.
+     */
+    public static final String CURRENT_SCHEMA_VERSION = "1";
+
+    private KafkaEventHeaders() {
+    }
+
+    /**
+     * Builds the headers of a localization event.
+     *
+     * @param event the event about to be sent
+     * @return the headers; correlation fields that are {@code null} are omitted
+     */
+    public static List<Header> of(LocalizationMessageEvent event) {
+        List<Header> headers = new ArrayList<>(4);
+        add(headers, REQUEST_ID, event.getRequestId());
+        add(headers, SERVICE_CORRELATION_ID, event.getServiceCoRelationID());
+        add(headers, EVENT_TYPE, LOCALIZATION_EVENT_TYPE);
+        add(headers, SCHEMA_VERSION, CURRENT_SCHEMA_VERSION);
+        return headers;
+    }
+
+    /**
+     * Reads a header value.
+     *
+     * @param headers the record headers
+     * @param name    the header name
+     * @return the value of the last header with that name, or {@code null} if there is none
+     */
+    public static String get(Headers headers, String name) {
+        Header header = headers.lastHeader(name);
+        return header == null || header.value() == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    private static void add(List<Header> headers, String name, String value) {
+        if (value != null) {
+            headers.add(new RecordHeader(name, value.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+}
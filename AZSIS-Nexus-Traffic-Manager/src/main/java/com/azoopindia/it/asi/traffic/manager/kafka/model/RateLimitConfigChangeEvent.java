@@ -0,0 +1,112 @@
+package com.azoopindia.it.asi.traffic.manager.kafka.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Event broadcast to every gateway replica whenever a
+ * {@code RateLimitConfig} row is inserted, updated or removed.
+ *
+ * <p>The event only carries the bucket key (client and route) that changed, never the
+ * configuration itself. Receivers re-read the active configuration from the database and
+ * rebuild the single affected bucket, so events can be applied in any order and
+ * duplicates are harmless.</p>
+ *
+ * <p>A bulk import reports all rows of a chunk in one event: {@link #keys} lists the written pairs, and
+ * {@link #clientId} and {@link #route} are unset.</p>
+ *
+ * <p>Example JSON payload:
+ * <pre>{@code
+ * {
+ *   "changeType": "UPSERT",
+ *   "clientId": "client-001",
+ *   "route": "/localization/graphql",
+ *   "previousClientId": "client-001",
+ *   "previousRoute": "/localization/graphql",
+ *   "originInstanceId": "5c1f0e8e-3a56-4a4c-9d0c-5bb0c2b6f4a1",
+ *   "emittedAt": 1752566400000
+ * }
+ * }</pre>
+ * </p>
+ *
+ * @see com.azoopindia.it.asi.traffic.manager.validation.rulebook.RateLimitConfigEntityListener
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateLimitConfigChangeEvent {
+
+    /**
+     * Kind of change applied to the configuration row.
+     */
+    public enum ChangeType {
+        UPSERT,
+        DELETE
+    }
+
+    /**
+     * Whether the configuration was written or removed.
+     */
+    private ChangeType changeType;
+
+    /**
+     * Client identifier of the configuration after the change.
+     */
+    private String clientId;
+
+    /**
+     * Route of the configuration after the change.
+     */
+    private String route;
+
+    /**
+     * Pairs written by a bulk import, or {@code null} for the change of a single configuration.
+     */
+    private List<ConfigKey> keys;
+
+    /**
+     * Client identifier as it was loaded before the change, or {@code null} for inserts.
+     * Differs from {@link #clientId} only when an update re-keyed the configuration.
+     */
+    private String previousClientId;
+
+    /**
+     * Route as it was loaded before the change, or {@code null} for inserts.
+     */
+    private String previousRoute;
+
+    /**
+     * Identifier of the gateway instance that committed the change.
+     * Lets the origin skip its own event, since it has already applied it locally.
+     */
+    private String originInstanceId;
+
+    /**
+     * Commit time of the change in epoch milliseconds (UTC).
+     */
+    private long emittedAt;
+
+    /**
+     * Indicates whether the change moved the configuration to a different client/route key.
+     *
+     * @return {@code true} if the previous key is known and differs from the current one
+     */
+    public boolean isRekeyed() {
+        return previousClientId != null && previousRoute != null
+                && (!previousClientId.equals(clientId) || !previousRoute.equals(route));
+    }
+
+    /**
+     * Client and route of a configuration written by a bulk import.
+     *
+     * @param clientId the client identifier
+     * @param route    the route
+     */
+    public record ConfigKey(String clientId, String route) {
+    }
+}
@@ -0,0 +1,165 @@
+package com.azoopindia.it.asi.traffic.manager.kafka.service;
+
+import com.azoopindia.it.asi.traffic.manager.kafka.codec.LocalizationMessageEventDeserializer;
+import com.azoopindia.it.asi.traffic.manager.kafka.helper.InstanceIdentity;
+import com.azoopindia.it.asi.traffic.manager.kafka.helper.UniqueEventRequestIdGenerator;
+import com.azoopindia.it.asi.traffic.manager.kafka.model.KafkaEventHeaders;
+import com.azoopindia.it.asi.traffic.manager.kafka.model.LocalizationMessageEvent;
+import com.azoopindia.it.asi.traffic.manager.kafka.service.producer.KafkaProducerService;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Correlates localization requests sent to Pigeon over Kafka with the replies Pigeon publishes back.
+ * <p>
+ * {@link #request(LocalizationMessageEvent)} registers the request under its {@code requestId} in a map of pending
+ * requests, publishes it to the Pigeon request topic and returns a {@link Mono} that completes with the resolved
+ * event once the reply carrying the same {@code requestId} arrives. Pending requests are removed when answered,
+ * timed out or cancelled, so the map only holds requests that are actually awaited.
+ * </p>
+ * <p>
+ * Pigeon routes replies to the topic registered for the request's {@code serviceCoRelationID}. Every gateway
+ * replica therefore reads the whole reply topic in a consumer group of its own ({@link #getReplyGroupId()}) and
+ * ignores replies to requests it did not send. Replies are matched by their {@link KafkaEventHeaders} first, so
+ * such records are skipped without deserializing them; only replies without headers are parsed to find their
+ * {@code requestId}.
+ * </p>
+ */
+@Slf4j
+@Service
+public class LocalizationRequestCorrelator {
+
+    private final KafkaProducerService kafkaProducerService;
+
+    private final LocalizationMessageEventDeserializer deserializer = new LocalizationMessageEventDeserializer();
+
+    private final String requestTopic;
+
+    private final String serviceCorrelationId;
+
+    private final Duration timeout;
+
+    private final int maxPending;
+
+    private final Map<String, Sinks.One<LocalizationMessageEvent>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * Consumer group of this instance, named after the pod so it survives restarts; referenced from the reply
+     * listener via SpEL.
+     */
+    @Getter
+    private final String replyGroupId;
+
+    public LocalizationRequestCorrelator(KafkaProducerService kafkaProducerService,
+                                         @Value("${spring.apigateway.kafka.localization.request-topic}") String requestTopic,
+                                         @Value("${spring.apigateway.kafka.localization.service-correlation-id}") String serviceCorrelationId,
+                                         @Value("${spring.apigateway.kafka.localization.timeout:5s}") Duration timeout,
+                                         @Value("${spring.apigateway.kafka.localization.max-pending:10000}") int maxPending,
+                                         @Value("${spring.apigateway.kafka.consumer.group-id}") String groupPrefix) {
+        this.kafkaProducerService = kafkaProducerService;
+        this.requestTopic = requestTopic;
+        this.serviceCorrelationId = serviceCorrelationId;
+        this.timeout = timeout;
+        this.maxPending = maxPending;
+        this.replyGroupId = groupPrefix + "-" + InstanceIdentity.name();
+    }
+
+    /**
+     * Sends a localization request to Pigeon and awaits its reply without blocking.
+     * <p>
+     * A missing {@code requestId} is generated; {@code serviceCoRelationID} and {@code msgCreationTimestamp} are
+     * always set by the gateway. Nothing is sent until the returned Mono is subscribed.
+     * </p>
+     *
+     * @param event the request; must carry at least {@code msgTemplateID}
+     * @return a Mono emitting the resolved event; it fails with a {@link java.util.concurrent.TimeoutException}
+     * if no reply arrives within the configured timeout, and with an {@link IllegalStateException}
+     * if too many requests are already pending
+     */
+    public Mono<LocalizationMessageEvent> request(LocalizationMessageEvent event) {
+        return Mono.defer(() -> {
+            if (pending.size() >= maxPending) {
+                return Mono.error(new IllegalStateException("More than " + maxPending + " localization requests pending"));
+            }
+            if (event.getRequestId() == null) {
+                event.setRequestId(UniqueEventRequestIdGenerator.generateRequestIdForLocalization());
+            }
+            event.setServiceCoRelationID(serviceCorrelationId);
+            event.setMsgCreationTimestamp(Instant.now().toString());
+
+            String requestId = event.getRequestId();
+            Sinks.One<LocalizationMessageEvent> reply = Sinks.one();
+            if (pending.putIfAbsent(requestId, reply) != null) {
+                return Mono.error(new IllegalStateException("Localization request " + requestId + " is already pending"));
+            }
+            return kafkaProducerService.send(requestTopic, requestId, event, KafkaEventHeaders.of(event))
+                    .then(reply.asMono())
+                    .timeout(timeout)
+                    // removed before the outcome reaches the subscriber, unlike doFinally
+                    .doOnTerminate(() -> pending.remove(requestId, reply))
+                    .doOnCancel(() -> pending.remove(requestId, reply));
+        });
+    }
+
+    /**
+     * Completes the pending requests answered by a batch of replies.
+     * <p>
+     * Records of another event type, replies to requests this instance is not awaiting (sent by another replica,
+     * already answered or timed out) and unparsable replies are skipped. A record's payload is only deserialized
+     * when its request is pending here or when it carries no {@value KafkaEventHeaders#REQUEST_ID} header.
+     * </p>
+     *
+     * @param records reply records with encoded {@link LocalizationMessageEvent} values, binary or JSON
+     * @return the number of pending requests completed
+     */
+    public int completeAll(List<ConsumerRecord<String, ByteBuffer>> records) {
+        int completed = 0;
+        for (ConsumerRecord<String, ByteBuffer> record : records) {
+            String eventType = KafkaEventHeaders.get(record.headers(), KafkaEventHeaders.EVENT_TYPE);
+            if (eventType != null && !KafkaEventHeaders.LOCALIZATION_EVENT_TYPE.equals(eventType)) {
+                continue;
+            }
+            String requestId = KafkaEventHeaders.get(record.headers(), KafkaEventHeaders.REQUEST_ID);
+            if (requestId != null && !pending.containsKey(requestId)) {
+                log.debug("No pending localization request {}", requestId);
+                continue;
+            }
+            try {
+                LocalizationMessageEvent reply = deserializer.deserialize(record.topic(), record.headers(), record.value());
+                if (reply == null || reply.getRequestId() == null) {
+                    log.warn("Skipping localization reply without requestId at offset {}", record.offset());
+                    continue;
+                }
+                Sinks.One<LocalizationMessageEvent> sink = pending.remove(reply.getRequestId());
+                if (sink == null) {
+                    log.debug("No pending localization request {}", reply.getRequestId());
+                    continue;
+                }
+                sink.tryEmitValue(reply);
+                completed++;
+            } catch (Exception e) {
+                log.error("Failed to parse localization reply at offset {}", record.offset(), e);
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * @return the number of requests currently awaiting a reply
+     */
+    public int pendingCount() {
+        return pending.size();
+    }
+}
@@ -1,36 +1,28 @@
-
 package com.azoopindia.it.asi.traffic.manager.kafka.service.consumer;
 
 
-import com.azoopindia.it.asi.traffic.manager.kafka.model.LocalizationMessageEvent;
-import com.azoopindia.it.asi.traffic.manager.kafka.service.producer.KafkaProducerService;
-import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.azoopindia.it.asi.traffic.manager.kafka.service.LocalizationRequestCorrelator;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
  * Kafka consumer service for listening to messages published to Kafka topics by the Pigeon system.
  * <p>
- * This class listens on configured topics using {@link KafkaListener} and logs received messages.
- * Additional message handling logic can be added in the consumer method.
+ * This class listens on the gateway's reply topic using {@link KafkaListener} and hands every received
+ * localization reply to the {@link LocalizationRequestCorrelator}, which completes the request awaiting it.
  * </p>
  *
  * <p>
- * This service should be enabled in your application via Spring Boot configuration.
+ * Each instance consumes in a consumer group of its own (see {@link LocalizationRequestCorrelator#getReplyGroupId()}),
+ * named after its pod so a restart rejoins the same group. A new group starts from the latest offset, because a
+ * reply is only of use to the instance that sent the request and that instance only awaits replies to requests
+ * sent after it started; replies read after a restart match no pending request and are ignored.
  * </p>
- * <p>
- * Example:
- * <pre>
- *     @KafkaListener(topics = "topic", groupId = "group")
- *     public void consume(String message) {
- *         // handle message
- *     }
- * </pre>
  *
  */
 
@@ -39,37 +31,23 @@ import java.util.List;
 public class KafkaConsumerService {
 
 
-    private KafkaProducerService kafkaProducerService;
+    private final LocalizationRequestCorrelator correlator;
 
-    @Autowired
-    private ObjectMapper objectMapper;
-
-    public KafkaConsumerService(KafkaProducerService kafkaProducerService) {
-        this.kafkaProducerService = kafkaProducerService;
+    public KafkaConsumerService(LocalizationRequestCorrelator correlator) {
+        this.correlator = correlator;
     }
 
     /**
      * Consumes messages from the configured Kafka topic.
-     * This method is automatically triggered when a new message is published to the topic.
+     * This method is automatically triggered when a new batch of messages is published to the topic.
      *
-     * @param messages the list of message content received from the Kafka topic
+     * @param records the records received from the Kafka topic, with their headers
      */
-    @KafkaListener(topics = "${spring.apigateway.kafka.consumer.topic}", groupId = "${spring.apigateway.kafka.consumer.group-id}",
-            concurrency = "5", containerFactory = "kafkaListenerContainerFactory")
-    public void consume(List<String> messages) {
-
-        try {
-            LocalizationMessageEvent event = objectMapper.readValue(messages.get(0), LocalizationMessageEvent.class);
-            log.info("Consumed Kafka message: {}", event);
-
-            // Optionally forward to a producer (if needed)
-            // kafkaProducerService.sendProcessedEvent(event);
-
-        } catch (JsonParseException e) {
-            log.error("Failed to parse message: {}", messages.get(0), e);
-        } catch (Exception e) {
-            log.error("Unexpected error while processing message: {}", messages.get(0), e);
-        }
+    @KafkaListener(topics = "${spring.apigateway.kafka.consumer.topic}", groupId = "#{@localizationRequestCorrelator.replyGroupId}",
+            concurrency = "5", containerFactory = "localizationListenerContainerFactory",
+            properties = "auto.offset.reset=latest")
+    public void consume(List<ConsumerRecord<String, ByteBuffer>> records) {
+        int completed = correlator.completeAll(records);
+        log.debug("Consumed {} Kafka messages, completed {} pending localization requests", records.size(), completed);
     }
 }
-
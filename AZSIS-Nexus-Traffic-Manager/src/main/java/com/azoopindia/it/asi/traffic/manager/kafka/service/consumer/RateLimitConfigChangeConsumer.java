@@ -0,0 +1,78 @@
+package com.azoopindia.it.asi.traffic.manager.kafka.service.consumer;
+
+import com.azoopindia.it.asi.traffic.manager.kafka.model.RateLimitConfigChangeEvent;
+import com.azoopindia.it.asi.traffic.manager.service.RateLimitConfigChangePublisher;
+import com.azoopindia.it.asi.traffic.manager.service.RateLimiterService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Kafka consumer that keeps this gateway's rate limit buckets in sync with configuration
+ * changes committed by any replica.
+ *
+ * <p>Every replica must see every change, so the listener joins a consumer group of its own
+ * ({@code <group-prefix>-<instanceId>}) instead of the shared gateway group. The instance ID is the pod
+ * name, so a restarted replica rejoins its group and resumes after the last change it read; applying a
+ * change twice is harmless. A new replica's group has no committed offsets and starts from the latest
+ * offset: older changes are already reflected in the database that a freshly started instance reads from.</p>
+ */
+@Slf4j
+@Service
+public class RateLimitConfigChangeConsumer {
+
+    private final RateLimiterService rateLimiterService;
+
+    private final RateLimitConfigChangePublisher changePublisher;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Consumer group of this instance, stable across restarts; referenced from the {@link KafkaListener} via SpEL.
+     */
+    @Getter
+    private final String groupId;
+
+    public RateLimitConfigChangeConsumer(RateLimiterService rateLimiterService,
+                                         RateLimitConfigChangePublisher changePublisher,
+                                         ObjectMapper objectMapper,
+                                         @Value("${spring.apigateway.kafka.rate-limit-sync.group-prefix}") String groupPrefix) {
+        this.rateLimiterService = rateLimiterService;
+        this.changePublisher = changePublisher;
+        this.objectMapper = objectMapper;
+        this.groupId = groupPrefix + "-" + changePublisher.getInstanceId();
+    }
+
+    /**
+     * Applies every change in the received batch. Events produced by this instance are skipped
+     * because they were applied locally at commit time.
+     *
+     * @param messages JSON encoded {@link RateLimitConfigChangeEvent}s
+     */
+    @KafkaListener(topics = "${spring.apigateway.kafka.rate-limit-sync.topic}", groupId = "#{__listener.groupId}",
+            concurrency = "1", containerFactory = "kafkaListenerContainerFactory",
+            properties = "auto.offset.reset=latest")
+    public void consume(List<String> messages) {
+        for (String message : messages) {
+            try {
+                RateLimitConfigChangeEvent event = objectMapper.readValue(message, RateLimitConfigChangeEvent.class);
+                if (changePublisher.getInstanceId().equals(event.getOriginInstanceId())) {
+                    continue;
+                }
+                rateLimiterService.applyConfigChange(event);
+                if (event.getKeys() != null) {
+                    log.info("Applied bulk rate limit config change of {} configurations", event.getKeys().size());
+                } else {
+                    log.info("Applied rate limit config change {} for {}:{}", event.getChangeType(), event.getClientId(), event.getRoute());
+                }
+            } catch (Exception e) {
+                log.error("Failed to apply rate limit config change: {}", message, e);
+            }
+        }
+    }
+}
@@ -1,59 +1,188 @@
 
 package com.azoopindia.it.asi.traffic.manager.kafka.service.producer;
 
+import com.azoopindia.it.asi.traffic.manager.kafka.model.LocalizationMessageEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.ApiException;
+import org.apache.kafka.common.errors.RetriableException;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.retry.support.RetryTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
-import org.springframework.beans.factory.annotation.Qualifier;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 /**
  * Service class responsible for sending messages to Kafka topics related to the Pigeon system.
  * <p>
- * This class uses a {@link KafkaTemplate} for sending messages and a {@link RetryTemplate} to
- * automatically retry message sending on failures.
+ * Sends are non-blocking: {@link #send(String, String, String)} returns a {@link Mono} that completes when the
+ * broker acknowledges the record. The hand-over to the Kafka client, which can block while topic metadata is
+ * fetched or the client buffer is full, runs on the bounded-elastic scheduler so that no event-loop thread
+ * ever waits for a broker.
  * </p>
  * <p>
- * The KafkaTemplate and RetryTemplate beans are injected using Spring's dependency injection,
- * distinguished by their respective qualifiers.
+ * At most {@code max-in-flight-sends} sends are outstanding at any time. A send beyond that limit is rejected
+ * with a {@link KafkaBackpressureException}, which, like retriable broker errors, is retried with exponential
+ * back-off and jitter. Errors the broker reports as permanent (e.g. an oversized record) are not retried.
  * </p>
  * <p>
- * Logging is enabled to trace message send attempts and failures.
+ * Sends are recorded in the {@code gateway.kafka.send} timer (tagged by topic and outcome), retries in the
+ * {@code gateway.kafka.send.retries} counter and outstanding sends in the {@code gateway.kafka.send.in.flight} gauge.
+ * Compression, idempotence and batching are Kafka producer settings under {@code spring.apigateway.kafka.producer}.
+ * </p>
+ * <p>
+ * Correlation metadata travels as record headers (see {@link com.azoopindia.it.asi.traffic.manager.kafka.model.KafkaEventHeaders})
+ * passed to {@link #send(String, String, String, Iterable)}. Localization events are sent as typed records in the
+ * binary format of {@link com.azoopindia.it.asi.traffic.manager.kafka.codec.LocalizationMessageEventCodec} through
+ * {@link #send(String, String, LocalizationMessageEvent, Iterable)}; both share the in-flight limit and retries.
  * </p>
- *
  */
 
 @Slf4j
 @Service
 public class KafkaProducerService {
 
-    @Qualifier("pigeonKafkaTemplate")
     private final KafkaTemplate<String, String> pigeonKafkaTemplate;
 
-    @Qualifier("kafkaProducerRetryTemplate")
-    private final RetryTemplate kafkaProducerRetryTemplate;
+    private final KafkaTemplate<String, LocalizationMessageEvent> localizationKafkaTemplate;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Semaphore inFlightPermits;
+
+    private final int maxInFlightSends;
+
+    private final Retry retrySpec;
+
+    private final Counter retryCounter;
 
     /**
-     * Constructs a {@code KafkaProducerService} with injected KafkaTemplate and RetryTemplate.
+     * Constructs a {@code KafkaProducerService} with the injected KafkaTemplate and the send pipeline settings.
      *
-     * @param pigeonKafkaTemplate        the Kafka template used to send messages to Kafka topics
-     * @param kafkaProducerRetryTemplate the retry template used to retry sending messages on failure
+     * @param pigeonKafkaTemplate the Kafka template used to send messages to Kafka topics
+     * @param localizationKafkaTemplate the Kafka template used to send binary encoded localization events
+     * @param meterRegistry       registry the send metrics are published to
+     * @param maxInFlightSends    maximum number of sends awaiting a broker acknowledgement
+     * @param maxRetryAttempts    maximum number of attempts per send, including the first one
+     * @param backOffPeriod       back-off before the first retry, in milliseconds; doubled for every further retry
+     * @param maxBackOffPeriod    upper bound of the back-off, in milliseconds
+     * @param jitter              random spread applied to each back-off, between {@code 0} and {@code 1}
      */
 
-    public KafkaProducerService(KafkaTemplate<String, String> pigeonKafkaTemplate, RetryTemplate kafkaProducerRetryTemplate) {
+    public KafkaProducerService(@Qualifier("pigeonKafkaTemplate") KafkaTemplate<String, String> pigeonKafkaTemplate,
+                                @Qualifier("localizationKafkaTemplate") KafkaTemplate<String, LocalizationMessageEvent> localizationKafkaTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${spring.apigateway.kafka.producer.max-in-flight-sends:1000}") int maxInFlightSends,
+                                @Value("${spring.apigateway.kafka.producer.retry.MaxRetryAttempts}") int maxRetryAttempts,
+                                @Value("${spring.apigateway.kafka.producer.retry.BackOffPeriod}") long backOffPeriod,
+                                @Value("${spring.apigateway.kafka.producer.retry.MaxBackOffPeriod:30000}") long maxBackOffPeriod,
+                                @Value("${spring.apigateway.kafka.producer.retry.Jitter:0.5}") double jitter) {
         this.pigeonKafkaTemplate = pigeonKafkaTemplate;
-        this.kafkaProducerRetryTemplate = kafkaProducerRetryTemplate;
-    }
+        this.localizationKafkaTemplate = localizationKafkaTemplate;
+        this.meterRegistry = meterRegistry;
+        this.maxInFlightSends = maxInFlightSends;
+        this.inFlightPermits = new Semaphore(maxInFlightSends);
+        this.retryCounter = Counter.builder("gateway.kafka.send.retries")
+                .description("Kafka send attempts that were retried")
+                .register(meterRegistry);
+        this.retrySpec = Retry.backoff(Math.max(0, maxRetryAttempts - 1), Duration.ofMillis(backOffPeriod))
+                .maxBackoff(Duration.ofMillis(maxBackOffPeriod))
+                .jitter(jitter)
+                .filter(KafkaProducerService::isRetriable)
+                .doBeforeRetry(signal -> {
+                    retryCounter.increment();
+                    log.warn("Retrying Kafka send (attempt #{}): {}", signal.totalRetries() + 2, signal.failure().toString());
+                })
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
 
+        Gauge.builder("gateway.kafka.send.in.flight", this, service -> service.maxInFlightSends - service.inFlightPermits.availablePermits())
+                .description("Kafka sends awaiting a broker acknowledgement")
+                .register(meterRegistry);
+    }
 
     /**
-     * Sends a message to the specified Kafka topic with retry logic.
+     * Sends a message to the specified Kafka topic without blocking the caller.
      * <p>
-     * The method attempts to send the message using the configured {@link KafkaTemplate}. If the
-     * send operation fails, it is retried according to the configured {@link RetryTemplate}.
+     * Nothing is sent until the returned Mono is subscribed. Every retry re-checks the in-flight limit.
      * </p>
+     *
+     * @param pigeonTopic the name of the Kafka topic to send the message to
+     * @param key         the key for the message
+     * @param msgContent  the content of the message to send
+     * @return a Mono emitting the send result once the record is acknowledged, or the last error
+     */
+    public Mono<SendResult<String, String>> send(String pigeonTopic, String key, String msgContent) {
+        return send(pigeonTopic, key, msgContent, List.of());
+    }
+
+    /**
+     * Sends a message with record headers to the specified Kafka topic without blocking the caller.
+     *
+     * @param pigeonTopic the name of the Kafka topic to send the message to
+     * @param key         the key for the message
+     * @param msgContent  the content of the message to send
+     * @param headers     the record headers, e.g. {@link com.azoopindia.it.asi.traffic.manager.kafka.model.KafkaEventHeaders#of}
+     * @return a Mono emitting the send result once the record is acknowledged, or the last error
+     * @see #send(String, String, String)
+     */
+    public Mono<SendResult<String, String>> send(String pigeonTopic, String key, String msgContent, Iterable<Header> headers) {
+        return send(pigeonTopic, () -> pigeonKafkaTemplate.send(new ProducerRecord<>(pigeonTopic, null, key, msgContent, headers)));
+    }
+
+    /**
+     * Sends a localization event with record headers to the specified Kafka topic without blocking the caller.
+     *
+     * @param topic   the name of the Kafka topic to send the event to
+     * @param key     the key for the record
+     * @param event   the event; serialized in the binary localization event format
+     * @param headers the record headers, usually {@link com.azoopindia.it.asi.traffic.manager.kafka.model.KafkaEventHeaders#of}
+     * @return a Mono emitting the send result once the record is acknowledged, or the last error
+     * @see #send(String, String, String)
+     */
+    public Mono<SendResult<String, LocalizationMessageEvent>> send(String topic, String key, LocalizationMessageEvent event,
+                                                                   Iterable<Header> headers) {
+        return send(topic, () -> localizationKafkaTemplate.send(new ProducerRecord<>(topic, null, key, event, headers)));
+    }
+
+    /**
+     * Runs a send through the retry, in-flight limit and metrics pipeline.
+     *
+     * @param topic  the topic, for metrics and logging
+     * @param sender hands one fresh record to the Kafka client per attempt, as the client makes the headers of a
+     *               sent record read-only
+     */
+    private <V> Mono<SendResult<String, V>> send(String topic, Supplier<CompletableFuture<SendResult<String, V>>> sender) {
+        return Mono.defer(() -> {
+                    long start = System.nanoTime();
+                    return attempt(sender)
+                            .retryWhen(retrySpec)
+                            .doOnSuccess(result -> record(topic, "success", start))
+                            .doOnError(error -> {
+                                record(topic, error instanceof KafkaBackpressureException ? "rejected" : "failure", start);
+                                log.error("error in sending message to {}: {}", topic, error.toString());
+                            });
+                });
+    }
+
+    /**
+     * Sends a message to the specified Kafka topic and returns immediately.
      * <p>
-     * Each attempt is logged, and if all retry attempts fail, an error is logged.
+     * Fire-and-forget variant of {@link #send(String, String, String)}; the outcome is only logged.
      * </p>
      *
      * @param pigeonTopic the name of the Kafka topic to send the message to
@@ -64,18 +193,65 @@ public class KafkaProducerService {
     public void sendMsg(String pigeonTopic, String key, String msgContent) {
         log.info("Sending message to topic: {}, key: {}, message: {}", pigeonTopic, key, msgContent);
 
-        try {
-            kafkaProducerRetryTemplate.execute(context -> {
-                pigeonKafkaTemplate.send(pigeonTopic, key, msgContent).get(); // blocks until send completes
-                log.info("Message sent on attempt #{}", context.getRetryCount() + 1);
-                return null;
-            }, context -> {
-                log.error("All retry attempts failed for message to topic: {}", pigeonTopic);
-                return null;
-            });
-        } catch (Exception ex) {
-            log.error("error in sending message to {}", pigeonTopic);
+        send(pigeonTopic, key, msgContent).subscribe(
+                result -> log.debug("Message sent to {} at offset {}", pigeonTopic, result.getRecordMetadata().offset()),
+                error -> log.error("All retry attempts failed for message to topic: {}", pigeonTopic));
+    }
+
+    /**
+     * Performs one send attempt, holding an in-flight permit until the broker answers.
+     * The permit is returned before the outcome is signalled, so a retry never finds its own attempt's permit taken.
+     */
+    private <V> Mono<SendResult<String, V>> attempt(Supplier<CompletableFuture<SendResult<String, V>>> sender) {
+        return Mono.defer(() -> {
+            if (!inFlightPermits.tryAcquire()) {
+                return Mono.error(new KafkaBackpressureException(maxInFlightSends));
+            }
+            AtomicBoolean held = new AtomicBoolean(true);
+            Runnable release = () -> {
+                if (held.compareAndSet(true, false)) {
+                    inFlightPermits.release();
+                }
+            };
+            return Mono.fromCallable(sender::get)
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMap(Mono::fromFuture)
+                    .doOnTerminate(release)
+                    .doOnCancel(release);
+        });
+    }
+
+    private void record(String topic, String outcome, long startNanos) {
+        Timer.builder("gateway.kafka.send")
+                .description("Kafka sends including retries")
+                .tag("topic", topic)
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Retries backpressure rejections, retriable broker errors and client-side failures without a broker verdict;
+     * errors the broker reports as permanent are not retried.
+     */
+    private static boolean isRetriable(Throwable error) {
+        if (error instanceof KafkaBackpressureException) {
+            return true;
+        }
+        Throwable cause = error;
+        while (cause.getCause() != null && !(cause instanceof ApiException)) {
+            cause = cause.getCause();
+        }
+        return !(cause instanceof ApiException) || cause instanceof RetriableException;
+    }
+
+    /**
+     * Signals that a send was refused because the maximum number of in-flight sends was reached.
+     */
+    public static class KafkaBackpressureException extends RuntimeException {
+
+        public KafkaBackpressureException(int maxInFlightSends) {
+            super("More than " + maxInFlightSends + " Kafka sends in flight");
         }
     }
 }
-
@@ -0,0 +1,67 @@
+package com.azoopindia.it.asi.traffic.manager.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a single input row of a bulk rate limit configuration import.
+ *
+ * <p>One result is streamed back per non-blank input row, in input order.</p>
+ *
+ * <p>Example NDJSON result line:
+ * <pre>{@code
+ * {"line":7,"clientId":"client-007","route":"/localization/graphql","status":"REJECTED","message":"timeUnit 'MINS' is not a valid ChronoUnit"}
+ * }</pre>
+ * </p>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkImportRowResult {
+
+    /**
+     * Outcome of an imported row.
+     */
+    public enum Status {
+        /**
+         * The row was inserted or updated.
+         */
+        UPSERTED,
+        /**
+         * The row could not be parsed or failed validation; nothing was written.
+         */
+        REJECTED,
+        /**
+         * The row was valid but the database refused it.
+         */
+        FAILED
+    }
+
+    /**
+     * 1-based line number of the row in the uploaded file (the CSV header counts as line 1).
+     */
+    private long line;
+
+    /**
+     * Client identifier of the row, if it could be parsed.
+     */
+    private String clientId;
+
+    /**
+     * Route of the row, if it could be parsed.
+     */
+    private String route;
+
+    /**
+     * Outcome of the row.
+     */
+    private Status status;
+
+    /**
+     * Reason for a {@link Status#REJECTED} or {@link Status#FAILED} row; {@code null} otherwise.
+     */
+    private String message;
+}
@@ -0,0 +1,58 @@
+package com.azoopindia.it.asi.traffic.manager.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Point-in-time view of a per-service circuit breaker, as exposed by the {@code circuitbreakers} actuator endpoint.
+ *
+ * <p>Example:
+ * <pre>{@code
+ * {"serviceId":"localization","state":"OPEN","failureRate":65.0,"bufferedCalls":20,"failedCalls":13,
+ *  "notPermittedCalls":412,"retryAfterSeconds":9}
+ * }</pre>
+ * </p>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CircuitBreakerSnapshot {
+
+    /**
+     * Service the breaker guards.
+     */
+    private String serviceId;
+
+    /**
+     * {@code CLOSED}, {@code OPEN} or {@code HALF_OPEN}.
+     */
+    private String state;
+
+    /**
+     * Failure rate, in percent, over the calls in the sliding window.
+     */
+    private double failureRate;
+
+    /**
+     * Number of outcomes currently in the sliding window.
+     */
+    private int bufferedCalls;
+
+    /**
+     * Number of failures currently in the sliding window.
+     */
+    private int failedCalls;
+
+    /**
+     * Total number of calls rejected by this breaker since startup.
+     */
+    private long notPermittedCalls;
+
+    /**
+     * Seconds until an open breaker starts probing again; {@code null} unless open.
+     */
+    private Long retryAfterSeconds;
+}
@@ -0,0 +1,69 @@
+package com.azoopindia.it.asi.traffic.manager.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Point-in-time view of the connection pool to one downstream instance, as exposed by the
+ * {@code connectionpools} actuator endpoint.
+ *
+ * <p>Example:
+ * <pre>{@code
+ * {"serviceId":"localization","remoteAddress":"10.0.4.17:8080","activeConnections":12,"idleConnections":4,
+ *  "totalConnections":16,"pendingAcquires":0,"maxConnections":100,"maxPendingAcquires":500,"utilization":0.12}
+ * }</pre>
+ * </p>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConnectionPoolSnapshot {
+
+    /**
+     * Service the pool belongs to.
+     */
+    private String serviceId;
+
+    /**
+     * Address of the instance the pooled connections lead to.
+     */
+    private String remoteAddress;
+
+    /**
+     * Connections currently carrying a request.
+     */
+    private int activeConnections;
+
+    /**
+     * Open connections waiting for a request.
+     */
+    private int idleConnections;
+
+    /**
+     * All open connections, active or idle.
+     */
+    private int totalConnections;
+
+    /**
+     * Requests currently waiting for a connection.
+     */
+    private int pendingAcquires;
+
+    /**
+     * Configured connection limit of the pool.
+     */
+    private int maxConnections;
+
+    /**
+     * Configured limit of waiting requests; {@code -1} if unbounded.
+     */
+    private int maxPendingAcquires;
+
+    /**
+     * Share of the connection limit in use, between {@code 0} and {@code 1}.
+     */
+    private double utilization;
+}
@@ -1,5 +1,6 @@
 package com.azoopindia.it.asi.traffic.manager.model.dto;
 
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity.RateLimitAlgorithm;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.*;
 
@@ -39,6 +40,18 @@ public class RateLimitConfigRequest {
     @JsonProperty("burstCapacity")
     private long burstCapacity;
 
+    /**
+     * Optional; TOKEN_BUCKET when absent.
+     */
+    @JsonProperty("algorithm")
+    private RateLimitAlgorithm algorithm;
+
+    @JsonProperty("dailyQuota")
+    private long dailyQuota;
+
+    @JsonProperty("monthlyQuota")
+    private long monthlyQuota;
+
     @JsonProperty("priority")
     private int priority;
 
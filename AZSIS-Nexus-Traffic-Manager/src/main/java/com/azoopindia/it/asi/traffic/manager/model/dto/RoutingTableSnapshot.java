@@ -0,0 +1,103 @@
+package com.azoopindia.it.asi.traffic.manager.model.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The routing table built from discovery, as persisted by {@code RoutingTableSnapshotStore}.
+ *
+ * <p>Example:
+ * <pre>{@code
+ * {"writtenAtMillis":1760000000000,"operations":{"createMsgTemplate":"localization"},"services":["localization"],
+ *  "instances":[{"serviceId":"localization","instanceId":"10.0.4.17:localization:8080","host":"10.0.4.17",
+ *  "port":8080,"secure":false,"metadata":{"graphql.operations":"createMsgTemplate"}}]}
+ * }</pre>
+ * </p>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RoutingTableSnapshot {
+
+    /**
+     * Time the table was written, in epoch milliseconds.
+     */
+    private long writtenAtMillis;
+
+    /**
+     * Service ID per GraphQL operation name.
+     */
+    private Map<String, String> operations;
+
+    /**
+     * IDs of all discovered services, in lower case.
+     */
+    private Set<String> services;
+
+    /**
+     * All discovered instances.
+     */
+    private List<Instance> instances;
+
+    /**
+     * Tells whether another snapshot describes the same routing table, whenever it was written.
+     *
+     * @param other the other snapshot, or {@code null}
+     * @return {@code true} if operations, services and instances are equal
+     */
+    public boolean sameTable(RoutingTableSnapshot other) {
+        return other != null
+                && operations.equals(other.operations)
+                && services.equals(other.services)
+                && instances.equals(other.instances);
+    }
+
+    /**
+     * One discovered service instance.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Instance {
+
+        private String serviceId;
+
+        private String instanceId;
+
+        private String host;
+
+        private int port;
+
+        private boolean secure;
+
+        private Map<String, String> metadata;
+
+        /**
+         * @param instance an instance reported by discovery
+         * @return its persisted form
+         */
+        public static Instance of(ServiceInstance instance) {
+            return new Instance(instance.getServiceId().toLowerCase(), instance.getInstanceId(), instance.getHost(),
+                    instance.getPort(), instance.isSecure(),
+                    instance.getMetadata() != null ? new HashMap<>(instance.getMetadata()) : new HashMap<>());
+        }
+
+        /**
+         * @return the instance in the form the load balancer works with
+         */
+        public ServiceInstance toServiceInstance() {
+            return new DefaultServiceInstance(instanceId, serviceId, host, port, secure,
+                    metadata != null ? metadata : Map.of());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.azoopindia.it.asi.traffic.manager.rate.limiting.algorithm;
+
+/**
+ * Generic cell rate algorithm (GCRA), keeping one {@code long} per key.
+ * <p>
+ * Tokens are emitted one every {@code windowNanos / tokensPerWindow} nanoseconds. The stored value is the
+ * theoretical arrival time (TAT): the time at which the key would have used up all tokens granted so far. A request
+ * for {@code n} tokens moves the TAT {@code n} intervals on, and is allowed as long as the TAT stays within
+ * {@code capacity} intervals of now. This admits exactly what a token bucket of the same capacity and greedy refill
+ * admits, without a bucket object per key.
+ * </p>
+ * <p>
+ * A stored TAT of {@code 0} stands for a key without history, i.e. a full bucket. So does any TAT in the past,
+ * which is why such keys are idle.
+ * </p>
+ */
+public class GcraRateLimiter extends SegmentedRateLimiter {
+
+    /**
+     * @param segments number of independently locked segments
+     */
+    public GcraRateLimiter(int segments) {
+        super(1, segments);
+    }
+
+    @Override
+    protected long tryAcquire(LongKeyTable table, int index, long nowNanos, long tokens, long capacity,
+                              long windowNanos, long tokensPerWindow) {
+        long interval = Math.max(1, windowNanos / tokensPerWindow);
+        long tolerance = saturatedMultiply(capacity, interval);
+
+        long stored = table.get(index, 0);
+        long tat = stored == 0 ? nowNanos : Math.max(stored, nowNanos);
+        long newTat = saturatedAdd(tat, saturatedMultiply(tokens, interval));
+
+        long wait = newTat - tolerance - nowNanos;
+        if (wait > 0) {
+            return wait;
+        }
+        table.set(index, 0, newTat != 0 ? newTat : 1);
+        return 0;
+    }
+
+    @Override
+    protected boolean isIdle(LongKeyTable table, int index, long nowNanos) {
+        return table.get(index, 0) - nowNanos <= 0;
+    }
+
+    private static long saturatedMultiply(long a, long b) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        return high == 0 && low >= 0 ? low : Long.MAX_VALUE;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+        return ((a ^ sum) & (b ^ sum)) < 0 ? Long.MAX_VALUE : sum;
+    }
+}
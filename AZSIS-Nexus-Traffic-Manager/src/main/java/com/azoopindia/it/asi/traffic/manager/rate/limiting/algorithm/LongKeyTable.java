@@ -0,0 +1,187 @@
+package com.azoopindia.it.asi.traffic.manager.rate.limiting.algorithm;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table from non-zero {@code long} keys to a fixed number of {@code long} slots per key.
+ * <p>
+ * Keys and values live in two flat arrays, so an entry costs {@code 8 * (1 + stride)} bytes divided by the load
+ * factor, with no per-entry objects. Collisions are resolved by linear probing; removal shifts the following
+ * entries back instead of leaving tombstones. Key {@code 0} marks an empty slot and cannot be stored.
+ * </p>
+ * <p>
+ * Entries are addressed by the index returned by {@link #find(long)} or {@link #findOrInsert(long)}, which stays
+ * valid until the next insertion or removal. The table is not thread-safe.
+ * </p>
+ */
+public final class LongKeyTable {
+
+    private static final int MAX_LOAD_PERCENT = 70;
+
+    private final int stride;
+
+    private long[] keys;
+
+    private long[] values;
+
+    private int mask;
+
+    private int size;
+
+    /**
+     * @param stride          number of {@code long} values per key
+     * @param initialCapacity expected number of entries
+     */
+    public LongKeyTable(int stride, int initialCapacity) {
+        if (stride < 1) {
+            throw new IllegalArgumentException("stride must be positive: " + stride);
+        }
+        this.stride = stride;
+        allocate(tableSize(initialCapacity));
+    }
+
+    /**
+     * @param key the key
+     * @return the index of the entry, or {@code -1} if there is none
+     */
+    public int find(long key) {
+        checkKey(key);
+        for (int index = slot(key); ; index = (index + 1) & mask) {
+            long candidate = keys[index];
+            if (candidate == key) {
+                return index;
+            }
+            if (candidate == 0) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Finds the entry of a key, inserting one with all values {@code 0} if there is none.
+     *
+     * @param key the key
+     * @return the index of the entry
+     */
+    public int findOrInsert(long key) {
+        checkKey(key);
+        if ((long) size * 100 >= (long) keys.length * MAX_LOAD_PERCENT) {
+            rehash(keys.length * 2);
+        }
+        int index = slot(key);
+        for (long candidate = keys[index]; candidate != 0; candidate = keys[index]) {
+            if (candidate == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        size++;
+        return index;
+    }
+
+    public long get(int index, int slot) {
+        return values[index * stride + slot];
+    }
+
+    public void set(int index, int slot, long value) {
+        values[index * stride + slot] = value;
+    }
+
+    /**
+     * @param index the index of an entry
+     * @return the key stored at that index
+     */
+    public long keyAt(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Removes the entry of a key.
+     *
+     * @param key the key
+     * @return {@code true} if there was an entry
+     */
+    public boolean remove(long key) {
+        int index = find(key);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Removes the entry at an index, moving later entries of the same probe run back into the gap.
+     *
+     * @param index the index of an entry
+     */
+    public void removeAt(int index) {
+        int gap = index;
+        for (int next = (gap + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            // the entry at next may fill the gap if its home slot is not within (gap, next]
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                System.arraycopy(values, next * stride, values, gap * stride, stride);
+                gap = next;
+            }
+        }
+        keys[gap] = 0;
+        Arrays.fill(values, gap * stride, gap * stride + stride, 0);
+        size--;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of slots, i.e. one past the highest valid index
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    private int slot(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+
+    private void rehash(int newSize) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(newSize);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key == 0) {
+                continue;
+            }
+            int index = slot(key);
+            while (keys[index] != 0) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            System.arraycopy(oldValues, i * stride, values, index * stride, stride);
+        }
+    }
+
+    private void allocate(int tableSize) {
+        keys = new long[tableSize];
+        values = new long[tableSize * stride];
+        mask = tableSize - 1;
+    }
+
+    private static int tableSize(int expectedEntries) {
+        long needed = Math.max(16, (long) expectedEntries * 100 / MAX_LOAD_PERCENT + 1);
+        return (int) Math.min(1 << 30, Long.highestOneBit(needed - 1) << 1);
+    }
+
+    private static void checkKey(long key) {
+        if (key == 0) {
+            throw new IllegalArgumentException("Key 0 is reserved for empty slots");
+        }
+    }
+}
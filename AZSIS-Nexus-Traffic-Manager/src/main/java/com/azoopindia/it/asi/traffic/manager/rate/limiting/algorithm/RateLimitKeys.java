@@ -0,0 +1,47 @@
+package com.azoopindia.it.asi.traffic.manager.rate.limiting.algorithm;
+
+/**
+ * Derives the {@code long} keys the primitive rate limiters store their state under.
+ * <p>
+ * A key is a 64-bit hash of {@code clientId:route}, the same pair the Bucket4j buckets are cached under. Two pairs
+ * share state only if their hashes collide, which for 64-bit hashes is negligible even with millions of keys.
+ * </p>
+ */
+public final class RateLimitKeys {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private RateLimitKeys() {
+    }
+
+    /**
+     * Hashes a client and route without allocating the combined string.
+     *
+     * @param clientId the client identifier
+     * @param route    the route
+     * @return a non-zero key
+     */
+    public static long hash(String clientId, String route) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = mix(hash, clientId);
+        hash = (hash ^ ':') * FNV_PRIME;
+        hash = mix(hash, route);
+
+        // FNV-1a alone distributes poorly over the low bits the tables index with
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash != 0 ? hash : 1;
+    }
+
+    private static long mix(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,129 @@
+package com.azoopindia.it.asi.traffic.manager.rate.limiting.algorithm;
+
+/**
+ * Base of the rate limiters that keep their per-key state in {@link LongKeyTable}s instead of one object per key.
+ * <p>
+ * Keys are spread over a power-of-two number of segments by their high bits, each segment being one table guarded by
+ * its own monitor, so concurrent decisions for different keys rarely contend. A decision is a table lookup and a few
+ * arithmetic operations on the key's slots.
+ * </p>
+ * <p>
+ * Keys whose state has decayed to that of a new key are dropped by {@link #sweep(long)}, which the owner calls
+ * periodically; otherwise every key ever seen would keep its entry.
+ * </p>
+ */
+public abstract class SegmentedRateLimiter {
+
+    private static final int INITIAL_SEGMENT_CAPACITY = 1024;
+
+    private final LongKeyTable[] segments;
+
+    private final int segmentMask;
+
+    /**
+     * @param stride   number of {@code long} slots of state per key
+     * @param segments number of segments, rounded up to a power of two
+     */
+    protected SegmentedRateLimiter(int stride, int segments) {
+        this.segments = new LongKeyTable[segments <= 1 ? 1 : Integer.highestOneBit(segments - 1) << 1];
+        this.segmentMask = this.segments.length - 1;
+        for (int i = 0; i < this.segments.length; i++) {
+            this.segments[i] = new LongKeyTable(stride, INITIAL_SEGMENT_CAPACITY);
+        }
+    }
+
+    /**
+     * Tries to take a number of tokens for a key.
+     *
+     * @param key             the key, see {@link RateLimitKeys#hash}
+     * @param nowNanos        the current time of a monotonic clock, in nanoseconds
+     * @param tokens          tokens to take, at least 1 and at most {@code capacity}
+     * @param capacity        tokens that may be taken at once: tokens per window plus burst capacity
+     * @param windowNanos     length of the time window, in nanoseconds
+     * @param tokensPerWindow tokens the limit grants per time window
+     * @return {@code 0} if the tokens were taken, otherwise the nanoseconds until they can be
+     */
+    public final long tryAcquire(long key, long nowNanos, long tokens, long capacity, long windowNanos,
+                                 long tokensPerWindow) {
+        LongKeyTable table = segment(key);
+        synchronized (table) {
+            return tryAcquire(table, table.findOrInsert(key), nowNanos, tokens, capacity, Math.max(1, windowNanos),
+                    Math.max(1, tokensPerWindow));
+        }
+    }
+
+    /**
+     * Decides on and updates the state of one key; called while holding the key's segment.
+     *
+     * @param table the key's segment
+     * @param index the index of the key's entry, whose slots are all {@code 0} for a new key
+     * @return {@code 0} if the tokens were taken, otherwise the nanoseconds until they can be
+     */
+    protected abstract long tryAcquire(LongKeyTable table, int index, long nowNanos, long tokens, long capacity,
+                                       long windowNanos, long tokensPerWindow);
+
+    /**
+     * Tells whether the state of one key is no different from that of a new key; called while holding the key's
+     * segment.
+     *
+     * @param table    the key's segment
+     * @param index    the index of the key's entry
+     * @param nowNanos the current time of the clock passed to {@link #tryAcquire}
+     * @return {@code true} if the entry can be dropped without changing any decision
+     */
+    protected abstract boolean isIdle(LongKeyTable table, int index, long nowNanos);
+
+    /**
+     * Drops the state of all idle keys, one segment at a time.
+     *
+     * @param nowNanos the current time of the clock passed to {@link #tryAcquire}
+     * @return the number of keys dropped
+     */
+    public int sweep(long nowNanos) {
+        int swept = 0;
+        for (LongKeyTable table : segments) {
+            synchronized (table) {
+                for (int index = 0; index < table.capacity(); ) {
+                    if (table.keyAt(index) != 0 && isIdle(table, index, nowNanos)) {
+                        // removal may move a later entry into this index, so it is looked at again
+                        table.removeAt(index);
+                        swept++;
+                    } else {
+                        index++;
+                    }
+                }
+            }
+        }
+        return swept;
+    }
+
+    /**
+     * Drops the state of a key, so its next request starts with the full capacity.
+     *
+     * @param key the key
+     * @return {@code true} if the key had state
+     */
+    public boolean remove(long key) {
+        LongKeyTable table = segment(key);
+        synchronized (table) {
+            return table.remove(key);
+        }
+    }
+
+    /**
+     * @return the number of keys with state
+     */
+    public int size() {
+        int size = 0;
+        for (LongKeyTable table : segments) {
+            synchronized (table) {
+                size += table.size();
+            }
+        }
+        return size;
+    }
+
+    private LongKeyTable segment(long key) {
+        return segments[(int) (key >>> 40) & segmentMask];
+    }
+}
@@ -0,0 +1,73 @@
+package com.azoopindia.it.asi.traffic.manager.rate.limiting.algorithm;
+
+/**
+ * Sliding-window counter, keeping two {@code int} counters per key.
+ * <p>
+ * Time is cut into fixed windows of {@code windowNanos}. A key counts the tokens taken in the current window and in
+ * the one before; the tokens in the sliding window ending now are estimated as the current count plus the previous
+ * count weighted by the share of the previous window the sliding window still overlaps. A request is allowed while
+ * that estimate plus its tokens stays within {@code capacity}. Unlike a fixed window, a client cannot take twice
+ * its limit around a window boundary.
+ * </p>
+ * <p>
+ * A key takes two {@code long} slots. Slot {@code 0} identifies the key's current window by the end of the window
+ * after it: from then on both counters no longer count and the key is idle, so the same value serves the sweep.
+ * Slot {@code 1} packs the two {@code int} counters, the previous window's in the high and the current window's in
+ * the low 32 bits. Limits above {@link Integer#MAX_VALUE} are capped there.
+ * </p>
+ */
+public class SlidingWindowRateLimiter extends SegmentedRateLimiter {
+
+    /**
+     * @param segments number of independently locked segments
+     */
+    public SlidingWindowRateLimiter(int segments) {
+        super(2, segments);
+    }
+
+    @Override
+    protected long tryAcquire(LongKeyTable table, int index, long nowNanos, long tokens, long capacity,
+                              long windowNanos, long tokensPerWindow) {
+        long limit = Math.min(capacity, Integer.MAX_VALUE);
+        long remaining = windowNanos - Math.floorMod(nowNanos, windowNanos);
+        long idleAt = nowNanos + remaining + windowNanos;
+
+        long storedIdleAt = table.get(index, 0);
+        long counts = table.get(index, 1);
+        long previous;
+        long current;
+        if (storedIdleAt == idleAt) {
+            previous = counts >>> 32;
+            current = counts & 0xffffffffL;
+        } else if (storedIdleAt == idleAt - windowNanos) {
+            previous = counts & 0xffffffffL;
+            current = 0;
+        } else {
+            previous = 0;
+            current = 0;
+        }
+
+        long wait;
+        if (previous * (double) remaining / windowNanos + current + tokens <= limit) {
+            current += tokens;
+            wait = 0;
+        } else if (current + tokens <= limit) {
+            // wait until the previous window's weight has dropped far enough
+            double allowedRemaining = (double) (limit - tokens - current) * windowNanos / previous;
+            wait = Math.max(1, (long) Math.ceil(remaining - allowedRemaining));
+        } else {
+            // wait for the next window, then until this window's count has dropped far enough
+            double allowedRemaining = Math.min(windowNanos, (double) (limit - tokens) * windowNanos / current);
+            wait = Math.max(1, remaining + (long) Math.ceil(windowNanos - allowedRemaining));
+        }
+
+        table.set(index, 0, idleAt);
+        table.set(index, 1, previous << 32 | current);
+        return wait;
+    }
+
+    @Override
+    protected boolean isIdle(LongKeyTable table, int index, long nowNanos) {
+        return table.get(index, 0) - nowNanos <= 0;
+    }
+}
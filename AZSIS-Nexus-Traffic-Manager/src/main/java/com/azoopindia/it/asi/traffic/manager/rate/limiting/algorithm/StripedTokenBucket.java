@@ -0,0 +1,188 @@
+package com.azoopindia.it.asi.traffic.manager.rate.limiting.algorithm;
+
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+import io.github.bucket4j.TimeMeter;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token bucket split into stripes, for single clients whose request rate makes one bucket a point of contention.
+ * <p>
+ * The capacity and the refill of the limit are divided over {@code K} Bucket4j buckets, so their sums equal the
+ * limit. Each thread consumes from its own stripe, which keeps the event-loop threads serving a hot client off each
+ * other's compare-and-set loop. When a thread's stripe cannot serve a request, tokens are borrowed from the other
+ * stripes; a request is only rejected when all stripes together hold fewer tokens than it costs.
+ * </p>
+ * <p>
+ * Stripes used unevenly drift apart, and a full stripe wastes its refill while another runs dry. Every
+ * {@code tolerance * capacity} tokens of refill the available tokens are therefore evened out again, which bounds
+ * that waste: under sustained load the admitted rate stays within {@code tolerance} below the configured limit and
+ * never exceeds it.
+ * </p>
+ */
+public class StripedTokenBucket {
+
+    private static final long MIN_REBALANCE_INTERVAL_NANOS = Duration.ofMillis(1).toNanos();
+
+    private final Bucket[] stripes;
+
+    private final long capacity;
+
+    private final TimeMeter clock;
+
+    private final long rebalanceIntervalNanos;
+
+    private final AtomicLong nextRebalanceNanos;
+
+    private final LongAdder borrowed = new LongAdder();
+
+    /**
+     * @param capacity        tokens the bucket holds: tokens per window plus burst capacity
+     * @param tokensPerWindow tokens refilled per window
+     * @param window          the refill window
+     * @param initialTokens   tokens available at creation, at most {@code capacity}
+     * @param stripes         requested number of stripes; fewer are used if a stripe would get no capacity or refill
+     * @param tolerance       share of the limit the admitted rate may fall short of it, between 0 and 1
+     * @param clock           time source of the stripes
+     */
+    public StripedTokenBucket(long capacity, long tokensPerWindow, Duration window, long initialTokens, int stripes,
+                              double tolerance, TimeMeter clock) {
+        int count = (int) Math.max(1, Math.min(stripes, Math.min(capacity, tokensPerWindow)));
+        long initial = Math.max(0, Math.min(capacity, initialTokens));
+        this.stripes = new Bucket[count];
+        for (int i = 0; i < count; i++) {
+            Bandwidth bandwidth = Bandwidth.classic(share(capacity, count, i),
+                            Refill.greedy(share(tokensPerWindow, count, i), window))
+                    .withInitialTokens(share(initial, count, i));
+            this.stripes[i] = Bucket.builder().addLimit(bandwidth).withCustomTimePrecision(clock).build();
+        }
+        this.capacity = capacity;
+        this.clock = clock;
+        this.rebalanceIntervalNanos = Math.max(MIN_REBALANCE_INTERVAL_NANOS,
+                (long) (tolerance * capacity * window.toNanos() / tokensPerWindow));
+        this.nextRebalanceNanos = new AtomicLong(clock.currentTimeNanos() + rebalanceIntervalNanos);
+    }
+
+    /**
+     * Tries to consume tokens, from the calling thread's stripe if it can serve them, otherwise from all stripes.
+     *
+     * @param tokens tokens to consume, at most the bucket's capacity
+     * @return {@code true} if the tokens were consumed
+     */
+    public boolean tryConsume(long tokens) {
+        maybeRebalance();
+        int home = (int) (Thread.currentThread().getId() % stripes.length);
+        if (stripes[home].tryConsume(tokens)) {
+            return true;
+        }
+        if (stripes.length == 1 || availableTokens() < tokens) {
+            return false;
+        }
+
+        long[] taken = new long[stripes.length];
+        long needed = tokens;
+        for (int i = 0; i < stripes.length && needed > 0; i++) {
+            int stripe = (home + i) % stripes.length;
+            taken[stripe] = stripes[stripe].tryConsumeAsMuchAsPossible(needed);
+            needed -= taken[stripe];
+        }
+        if (needed == 0) {
+            borrowed.increment();
+            return true;
+        }
+        // other threads got there first; hand back what was taken
+        for (int i = 0; i < stripes.length; i++) {
+            if (taken[i] > 0) {
+                stripes[i].addTokens(taken[i]);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return tokens available in all stripes together
+     */
+    public long availableTokens() {
+        long available = 0;
+        for (Bucket stripe : stripes) {
+            available += stripe.getAvailableTokens();
+        }
+        return available;
+    }
+
+    /**
+     * @return tokens the bucket holds when full
+     */
+    public long capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return number of stripes
+     */
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * @return number of requests served by borrowing from other stripes
+     */
+    public long borrowedCount() {
+        return borrowed.sum();
+    }
+
+    private void maybeRebalance() {
+        long due = nextRebalanceNanos.get();
+        long now = clock.currentTimeNanos();
+        if (now >= due && nextRebalanceNanos.compareAndSet(due, now + rebalanceIntervalNanos)) {
+            rebalance();
+        }
+    }
+
+    /**
+     * Moves tokens from stripes above their share of the available tokens to stripes below it.
+     */
+    private void rebalance() {
+        long[] available = new long[stripes.length];
+        long total = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            available[i] = stripes[i].getAvailableTokens();
+            total += available[i];
+        }
+
+        long pool = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            long surplus = available[i] - share(total, stripes.length, i);
+            if (surplus > 0) {
+                pool += stripes[i].tryConsumeAsMuchAsPossible(surplus);
+            }
+        }
+        for (int i = 0; i < stripes.length && pool > 0; i++) {
+            long deficit = share(total, stripes.length, i) - available[i];
+            if (deficit > 0) {
+                long given = Math.min(pool, deficit);
+                stripes[i].addTokens(given);
+                pool -= given;
+            }
+        }
+        for (int i = 0; i < stripes.length && pool > 0; i++) {
+            long room = share(capacity, stripes.length, i) - stripes[i].getAvailableTokens();
+            if (room > 0) {
+                long given = Math.min(pool, room);
+                stripes[i].addTokens(given);
+                pool -= given;
+            }
+        }
+    }
+
+    /**
+     * Splits an amount over stripes as evenly as possible; the shares add up to the amount.
+     */
+    private static long share(long amount, int stripes, int index) {
+        return amount / stripes + (index < amount % stripes ? 1 : 0);
+    }
+}
@@ -0,0 +1,39 @@
+package com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity;
+
+import java.time.LocalDate;
+
+/**
+ * Period a call quota of a {@link RateLimitConfig} is counted over.
+ */
+public enum QuotaPeriod {
+
+    /**
+     * A calendar day.
+     */
+    DAILY,
+
+    /**
+     * A calendar month.
+     */
+    MONTHLY;
+
+    /**
+     * Returns the first day of the period a date falls into.
+     *
+     * @param date the date
+     * @return the date itself for {@link #DAILY}, the first of its month for {@link #MONTHLY}
+     */
+    public LocalDate start(LocalDate date) {
+        return this == DAILY ? date : date.withDayOfMonth(1);
+    }
+
+    /**
+     * Returns the quota a configuration sets for this period.
+     *
+     * @param config the configuration
+     * @return the maximum number of calls per period, {@code 0} for none
+     */
+    public long quotaOf(RateLimitConfig config) {
+        return this == DAILY ? config.getDailyQuota() : config.getMonthlyQuota();
+    }
+}
@@ -0,0 +1,81 @@
+package com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * JPA entity representing the calls one gateway node counted against a quota in one period.
+ *
+ * <p>Every node adds its own counts to its own row, so nodes never update the same row and the usage of a
+ * quota is the sum over the rows of all nodes. The rows are written and summed in batches by
+ * {@link com.azoopindia.it.asi.traffic.manager.infrastructure.QuotaUsageRepository}; the entity defines the
+ * table.</p>
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+@Entity
+@Table(
+        name = "quota_usage",
+        uniqueConstraints = {
+                @UniqueConstraint(name = "quota_usage_node_idx",
+                        columnNames = {"client_id", "route", "period", "period_start", "node_id"})
+        }
+)
+public class QuotaUsage {
+
+    /**
+     * Primary key.
+     */
+    @Id
+    @Column(columnDefinition = "uuid", updatable = false, nullable = false)
+    private UUID id;
+
+    /**
+     * Client whose calls are counted.
+     */
+    @Column(name = "client_id", nullable = false)
+    private String clientId;
+
+    /**
+     * Route of the configuration that defines the quota.
+     */
+    @Column(nullable = false)
+    private String route;
+
+    /**
+     * Period the calls are counted over.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "period", nullable = false)
+    private QuotaPeriod period;
+
+    /**
+     * First day of the period.
+     */
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    /**
+     * Gateway node that counted the calls.
+     */
+    @Column(name = "node_id", nullable = false)
+    private String nodeId;
+
+    /**
+     * Calls counted by the node in the period.
+     */
+    @Column(name = "used", nullable = false)
+    private long used;
+
+    /**
+     * Time of the node's last flush into this row.
+     */
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+}
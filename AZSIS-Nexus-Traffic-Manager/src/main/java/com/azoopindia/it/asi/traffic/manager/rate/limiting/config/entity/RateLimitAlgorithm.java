@@ -0,0 +1,29 @@
+package com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity;
+
+/**
+ * Algorithm a {@link RateLimitConfig} is enforced with.
+ * <p>
+ * All algorithms read the configuration the same way: {@code maxTokensPerWindow} per {@code timeWindow}
+ * {@code timeUnit}, plus {@code burstCapacity} on top. They differ in how bursts are shaped and in the state kept
+ * per client and route.
+ * </p>
+ */
+public enum RateLimitAlgorithm {
+
+    /**
+     * Bucket4j token bucket with greedy refill; one bucket object per key. The default.
+     */
+    TOKEN_BUCKET,
+
+    /**
+     * Generic cell rate algorithm: equivalent to a token bucket of the same capacity and rate, but the only state
+     * is one {@code long} per key, the theoretical arrival time of the next request.
+     */
+    GCRA,
+
+    /**
+     * Sliding-window counter: the count of the current fixed window plus the previous window's count weighted by
+     * its remaining overlap. Two counters per key; smooths the burst a fixed window allows at its boundaries.
+     */
+    SLIDING_WINDOW
+}
@@ -2,6 +2,7 @@ package com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity;
 
 import com.azoopindia.it.asi.traffic.manager.validation.rulebook.RateLimitConfigEntityListener;
 import com.azoopindia.it.asi.traffic.manager.validation.rulebook.UniqueConstraintValidatorListener;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
@@ -19,7 +20,8 @@ import java.util.UUID;
  * such as priority and status. It is stored in a relational PostgreSQL database.</p>
  *
  * <p>A unique constraint is enforced on the combination of {@code clientId} and {@code route} to
- * prevent duplicate configurations.</p>
+ * prevent duplicate configurations. Neither column is unique on its own: a client has one configuration
+ * per route, and a route one per client.</p>
  *
  * <p>Additional metadata can be stored in the {@code customAttributes} map, which is persisted
  * as a separate key-value table.</p>
@@ -49,15 +51,15 @@ public class RateLimitConfig {
     private UUID id;
 
     /**
-     * Unique client identifier for whom the rate limiting configuration applies.
+     * Client identifier for whom the rate limiting configuration applies.
      */
-    @Column(name = "client_id", nullable = false, unique = true)
+    @Column(name = "client_id", nullable = false)
     private String clientId;
 
     /**
      * API route or path this rate limit configuration is bound to.
      */
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String route;
 
     /**
@@ -93,6 +95,29 @@ public class RateLimitConfig {
     @Column(name = "burst_capacity")
     private long burstCapacity;
 
+    /**
+     * Algorithm the limit is enforced with; {@code null} means {@link RateLimitAlgorithm#TOKEN_BUCKET}.
+     */
+    @Enumerated(EnumType.STRING)
+    @Column(name = "algorithm")
+    private RateLimitAlgorithm algorithm;
+
+    /**
+     * Maximum number of calls per calendar day; {@code 0} for no daily quota.
+     * <p>
+     * The column has a default so that {@code ddl-auto=update} can add it to a populated table; a plain
+     * {@code not null} column cannot be added there and the update would skip it.
+     * </p>
+     */
+    @Column(name = "daily_quota", columnDefinition = "bigint default 0 not null")
+    private long dailyQuota;
+
+    /**
+     * Maximum number of calls per calendar month; {@code 0} for no monthly quota, see {@link #dailyQuota}.
+     */
+    @Column(name = "monthly_quota", columnDefinition = "bigint default 0 not null")
+    private long monthlyQuota;
+
     /**
      * Optional priority for configuration, used in sorting or conflict resolution.
      */
@@ -140,4 +165,20 @@ public class RateLimitConfig {
     @Column(name = "attribute_value")
     private Map<String, String> customAttributes;
 
+    /**
+     * Client identifier as it was loaded from the database.
+     * Captured by {@link RateLimitConfigEntityListener} so that an update which changes the
+     * client/route key can also invalidate the bucket cached under the old key.
+     */
+    @Transient
+    @JsonIgnore
+    private String loadedClientId;
+
+    /**
+     * Route as it was loaded from the database. See {@link #loadedClientId}.
+     */
+    @Transient
+    @JsonIgnore
+    private String loadedRoute;
+
 }
@@ -0,0 +1,196 @@
+package com.azoopindia.it.asi.traffic.manager.rate.limiting.expiry;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel: schedules payloads for a deadline and hands them out once it has passed.
+ * <p>
+ * Time advances in ticks. Level {@code 0} has one slot per tick for the next {@value #SLOTS} ticks; every further
+ * level has {@value #SLOTS} slots each covering a whole rotation of the level below. An entry is placed on the
+ * lowest level whose range reaches its deadline, and moves down a level whenever the level above rotates into its
+ * slot, until it fires from level {@code 0}. Scheduling and cancelling are O(1); advancing one tick costs the
+ * entries due in it plus those moving down, never a scan of all entries.
+ * </p>
+ * <p>
+ * Deadlines beyond the top level's range are parked in its farthest slot and placed again from there. Entries fire
+ * at the first tick at or after their deadline, so at most one tick late. The wheel is not thread-safe.
+ * </p>
+ *
+ * @param <T> type of the scheduled payloads
+ */
+public final class HierarchicalTimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+
+    static final int SLOTS = 1 << SLOT_BITS;
+
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private static final int LEVELS = 4;
+
+    /**
+     * Number of ticks the wheel can place an entry into directly.
+     */
+    private static final long SPAN_TICKS = 1L << (SLOT_BITS * LEVELS);
+
+    private final long tickNanos;
+
+    private final long originNanos;
+
+    /**
+     * Sentinel heads of the circular slot lists, by level and slot.
+     */
+    private final Timeout<T>[][] slots;
+
+    private long currentTick;
+
+    private int size;
+
+    /**
+     * @param tickNanos resolution of the wheel
+     * @param nowNanos  current time of the clock deadlines are given in
+     */
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickNanos, long nowNanos) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("tick must be positive: " + tickNanos);
+        }
+        this.tickNanos = tickNanos;
+        this.originNanos = nowNanos;
+        this.slots = new Timeout[LEVELS][SLOTS];
+        for (Timeout<T>[] level : slots) {
+            for (int i = 0; i < SLOTS; i++) {
+                level[i] = new Timeout<>(0, null);
+            }
+        }
+    }
+
+    /**
+     * Schedules a payload.
+     *
+     * @param deadlineNanos time at which the payload is due; a past deadline fires at the next tick
+     * @param payload       the payload
+     * @return a handle to {@link #cancel(Timeout) cancel} the entry with
+     */
+    public Timeout<T> schedule(long deadlineNanos, T payload) {
+        Timeout<T> timeout = new Timeout<>(Math.max(currentTick + 1, tickOf(deadlineNanos)), payload);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Removes an entry that has not fired yet.
+     *
+     * @param timeout handle returned by {@link #schedule}
+     * @return {@code true} if the entry was still scheduled
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        if (timeout.next == null) {
+            return false;
+        }
+        timeout.unlink();
+        size--;
+        return true;
+    }
+
+    /**
+     * Advances the wheel to the given time, handing out every payload whose deadline has passed, in deadline order
+     * by tick.
+     *
+     * @param nowNanos current time
+     * @param expired  receives the due payloads
+     */
+    public void advance(long nowNanos, Consumer<T> expired) {
+        long targetTick = Math.floorDiv(nowNanos - originNanos, tickNanos);
+        while (currentTick < targetTick) {
+            currentTick++;
+            // move entries down from every level that rotated into a new slot, highest first
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(slots[level][(int) (currentTick >>> (SLOT_BITS * level)) & SLOT_MASK]);
+                }
+            }
+            Timeout<T> head = slots[0][(int) currentTick & SLOT_MASK];
+            while (head.next != head) {
+                Timeout<T> timeout = head.next;
+                timeout.unlink();
+                size--;
+                expired.accept(timeout.payload);
+            }
+        }
+    }
+
+    /**
+     * @return number of scheduled entries
+     */
+    public int size() {
+        return size;
+    }
+
+    private void cascade(Timeout<T> head) {
+        while (head.next != head) {
+            Timeout<T> timeout = head.next;
+            timeout.unlink();
+            place(timeout);
+        }
+    }
+
+    private void place(Timeout<T> timeout) {
+        long delta = timeout.deadlineTick - currentTick;
+        long placementTick = delta < SPAN_TICKS ? timeout.deadlineTick : currentTick + SPAN_TICKS - 1;
+        delta = placementTick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        timeout.linkBefore(slots[level][(int) (placementTick >>> (SLOT_BITS * level)) & SLOT_MASK]);
+    }
+
+    private long tickOf(long nanos) {
+        long offset = nanos - originNanos;
+        return offset <= 0 ? 0 : (offset - 1) / tickNanos + 1;
+    }
+
+    /**
+     * A scheduled entry; also the node of the slot list it is in.
+     *
+     * @param <T> type of the payload
+     */
+    public static final class Timeout<T> {
+
+        private final long deadlineTick;
+
+        private final T payload;
+
+        private Timeout<T> prev = this;
+
+        private Timeout<T> next = this;
+
+        private Timeout(long deadlineTick, T payload) {
+            this.deadlineTick = deadlineTick;
+            this.payload = payload;
+        }
+
+        /**
+         * @return the scheduled payload
+         */
+        public T payload() {
+            return payload;
+        }
+
+        private void linkBefore(Timeout<T> head) {
+            prev = head.prev;
+            next = head;
+            head.prev.next = this;
+            head.prev = this;
+        }
+
+        private void unlink() {
+            prev.next = next;
+            next.prev = prev;
+            prev = null;
+            next = null;
+        }
+    }
+}
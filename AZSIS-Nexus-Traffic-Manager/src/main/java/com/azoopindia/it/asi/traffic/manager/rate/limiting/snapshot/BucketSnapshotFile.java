@@ -0,0 +1,110 @@
+package com.azoopindia.it.asi.traffic.manager.rate.limiting.snapshot;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes snapshots of bucket state as compact memory-mapped files.
+ * <p>
+ * Layout, big-endian:
+ * </p>
+ * <pre>
+ * header:  magic "RLBS" (4 bytes) | version (int) | record count (int)
+ * record:  key length (unsigned short) | key (UTF-8) | tokens (long) | refilled at, epoch millis (long)
+ * </pre>
+ * <p>
+ * A snapshot is written to a temporary file next to the target and moved over it, so readers never see a partly
+ * written snapshot. Keys longer than {@value #MAX_KEY_BYTES} bytes are skipped.
+ * </p>
+ */
+public final class BucketSnapshotFile {
+
+    private static final int MAGIC = 0x524C4253;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 3 * Integer.BYTES;
+
+    private static final int MAX_KEY_BYTES = 0xFFFF;
+
+    private BucketSnapshotFile() {
+    }
+
+    /**
+     * Writes a snapshot, replacing any previous one.
+     *
+     * @param file   the snapshot file
+     * @param states bucket state per client:route key
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path file, Map<String, BucketState> states) throws IOException {
+        List<Map.Entry<byte[], BucketState>> encoded = new ArrayList<>(states.size());
+        long size = HEADER_BYTES;
+        for (Map.Entry<String, BucketState> entry : states.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            if (key.length <= MAX_KEY_BYTES) {
+                encoded.add(Map.entry(key, entry.getValue()));
+                size += Short.BYTES + key.length + 2L * Long.BYTES;
+            }
+        }
+
+        Path absolute = file.toAbsolutePath();
+        Files.createDirectories(absolute.getParent());
+        Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(encoded.size());
+            for (Map.Entry<byte[], BucketState> entry : encoded) {
+                buffer.putShort((short) entry.getKey().length).put(entry.getKey())
+                        .putLong(entry.getValue().tokens()).putLong(entry.getValue().refilledAtMillis());
+            }
+            buffer.force();
+        }
+        Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot.
+     *
+     * @param file the snapshot file
+     * @return bucket state per client:route key; empty if the file does not exist
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static Map<String, BucketState> read(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return Map.of();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a bucket snapshot: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported bucket snapshot version " + version + ": " + file);
+            }
+            int count = buffer.getInt();
+            Map<String, BucketState> states = new HashMap<>(Math.max(16, Math.min(count, 1 << 20) * 2));
+            for (int i = 0; i < count; i++) {
+                byte[] key = new byte[Short.toUnsignedInt(buffer.getShort())];
+                buffer.get(key);
+                states.put(new String(key, StandardCharsets.UTF_8), new BucketState(buffer.getLong(), buffer.getLong()));
+            }
+            return states;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated bucket snapshot: " + file, e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.azoopindia.it.asi.traffic.manager.rate.limiting.snapshot;
+
+/**
+ * Tokens left in a bucket at a point in time, as written to and read from a {@link BucketSnapshotFile}.
+ *
+ * @param tokens           tokens available in the bucket
+ * @param refilledAtMillis wall-clock time, in epoch milliseconds, up to which the bucket had been refilled
+ */
+public record BucketState(long tokens, long refilledAtMillis) {
+
+    /**
+     * Returns the tokens the bucket holds after refilling from this state until a later time.
+     *
+     * @param nowMillis       the current wall-clock time in epoch milliseconds
+     * @param capacity        tokens the bucket holds when full
+     * @param tokensPerWindow tokens refilled per window
+     * @param windowMillis    length of the refill window in milliseconds
+     * @return tokens available now, at most {@code capacity}
+     */
+    public long refilledTokens(long nowMillis, long capacity, long tokensPerWindow, long windowMillis) {
+        long elapsed = Math.max(0, nowMillis - refilledAtMillis);
+        double refill = (double) elapsed * tokensPerWindow / Math.max(1, windowMillis);
+        return (long) Math.max(0, Math.min(capacity, tokens + refill));
+    }
+}
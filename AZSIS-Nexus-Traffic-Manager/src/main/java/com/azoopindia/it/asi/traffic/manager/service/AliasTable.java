@@ -0,0 +1,117 @@
+package com.azoopindia.it.asi.traffic.manager.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable weighted choice among a fixed set of items in O(1) per draw, built with Vose's alias method.
+ * <p>
+ * Building the table costs O(n). Every draw then picks one column uniformly and keeps its own item or switches to
+ * the column's alias by a biased coin, so an item is drawn with probability proportional to its weight however many
+ * items there are. Tables are rebuilt whenever the weights change, e.g. on a discovery refresh, and shared freely
+ * between threads.
+ * </p>
+ *
+ * @param <T> type of the items
+ */
+public final class AliasTable<T> {
+
+    private final List<T> items;
+
+    /**
+     * Probability, per column, of keeping the column's own item.
+     */
+    private final double[] keep;
+
+    /**
+     * Item index, per column, drawn when the column's own item is not kept.
+     */
+    private final int[] alias;
+
+    private AliasTable(List<T> items, double[] keep, int[] alias) {
+        this.items = items;
+        this.keep = keep;
+        this.alias = alias;
+    }
+
+    /**
+     * Builds a table from weights.
+     *
+     * @param weights weight per item; items with a weight of zero or less are never drawn
+     * @param <T>     type of the items
+     * @return the table
+     * @throws IllegalArgumentException if no item has a positive weight
+     */
+    public static <T> AliasTable<T> of(Map<T, ? extends Number> weights) {
+        List<T> items = new ArrayList<>();
+        List<Double> positive = new ArrayList<>();
+        weights.forEach((item, weight) -> {
+            if (weight.doubleValue() > 0) {
+                items.add(item);
+                positive.add(weight.doubleValue());
+            }
+        });
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("No item has a positive weight: " + weights);
+        }
+
+        int n = items.size();
+        double total = positive.stream().mapToDouble(Double::doubleValue).sum();
+        double[] scaled = new double[n];
+        Deque<Integer> small = new ArrayDeque<>();
+        Deque<Integer> large = new ArrayDeque<>();
+        for (int i = 0; i < n; i++) {
+            scaled[i] = positive.get(i) * n / total;
+            (scaled[i] < 1d ? small : large).push(i);
+        }
+
+        double[] keep = new double[n];
+        int[] alias = new int[n];
+        while (!small.isEmpty() && !large.isEmpty()) {
+            int less = small.pop();
+            int more = large.pop();
+            keep[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1d;
+            (scaled[more] < 1d ? small : large).push(more);
+        }
+        // whatever is left is 1 up to rounding
+        while (!large.isEmpty()) {
+            keep[large.pop()] = 1d;
+        }
+        while (!small.isEmpty()) {
+            keep[small.pop()] = 1d;
+        }
+        return new AliasTable<>(List.copyOf(items), keep, alias);
+    }
+
+    /**
+     * Draws an item.
+     *
+     * @param bits 64 uniformly distributed random bits, e.g. {@code ThreadLocalRandom.current().nextLong()}, or a
+     *             well-mixed hash to draw the same item for the same key every time
+     * @return an item, with probability proportional to its weight
+     */
+    public T sample(long bits) {
+        int column = (int) (((bits >>> 32) * items.size()) >>> 32);
+        double coin = (bits & 0xFFFFFFFFL) / (double) (1L << 32);
+        return items.get(coin < keep[column] ? column : alias[column]);
+    }
+
+    /**
+     * @return number of items that can be drawn
+     */
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * @return the items that can be drawn
+     */
+    public List<T> items() {
+        return items;
+    }
+}
@@ -0,0 +1,112 @@
+package com.azoopindia.it.asi.traffic.manager.service;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.snapshot.BucketSnapshotFile;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.snapshot.BucketState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the rate limiter's bucket state across restarts, so a rollout does not reset every throttled client to a
+ * full bucket.
+ * <p>
+ * At startup the snapshot written by the previous instance is handed to
+ * {@link RateLimiterService#restoreBucketStates(Map)}, which restores each bucket lazily on its first use. The state
+ * of all partly drained buckets is written to {@code dynamic-routing.bucket-snapshot.file} every checkpoint interval
+ * and once more on shutdown; the format is described in {@link BucketSnapshotFile}. A missing or unreadable snapshot
+ * only means buckets start full.
+ * </p>
+ *
+ * <p>Metrics: {@code gateway.ratelimit.snapshot.failures} (checkpoints that could not be written).</p>
+ */
+@Slf4j
+@Component
+public class BucketSnapshotService {
+
+    private final DynamicRoutingProperties.BucketSnapshot props;
+
+    private final RateLimiterService rateLimiterService;
+
+    private final Counter failures;
+
+    private ScheduledExecutorService checkpointer;
+
+    public BucketSnapshotService(DynamicRoutingProperties props, RateLimiterService rateLimiterService,
+                                 MeterRegistry meterRegistry) {
+        this.props = props.getBucketSnapshot();
+        this.rateLimiterService = rateLimiterService;
+        this.failures = meterRegistry.counter("gateway.ratelimit.snapshot.failures");
+    }
+
+    /**
+     * Restores the last snapshot and starts the periodic checkpoints if snapshots are enabled.
+     */
+    @PostConstruct
+    public void start() {
+        if (!props.isEnabled() || checkpointer != null) {
+            return;
+        }
+        restore();
+        checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "bucket-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = props.getCheckpointInterval().toMillis();
+        checkpointer.scheduleWithFixedDelay(this::checkpoint, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the periodic checkpoints and writes a final snapshot.
+     */
+    @PreDestroy
+    public void stop() {
+        if (checkpointer == null) {
+            return;
+        }
+        checkpointer.shutdown();
+        try {
+            checkpointer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkpoint();
+    }
+
+    /**
+     * Writes the state of all partly drained buckets to the snapshot file.
+     */
+    public synchronized void checkpoint() {
+        Map<String, BucketState> states = rateLimiterService.snapshotBucketStates();
+        try {
+            BucketSnapshotFile.write(Path.of(props.getFile()), states);
+            log.debug("Wrote {} bucket states to {}", states.size(), props.getFile());
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            log.warn("Failed to write bucket snapshot {}: {}", props.getFile(), e.getMessage());
+        }
+    }
+
+    private void restore() {
+        try {
+            Map<String, BucketState> states = BucketSnapshotFile.read(Path.of(props.getFile()));
+            if (!states.isEmpty()) {
+                rateLimiterService.restoreBucketStates(states);
+                log.info("Restoring {} bucket states from {}", states.size(), props.getFile());
+            }
+        } catch (IOException e) {
+            log.warn("Ignoring bucket snapshot {}: {}", props.getFile(), e.getMessage());
+        }
+    }
+}
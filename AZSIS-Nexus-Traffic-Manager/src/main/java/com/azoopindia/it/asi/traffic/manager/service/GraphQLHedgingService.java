@@ -0,0 +1,284 @@
+package com.azoopindia.it.asi.traffic.manager.service;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.azoopindia.it.asi.traffic.manager.service.PowerOfTwoChoicesLoadBalancer.HedgeRequestContext;
+import graphql.language.OperationDefinition;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.cloud.gateway.support.NotFoundException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Forwards hedge-eligible GraphQL queries with request hedging.
+ * <p>
+ * The first attempt goes to the instance chosen by the service's load balancer. If it has not answered after the
+ * operation's hedge delay, a second attempt is sent to the instance the same balancer chooses when told to pass
+ * over the first one, so hedges respect version splits, affinity and backoff like any request; whichever responds first
+ * successfully is written back and the other attempt is cancelled. A 5xx response counts as a failure, so a
+ * fast-failing first attempt is still covered by the hedge.
+ * </p>
+ * <p>
+ * The hedge delay is the configured latency percentile (p95 by default) of the operation's recent attempts, clamped
+ * to {@code [min-delay, max-delay]}. Hedges are paid for from a global budget that grows by
+ * {@code budget-percent}% of a hedge per eligible request, which caps the extra load hedging adds.
+ * </p>
+ * <p>
+ * Only operations listed in {@code dynamic-routing.graphql.hedging.operations} whose operation type is {@code query}
+ * are hedged; mutations and subscriptions are never sent twice.
+ * </p>
+ */
+@Slf4j
+@Service
+public class GraphQLHedgingService {
+
+    /**
+     * Headers that describe a single connection and must not be forwarded.
+     */
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of(
+            "host", "content-length", "connection", "keep-alive", "transfer-encoding",
+            "te", "trailer", "upgrade", "proxy-connection", "proxy-authenticate", "proxy-authorization");
+
+    private final ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancerFactory;
+
+    private final InstanceLoadTracker loadTracker;
+
+    private final DynamicRoutingProperties props;
+
+    private final WebClient webClient;
+
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    private final HedgeBudget budget = new HedgeBudget();
+
+    public GraphQLHedgingService(ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancerFactory,
+                                 InstanceLoadTracker loadTracker,
+                                 DynamicRoutingProperties props,
+                                 WebClient.Builder webClientBuilder) {
+        this.loadBalancerFactory = loadBalancerFactory;
+        this.loadTracker = loadTracker;
+        this.props = props;
+        this.webClient = webClientBuilder.build();
+    }
+
+    /**
+     * Decides whether a GraphQL request may be hedged: hedging must be enabled, the operation must be listed,
+     * and the selected operation of the document must be a {@code query}.
+     *
+     * @param operationName the operation name resolved by the routing filter
+     * @param operation     the type of the selected operation as parsed by {@link GraphQLQueryCostCalculator}, or
+     *                      {@code null} if the document could not be parsed or selects no single operation
+     * @return {@code true} if the request may be sent more than once
+     */
+    public boolean isHedgeable(String operationName, OperationDefinition.Operation operation) {
+        DynamicRoutingProperties.Hedging hedging = props.getGraphql().getHedging();
+        return hedging.isEnabled() && hedging.getOperations().contains(operationName)
+                && operation == OperationDefinition.Operation.QUERY;
+    }
+
+    /**
+     * Forwards the request to the service with hedging and writes the winning response to the exchange.
+     *
+     * @param exchange      the current exchange
+     * @param serviceId     the service the operation is mapped to
+     * @param operationName the operation name, used for latency tracking
+     * @param body          the raw request body
+     * @return a Mono completing when the response has been written
+     */
+    public Mono<Void> forward(ServerWebExchange exchange, String serviceId, String operationName, byte[] body) {
+        DynamicRoutingProperties.Hedging hedging = props.getGraphql().getHedging();
+        budget.deposit(hedging.getBudgetPercent());
+        Duration delay = hedgeDelay(operationName, hedging);
+        AtomicReference<ResponseEntity<byte[]>> lastFailure = new AtomicReference<>();
+
+        ReactiveLoadBalancer<ServiceInstance> loadBalancer = loadBalancerFactory.getInstance(serviceId);
+        if (loadBalancer == null) {
+            return Mono.error(NotFoundException.create(true, "No load balancer available for " + serviceId));
+        }
+
+        RequestData requestData = new RequestData(exchange.getRequest());
+        return Mono.from(loadBalancer.choose(new DefaultRequest<>(new RequestDataContext(requestData))))
+                .flatMap(chosen -> {
+                    if (!chosen.hasServer()) {
+                        return Mono.error(NotFoundException.create(true, "Unable to find instance for " + serviceId));
+                    }
+                    ServiceInstance primary = chosen.getServer();
+
+                    Mono<ResponseEntity<byte[]>> first = attempt(exchange, primary, operationName, body, lastFailure);
+                    Mono<ResponseEntity<byte[]>> hedge = Mono.delay(delay)
+                            .then(Mono.defer(() -> Mono.from(loadBalancer.choose(
+                                    new DefaultRequest<>(new HedgeRequestContext(requestData, primary))))))
+                            .filter(Response::hasServer)
+                            .map(Response::getServer)
+                            .filter(instance -> budget.tryWithdraw())
+                            .flatMap(instance -> {
+                                log.debug("Hedging operation '{}' after {} ms on {}:{}",
+                                        operationName, delay.toMillis(), instance.getHost(), instance.getPort());
+                                return attempt(exchange, instance, operationName, body, lastFailure);
+                            });
+
+                    return Mono.firstWithValue(first, hedge);
+                })
+                .onErrorResume(e -> lastFailure.get() != null ? Mono.just(lastFailure.get()) : Mono.error(e))
+                .flatMap(entity -> write(exchange, entity));
+    }
+
+    /**
+     * Sends one attempt to the given instance. Reports it to the {@link InstanceLoadTracker} and records its latency.
+     * A 5xx response is remembered in {@code lastFailure} and turned into an error, so it never wins the race.
+     */
+    private Mono<ResponseEntity<byte[]>> attempt(ServerWebExchange exchange, ServiceInstance instance, String operationName,
+                                                 byte[] body, AtomicReference<ResponseEntity<byte[]>> lastFailure) {
+        URI uri = UriComponentsBuilder.fromUri(instance.getUri())
+                .path(props.getGraphql().getServicePath())
+                .query(exchange.getRequest().getURI().getRawQuery())
+                .build(true)
+                .toUri();
+
+        Request<RequestDataContext> lbRequest = new DefaultRequest<>(new RequestDataContext());
+        Response<ServiceInstance> lbResponse = new DefaultResponse(instance);
+
+        return Mono.defer(() -> {
+            loadTracker.onStartRequest(lbRequest, lbResponse);
+            long start = System.nanoTime();
+
+            return webClient.post()
+                    .uri(uri)
+                    .headers(headers -> copyHeaders(exchange.getRequest().getHeaders(), headers))
+                    .bodyValue(body)
+                    .exchangeToMono(response -> response.toEntity(byte[].class))
+                    .doOnNext(entity -> {
+                        latencies.computeIfAbsent(operationName, op -> new LatencyWindow()).record(System.nanoTime() - start);
+                        loadTracker.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, lbRequest, lbResponse,
+                                new ResponseData(entity.getStatusCode(), entity.getHeaders(), new LinkedMultiValueMap<>(), null)));
+                    })
+                    .doOnError(e -> loadTracker.onComplete(
+                            new CompletionContext<>(CompletionContext.Status.FAILED, e, lbRequest, lbResponse)))
+                    .doOnCancel(() -> loadTracker.onComplete(
+                            new CompletionContext<>(CompletionContext.Status.DISCARD, lbRequest, lbResponse)))
+                    .flatMap(entity -> {
+                        if (entity.getStatusCode().is5xxServerError()) {
+                            lastFailure.set(entity);
+                            return Mono.error(new IllegalStateException(
+                                    "Upstream " + instance.getHost() + ":" + instance.getPort() + " answered " + entity.getStatusCode()));
+                        }
+                        return Mono.just(entity);
+                    });
+        });
+    }
+
+    /**
+     * Returns the operation's latency percentile clamped to the configured bounds,
+     * or the upper bound while too few samples have been seen.
+     */
+    private Duration hedgeDelay(String operationName, DynamicRoutingProperties.Hedging hedging) {
+        LatencyWindow window = latencies.get(operationName);
+        long percentile = window != null ? window.percentile(hedging.getPercentile(), hedging.getMinSamples()) : -1;
+        if (percentile < 0) {
+            return hedging.getMaxDelay();
+        }
+        long nanos = Math.max(hedging.getMinDelay().toNanos(), Math.min(hedging.getMaxDelay().toNanos(), percentile));
+        return Duration.ofNanos(nanos);
+    }
+
+    private Mono<Void> write(ServerWebExchange exchange, ResponseEntity<byte[]> entity) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(entity.getStatusCode());
+        copyHeaders(entity.getHeaders(), response.getHeaders());
+
+        byte[] payload = entity.getBody() != null ? entity.getBody() : new byte[0];
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(payload)));
+    }
+
+    private static void copyHeaders(HttpHeaders from, HttpHeaders to) {
+        from.forEach((name, values) -> {
+            if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                to.put(name, values);
+            }
+        });
+    }
+
+    /**
+     * Ring buffer of an operation's most recent attempt latencies.
+     */
+    private static final class LatencyWindow {
+
+        private final long[] samples = new long[256];
+
+        private int count;
+
+        private int next;
+
+        synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        synchronized long percentile(double percentile, int minSamples) {
+            if (count == 0 || count < minSamples) {
+                return -1;
+            }
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, index))];
+        }
+    }
+
+    /**
+     * Global hedge budget. Every eligible request deposits {@code budget-percent}% of a hedge and every hedge
+     * withdraws a whole one, so hedges can never exceed that share of eligible traffic. The balance is capped
+     * to bound the burst of hedges after a quiet period.
+     */
+    private static final class HedgeBudget {
+
+        private static final long HEDGE_COST = 1_000_000L;
+
+        private static final long MAX_BALANCE = 10 * HEDGE_COST;
+
+        private final AtomicLong balance = new AtomicLong();
+
+        void deposit(double percent) {
+            long amount = (long) (HEDGE_COST * percent / 100);
+            balance.accumulateAndGet(amount, (current, added) -> Math.min(MAX_BALANCE, current + added));
+        }
+
+        boolean tryWithdraw() {
+            long current;
+            do {
+                current = balance.get();
+                if (current < HEDGE_COST) {
+                    return false;
+                }
+            } while (!balance.compareAndSet(current, current - HEDGE_COST));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.azoopindia.it.asi.traffic.manager.service;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import graphql.language.Argument;
+import graphql.language.Document;
+import graphql.language.Field;
+import graphql.language.FragmentDefinition;
+import graphql.language.FragmentSpread;
+import graphql.language.InlineFragment;
+import graphql.language.IntValue;
+import graphql.language.OperationDefinition;
+import graphql.language.Selection;
+import graphql.language.SelectionSet;
+import graphql.language.Value;
+import graphql.language.VariableReference;
+import graphql.parser.Parser;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes the cost of a GraphQL document from its syntax tree, without a schema.
+ * <p>
+ * The gateway does not know the schemas of the services behind it, so list fields are recognised by their
+ * pagination arguments rather than by their type. Each field costs one, multiplied by the page sizes of all
+ * enclosing list fields:
+ * <pre>
+ * query {                          # cost
+ *   templates(first: 20) {         #  1
+ *     name                         # 20
+ *     messages(first: 50) { text } # 20 + 20 * 50
+ *   }
+ * }                                # = 1041, depth 3
+ * </pre>
+ * Fragment spreads count as if expanded in place, but each fragment is costed only once per document, so deeply
+ * nested spreads cannot make the analysis itself expensive. Page sizes given as variables are read from the
+ * request's {@code variables}.
+ * </p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class GraphQLQueryCostCalculator {
+
+    /**
+     * Costs saturate here instead of overflowing on absurd page sizes.
+     */
+    private static final long COST_CEILING = Long.MAX_VALUE / 4;
+
+    private final DynamicRoutingProperties props;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Cost and depth of a GraphQL document.
+     *
+     * @param cost      the number of tokens the document is charged
+     * @param depth     the deepest field nesting
+     * @param operation type of the operation the request executes, or {@code null} if it does not select exactly
+     *                  one operation
+     */
+    public record QueryCost(long cost, int depth, OperationDefinition.Operation operation) {
+
+        QueryCost(long cost, int depth) {
+            this(cost, depth, null);
+        }
+    }
+
+    /**
+     * Computes the cost of the operation a GraphQL request executes.
+     * <p>
+     * If the request names no operation and the document holds several, all of them are counted. Analysis stops as
+     * soon as the document is known to cost more than {@code max-cost}, or once it holds more than
+     * {@code max-fragment-spreads} fragment spreads; the returned cost then exceeds {@code max-cost} and its depth
+     * is not meaningful. The type of the executed operation is reported either way, so callers that need it do not
+     * parse the document again.
+     * </p>
+     *
+     * @param body the raw GraphQL JSON body
+     * @return the cost, or {@code null} if the body is not a parsable GraphQL request
+     */
+    public QueryCost calculate(String body) {
+        try {
+            JsonNode node = mapper.readTree(body);
+            if (!node.hasNonNull("query")) {
+                return null;
+            }
+            String operationName = node.hasNonNull("operationName") ? node.get("operationName").asText() : null;
+            JsonNode variables = node.path("variables");
+
+            Document document = Parser.parse(node.get("query").asText());
+            Map<String, FragmentDefinition> fragments = new HashMap<>();
+            document.getDefinitionsOfType(FragmentDefinition.class).forEach(f -> fragments.put(f.getName(), f));
+
+            DynamicRoutingProperties.QueryCost limits = props.getGraphql().getCost();
+            Walker walker = new Walker(fragments, variables, limits.getListArguments(), limits.getMaxCost(),
+                    limits.getMaxFragmentSpreads());
+            List<OperationDefinition> selected = document.getDefinitionsOfType(OperationDefinition.class).stream()
+                    .filter(operation -> operationName == null || operationName.equals(operation.getName()))
+                    .toList();
+            OperationDefinition.Operation type = selected.size() == 1 ? selected.get(0).getOperation() : null;
+            long cost = 0;
+            int depth = 0;
+            try {
+                for (OperationDefinition operation : selected) {
+                    QueryCost operationCost = walker.walk(operation.getSelectionSet());
+                    cost = walker.add(cost, operationCost.cost());
+                    depth = Math.max(depth, operationCost.depth());
+                }
+            } catch (CostExceededException e) {
+                return new QueryCost(e.cost, depth, type);
+            }
+            return new QueryCost(cost, depth, type);
+        } catch (Exception e) {
+            log.debug("GraphQL request could not be parsed for cost analysis: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Thrown by {@link Walker} to abandon a document that already costs more than the maximum.
+     */
+    private static class CostExceededException extends RuntimeException {
+
+        private final long cost;
+
+        CostExceededException(long cost) {
+            super(null, null, false, false);
+            this.cost = cost;
+        }
+    }
+
+    /**
+     * Computes costs and depths over one document.
+     * <p>
+     * Selection sets are costed for a multiplier of one, which the enclosing list field scales; each fragment is
+     * therefore costed once per document however often it is spread. Since multipliers are at least one, the cost of
+     * any selection set is a lower bound of the document's, so the walk stops once one exceeds {@code maxCost}.
+     * </p>
+     */
+    @RequiredArgsConstructor
+    private static class Walker {
+
+        private final Map<String, FragmentDefinition> fragments;
+
+        private final JsonNode variables;
+
+        private final Set<String> listArguments;
+
+        private final long maxCost;
+
+        private final int maxFragmentSpreads;
+
+        /**
+         * Cost and depth of every fragment costed so far.
+         */
+        private final Map<String, QueryCost> fragmentCosts = new HashMap<>();
+
+        /**
+         * Fragments currently being costed, to stop on (invalid) cyclic spreads.
+         */
+        private final Set<String> expanding = new HashSet<>();
+
+        private int spreads;
+
+        /**
+         * @return the cost of the selection set for a multiplier of one, and its depth
+         */
+        QueryCost walk(SelectionSet selectionSet) {
+            if (selectionSet == null) {
+                return new QueryCost(0, 0);
+            }
+            long cost = 0;
+            int depth = 0;
+            for (Selection<?> selection : selectionSet.getSelections()) {
+                QueryCost nested;
+                if (selection instanceof Field field) {
+                    QueryCost children = walk(field.getSelectionSet());
+                    long size = listSize(field.getArguments());
+                    nested = new QueryCost(add(1, children.cost() > COST_CEILING / size ? COST_CEILING : children.cost() * size),
+                            children.depth() + 1);
+                } else if (selection instanceof InlineFragment inline) {
+                    nested = walk(inline.getSelectionSet());
+                } else if (selection instanceof FragmentSpread spread) {
+                    nested = spread(spread.getName());
+                } else {
+                    continue;
+                }
+                cost = add(cost, nested.cost());
+                depth = Math.max(depth, nested.depth());
+            }
+            return new QueryCost(cost, depth);
+        }
+
+        /**
+         * Adds two costs, saturating at the ceiling, and abandons the document once the sum exceeds {@code maxCost}.
+         */
+        long add(long a, long b) {
+            long sum = Math.min(COST_CEILING, a + b);
+            if (sum > maxCost) {
+                throw new CostExceededException(sum);
+            }
+            return sum;
+        }
+
+        private QueryCost spread(String name) {
+            if (++spreads > maxFragmentSpreads) {
+                log.debug("GraphQL document spreads fragments more than {} times", maxFragmentSpreads);
+                throw new CostExceededException(COST_CEILING);
+            }
+            QueryCost known = fragmentCosts.get(name);
+            if (known != null) {
+                return known;
+            }
+            FragmentDefinition fragment = fragments.get(name);
+            if (fragment == null || !expanding.add(name)) {
+                return new QueryCost(0, 0);
+            }
+            QueryCost cost = walk(fragment.getSelectionSet());
+            expanding.remove(name);
+            fragmentCosts.put(name, cost);
+            return cost;
+        }
+
+        private long listSize(List<Argument> arguments) {
+            for (Argument argument : arguments) {
+                if (listArguments.contains(argument.getName())) {
+                    return Math.max(1, Math.min(COST_CEILING, intValue(argument.getValue())));
+                }
+            }
+            return 1;
+        }
+
+        private long intValue(Value<?> value) {
+            if (value instanceof IntValue intValue) {
+                return intValue.getValue().min(BigInteger.valueOf(COST_CEILING)).longValue();
+            }
+            if (value instanceof VariableReference reference) {
+                JsonNode variable = variables.path(reference.getName());
+                return variable.canConvertToLong() ? variable.asLong() : 1;
+            }
+            return 1;
+        }
+    }
+}
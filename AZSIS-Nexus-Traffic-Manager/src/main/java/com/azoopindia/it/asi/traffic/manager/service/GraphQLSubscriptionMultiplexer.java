@@ -0,0 +1,539 @@
+package com.azoopindia.it.asi.traffic.manager.service;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.cloud.gateway.support.NotFoundException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.HandshakeInfo;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.reactive.socket.client.WebSocketClient;
+import org.springframework.web.reactive.socket.server.WebSocketService;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Serves GraphQL subscriptions over WebSocket and multiplexes them onto a few upstream connections per service.
+ * <p>
+ * Clients speak the {@code graphql-transport-ws} protocol with the gateway, which acknowledges
+ * {@code connection_init}, answers pings and routes every {@code subscribe} by its operation name like a query.
+ * The subscription is sent under an ID unique to the gateway over one of at most
+ * {@code dynamic-routing.graphql.subscriptions.connections-per-service} connections to the service, the one carrying
+ * the fewest subscriptions, and every message coming back is handed to the client under the client's own ID.
+ * Thousands of dashboards subscribed to a service therefore share a handful of upstream sockets.
+ * </p>
+ * <p>
+ * A subscription the client completes, or any subscription of a client that disconnects, is completed upstream.
+ * An upstream connection without subscriptions is closed. When an upstream connection is lost, each of its
+ * subscriptions ends with an {@code error} message so the client can subscribe again.
+ * </p>
+ * <p>
+ * A client has to send {@code connection_init} before subscribing and is closed with {@code 4401} otherwise. Every
+ * {@code subscribe} is charged one token to the client, identified by the handshake's {@code X-Client-Id} like a
+ * query, on the route {@link RateLimiterService#resolveRoute} gives for the operation, and a client holds at most
+ * {@code max-subscriptions-per-client} subscriptions. Messages for a client are buffered up to
+ * {@code client-buffer-size}; a client that falls further behind is closed with {@code 4413} rather than buffered
+ * without bound.
+ * </p>
+ */
+@Slf4j
+@Service
+public class GraphQLSubscriptionMultiplexer {
+
+    /**
+     * WebSocket subprotocol spoken with clients and services.
+     */
+    public static final String SUBPROTOCOL = "graphql-transport-ws";
+
+    private final ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancerFactory;
+
+    private final WebSocketService webSocketService;
+
+    private final WebSocketClient webSocketClient;
+
+    private final DynamicRoutingProperties props;
+
+    private final RateLimiterService rateLimiterService;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Open upstream connections per service ID. Guarded by {@code this}.
+     */
+    private final Map<String, List<UpstreamConnection>> connections = new ConcurrentHashMap<>();
+
+    /**
+     * Source of the IDs subscriptions carry upstream.
+     */
+    private final AtomicLong upstreamIds = new AtomicLong();
+
+    private final AtomicInteger activeSubscriptions = new AtomicInteger();
+
+    public GraphQLSubscriptionMultiplexer(ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancerFactory,
+                                          WebSocketService webSocketService,
+                                          WebSocketClient webSocketClient,
+                                          DynamicRoutingProperties props,
+                                          RateLimiterService rateLimiterService,
+                                          MeterRegistry meterRegistry) {
+        this.loadBalancerFactory = loadBalancerFactory;
+        this.webSocketService = webSocketService;
+        this.webSocketClient = webSocketClient;
+        this.props = props;
+        this.rateLimiterService = rateLimiterService;
+        meterRegistry.gauge("gateway.graphql.subscriptions.active", activeSubscriptions);
+        meterRegistry.gauge("gateway.graphql.subscriptions.upstream.connections", connections,
+                pools -> pools.values().stream().mapToInt(List::size).sum());
+    }
+
+    /**
+     * Upgrades the exchange to a WebSocket and serves the client's subscriptions on it.
+     *
+     * @param exchange the WebSocket handshake request
+     * @param router   resolves the service ID of a {@code subscribe} payload (the JSON text of
+     *                 {@code {"query": ..., "operationName": ...}}); {@code null} if it cannot be routed
+     * @return a Mono completing when the client's connection is closed
+     */
+    public Mono<Void> handle(ServerWebExchange exchange, Function<String, String> router) {
+        return webSocketService.handleRequest(exchange, new WebSocketHandler() {
+            @Override
+            public List<String> getSubProtocols() {
+                return List.of(SUBPROTOCOL);
+            }
+
+            @Override
+            public Mono<Void> handle(WebSocketSession session) {
+                return serve(session, router);
+            }
+        });
+    }
+
+    /**
+     * Serves the subscriptions of one client connection until it is closed.
+     *
+     * @param session the client's WebSocket session
+     * @param router  resolves the service ID of a {@code subscribe} payload, see {@link #handle}
+     * @return a Mono completing when the session is closed
+     */
+    public Mono<Void> serve(WebSocketSession session, Function<String, String> router) {
+        ClientConnection client = new ClientConnection(session);
+        Mono<Void> input = session.receive()
+                .map(WebSocketMessage::getPayloadAsText)
+                .doOnNext(text -> onClientMessage(client, text, router))
+                .then()
+                .doFinally(signal -> client.disconnected());
+        Mono<Void> output = session.send(client.outbound.asFlux().map(session::textMessage));
+        return Mono.when(input, output);
+    }
+
+    /**
+     * @return number of subscriptions currently forwarded to a service
+     */
+    public int activeSubscriptions() {
+        return activeSubscriptions.get();
+    }
+
+    private void onClientMessage(ClientConnection client, String text, Function<String, String> router) {
+        JsonNode message;
+        try {
+            message = mapper.readTree(text);
+        } catch (JsonProcessingException e) {
+            client.close(4400, "Invalid message");
+            return;
+        }
+
+        String id = message.path("id").asText(null);
+        switch (message.path("type").asText()) {
+            case "connection_init" -> {
+                client.initialised = true;
+                client.send(message("connection_ack", null).toString());
+            }
+            case "ping" -> client.send(message("pong", null).toString());
+            case "pong" -> {
+            }
+            case "subscribe" -> subscribe(client, id, message.path("payload"), router);
+            case "complete" -> {
+                Subscription subscription = id != null ? client.subscriptions.remove(id) : null;
+                if (subscription != null) {
+                    release(subscription.connection(), subscription.upstreamId(), true);
+                }
+            }
+            default -> client.close(4400, "Unsupported message type");
+        }
+    }
+
+    private void subscribe(ClientConnection client, String id, JsonNode payload, Function<String, String> router) {
+        if (!client.initialised) {
+            client.close(4401, "Unauthorized");
+            return;
+        }
+        if (id == null || !payload.isObject()) {
+            client.close(4400, "Invalid subscribe message");
+            return;
+        }
+        if (client.subscriptions.containsKey(id)) {
+            client.close(4409, "Subscriber for " + id + " already exists");
+            return;
+        }
+        if (client.subscriptions.size() >= props.getGraphql().getSubscriptions().getMaxSubscriptionsPerClient()) {
+            client.send(error(id, "Too many subscriptions on this connection"));
+            return;
+        }
+
+        String serviceId = router.apply(payload.toString());
+        if (serviceId == null) {
+            client.send(error(id, "Subscription could not be routed to a service"));
+            return;
+        }
+
+        String route = rateLimiterService.resolveRoute(client.key, client.path, payload.path("operationName").asText(null));
+        if (!rateLimiterService.tryConsume(client.key, route, 1)) {
+            client.send(error(id, "Rate limit exceeded"));
+            return;
+        }
+
+        register(serviceId, Long.toString(upstreamIds.incrementAndGet()), client, id, payload);
+    }
+
+    /**
+     * Registers a subscription on the least busy connection to the service, opening a new one while the service has
+     * fewer than the configured number, and sends it there. Both happen under the same lock as
+     * {@link UpstreamConnection#closed}, so a subscription is either on a live connection or ended with an error.
+     */
+    private synchronized void register(String serviceId, String upstreamId, ClientConnection client, String id,
+                                       JsonNode payload) {
+        UpstreamConnection connection = connectionFor(serviceId);
+        if (connection == null) {
+            client.send(error(id, "Too many subscriptions to " + serviceId));
+            return;
+        }
+        connection.routes.put(upstreamId, new Route(client, id));
+        activeSubscriptions.incrementAndGet();
+        client.subscriptions.put(id, new Subscription(connection, upstreamId));
+        connection.send(message("subscribe", upstreamId).set("payload", payload).toString());
+        connection.open();
+    }
+
+    /**
+     * Returns the least busy connection to the service, or a new one while the service has fewer than the
+     * configured number.
+     *
+     * @return the connection, or {@code null} if all connections to the service are full
+     */
+    private UpstreamConnection connectionFor(String serviceId) {
+        DynamicRoutingProperties.Subscriptions limits = props.getGraphql().getSubscriptions();
+        List<UpstreamConnection> pool = connections.computeIfAbsent(serviceId, id -> new ArrayList<>());
+
+        UpstreamConnection connection;
+        if (pool.size() < limits.getConnectionsPerService()) {
+            connection = new UpstreamConnection(serviceId);
+            pool.add(connection);
+        } else {
+            connection = pool.stream()
+                    .min(Comparator.comparingInt(candidate -> candidate.routes.size()))
+                    .filter(candidate -> candidate.routes.size() < limits.getMaxSubscriptionsPerConnection())
+                    .orElse(null);
+        }
+        return connection;
+    }
+
+    /**
+     * Removes a subscription from its connection, optionally completing it upstream, and closes the connection
+     * once it carries no subscriptions.
+     *
+     * @return the route of the subscription, or {@code null} if it was already removed
+     */
+    private synchronized Route release(UpstreamConnection connection, String upstreamId, boolean completeUpstream) {
+        Route route = connection.routes.remove(upstreamId);
+        if (route == null) {
+            return null;
+        }
+        activeSubscriptions.decrementAndGet();
+        if (completeUpstream) {
+            connection.send(message("complete", upstreamId).toString());
+        }
+        if (connection.routes.isEmpty()) {
+            remove(connection);
+            connection.shutdown();
+        }
+        return route;
+    }
+
+    private synchronized void remove(UpstreamConnection connection) {
+        List<UpstreamConnection> pool = connections.get(connection.serviceId);
+        if (pool != null) {
+            pool.remove(connection);
+            if (pool.isEmpty()) {
+                connections.remove(connection.serviceId);
+            }
+        }
+    }
+
+    private ObjectNode message(String type, String id) {
+        ObjectNode message = mapper.createObjectNode().put("type", type);
+        if (id != null) {
+            message.put("id", id);
+        }
+        return message;
+    }
+
+    private String error(String id, String text) {
+        ObjectNode message = message("error", id);
+        message.putArray("payload").addObject().put("message", text);
+        return message.toString();
+    }
+
+    /**
+     * Where the messages of an upstream subscription go: a client connection and the client's ID for it.
+     */
+    private record Route(ClientConnection client, String clientId) {
+    }
+
+    /**
+     * Where a client's subscription is forwarded: a connection and the ID the subscription carries on it.
+     */
+    private record Subscription(UpstreamConnection connection, String upstreamId) {
+    }
+
+    /**
+     * One client WebSocket connection.
+     */
+    private final class ClientConnection {
+
+        private final WebSocketSession session;
+
+        /**
+         * Rate-limit key of the client: its {@code X-Client-Id}, else {@code ip:<address>}.
+         */
+        private final String key;
+
+        /**
+         * Path the client connected to, the rate-limit route of its subscriptions without an operation route.
+         */
+        private final String path;
+
+        private final Sinks.Many<String> outbound = Sinks.many().unicast()
+                .onBackpressureBuffer(new ArrayBlockingQueue<>(props.getGraphql().getSubscriptions().getClientBufferSize()));
+
+        /**
+         * Forwarded subscriptions by the client's ID.
+         */
+        private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+        private final AtomicBoolean overflowed = new AtomicBoolean();
+
+        /**
+         * Whether the client has sent {@code connection_init}.
+         */
+        private volatile boolean initialised;
+
+        private ClientConnection(WebSocketSession session) {
+            this.session = session;
+            HandshakeInfo handshake = session.getHandshakeInfo();
+            String clientId = handshake.getHeaders().getFirst("X-Client-Id");
+            this.key = StringUtils.hasText(clientId) ? clientId
+                    : "ip:" + (handshake.getRemoteAddress() != null ? handshake.getRemoteAddress().getHostString() : "unknown");
+            this.path = handshake.getUri().getPath();
+        }
+
+        private void send(String message) {
+            Sinks.EmitResult result;
+            synchronized (this) {
+                result = outbound.tryEmitNext(message);
+            }
+            // closed outside the lock, as closing releases the client's subscriptions
+            if (result == Sinks.EmitResult.FAIL_OVERFLOW && overflowed.compareAndSet(false, true)) {
+                log.warn("Closing subscription client {}: more than {} messages undelivered", key,
+                        props.getGraphql().getSubscriptions().getClientBufferSize());
+                close(4413, "Too many undelivered messages");
+            }
+        }
+
+        private void close(int code, String reason) {
+            session.close(new CloseStatus(code, reason)).subscribe();
+        }
+
+        private void disconnected() {
+            subscriptions.forEach((id, subscription) -> release(subscription.connection(), subscription.upstreamId(), true));
+            subscriptions.clear();
+            synchronized (this) {
+                outbound.tryEmitComplete();
+            }
+        }
+    }
+
+    /**
+     * One WebSocket connection to an instance of a service, shared by many subscriptions.
+     * Messages sent before the service acknowledged the connection are held back until it does.
+     */
+    private final class UpstreamConnection {
+
+        private final String serviceId;
+
+        private final Sinks.Many<String> outbound = Sinks.many().unicast().onBackpressureBuffer();
+
+        /**
+         * Routes of the subscriptions on this connection by their upstream ID.
+         */
+        private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+        private final List<String> pending = new ArrayList<>();
+
+        private final AtomicBoolean opened = new AtomicBoolean();
+
+        private boolean acknowledged;
+
+        private UpstreamConnection(String serviceId) {
+            this.serviceId = serviceId;
+        }
+
+        /**
+         * Connects to an instance chosen by the service's load balancer, unless already done.
+         */
+        private void open() {
+            if (!opened.compareAndSet(false, true)) {
+                return;
+            }
+            ReactiveLoadBalancer<ServiceInstance> loadBalancer = loadBalancerFactory.getInstance(serviceId);
+            if (loadBalancer == null) {
+                closed(NotFoundException.create(true, "No load balancer available for " + serviceId));
+                return;
+            }
+
+            Mono.from(loadBalancer.choose(new DefaultRequest<>(new RequestDataContext())))
+                    .flatMap(chosen -> chosen.hasServer()
+                            ? Mono.just(chosen.getServer())
+                            : Mono.error(NotFoundException.create(true, "Unable to find instance for " + serviceId)))
+                    .flatMap(instance -> webSocketClient.execute(uri(instance), new HttpHeaders(), new WebSocketHandler() {
+                        @Override
+                        public List<String> getSubProtocols() {
+                            return List.of(SUBPROTOCOL);
+                        }
+
+                        @Override
+                        public Mono<Void> handle(WebSocketSession session) {
+                            log.info("Opened subscription connection to {} at {}:{}",
+                                    serviceId, instance.getHost(), instance.getPort());
+                            synchronized (UpstreamConnection.this) {
+                                outbound.tryEmitNext(message("connection_init", null).toString());
+                            }
+                            Mono<Void> input = session.receive()
+                                    .map(WebSocketMessage::getPayloadAsText)
+                                    .doOnNext(text -> onUpstreamMessage(text))
+                                    .then()
+                                    .doFinally(signal -> shutdown());
+                            // once nothing is left to send, the connection is no longer needed
+                            Mono<Void> output = session.send(outbound.asFlux().map(session::textMessage))
+                                    .then(Mono.defer(session::close));
+                            return Mono.when(input, output);
+                        }
+                    }))
+                    .subscribe(null, this::closed, () -> closed(null));
+        }
+
+        private URI uri(ServiceInstance instance) {
+            return UriComponentsBuilder.newInstance()
+                    .scheme(instance.isSecure() ? "wss" : "ws")
+                    .host(instance.getHost())
+                    .port(instance.getPort())
+                    .path(props.getGraphql().getServicePath())
+                    .build()
+                    .toUri();
+        }
+
+        private synchronized void send(String message) {
+            if (acknowledged) {
+                outbound.tryEmitNext(message);
+            } else {
+                pending.add(message);
+            }
+        }
+
+        private synchronized void shutdown() {
+            pending.clear();
+            outbound.tryEmitComplete();
+        }
+
+        private void onUpstreamMessage(String text) {
+            JsonNode message;
+            try {
+                message = mapper.readTree(text);
+            } catch (JsonProcessingException e) {
+                log.warn("Ignoring invalid message from {}: {}", serviceId, e.getMessage());
+                return;
+            }
+
+            String type = message.path("type").asText();
+            switch (type) {
+                case "connection_ack" -> {
+                    synchronized (this) {
+                        acknowledged = true;
+                        pending.forEach(outbound::tryEmitNext);
+                        pending.clear();
+                    }
+                }
+                case "ping" -> {
+                    synchronized (this) {
+                        outbound.tryEmitNext(message("pong", null).toString());
+                    }
+                }
+                case "next", "error", "complete" -> {
+                    String upstreamId = message.path("id").asText();
+                    Route route = type.equals("next") ? routes.get(upstreamId) : release(this, upstreamId, false);
+                    if (route == null) {
+                        return;
+                    }
+                    if (!type.equals("next")) {
+                        route.client().subscriptions.remove(route.clientId());
+                    }
+                    route.client().send(((ObjectNode) message).put("id", route.clientId()).toString());
+                }
+                default -> {
+                }
+            }
+        }
+
+        /**
+         * Ends every subscription still on the connection with an error once the connection is gone.
+         */
+        private void closed(Throwable error) {
+            remove(this);
+            if (error != null) {
+                log.warn("Subscription connection to {} failed: {}", serviceId, error.getMessage());
+            }
+            for (String upstreamId : List.copyOf(routes.keySet())) {
+                Route route = release(this, upstreamId, false);
+                if (route != null) {
+                    route.client().subscriptions.remove(route.clientId());
+                    route.client().send(error(route.clientId(), "Connection to " + serviceId + " was lost"));
+                }
+            }
+        }
+    }
+}
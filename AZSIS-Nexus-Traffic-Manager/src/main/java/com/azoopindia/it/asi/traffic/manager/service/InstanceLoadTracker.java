@@ -0,0 +1,244 @@
+package com.azoopindia.it.asi.traffic.manager.service;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Tracks the load of every downstream service instance the gateway sends traffic to.
+ * <p>
+ * Registered as a {@link LoadBalancerLifecycle}, it is notified by the gateway's load balancer client filter
+ * when a request to a chosen instance starts and completes, and keeps per instance:
+ * <ul>
+ *   <li>the number of requests in flight,</li>
+ *   <li>a peak-sensitive EWMA of the response latency: a slower sample replaces the average immediately,
+ *   faster samples pull it down with the time constant {@code dynamic-routing.load-balancing.latency-decay},</li>
+ *   <li>a failure backoff: after {@code n} consecutive failures (connection errors or 5xx responses) the instance
+ *   is avoided for {@code failure-backoff * 2^(n-1)}, capped at {@code max-failure-backoff},</li>
+ *   <li>the time it was first seen, used to ramp up newly discovered instances over {@code warm-up}.</li>
+ * </ul>
+ * </p>
+ * <p>
+ * The statistics are read by {@link PowerOfTwoChoicesLoadBalancer} to rank instances.
+ * </p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InstanceLoadTracker implements LoadBalancerLifecycle<RequestDataContext, ResponseData, ServiceInstance> {
+
+    /**
+     * Latency assumed for an instance that has not completed a request yet.
+     */
+    private static final double UNMEASURED_LATENCY_NANOS = 1_000_000d;
+
+    /**
+     * Share of traffic a newly discovered instance receives at the start of its warm-up.
+     */
+    private static final double MIN_WARM_UP_WEIGHT = 0.1d;
+
+    private final DynamicRoutingProperties routingProperties;
+
+    private final ConcurrentMap<String, ConcurrentMap<String, InstanceStats>> statsByService = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean supports(Class requestContextClass, Class responseClass, Class serverTypeClass) {
+        return RequestDataContext.class.isAssignableFrom(requestContextClass)
+                && ResponseData.class.isAssignableFrom(responseClass)
+                && ServiceInstance.class.isAssignableFrom(serverTypeClass);
+    }
+
+    @Override
+    public void onStart(Request<RequestDataContext> request) {
+        // Nothing to track before an instance has been chosen.
+    }
+
+    @Override
+    public void onStartRequest(Request<RequestDataContext> request, Response<ServiceInstance> lbResponse) {
+        if (!lbResponse.hasServer()) {
+            return;
+        }
+        if (request.getContext() != null) {
+            request.getContext().setRequestStartTime(System.nanoTime());
+        }
+        statsFor(lbResponse.getServer()).inFlight.incrementAndGet();
+    }
+
+    @Override
+    public void onComplete(CompletionContext<ResponseData, ServiceInstance, RequestDataContext> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (lbResponse == null || !lbResponse.hasServer()) {
+            return;
+        }
+
+        InstanceStats stats = statsFor(lbResponse.getServer());
+        stats.inFlight.updateAndGet(current -> Math.max(0, current - 1));
+        if (completionContext.status() == CompletionContext.Status.DISCARD) {
+            // Abandoned before completion (e.g. a cancelled hedge attempt): neither a latency sample nor a failure.
+            return;
+        }
+
+        long now = System.nanoTime();
+        ResponseData response = completionContext.getClientResponse();
+        boolean failed = completionContext.status() == CompletionContext.Status.FAILED
+                || (response != null && response.getHttpStatus() != null && response.getHttpStatus().is5xxServerError());
+
+        TimedRequestContext context = completionContext.getLoadBalancerRequest() != null
+                ? completionContext.getLoadBalancerRequest().getContext() : null;
+        if (context != null && context.getRequestStartTime() > 0) {
+            stats.recordLatency(now - context.getRequestStartTime(), now, routingProperties.getLoadBalancing().getLatencyDecay().toNanos());
+        }
+
+        if (failed) {
+            long backoff = stats.recordFailure(now, routingProperties.getLoadBalancing().getFailureBackoff().toNanos(),
+                    routingProperties.getLoadBalancing().getMaxFailureBackoff().toNanos());
+            log.warn("Instance {} of {} failed, backing off for {} ms",
+                    instanceKey(lbResponse.getServer()), lbResponse.getServer().getServiceId(), backoff / 1_000_000);
+        } else {
+            stats.recordSuccess();
+        }
+    }
+
+    /**
+     * Returns the cost of sending one more request to the instance: its latency EWMA multiplied by the number
+     * of requests that would then be in flight, scaled up while the instance is warming up. Lower is better.
+     *
+     * @param instance the candidate instance
+     * @param now      current {@link System#nanoTime()}
+     * @return the relative cost of the instance
+     */
+    public double cost(ServiceInstance instance, long now) {
+        InstanceStats stats = statsFor(instance);
+        double latency = stats.latencyNanos() > 0 ? stats.latencyNanos() : UNMEASURED_LATENCY_NANOS;
+        return latency * (stats.inFlight.get() + 1) / warmUpWeight(stats, now);
+    }
+
+    /**
+     * Returns the number of requests currently in flight to the instance.
+     *
+     * @param instance the candidate instance
+     * @return requests started but not completed
+     */
+    public int inFlight(ServiceInstance instance) {
+        return statsFor(instance).inFlight.get();
+    }
+
+    /**
+     * Returns whether the instance is currently backed off because of recent failures.
+     *
+     * @param instance the candidate instance
+     * @param now      current {@link System#nanoTime()}
+     * @return {@code true} if the instance should be avoided
+     */
+    public boolean isBackedOff(ServiceInstance instance, long now) {
+        return statsFor(instance).isBackedOff(now);
+    }
+
+    /**
+     * Drops the statistics of instances of the service that are no longer registered.
+     *
+     * @param serviceId the service
+     * @param instances the currently registered instances of the service
+     */
+    public void retainInstances(String serviceId, Collection<ServiceInstance> instances) {
+        ConcurrentMap<String, InstanceStats> stats = statsByService.get(serviceId);
+        if (stats == null || stats.size() <= instances.size()) {
+            return;
+        }
+        Set<String> live = instances.stream().map(InstanceLoadTracker::instanceKey).collect(Collectors.toSet());
+        stats.keySet().retainAll(live);
+    }
+
+    private double warmUpWeight(InstanceStats stats, long now) {
+        long warmUp = routingProperties.getLoadBalancing().getWarmUp().toNanos();
+        long age = now - stats.firstSeenNanos;
+        if (warmUp <= 0 || age >= warmUp) {
+            return 1d;
+        }
+        return Math.max(MIN_WARM_UP_WEIGHT, (double) age / warmUp);
+    }
+
+    private InstanceStats statsFor(ServiceInstance instance) {
+        return statsByService
+                .computeIfAbsent(instance.getServiceId(), id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(instanceKey(instance), key -> new InstanceStats(System.nanoTime()));
+    }
+
+    private static String instanceKey(ServiceInstance instance) {
+        return instance.getInstanceId() != null
+                ? instance.getInstanceId()
+                : instance.getHost() + ":" + instance.getPort();
+    }
+
+    /**
+     * Mutable load statistics of one instance. Latency and failure state are updated under the instance's lock;
+     * the in-flight counter is lock-free because it changes on every request.
+     */
+    private static final class InstanceStats {
+
+        private final long firstSeenNanos;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private double ewmaNanos;
+
+        private long lastSampleNanos;
+
+        private int consecutiveFailures;
+
+        private long backoffUntilNanos;
+
+        private InstanceStats(long firstSeenNanos) {
+            this.firstSeenNanos = firstSeenNanos;
+        }
+
+        synchronized double latencyNanos() {
+            return ewmaNanos;
+        }
+
+        synchronized void recordLatency(long sampleNanos, long now, long decayNanos) {
+            if (sampleNanos > ewmaNanos || lastSampleNanos == 0 || decayNanos <= 0) {
+                ewmaNanos = sampleNanos;
+            } else {
+                double weight = Math.exp(-(double) (now - lastSampleNanos) / decayNanos);
+                ewmaNanos = ewmaNanos * weight + sampleNanos * (1 - weight);
+            }
+            lastSampleNanos = now;
+        }
+
+        synchronized long recordFailure(long now, long baseBackoffNanos, long maxBackoffNanos) {
+            consecutiveFailures++;
+            long backoff = baseBackoffNanos << Math.min(consecutiveFailures - 1, 30);
+            if (backoff <= 0 || backoff > maxBackoffNanos) {
+                backoff = maxBackoffNanos;
+            }
+            backoffUntilNanos = now + backoff;
+            return backoff;
+        }
+
+        synchronized void recordSuccess() {
+            consecutiveFailures = 0;
+            backoffUntilNanos = 0;
+        }
+
+        synchronized boolean isBackedOff(long now) {
+            return backoffUntilNanos != 0 && now - backoffUntilNanos < 0;
+        }
+    }
+}
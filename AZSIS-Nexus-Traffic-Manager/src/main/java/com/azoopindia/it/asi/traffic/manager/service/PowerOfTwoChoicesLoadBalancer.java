@@ -0,0 +1,312 @@
+package com.azoopindia.it.asi.traffic.manager.service;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency-aware load balancer for {@code lb://} URIs.
+ * <p>
+ * For every request two distinct instances are drawn at random and the one with the lower
+ * {@link InstanceLoadTracker#cost cost} (latency EWMA times in-flight requests, adjusted for warm-up) wins.
+ * Comparing two random candidates avoids the herding that always picking the global minimum causes across
+ * gateway replicas, while still steering traffic away from slow or overloaded instances.
+ * Instances in failure backoff are skipped unless every instance is backed off.
+ * </p>
+ * <p>
+ * One balancer exists per service id; it is created in the service's load balancer child context
+ * by {@code LatencyAwareLoadBalancerClientConfiguration}.
+ * </p>
+ * <p>
+ * If discovery returns no instances while it is unreachable, the instances of the last known routing table from
+ * {@link RoutingTableSnapshotStore} are balanced instead.
+ * </p>
+ * <p>
+ * With {@code dynamic-routing.load-balancing.affinity} enabled, requests carrying the affinity key header go to the
+ * instance ranked first for the key by a rendezvous hash, so a client's working set stays in one instance's caches
+ * and only the keys of an instance move when it joins or leaves. An instance carrying more than {@code loadFactor}
+ * times the average number of requests in flight is passed over for the next one in the key's ranking.
+ * </p>
+ * <p>
+ * Instances declaring {@link RoutingWeights#VERSION_METADATA routing.version} and
+ * {@link RoutingWeights#WEIGHT_METADATA routing.weight} split the traffic: a version is drawn first, in proportion to
+ * the summed weights of its instances, from an alias table rebuilt whenever the ids, weights or versions of the
+ * instances discovery hands out change, and the instance is then chosen among that version's instances. Requests with an affinity key always draw the same
+ * version, so a client stays on the canary or off it.
+ * </p>
+ * <p>
+ * A request with a {@link HedgeRequestContext} hedges another one: it is balanced the same way, but never to the
+ * instance the hedged request went to, and only within the version it draws. If that version has no other healthy
+ * instance, no instance is returned and the hedge is not sent.
+ * </p>
+ */
+@RequiredArgsConstructor
+public class PowerOfTwoChoicesLoadBalancer implements ReactorServiceInstanceLoadBalancer {
+
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+
+    private final String serviceId;
+
+    private final InstanceLoadTracker loadTracker;
+
+    private final RoutingTableSnapshotStore routingSnapshot;
+
+    private final DynamicRoutingProperties routingProperties;
+
+    /**
+     * Version split of the last instance list seen.
+     */
+    private volatile VersionSplit versionSplit;
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider
+                .getIfAvailable(NoopServiceInstanceListSupplier::new);
+        String affinityKey = affinityKey(request);
+        ServiceInstance excluded = request.getContext() instanceof HedgeRequestContext hedge ? hedge.getExcluded() : null;
+
+        return supplier.get(request).next().defaultIfEmpty(List.of()).map(instances -> {
+            Response<ServiceInstance> response = choose(instances.isEmpty()
+                    ? routingSnapshot.fallbackInstances(serviceId)
+                    : instances, affinityKey, excluded);
+            if (supplier instanceof SelectedInstanceCallback callback && response.hasServer()) {
+                callback.selectedServiceInstance(response.getServer());
+            }
+            return response;
+        });
+    }
+
+    /**
+     * Picks the better of two random instances.
+     *
+     * @param instances the currently registered instances of the service
+     * @return the chosen instance, or an empty response if there is none
+     */
+    Response<ServiceInstance> choose(List<ServiceInstance> instances) {
+        return choose(instances, null, null);
+    }
+
+    /**
+     * Picks the instance of an affinity key, or the better of two random instances if there is no key.
+     *
+     * @param instances   the currently registered instances of the service
+     * @param affinityKey the request's affinity key, or {@code null}
+     * @param excluded    the instance a hedged request went to, or {@code null} if the request is no hedge
+     * @return the chosen instance, or an empty response if there is none
+     */
+    Response<ServiceInstance> choose(List<ServiceInstance> instances, String affinityKey, ServiceInstance excluded) {
+        if (instances.isEmpty()) {
+            return new EmptyResponse();
+        }
+        loadTracker.retainInstances(serviceId, instances);
+        if (instances.size() == 1 && excluded == null) {
+            return new DefaultResponse(instances.get(0));
+        }
+
+        long now = System.nanoTime();
+        List<ServiceInstance> candidates = versionFor(instances, affinityKey).stream()
+                .filter(instance -> !isSameInstance(instance, excluded) && !loadTracker.isBackedOff(instance, now))
+                .toList();
+        if (candidates.isEmpty() && excluded != null) {
+            // a hedge is better not sent than sent to another version or to a backed-off instance
+            return new EmptyResponse();
+        }
+        if (candidates.isEmpty()) {
+            // the drawn version is down; any healthy instance beats none
+            candidates = instances.stream()
+                    .filter(instance -> !loadTracker.isBackedOff(instance, now))
+                    .toList();
+        }
+        if (candidates.isEmpty()) {
+            candidates = instances;
+        }
+        if (candidates.size() == 1) {
+            return new DefaultResponse(candidates.get(0));
+        }
+        if (affinityKey != null) {
+            return new DefaultResponse(chooseByAffinity(candidates, affinityKey));
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+
+        ServiceInstance a = candidates.get(first);
+        ServiceInstance b = candidates.get(second);
+        return new DefaultResponse(loadTracker.cost(a, now) <= loadTracker.cost(b, now) ? a : b);
+    }
+
+    /**
+     * Draws the version a request goes to and returns its instances.
+     *
+     * @param instances   the currently registered instances of the service
+     * @param affinityKey the request's affinity key, or {@code null} for a random draw
+     * @return the instances of the drawn version; all instances if none has a positive weight
+     */
+    private List<ServiceInstance> versionFor(List<ServiceInstance> instances, String affinityKey) {
+        VersionSplit split = versionSplit;
+        if (split == null || split.source() != instances) {
+            // instances compare by id only, so a metadata change is only seen in the weights and versions
+            List<InstanceWeight> signature = signature(instances);
+            if (split == null || !split.signature().equals(signature)) {
+                Map<List<ServiceInstance>, Integer> weights = RoutingWeights.weightsByVersion(instances);
+                split = new VersionSplit(instances, signature, weights.isEmpty() ? null : AliasTable.of(weights));
+            } else {
+                split = new VersionSplit(instances, signature, split.versions());
+            }
+            versionSplit = split;
+        }
+        if (split.versions() == null) {
+            return instances;
+        }
+        if (split.versions().size() == 1) {
+            return split.versions().items().get(0);
+        }
+        long bits = affinityKey != null ? RoutingWeights.mix(affinityKey) : ThreadLocalRandom.current().nextLong();
+        return split.versions().sample(bits);
+    }
+
+    /**
+     * Returns the instance ranked highest for a key by rendezvous hashing whose requests in flight stay within
+     * the load bound.
+     *
+     * @param candidates  at least two instances that are not backed off
+     * @param affinityKey the request's affinity key
+     * @return the chosen instance
+     */
+    private ServiceInstance chooseByAffinity(List<ServiceInstance> candidates, String affinityKey) {
+        int totalInFlight = 0;
+        for (ServiceInstance candidate : candidates) {
+            totalInFlight += loadTracker.inFlight(candidate);
+        }
+        // room for this request on top of the average, so an idle service always has an instance within the bound
+        double bound = routingProperties.getLoadBalancing().getAffinity().getLoadFactor()
+                * (totalInFlight + 1) / candidates.size();
+
+        long keyHash = affinityKey.hashCode();
+        List<ServiceInstance> ranked = candidates.stream()
+                .sorted(Comparator.comparingLong((ServiceInstance instance) -> rendezvousScore(keyHash, instance)).reversed())
+                .toList();
+        for (ServiceInstance instance : ranked) {
+            if (loadTracker.inFlight(instance) + 1 <= Math.ceil(bound)) {
+                return instance;
+            }
+        }
+        return ranked.get(0);
+    }
+
+    /**
+     * Reads the affinity key of a request, if affinity applies to this service.
+     *
+     * @param request the load balancer request
+     * @return the value of the affinity header, or {@code null}
+     */
+    private String affinityKey(Request request) {
+        DynamicRoutingProperties.Affinity affinity = routingProperties.getLoadBalancing().getAffinity();
+        if (!affinity.isEnabled()
+                || (!affinity.getServices().isEmpty() && !affinity.getServices().contains(serviceId.toLowerCase()))
+                || !(request.getContext() instanceof RequestDataContext context)
+                || context.getClientRequest() == null) {
+            return null;
+        }
+        String key = context.getClientRequest().getHeaders().getFirst(affinity.getHeader());
+        return key != null && !key.isEmpty() ? key : null;
+    }
+
+    private static boolean isSameInstance(ServiceInstance instance, ServiceInstance other) {
+        return other != null && instance.getHost().equals(other.getHost()) && instance.getPort() == other.getPort();
+    }
+
+    /**
+     * Scores an instance for a key; the key's instance is the one with the highest score.
+     */
+    private static long rendezvousScore(long keyHash, ServiceInstance instance) {
+        long h = keyHash << 32 ^ ((instance.getHost() + ":" + instance.getPort()).hashCode() & 0xFFFFFFFFL);
+        // fmix64 finalizer of MurmurHash3, spreading both halves over all bits
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Lists what a version split depends on, for each instance in order.
+     */
+    private static List<InstanceWeight> signature(List<ServiceInstance> instances) {
+        List<InstanceWeight> signature = new ArrayList<>(instances.size());
+        for (ServiceInstance instance : instances) {
+            signature.add(new InstanceWeight(instance.getInstanceId(), RoutingWeights.weightOf(instance),
+                    RoutingWeights.versionOf(instance)));
+        }
+        return signature;
+    }
+
+    /**
+     * What an instance contributes to a version split.
+     *
+     * @param instanceId the instance's id
+     * @param weight     its routing weight
+     * @param version    its routing version
+     */
+    private record InstanceWeight(String instanceId, int weight, String version) {
+    }
+
+    /**
+     * Instances of the service grouped by version, with the alias table to draw a version from.
+     *
+     * @param source    the instance list last seen, which the split applies to
+     * @param signature the ids, weights and versions of those instances
+     * @param versions  the instances of each version weighted by their summed weights, or {@code null} if no
+     *                  instance has a positive weight
+     */
+    private record VersionSplit(List<ServiceInstance> source, List<InstanceWeight> signature,
+                                AliasTable<List<ServiceInstance>> versions) {
+    }
+
+    /**
+     * Context of a hedge: the hedged request's data, so affinity applies alike, and the instance it went to.
+     */
+    public static class HedgeRequestContext extends RequestDataContext {
+
+        private final ServiceInstance excluded;
+
+        /**
+         * @param clientRequest the data of the hedged request
+         * @param excluded      the instance the hedged request went to
+         */
+        public HedgeRequestContext(RequestData clientRequest, ServiceInstance excluded) {
+            super(clientRequest);
+            this.excluded = excluded;
+        }
+
+        /**
+         * @return the instance the hedged request went to
+         */
+        public ServiceInstance getExcluded() {
+            return excluded;
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.azoopindia.it.asi.traffic.manager.service;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.azoopindia.it.asi.traffic.manager.infrastructure.QuotaUsageRepository;
+import com.azoopindia.it.asi.traffic.manager.infrastructure.QuotaUsageRepository.UsageDelta;
+import com.azoopindia.it.asi.traffic.manager.infrastructure.QuotaUsageRepository.UsageKey;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity.QuotaPeriod;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity.RateLimitConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Enforces the daily and monthly call quotas of {@link RateLimitConfig}s without a database round trip per request.
+ * <p>
+ * Calls are counted in memory. Once per {@code dynamic-routing.quota.flush-interval} the calls counted since the
+ * last flush are added to this node's rows in one batch, and the usage summed over all nodes is read back in one
+ * query. A call is admitted while the last summed usage plus the calls counted locally since stays below the quota.
+ * Nodes see each other's calls one flush late, so together they may exceed a quota by about what the other nodes
+ * admit within one flush interval.
+ * </p>
+ * <p>
+ * A failed flush keeps its counts for the next one. Counters of past periods are dropped once flushed, and counters
+ * created between flushes start from the last summed usage, so a quota forgotten that way is not granted afresh.
+ * The first flush of every day deletes the rows of periods older than {@code dynamic-routing.quota.retention}.
+ * </p>
+ *
+ * <p>Metrics: {@code gateway.quota.rejected} (calls over quota) and {@code gateway.quota.flush.failures}.</p>
+ */
+@Slf4j
+@Service
+public class QuotaService {
+
+    private final DynamicRoutingProperties.Quota props;
+
+    private final QuotaUsageRepository repository;
+
+    private final Clock clock;
+
+    private final String nodeId;
+
+    private final Counter rejected;
+
+    private final Counter flushFailures;
+
+    private final ConcurrentMap<UsageKey, Usage> usage = new ConcurrentHashMap<>();
+
+    /**
+     * Usage of all nodes as read by the last flush, including quotas this node had no counter for.
+     */
+    private volatile Map<UsageKey, Long> totals = Map.of();
+
+    /**
+     * Day the rows of expired periods were last deleted on.
+     */
+    private LocalDate purgedOn;
+
+    private ScheduledExecutorService flusher;
+
+    @Autowired
+    public QuotaService(DynamicRoutingProperties props, QuotaUsageRepository repository, MeterRegistry meterRegistry) {
+        this(props, repository, meterRegistry, Clock.system(ZoneId.of(props.getQuota().getZone())));
+    }
+
+    /**
+     * @param clock clock whose zone defines the calendar days and months
+     */
+    public QuotaService(DynamicRoutingProperties props, QuotaUsageRepository repository, MeterRegistry meterRegistry,
+                        Clock clock) {
+        this.props = props.getQuota();
+        this.repository = repository;
+        this.clock = clock;
+        this.nodeId = StringUtils.hasText(this.props.getNodeId()) ? this.props.getNodeId() : defaultNodeId();
+        this.rejected = meterRegistry.counter("gateway.quota.rejected");
+        this.flushFailures = meterRegistry.counter("gateway.quota.flush.failures");
+    }
+
+    /**
+     * Starts the periodic flush if quotas are enabled.
+     */
+    @PostConstruct
+    public void start() {
+        if (!props.isEnabled() || flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "quota-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = props.getFlushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+        log.info("Counting quota usage as node {}, flushing every {}", nodeId, props.getFlushInterval());
+    }
+
+    /**
+     * Stops the periodic flush and writes the calls counted since the last one.
+     */
+    @PreDestroy
+    public void stop() {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * Tells whether a configuration defines any quota.
+     *
+     * @param config the active configuration, or {@code null}
+     * @return {@code true} if it has a daily or monthly quota
+     */
+    public static boolean hasQuota(RateLimitConfig config) {
+        return config != null && (config.getDailyQuota() > 0 || config.getMonthlyQuota() > 0);
+    }
+
+    /**
+     * Tells whether a call under a configuration would exceed one of its quotas.
+     *
+     * @param clientId the client identifier
+     * @param route    route of the configuration
+     * @param config   the active configuration
+     * @return {@code true} if the call must be rejected
+     */
+    public boolean isExhausted(String clientId, String route, RateLimitConfig config) {
+        if (!props.isEnabled()) {
+            return false;
+        }
+        LocalDate today = LocalDate.now(clock);
+        for (QuotaPeriod period : QuotaPeriod.values()) {
+            long quota = period.quotaOf(config);
+            if (quota > 0 && usage(clientId, route, period, today).used() >= quota) {
+                rejected.increment();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts an admitted call against the quotas of a configuration.
+     *
+     * @param clientId the client identifier
+     * @param route    route of the configuration
+     * @param config   the active configuration
+     */
+    public void record(String clientId, String route, RateLimitConfig config) {
+        if (!props.isEnabled()) {
+            return;
+        }
+        LocalDate today = LocalDate.now(clock);
+        for (QuotaPeriod period : QuotaPeriod.values()) {
+            if (period.quotaOf(config) > 0) {
+                usage(clientId, route, period, today).pending.increment();
+            }
+        }
+    }
+
+    /**
+     * Returns the calls counted against a quota in the current period, by all nodes as of the last flush plus
+     * this node's since.
+     *
+     * @param clientId the client identifier
+     * @param route    route of the configuration
+     * @param period   the quota period
+     * @return calls in the current period
+     */
+    public long used(String clientId, String route, QuotaPeriod period) {
+        Usage counter = usage.get(new UsageKey(clientId, route, period, period.start(LocalDate.now(clock))));
+        return counter != null ? counter.used() : 0;
+    }
+
+    /**
+     * Adds the calls counted since the last flush to this node's rows and reads back the usage of all nodes.
+     */
+    public synchronized void flush() {
+        List<UsageDelta> deltas = new ArrayList<>();
+        List<Usage> flushed = new ArrayList<>();
+        usage.forEach((key, counter) -> {
+            long calls = counter.pending.sumThenReset();
+            if (calls > 0) {
+                counter.inFlight = calls;
+                deltas.add(new UsageDelta(key, calls));
+                flushed.add(counter);
+            }
+        });
+
+        LocalDate today = LocalDate.now(clock);
+        try {
+            if (!deltas.isEmpty()) {
+                repository.addUsage(nodeId, deltas);
+            }
+            Map<UsageKey, Long> totals = repository.sumUsage(QuotaPeriod.DAILY.start(today), QuotaPeriod.MONTHLY.start(today));
+            this.totals = totals;
+            usage.forEach((key, counter) -> {
+                counter.aggregated = totals.getOrDefault(key, 0L);
+                counter.inFlight = 0;
+            });
+        } catch (DataAccessException e) {
+            flushFailures.increment();
+            log.warn("Failed to flush quota usage of {} counters: {}", deltas.size(), e.getMessage());
+            for (Usage counter : flushed) {
+                counter.pending.add(counter.inFlight);
+                counter.inFlight = 0;
+            }
+            return;
+        }
+
+        usage.entrySet().removeIf(entry -> !entry.getKey().periodStart().equals(entry.getKey().period().start(today))
+                && entry.getValue().pending.sum() == 0);
+        if (!today.equals(purgedOn)) {
+            purge(today);
+        }
+    }
+
+    /**
+     * Deletes the rows of periods that ended more than the retention ago. Rows of the current periods are kept.
+     */
+    private void purge(LocalDate today) {
+        LocalDate cutoff = today.minusDays(props.getRetention().toDays());
+        LocalDate dayStart = QuotaPeriod.DAILY.start(today);
+        LocalDate monthStart = QuotaPeriod.MONTHLY.start(today);
+        try {
+            int deleted = repository.deleteUsageBefore(cutoff.isBefore(dayStart) ? cutoff : dayStart,
+                    cutoff.isBefore(monthStart) ? cutoff : monthStart);
+            purgedOn = today;
+            log.debug("Deleted {} quota usage rows of periods before {}", deleted, cutoff);
+        } catch (DataAccessException e) {
+            log.warn("Failed to delete expired quota usage: {}", e.getMessage());
+        }
+    }
+
+    private Usage usage(String clientId, String route, QuotaPeriod period, LocalDate today) {
+        return usage.computeIfAbsent(new UsageKey(clientId, route, period, period.start(today)),
+                key -> new Usage(totals.getOrDefault(key, 0L)));
+    }
+
+    private static String defaultNodeId() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "unknown";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+
+    /**
+     * Counter of one quota in one period.
+     */
+    private static final class Usage {
+
+        /**
+         * Calls counted by this node since the last flush.
+         */
+        private final LongAdder pending = new LongAdder();
+
+        /**
+         * Calls being flushed, counted neither in {@link #pending} nor yet in {@link #aggregated}.
+         */
+        private volatile long inFlight;
+
+        /**
+         * Calls of all nodes as of the last flush.
+         */
+        private volatile long aggregated;
+
+        private Usage(long aggregated) {
+            this.aggregated = aggregated;
+        }
+
+        private long used() {
+            return aggregated + inFlight + pending.sum();
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package com.azoopindia.it.asi.traffic.manager.service;
+
+import com.azoopindia.it.asi.traffic.manager.exception.InputFieldNoLongerSupported;
+import com.azoopindia.it.asi.traffic.manager.infrastructure.RateLimitConfigBulkRepository;
+import com.azoopindia.it.asi.traffic.manager.kafka.model.RateLimitConfigChangeEvent.ConfigKey;
+import com.azoopindia.it.asi.traffic.manager.model.dto.BulkImportRowResult;
+import com.azoopindia.it.asi.traffic.manager.model.dto.BulkImportRowResult.Status;
+import com.azoopindia.it.asi.traffic.manager.model.dto.RateLimitConfigRequest;
+import com.azoopindia.it.asi.traffic.manager.validation.rulebook.ValidateDeprecatedFields;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Service for importing and exporting rate limit configurations in bulk.
+ * <p>
+ * Imports are streamed: input lines are parsed and validated as they arrive, grouped into chunks of
+ * {@code rate-limit.bulk.chunk-size} rows, and every chunk is written in a single transaction with JDBC batching
+ * through {@link RateLimitConfigBulkRepository}. A result is emitted for every input row as soon as its chunk is
+ * done, so memory use is bounded by the chunk size and not by the size of the upload.
+ * </p>
+ * <p>
+ * If the database rejects a chunk, the chunk is rolled back and its rows are retried one by one,
+ * so a single bad row only fails itself.
+ * </p>
+ * <p>
+ * Two input formats are supported:
+ * <ul>
+ *   <li><b>NDJSON</b> – one {@link RateLimitConfigRequest} JSON object per line.</li>
+ *   <li><b>CSV</b> – a header line naming the {@link RateLimitConfigRequest} JSON properties
+ *   (e.g. {@code clientID,route,maxTokensPerWindow,timeWindow,timeUnit,burstCapacity,priority,expirationDate,status,customAttributes}),
+ *   followed by one row per configuration. {@code customAttributes} is written as {@code key=value;key=value}.</li>
+ * </ul>
+ * </p>
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RateLimitConfigBulkService {
+
+    /**
+     * Supported import formats.
+     */
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    private static final String CUSTOM_ATTRIBUTES = "customAttributes";
+
+    private final RateLimitConfigBulkRepository bulkRepository;
+
+    private final ValidateDeprecatedFields deprecatedFieldsValidator;
+
+    private final RateLimitConfigChangePublisher changePublisher;
+
+    private final TransactionOperations transactionOperations;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Number of rows validated and written per transaction, and read per export page.
+     */
+    @Value("${rate-limit.bulk.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * Imports configurations from a stream of input lines.
+     *
+     * @param lines  the uploaded file, line by line
+     * @param format the format of the lines
+     * @return one result per non-blank input row, in input order
+     */
+    public Flux<BulkImportRowResult> importConfigs(Flux<String> lines, Format format) {
+        Flux<ParsedRow> rows = format == Format.CSV ? parseCsv(lines) : parseNdjson(lines);
+
+        return rows.buffer(chunkSize)
+                .concatMap(chunk -> Mono.fromCallable(() -> writeChunk(chunk))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .flatMapIterable(results -> results));
+    }
+
+    /**
+     * Streams all stored configurations in {@code (clientId, route)} order, one page at a time.
+     * The output can be fed back into {@link #importConfigs(Flux, Format)} as NDJSON.
+     *
+     * @return all configurations, including custom attributes
+     */
+    public Flux<RateLimitConfigRequest> exportConfigs() {
+        return Mono.fromCallable(() -> bulkRepository.findPageAfter(null, null, chunkSize))
+                .expand(page -> {
+                    if (page.size() < chunkSize) {
+                        return Mono.empty();
+                    }
+                    RateLimitConfigRequest last = page.get(page.size() - 1);
+                    return Mono.fromCallable(() -> bulkRepository.findPageAfter(last.getClientId(), last.getRoute(), chunkSize));
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .concatMapIterable(page -> page);
+    }
+
+    /**
+     * Parses NDJSON lines into validated rows. Blank lines are skipped.
+     */
+    private Flux<ParsedRow> parseNdjson(Flux<String> lines) {
+        return lines.index()
+                .filter(indexed -> StringUtils.hasText(indexed.getT2()))
+                .map(indexed -> {
+                    long line = indexed.getT1() + 1;
+                    try {
+                        return validate(line, objectMapper.readValue(indexed.getT2(), RateLimitConfigRequest.class));
+                    } catch (JsonProcessingException e) {
+                        return ParsedRow.rejected(line, null, "Malformed JSON: " + e.getOriginalMessage());
+                    }
+                });
+    }
+
+    /**
+     * Parses CSV lines into validated rows. The first non-blank line is the header; blank lines are skipped.
+     */
+    private Flux<ParsedRow> parseCsv(Flux<String> lines) {
+        return Flux.defer(() -> {
+            AtomicReference<List<String>> header = new AtomicReference<>();
+
+            return lines.index()
+                    .filter(indexed -> StringUtils.hasText(indexed.getT2()))
+                    .handle((indexed, sink) -> {
+                        List<String> cells = splitCsvLine(indexed.getT2());
+                        if (header.get() == null) {
+                            header.set(cells.stream().map(String::trim).toList());
+                            return;
+                        }
+                        sink.next(parseCsvRow(indexed.getT1() + 1, header.get(), cells));
+                    });
+        });
+    }
+
+    /**
+     * Converts one CSV row into a validated row, using the header names as {@link RateLimitConfigRequest} properties.
+     */
+    private ParsedRow parseCsvRow(long line, List<String> header, List<String> cells) {
+        if (cells.size() != header.size()) {
+            return ParsedRow.rejected(line, null,
+                    String.format("Expected %d columns but found %d", header.size(), cells.size()));
+        }
+
+        Map<String, Object> properties = new LinkedHashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String cell = cells.get(i).trim();
+            if (cell.isEmpty()) {
+                continue;
+            }
+            properties.put(header.get(i), CUSTOM_ATTRIBUTES.equals(header.get(i)) ? parseAttributes(cell) : cell);
+        }
+
+        try {
+            return validate(line, objectMapper.convertValue(properties, RateLimitConfigRequest.class));
+        } catch (IllegalArgumentException e) {
+            return ParsedRow.rejected(line, null, "Invalid value: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parses {@code key=value;key=value} into an ordered map.
+     */
+    private Map<String, String> parseAttributes(String cell) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        for (String pair : cell.split(";")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                attributes.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+            }
+        }
+        return attributes;
+    }
+
+    /**
+     * Splits a CSV line on commas, honouring double-quoted cells and {@code ""} escapes.
+     */
+    private List<String> splitCsvLine(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+
+    /**
+     * Applies the same rules a single registration is subject to, plus the checks needed
+     * for the row to build a valid bucket.
+     */
+    private ParsedRow validate(long line, RateLimitConfigRequest request) {
+        if (!StringUtils.hasText(request.getClientId()) || !StringUtils.hasText(request.getRoute())) {
+            return ParsedRow.rejected(line, request, "clientID and route are required");
+        }
+        if (!StringUtils.hasText(request.getStatus())) {
+            return ParsedRow.rejected(line, request, "status is required");
+        }
+        if (request.getTimeWindow() <= 0) {
+            return ParsedRow.rejected(line, request, "timeWindow must be positive");
+        }
+        try {
+            ChronoUnit.valueOf(String.valueOf(request.getTimeUnit()));
+        } catch (IllegalArgumentException e) {
+            return ParsedRow.rejected(line, request,
+                    String.format("timeUnit '%s' is not a valid ChronoUnit", request.getTimeUnit()));
+        }
+        try {
+            deprecatedFieldsValidator.validate(request);
+        } catch (InputFieldNoLongerSupported e) {
+            return ParsedRow.rejected(line, request, e.getMessage());
+        }
+        if (request.getMaxTokensPerWindow() <= 0) {
+            return ParsedRow.rejected(line, request, "maxTokensPerWindow must be positive");
+        }
+        if (request.getBurstCapacity() < 0) {
+            return ParsedRow.rejected(line, request, "burstCapacity must not be negative");
+        }
+        if (request.getDailyQuota() < 0 || request.getMonthlyQuota() < 0) {
+            return ParsedRow.rejected(line, request, "dailyQuota and monthlyQuota must not be negative");
+        }
+        return ParsedRow.valid(line, request);
+    }
+
+    /**
+     * Writes the valid rows of a chunk in one transaction and maps every row of the chunk to its result.
+     * Falls back to one transaction per row if the chunk as a whole is rejected by the database.
+     */
+    private List<BulkImportRowResult> writeChunk(List<ParsedRow> chunk) {
+        List<ParsedRow> valid = chunk.stream().filter(row -> row.getStatus() == null).toList();
+
+        if (!valid.isEmpty()) {
+            try {
+                write(valid);
+                valid.forEach(row -> row.setStatus(Status.UPSERTED));
+            } catch (DataAccessException chunkFailure) {
+                log.warn("Bulk chunk of {} rows failed, retrying row by row: {}", valid.size(), chunkFailure.getMessage());
+                for (ParsedRow row : valid) {
+                    try {
+                        write(List.of(row));
+                        row.setStatus(Status.UPSERTED);
+                    } catch (DataAccessException rowFailure) {
+                        row.setStatus(Status.FAILED);
+                        row.setMessage(rowFailure.getMostSpecificCause().getMessage());
+                    }
+                }
+            }
+        }
+
+        return chunk.stream().map(ParsedRow::toResult).toList();
+    }
+
+    /**
+     * Upserts the rows in one transaction and reports them as one change to the
+     * {@link RateLimitConfigChangePublisher}, which invalidates the matching buckets on all replicas once the
+     * transaction commits.
+     */
+    private void write(List<ParsedRow> rows) {
+        List<RateLimitConfigRequest> requests = rows.stream().map(ParsedRow::getRequest).toList();
+
+        transactionOperations.executeWithoutResult(tx -> {
+            bulkRepository.upsertAll(requests);
+            changePublisher.publishAll(requests.stream()
+                    .map(request -> new ConfigKey(request.getClientId(), request.getRoute()))
+                    .toList());
+        });
+    }
+
+    /**
+     * A parsed input row together with its outcome. A {@code null} status means valid but not yet written.
+     */
+    @Data
+    @AllArgsConstructor
+    private static class ParsedRow {
+        private final long line;
+        private final RateLimitConfigRequest request;
+        private Status status;
+        private String message;
+
+        static ParsedRow valid(long line, RateLimitConfigRequest request) {
+            return new ParsedRow(line, request, null, null);
+        }
+
+        static ParsedRow rejected(long line, RateLimitConfigRequest request, String message) {
+            return new ParsedRow(line, request, Status.REJECTED, message);
+        }
+
+        BulkImportRowResult toResult() {
+            return BulkImportRowResult.builder()
+                    .line(line)
+                    .clientId(request != null ? request.getClientId() : null)
+                    .route(request != null ? request.getRoute() : null)
+                    .status(status)
+                    .message(message)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.azoopindia.it.asi.traffic.manager.service;
+
+import com.azoopindia.it.asi.traffic.manager.kafka.helper.InstanceIdentity;
+import com.azoopindia.it.asi.traffic.manager.kafka.model.RateLimitConfigChangeEvent;
+import com.azoopindia.it.asi.traffic.manager.kafka.model.RateLimitConfigChangeEvent.ChangeType;
+import com.azoopindia.it.asi.traffic.manager.kafka.model.RateLimitConfigChangeEvent.ConfigKey;
+import com.azoopindia.it.asi.traffic.manager.kafka.service.producer.KafkaProducerService;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity.RateLimitConfig;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Broadcasts {@link RateLimitConfig} changes to every gateway replica.
+ *
+ * <p>Changes are reported by the JPA entity listener while the transaction is still open. They are
+ * re-published as Spring application events and only acted upon after the transaction commits, so a
+ * rolled-back write never invalidates a bucket. On commit the change is:</p>
+ * <ol>
+ *   <li>applied to this instance's {@link RateLimiterService} immediately, and</li>
+ *   <li>sent to the rate-limit sync Kafka topic, from which every other replica applies it
+ *   (see {@code RateLimitConfigChangeConsumer}).</li>
+ * </ol>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RateLimitConfigChangePublisher {
+
+    /**
+     * Identifier of this gateway instance, stamped on outgoing events so the instance can recognise
+     * and skip its own events when they come back from Kafka. Stable across restarts, see {@link InstanceIdentity}.
+     */
+    @Getter
+    private final String instanceId = InstanceIdentity.name();
+
+    private final ApplicationEventPublisher applicationEventPublisher;
+
+    private final RateLimiterService rateLimiterService;
+
+    private final KafkaProducerService kafkaProducerService;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Kafka topic shared by all gateway replicas for configuration change events.
+     */
+    @Value("${spring.apigateway.kafka.rate-limit-sync.topic}")
+    private String syncTopic;
+
+    /**
+     * Records a configuration change. Called from the JPA lifecycle, inside the writing transaction.
+     *
+     * @param config     the written or removed configuration
+     * @param changeType whether the configuration was written or removed
+     */
+    public void publish(RateLimitConfig config, ChangeType changeType) {
+        applicationEventPublisher.publishEvent(RateLimitConfigChangeEvent.builder()
+                .changeType(changeType)
+                .clientId(config.getClientId())
+                .route(config.getRoute())
+                .previousClientId(config.getLoadedClientId())
+                .previousRoute(config.getLoadedRoute())
+                .originInstanceId(instanceId)
+                .build());
+    }
+
+    /**
+     * Records the configurations written by one chunk of a bulk import as a single change, so the import costs
+     * one event per chunk rather than one per row. Called inside the writing transaction.
+     *
+     * @param keys the written client:route pairs
+     */
+    public void publishAll(List<ConfigKey> keys) {
+        applicationEventPublisher.publishEvent(RateLimitConfigChangeEvent.builder()
+                .changeType(ChangeType.UPSERT)
+                .keys(keys)
+                .originInstanceId(instanceId)
+                .build());
+    }
+
+    /**
+     * Applies a committed change locally and forwards it to the other replicas.
+     * Falls back to immediate execution when no transaction is active.
+     *
+     * @param event the committed change
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCommitted(RateLimitConfigChangeEvent event) {
+        event.setEmittedAt(System.currentTimeMillis());
+        rateLimiterService.applyConfigChange(event);
+
+        String key = event.getKeys() != null ? "bulk:" + instanceId : event.getClientId() + ":" + event.getRoute();
+        try {
+            kafkaProducerService.sendMsg(syncTopic, key, objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException ex) {
+            log.error("Failed to serialize rate limit config change for {}", key, ex);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.azoopindia.it.asi.traffic.manager.service;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.expiry.HierarchicalTimingWheel;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.expiry.HierarchicalTimingWheel.Timeout;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the expiry tasks of the rate limiter, such as evicting idle buckets and dropping expired configurations, off a
+ * {@link HierarchicalTimingWheel}.
+ * <p>
+ * Scheduling and cancelling a task costs O(1) whatever the number of pending tasks, so every bucket can carry its own
+ * idle check. The wheel advances once per {@code dynamic-routing.rate-limiting.wheel-tick} on a single daemon
+ * thread, and tasks run on that thread, at most one tick late. Delays longer than {@value #MAX_DELAY_DAYS} days run
+ * after that many days; tasks therefore check their own condition and reschedule themselves if it does not hold yet.
+ * </p>
+ *
+ * <p>Metrics: {@code gateway.ratelimit.buckets.evicted} and {@code gateway.ratelimit.configs.expired}.</p>
+ */
+@Slf4j
+@Component
+public class RateLimitExpiryScheduler {
+
+    private static final long MAX_DELAY_DAYS = 365;
+
+    private static final Duration MAX_DELAY = Duration.ofDays(MAX_DELAY_DAYS);
+
+    private final DynamicRoutingProperties.RateLimiting props;
+
+    private final HierarchicalTimingWheel<Runnable> wheel;
+
+    private final Counter bucketsEvicted;
+
+    private final Counter configsExpired;
+
+    private ScheduledExecutorService ticker;
+
+    public RateLimitExpiryScheduler(DynamicRoutingProperties props, MeterRegistry meterRegistry) {
+        this.props = props.getRateLimiting();
+        this.wheel = new HierarchicalTimingWheel<>(this.props.getWheelTick().toNanos(), System.nanoTime());
+        this.bucketsEvicted = meterRegistry.counter("gateway.ratelimit.buckets.evicted");
+        this.configsExpired = meterRegistry.counter("gateway.ratelimit.configs.expired");
+    }
+
+    /**
+     * Starts advancing the wheel.
+     */
+    @PostConstruct
+    public void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long tick = props.getWheelTick().toNanos();
+        ticker.scheduleAtFixedRate(this::advance, tick, tick, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops advancing the wheel; pending tasks are discarded.
+     */
+    @PreDestroy
+    public void stop() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    /**
+     * Schedules a task.
+     *
+     * @param delay time after which the task runs
+     * @param task  the task
+     * @return a handle to {@link #cancel(Timeout) cancel} the task with
+     */
+    public Timeout<Runnable> schedule(Duration delay, Runnable task) {
+        long delayNanos = (delay.compareTo(MAX_DELAY) > 0 ? MAX_DELAY : delay).toNanos();
+        synchronized (wheel) {
+            return wheel.schedule(System.nanoTime() + delayNanos, task);
+        }
+    }
+
+    /**
+     * Cancels a task that has not run yet.
+     *
+     * @param handle handle returned by {@link #schedule}
+     */
+    public void cancel(Timeout<Runnable> handle) {
+        synchronized (wheel) {
+            wheel.cancel(handle);
+        }
+    }
+
+    /**
+     * @return number of pending tasks
+     */
+    public int pending() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    /**
+     * Counts a bucket evicted for being idle.
+     */
+    public void bucketEvicted() {
+        bucketsEvicted.increment();
+    }
+
+    /**
+     * Counts entries of the GCRA and sliding-window limiters swept for being idle, which are evicted buckets too.
+     *
+     * @param count number of entries
+     */
+    public void bucketsEvicted(int count) {
+        bucketsEvicted.increment(count);
+    }
+
+    /**
+     * Counts a configuration dropped at its expiration date.
+     */
+    public void configExpired() {
+        configsExpired.increment();
+    }
+
+    /**
+     * Advances the wheel to the current time and runs the tasks that became due, outside the wheel's lock so
+     * they can schedule again.
+     */
+    void advance() {
+        List<Runnable> due = new ArrayList<>();
+        synchronized (wheel) {
+            wheel.advance(System.nanoTime(), due::add);
+        }
+        for (Runnable task : due) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.warn("Rate-limit expiry task failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -1,19 +1,44 @@
 package com.azoopindia.it.asi.traffic.manager.service;
 
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
 import com.azoopindia.it.asi.traffic.manager.infrastructure.RateLimitConfigRepository;
+import com.azoopindia.it.asi.traffic.manager.kafka.model.RateLimitConfigChangeEvent;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.algorithm.GcraRateLimiter;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.algorithm.RateLimitKeys;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.algorithm.SegmentedRateLimiter;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.algorithm.SlidingWindowRateLimiter;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.algorithm.StripedTokenBucket;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity.RateLimitAlgorithm;
 import com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity.RateLimitConfig;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.expiry.HierarchicalTimingWheel.Timeout;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.snapshot.BucketState;
 import io.github.bucket4j.Bandwidth;
 import io.github.bucket4j.Bucket;
 import io.github.bucket4j.Bucket4j;
+import io.github.bucket4j.BucketConfiguration;
 import io.github.bucket4j.Refill;
+import io.github.bucket4j.TimeMeter;
+import io.github.bucket4j.TokensInheritanceStrategy;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Service responsible for handling rate limiting logic using {@link Bucket4j}.
@@ -23,16 +48,112 @@ import java.util.concurrent.ConcurrentMap;
  * This service supports caching for performance and provides methods to
  * retrieve or invalidate rate limiting configurations dynamically.
  * </p>
+ * <p>
+ * Active configurations are kept in an in-memory index so that request filtering does not
+ * hit the database. The index and the affected bucket are refreshed through
+ * {@link #applyConfigChange(RateLimitConfigChangeEvent)} whenever a configuration is changed on any
+ * gateway replica. Lookups expire after {@code dynamic-routing.rate-limiting.config-cache-ttl}, and the absence of
+ * a configuration is cached for at most {@code config-cache-size} pairs, so keys invented by clients cannot grow
+ * the index without bound.
+ * </p>
+ * <p>
+ * GraphQL calls can be limited per operation: a configuration whose route is
+ * {@code graphql:<operationName>} (e.g. {@code graphql:createMsgTemplate}) takes precedence over the
+ * configuration of the GraphQL endpoint path for that client. A configuration with the custom attribute
+ * {@code unlimited=true} exempts its calls from limiting.
+ * </p>
+ * <p>
+ * Per-client admission buckets live under the route {@value #ADMISSION_ROUTE}; without a configuration they
+ * allow {@code dynamic-routing.admission.requests-per-minute}. Admission runs on the event loop for every request,
+ * including those with unknown client ids, so its configurations are never looked up one by one: all of them are
+ * loaded at startup and reloaded every {@code dynamic-routing.admission.config-refresh-interval} on a background
+ * thread.
+ * </p>
+ * <p>
+ * A configuration selects its {@link RateLimitAlgorithm}. Token buckets are Bucket4j objects; {@code GCRA} and
+ * {@code SLIDING_WINDOW} keep a few primitive slots per client:route pair in open-addressing tables, which suits
+ * tenants with very many keys. Requests without a configuration always use a token bucket.
+ * </p>
+ * <p>
+ * A token-bucket configuration with the custom attribute {@code striped=true} is enforced by a
+ * {@link StripedTokenBucket} instead of a single bucket, for clients whose request rate makes one bucket a point
+ * of contention between event-loop threads.
+ * </p>
+ * <p>
+ * Daily and monthly call quotas of a configuration are enforced on top of its rate limit through
+ * {@link QuotaService}.
+ * </p>
+ * <p>
+ * Token buckets, single or striped, that have stayed full for {@code dynamic-routing.rate-limiting.idle-timeout}
+ * are evicted; the next request creates them full again, so eviction loses no state. A configuration stops applying
+ * at its expiration date, after which its calls get the default bandwidth. Both are scheduled on the
+ * {@link RateLimitExpiryScheduler}'s timing wheel. GCRA and sliding-window state is not evicted this way, as a
+ * scheduled task per key would outweigh the few slots that state takes; instead one task per idle timeout sweeps
+ * the keys whose TAT or window has passed.
+ * </p>
+ * <p>
+ * The tokens left in token buckets survive restarts through {@link BucketSnapshotService}: a restored bucket starts
+ * with its snapshot tokens plus the refill for the time since, instead of full.
+ * </p>
  */
+@Slf4j
 @Service("rateLimiterService")
 public class RateLimiterService {
 
+    /**
+     * Requests per minute allowed when no active configuration exists.
+     */
+    public static final long DEFAULT_REQUESTS_PER_MINUTE = 100;
+
+    /**
+     * Route prefix of configurations that target a single GraphQL operation.
+     */
+    public static final String GRAPHQL_OPERATION_ROUTE_PREFIX = "graphql:";
+
+    /**
+     * Custom attribute that, set to {@code true}, exempts a configuration's calls from limiting.
+     */
+    public static final String UNLIMITED_ATTRIBUTE = "unlimited";
+
+    /**
+     * Custom attribute that, set to {@code true}, enforces a token-bucket configuration with a striped bucket.
+     */
+    public static final String STRIPED_ATTRIBUTE = "striped";
+
+    /**
+     * Route of the client-level buckets checked by the early admission stage.
+     */
+    public static final String ADMISSION_ROUTE = "*";
+
+    /**
+     * Number of independently locked segments of the GCRA and sliding-window limiters.
+     */
+    private static final int LIMITER_SEGMENTS = 64;
+
     /**
      * Repository to retrieve rate limit configurations from MongoDB.
      */
     @Autowired
     private RateLimitConfigRepository configRepository;
 
+    /**
+     * Routing properties, providing the default limit of admission buckets.
+     */
+    @Autowired
+    private DynamicRoutingProperties routingProperties;
+
+    /**
+     * Accounting of the daily and monthly quotas of configurations.
+     */
+    @Autowired
+    private QuotaService quotaService;
+
+    /**
+     * Timing wheel running the idle-bucket evictions and configuration expiries.
+     */
+    @Autowired
+    private RateLimitExpiryScheduler expiryScheduler;
+
     /**
      * Cache that stores rate limiter buckets for each client:route pair.
      */
@@ -45,6 +166,155 @@ public class RateLimiterService {
     @Getter
     private final ConcurrentMap<String, Long> configCache = new ConcurrentHashMap<>();
 
+    /**
+     * Index of active configurations per client:route pair, except {@link #ADMISSION_ROUTE}. An entry without
+     * a configuration records that none exists, so the default bandwidth applies.
+     */
+    private final ConcurrentMap<String, IndexedConfig> configIndex = new ConcurrentHashMap<>();
+
+    /**
+     * Active {@link #ADMISSION_ROUTE} configurations per client, reloaded in the background.
+     */
+    private final ConcurrentMap<String, RateLimitConfig> admissionConfigs = new ConcurrentHashMap<>();
+
+    /**
+     * Pending expiry per client:route pair, so reloading a configuration does not schedule its expiry again.
+     */
+    private final ConcurrentMap<String, ScheduledExpiry> expiries = new ConcurrentHashMap<>();
+
+    /**
+     * Thread reloading {@link #admissionConfigs} and sweeping expired {@link #configIndex} entries.
+     */
+    private ScheduledExecutorService configRefresher;
+
+    /**
+     * State of the client:route pairs limited by {@link RateLimitAlgorithm#GCRA}.
+     */
+    @Getter
+    private final SegmentedRateLimiter gcraLimiter = new GcraRateLimiter(LIMITER_SEGMENTS);
+
+    /**
+     * State of the client:route pairs limited by {@link RateLimitAlgorithm#SLIDING_WINDOW}.
+     */
+    @Getter
+    private final SegmentedRateLimiter slidingWindowLimiter = new SlidingWindowRateLimiter(LIMITER_SEGMENTS);
+
+    /**
+     * Striped buckets of the client:route pairs whose configuration carries {@code striped=true}.
+     */
+    @Getter
+    private final ConcurrentMap<String, StripedTokenBucket> stripedBucketCache = new ConcurrentHashMap<>();
+
+    /**
+     * Bucket state read from a snapshot, per client:route pair, until the pair's bucket is created from it.
+     */
+    private final ConcurrentMap<String, BucketState> restoredStates = new ConcurrentHashMap<>();
+
+    /**
+     * Indexed result of a configuration lookup.
+     *
+     * @param config    the active configuration, or {@code null} if there is none
+     * @param expiresAt {@link System#nanoTime()} after which the lookup is repeated
+     */
+    private record IndexedConfig(RateLimitConfig config, long expiresAt) {
+    }
+
+    /**
+     * Pending expiry of a client:route pair.
+     *
+     * @param expirationDate the date it fires at
+     * @param handle         the wheel task, to cancel it when the date moves
+     */
+    private record ScheduledExpiry(LocalDateTime expirationDate, Timeout<Runnable> handle) {
+    }
+
+    /**
+     * Loads the admission configurations and starts reloading them, and sweeping the configuration index,
+     * in the background.
+     */
+    @PostConstruct
+    public void start() {
+        if (configRefresher != null) {
+            return;
+        }
+        if (routingProperties.getAdmission().isEnabled()) {
+            refreshAdmissionConfigs();
+        }
+        scheduleLimiterSweep();
+        configRefresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limit-config-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = routingProperties.getAdmission().getConfigRefreshInterval().toMillis();
+        configRefresher.scheduleWithFixedDelay(() -> {
+            if (routingProperties.getAdmission().isEnabled()) {
+                refreshAdmissionConfigs();
+            }
+            sweepConfigIndex();
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the background reload.
+     */
+    @PreDestroy
+    public void stop() {
+        if (configRefresher != null) {
+            configRefresher.shutdownNow();
+        }
+    }
+
+    /**
+     * Reloads the active {@link #ADMISSION_ROUTE} configurations of all clients and applies those that changed
+     * to their buckets. A failed reload keeps the configurations loaded before.
+     */
+    void refreshAdmissionConfigs() {
+        Map<String, RateLimitConfig> loaded = new HashMap<>();
+        try {
+            for (RateLimitConfig config : configRepository.findByRouteAndStatus(ADMISSION_ROUTE, "ACTIVE")) {
+                if (config.getExpirationDate() == null || config.getExpirationDate().isAfter(LocalDateTime.now())) {
+                    loaded.putIfAbsent(config.getClientId(), config);
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Failed to reload admission rate-limit configurations: {}", e.getMessage());
+            return;
+        }
+        loaded.forEach((clientId, config) -> {
+            RateLimitConfig previous = admissionConfigs.put(clientId, config);
+            if (!sameConfig(previous, config) && activeConfig(clientId, ADMISSION_ROUTE, config) != null) {
+                applyConfig(clientId, ADMISSION_ROUTE, config);
+            }
+        });
+        admissionConfigs.keySet().removeIf(clientId -> {
+            if (loaded.containsKey(clientId)) {
+                return false;
+            }
+            applyConfig(clientId, ADMISSION_ROUTE, null);
+            return true;
+        });
+    }
+
+    /**
+     * Schedules the next sweep of idle GCRA and sliding-window state, one idle timeout from now.
+     */
+    private void scheduleLimiterSweep() {
+        expiryScheduler.schedule(routingProperties.getRateLimiting().getIdleTimeout(), () -> {
+            long now = System.nanoTime();
+            expiryScheduler.bucketsEvicted(gcraLimiter.sweep(now) + slidingWindowLimiter.sweep(now));
+            scheduleLimiterSweep();
+        });
+    }
+
+    /**
+     * Removes expired entries from the configuration index.
+     */
+    void sweepConfigIndex() {
+        long now = System.nanoTime();
+        configIndex.values().removeIf(indexed -> now - indexed.expiresAt() >= 0);
+    }
+
     /**
      * Resolves the {@link Bucket} associated with the given client and route.
      * If a bucket does not exist in the cache, it will be created and cached.
@@ -61,15 +331,236 @@ public class RateLimiterService {
 
             RateLimitConfig config = findConfig(clientId, route);
             if (config != null) {
-                long rpm = config.getRequestsPerMinute();
-                long burst = Math.max(0, config.getBurstCapacity());
-                configCache.put(cacheKey, rpm + burst);
+                configCache.put(cacheKey, capacity(config, DEFAULT_REQUESTS_PER_MINUTE));
             }
 
+            scheduleIdleCheck(cacheKey, route, bucket);
             return bucket;
         });
     }
 
+    /**
+     * Tries to consume a number of tokens from the bucket of the given client and route.
+     * <p>
+     * A request for more tokens than the bucket can ever hold is capped at the bucket's capacity, so an expensive
+     * request drains a full bucket instead of being rejected forever. At least one token is always consumed.
+     * </p>
+     * <p>
+     * If the configuration defines daily or monthly quotas, a call over quota is rejected before any tokens are
+     * consumed, and an admitted call is counted against the quotas.
+     * </p>
+     *
+     * @param clientId The client identifier.
+     * @param route    The route/path being accessed.
+     * @param tokens   The number of tokens the request costs.
+     * @return {@code true} if the tokens were consumed and the request may proceed.
+     */
+    public boolean tryConsume(String clientId, String route, long tokens) {
+        RateLimitConfig config = findConfig(clientId, route);
+        if (isUnlimited(config)) {
+            return true;
+        }
+        if (!QuotaService.hasQuota(config)) {
+            return tryConsume(clientId, route, config, tokens);
+        }
+        if (quotaService.isExhausted(clientId, route, config)) {
+            return false;
+        }
+        boolean consumed = tryConsume(clientId, route, config, tokens);
+        if (consumed) {
+            quotaService.record(clientId, route, config);
+        }
+        return consumed;
+    }
+
+    /**
+     * Consumes tokens with the algorithm and bucket layout of a configuration.
+     *
+     * @param clientId The client identifier.
+     * @param route    The route/path being accessed.
+     * @param config   The active configuration, or {@code null}.
+     * @param tokens   The number of tokens the request costs.
+     * @return {@code true} if the tokens were consumed.
+     */
+    private boolean tryConsume(String clientId, String route, RateLimitConfig config, long tokens) {
+        RateLimitAlgorithm algorithm = algorithm(config);
+        if (algorithm != RateLimitAlgorithm.TOKEN_BUCKET) {
+            long capacity = capacity(config, defaultRequestsPerMinute(route));
+            return limiterFor(algorithm).tryAcquire(RateLimitKeys.hash(clientId, route), System.nanoTime(),
+                    tokensToConsume(tokens, capacity), capacity, windowNanos(config), tokensPerWindow(config)) == 0;
+        }
+        if (isStriped(config)) {
+            StripedTokenBucket striped = stripedBucketCache.computeIfAbsent(clientId + ":" + route, k -> {
+                StripedTokenBucket created = createStripedBucket(config, initialTokens(k, route, config));
+                scheduleIdleCheck(k, created);
+                return created;
+            });
+            return striped.tryConsume(tokensToConsume(tokens, striped.capacity()));
+        }
+        Bucket bucket = resolveBucket(clientId, route);
+        long capacity = configCache.getOrDefault(clientId + ":" + route, defaultRequestsPerMinute(route));
+        return bucket.tryConsume(tokensToConsume(tokens, capacity));
+    }
+
+    /**
+     * Returns the algorithm a configuration is enforced with.
+     *
+     * @param config The active configuration, or {@code null}.
+     * @return The configured algorithm, {@link RateLimitAlgorithm#TOKEN_BUCKET} if there is none.
+     */
+    public static RateLimitAlgorithm algorithm(RateLimitConfig config) {
+        return config == null || config.getAlgorithm() == null ? RateLimitAlgorithm.TOKEN_BUCKET : config.getAlgorithm();
+    }
+
+    /**
+     * Tells whether calls under a configuration are limited by the single bucket {@link #resolveBucket} returns.
+     * Otherwise {@link #tryConsume} has to be used, which also covers the other algorithms and striped buckets.
+     *
+     * @param config The active configuration, or {@code null}.
+     * @return {@code true} for token-bucket configurations that are neither striped nor have quotas.
+     */
+    public static boolean hasSingleBucket(RateLimitConfig config) {
+        return algorithm(config) == RateLimitAlgorithm.TOKEN_BUCKET && !isStriped(config) && !QuotaService.hasQuota(config);
+    }
+
+    /**
+     * Tells whether a configuration is enforced with a {@link StripedTokenBucket}.
+     *
+     * @param config The active configuration, or {@code null}.
+     * @return {@code true} if the configuration is a token bucket and carries {@code striped=true}.
+     */
+    public static boolean isStriped(RateLimitConfig config) {
+        return config != null
+                && algorithm(config) == RateLimitAlgorithm.TOKEN_BUCKET
+                && config.getCustomAttributes() != null
+                && Boolean.parseBoolean(config.getCustomAttributes().get(STRIPED_ATTRIBUTE));
+    }
+
+    /**
+     * Creates the striped bucket of a configuration.
+     *
+     * @param config        The active configuration.
+     * @param initialTokens Tokens available at creation.
+     * @return A new striped bucket.
+     */
+    private StripedTokenBucket createStripedBucket(RateLimitConfig config, long initialTokens) {
+        DynamicRoutingProperties.RateLimiting settings = routingProperties.getRateLimiting();
+        int stripes = settings.getStripes() > 0 ? settings.getStripes() : Runtime.getRuntime().availableProcessors();
+        return new StripedTokenBucket(capacity(config, DEFAULT_REQUESTS_PER_MINUTE), tokensPerWindow(config),
+                Duration.of(config.getTimeWindow(), ChronoUnit.valueOf(config.getTimeUnit())), initialTokens,
+                stripes, settings.getStripeTolerance(), TimeMeter.SYSTEM_MILLISECONDS);
+    }
+
+    /**
+     * Schedules the eviction of a bucket once it has been full for the idle timeout. A bucket that is not full
+     * by then is checked again after another idle timeout; a bucket no longer cached is left alone.
+     *
+     * @param cacheKey The client:route pair.
+     * @param route    The route/path, for the default capacity.
+     * @param bucket   The cached bucket.
+     */
+    private void scheduleIdleCheck(String cacheKey, String route, Bucket bucket) {
+        expiryScheduler.schedule(routingProperties.getRateLimiting().getIdleTimeout(), () -> {
+            boolean[] evicted = new boolean[1];
+            // atomic with computeIfAbsent, so a bucket created concurrently keeps its capacity entry
+            Bucket current = bucketCache.computeIfPresent(cacheKey, (k, cached) -> {
+                if (cached != bucket || bucket.getAvailableTokens()
+                        < configCache.getOrDefault(k, defaultRequestsPerMinute(route))) {
+                    return cached;
+                }
+                configCache.remove(k);
+                evicted[0] = true;
+                return null;
+            });
+            if (evicted[0]) {
+                expiryScheduler.bucketEvicted();
+            } else if (current == bucket) {
+                scheduleIdleCheck(cacheKey, route, bucket);
+            }
+        });
+    }
+
+    /**
+     * Schedules the eviction of a striped bucket once it has been full for the idle timeout.
+     *
+     * @param cacheKey The client:route pair.
+     * @param striped  The cached striped bucket.
+     */
+    private void scheduleIdleCheck(String cacheKey, StripedTokenBucket striped) {
+        expiryScheduler.schedule(routingProperties.getRateLimiting().getIdleTimeout(), () -> {
+            if (stripedBucketCache.get(cacheKey) != striped) {
+                return;
+            }
+            if (striped.availableTokens() >= striped.capacity() && stripedBucketCache.remove(cacheKey, striped)) {
+                expiryScheduler.bucketEvicted();
+            } else {
+                scheduleIdleCheck(cacheKey, striped);
+            }
+        });
+    }
+
+    /**
+     * Returns the length of a configuration's time window.
+     *
+     * @param config The configuration.
+     * @return The time window in nanoseconds.
+     */
+    public static long windowNanos(RateLimitConfig config) {
+        return Duration.of(config.getTimeWindow(), ChronoUnit.valueOf(config.getTimeUnit())).toNanos();
+    }
+
+    /**
+     * Returns the primitive limiter of an algorithm other than {@link RateLimitAlgorithm#TOKEN_BUCKET}.
+     *
+     * @param algorithm {@link RateLimitAlgorithm#GCRA} or {@link RateLimitAlgorithm#SLIDING_WINDOW}.
+     * @return The limiter holding the state of that algorithm.
+     */
+    private SegmentedRateLimiter limiterFor(RateLimitAlgorithm algorithm) {
+        return algorithm == RateLimitAlgorithm.GCRA ? gcraLimiter : slidingWindowLimiter;
+    }
+
+    /**
+     * Caps the cost of a request at the capacity of the bucket it is charged to; at least one token is charged.
+     *
+     * @param tokens   The number of tokens the request costs.
+     * @param capacity The capacity of the bucket.
+     * @return The number of tokens to consume.
+     */
+    public static long tokensToConsume(long tokens, long capacity) {
+        return Math.max(1, Math.min(tokens, capacity));
+    }
+
+    /**
+     * Resolves the route a GraphQL call is limited under: the operation's own route
+     * ({@code graphql:<operationName>}) if the client has an active configuration for it, otherwise the path.
+     *
+     * @param clientId      The client identifier.
+     * @param path          The request path.
+     * @param operationName The GraphQL operation name, or {@code null}.
+     * @return The route whose bucket the call is charged to.
+     */
+    public String resolveRoute(String clientId, String path, String operationName) {
+        if (operationName != null && !operationName.isBlank()) {
+            String operationRoute = GRAPHQL_OPERATION_ROUTE_PREFIX + operationName;
+            if (findConfig(clientId, operationRoute) != null) {
+                return operationRoute;
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Tells whether a configuration exempts its calls from limiting.
+     *
+     * @param config The active configuration, or {@code null}.
+     * @return {@code true} if the configuration carries {@code unlimited=true}.
+     */
+    public static boolean isUnlimited(RateLimitConfig config) {
+        return config != null
+                && config.getCustomAttributes() != null
+                && Boolean.parseBoolean(config.getCustomAttributes().get(UNLIMITED_ATTRIBUTE));
+    }
+
     /**
      * Creates a new {@link Bucket} using the provided clientId and route.
      * Falls back to a default configuration if no active config is found.
@@ -80,33 +571,276 @@ public class RateLimiterService {
      */
     private Bucket createNewBucket(String clientId, String route) {
         RateLimitConfig config = findConfig(clientId, route);
+        return Bucket.builder()
+                .addLimit(bandwidthFor(route, config).withInitialTokens(initialTokens(clientId + ":" + route, route, config)))
+                .build();
+    }
+
+    /**
+     * Returns the tokens a new bucket starts with: its capacity, or, if a snapshot holds state for the client:route
+     * pair, the tokens it had then plus the refill for the time since. The restored state is consumed.
+     *
+     * @param cacheKey The client:route pair.
+     * @param route    The route/path, for the default limit.
+     * @param config   The active configuration, or {@code null}.
+     * @return Initial tokens, at most the bucket's capacity.
+     */
+    private long initialTokens(String cacheKey, String route, RateLimitConfig config) {
+        long capacity = capacity(config, defaultRequestsPerMinute(route));
+        BucketState restored = restoredStates.isEmpty() ? null : restoredStates.remove(cacheKey);
+        if (restored == null) {
+            return capacity;
+        }
+        long now = System.currentTimeMillis();
+        return config == null
+                ? restored.refilledTokens(now, capacity, capacity, Duration.ofMinutes(1).toMillis())
+                : restored.refilledTokens(now, capacity, tokensPerWindow(config), windowNanos(config) / 1_000_000);
+    }
+
+    /**
+     * Captures the tokens left in all token buckets, single or striped, that are not full. State restored from
+     * a snapshot but not used yet is carried over.
+     *
+     * @return Bucket state per client:route pair.
+     */
+    public Map<String, BucketState> snapshotBucketStates() {
+        long now = System.currentTimeMillis();
+        Map<String, BucketState> states = new HashMap<>(restoredStates);
+        bucketCache.forEach((key, bucket) -> {
+            long available = bucket.getAvailableTokens();
+            long capacity = configCache.getOrDefault(key, defaultRequestsPerMinute(key.substring(key.indexOf(':') + 1)));
+            if (available < capacity) {
+                states.put(key, new BucketState(available, now));
+            }
+        });
+        stripedBucketCache.forEach((key, striped) -> {
+            long available = striped.availableTokens();
+            if (available < striped.capacity()) {
+                states.put(key, new BucketState(available, now));
+            }
+        });
+        return states;
+    }
+
+    /**
+     * Restores bucket state read from a snapshot. Each client:route pair's bucket is created from its state on
+     * first use; state not used within the idle timeout is dropped, like an idle bucket.
+     *
+     * @param states Bucket state per client:route pair.
+     */
+    public void restoreBucketStates(Map<String, BucketState> states) {
+        restoredStates.putAll(states);
+        expiryScheduler.schedule(routingProperties.getRateLimiting().getIdleTimeout(),
+                () -> states.forEach(restoredStates::remove));
+    }
+
+    /**
+     * Builds the {@link Bandwidth} for the given configuration.
+     * Falls back to the default of 100 requests per minute, or the admission default for
+     * {@link #ADMISSION_ROUTE}, when no configuration is given.
+     *
+     * @param route  The route/path the bucket belongs to.
+     * @param config The active configuration, or {@code null}.
+     * @return The bandwidth to enforce.
+     */
+    private Bandwidth bandwidthFor(String route, RateLimitConfig config) {
+        return bandwidth(config, defaultRequestsPerMinute(route));
+    }
+
+    /**
+     * Builds the {@link Bandwidth} a configuration enforces. Shared with the offline rate-limit simulator, so
+     * simulated buckets behave exactly like the gateway's.
+     *
+     * @param config                   The active configuration, or {@code null}.
+     * @param defaultRequestsPerMinute The limit applied when there is no configuration.
+     * @return The bandwidth to enforce.
+     */
+    public static Bandwidth bandwidth(RateLimitConfig config, long defaultRequestsPerMinute) {
         if (config == null) {
             // Default fallback config
-            return Bucket.builder()
-                    .addLimit(Bandwidth.classic(100, Refill.greedy(100, Duration.ofMinutes(1))))
-                    .build();
+            return Bandwidth.classic(defaultRequestsPerMinute, Refill.greedy(defaultRequestsPerMinute, Duration.ofMinutes(1)));
         }
 
-        long capacity = config.getRequestsPerMinute() + Math.max(0, config.getBurstCapacity());
         Duration duration = Duration.of(config.getTimeWindow(), ChronoUnit.valueOf(config.getTimeUnit()));
-        Refill refill = Refill.greedy(config.getRequestsPerMinute(), duration);
+        Refill refill = Refill.greedy(tokensPerWindow(config), duration);
 
-        return Bucket.builder()
-                .addLimit(Bandwidth.classic(capacity, refill))
-                .build();
+        return Bandwidth.classic(capacity(config, defaultRequestsPerMinute), refill);
+    }
+
+    /**
+     * Returns the number of tokens a bucket can hold: the tokens per window plus the burst capacity.
+     *
+     * @param config                   The active configuration, or {@code null}.
+     * @param defaultRequestsPerMinute The limit applied when there is no configuration.
+     * @return The bucket capacity.
+     */
+    public static long capacity(RateLimitConfig config, long defaultRequestsPerMinute) {
+        return config == null
+                ? defaultRequestsPerMinute
+                : tokensPerWindow(config) + Math.max(0, config.getBurstCapacity());
     }
 
     /**
-     * Finds the active {@link RateLimitConfig} for the given client and route.
+     * Returns the tokens a configuration refills per time window: {@code maxTokensPerWindow}, or the deprecated
+     * {@code requestsPerMinute} for configurations stored before it existed.
+     *
+     * @param config The configuration.
+     * @return Tokens per window.
+     */
+    @SuppressWarnings("deprecation")
+    public static long tokensPerWindow(RateLimitConfig config) {
+        return config.getMaxTokensPerWindow() > 0 ? config.getMaxTokensPerWindow() : config.getRequestsPerMinute();
+    }
+
+    /**
+     * Returns the limit of a route's buckets when no configuration exists.
+     *
+     * @param route The route/path.
+     * @return Requests per minute.
+     */
+    private long defaultRequestsPerMinute(String route) {
+        return ADMISSION_ROUTE.equals(route)
+                ? routingProperties.getAdmission().getRequestsPerMinute()
+                : DEFAULT_REQUESTS_PER_MINUTE;
+    }
+
+    /**
+     * Finds the active {@link RateLimitConfig} for the given client and route. Admission configurations are only
+     * read from memory; other lookups go to the database when they are not indexed or their entry has expired.
      *
      * @param clientId The client identifier.
      * @param route    The route/path.
      * @return The active {@link RateLimitConfig}, or {@code null} if not found.
      */
     private RateLimitConfig findConfig(String clientId, String route) {
-        return configRepository
-                .findFirstByClientIdAndRouteAndStatus(clientId, route, "ACTIVE")
-                .orElse(null);
+        if (ADMISSION_ROUTE.equals(route)) {
+            return admissionConfigs.get(clientId);
+        }
+        String cacheKey = clientId + ":" + route;
+        IndexedConfig indexed = configIndex.get(cacheKey);
+        if (indexed != null && System.nanoTime() - indexed.expiresAt() < 0) {
+            return indexed.config();
+        }
+        RateLimitConfig config = loadConfig(clientId, route).orElse(null);
+        index(cacheKey, config);
+        return config;
+    }
+
+    /**
+     * Indexes the result of a lookup. The absence of a configuration is not indexed once the index is full.
+     *
+     * @param cacheKey The client:route pair.
+     * @param config   The active configuration, or {@code null}.
+     */
+    private void index(String cacheKey, RateLimitConfig config) {
+        DynamicRoutingProperties.RateLimiting settings = routingProperties.getRateLimiting();
+        if (config == null && configIndex.size() >= settings.getConfigCacheSize() && !configIndex.containsKey(cacheKey)) {
+            return;
+        }
+        configIndex.put(cacheKey, new IndexedConfig(config, System.nanoTime() + settings.getConfigCacheTtl().toNanos()));
+    }
+
+    /**
+     * Returns the configuration currently in effect for a client:route pair, without loading it.
+     *
+     * @param clientId The client identifier.
+     * @param route    The route/path.
+     * @return The indexed configuration, or {@code null}.
+     */
+    private RateLimitConfig indexedConfig(String clientId, String route) {
+        if (ADMISSION_ROUTE.equals(route)) {
+            return admissionConfigs.get(clientId);
+        }
+        IndexedConfig indexed = configIndex.get(clientId + ":" + route);
+        return indexed != null ? indexed.config() : null;
+    }
+
+    /**
+     * Loads the active configuration for a client:route pair.
+     *
+     * @param clientId The client identifier.
+     * @param route    The route/path.
+     * @return The active, unexpired configuration, if any.
+     */
+    private Optional<RateLimitConfig> loadConfig(String clientId, String route) {
+        return configRepository.findFirstByClientIdAndRouteAndStatus(clientId, route, "ACTIVE")
+                .map(config -> activeConfig(clientId, route, config));
+    }
+
+    /**
+     * Checks a loaded configuration's expiration date. A configuration past it is treated as absent; one that
+     * expires later is scheduled to be refreshed at that date.
+     *
+     * @param clientId The client identifier.
+     * @param route    The route/path.
+     * @param config   The loaded configuration.
+     * @return The configuration, or {@code null} if it has expired.
+     */
+    private RateLimitConfig activeConfig(String clientId, String route, RateLimitConfig config) {
+        if (config.getExpirationDate() == null) {
+            ScheduledExpiry scheduled = expiries.remove(clientId + ":" + route);
+            if (scheduled != null) {
+                expiryScheduler.cancel(scheduled.handle());
+            }
+            return config;
+        }
+        Duration remaining = Duration.between(LocalDateTime.now(), config.getExpirationDate());
+        if (remaining.isNegative() || remaining.isZero()) {
+            return null;
+        }
+        scheduleExpiry(clientId, route, config.getExpirationDate(), remaining);
+        return config;
+    }
+
+    /**
+     * Schedules the refresh of a client:route pair at its configuration's expiration date, which drops the
+     * configuration. A pair has at most one pending expiry: it is kept while the date is unchanged and replaced
+     * when the date moves.
+     *
+     * @param clientId       The client identifier.
+     * @param route          The route/path.
+     * @param expirationDate The configuration's expiration date.
+     * @param remaining      Time until the configuration expires.
+     */
+    private void scheduleExpiry(String clientId, String route, LocalDateTime expirationDate, Duration remaining) {
+        expiries.compute(clientId + ":" + route, (key, scheduled) -> {
+            if (scheduled != null) {
+                if (scheduled.expirationDate().equals(expirationDate)) {
+                    return scheduled;
+                }
+                expiryScheduler.cancel(scheduled.handle());
+            }
+            return new ScheduledExpiry(expirationDate,
+                    expiryScheduler.schedule(remaining, () -> expire(clientId, route, expirationDate)));
+        });
+    }
+
+    /**
+     * Drops the indexed configuration of a client:route pair if it has expired, else waits for its date again.
+     */
+    private void expire(String clientId, String route, LocalDateTime expirationDate) {
+        expiries.computeIfPresent(clientId + ":" + route,
+                (key, scheduled) -> scheduled.expirationDate().equals(expirationDate) ? null : scheduled);
+        RateLimitConfig config = indexedConfig(clientId, route);
+        if (config == null || config.getExpirationDate() == null) {
+            return;
+        }
+        Duration left = Duration.between(LocalDateTime.now(), config.getExpirationDate());
+        if (!left.isNegative() && !left.isZero()) {
+            scheduleExpiry(clientId, route, config.getExpirationDate(), left);
+            return;
+        }
+        refreshConfig(clientId, route);
+        expiryScheduler.configExpired();
+    }
+
+    /**
+     * Tells whether two loaded configurations are the same version of the same row. Admission reloads replace
+     * the indexed instance even when the row is unchanged.
+     */
+    private static boolean sameConfig(RateLimitConfig indexed, RateLimitConfig config) {
+        return indexed == config || indexed != null && Objects.equals(indexed.getId(), config.getId())
+                && Objects.equals(indexed.getUpdatedAt(), config.getUpdatedAt());
     }
 
     /**
@@ -122,7 +856,8 @@ public class RateLimiterService {
 
     /**
      * Invalidates the cached bucket and config values for a specific client:route pair.
-     * Useful when configurations change dynamically and must be refreshed.
+     * Useful when configurations change dynamically and must be refreshed. Admission configurations stay loaded
+     * until the next reload.
      *
      * @param clientId The client identifier.
      * @param route    The route/path.
@@ -130,5 +865,120 @@ public class RateLimiterService {
     public void invalidateCache(String clientId, String route) {
         bucketCache.remove(clientId + ":" + route);
         configCache.remove(clientId + ":" + route);
+        configIndex.remove(clientId + ":" + route);
+        stripedBucketCache.remove(clientId + ":" + route);
+        long key = RateLimitKeys.hash(clientId, route);
+        gcraLimiter.remove(key);
+        slidingWindowLimiter.remove(key);
+    }
+
+    /**
+     * Re-reads the active configuration for a client:route pair and applies it to the cached bucket in place.
+     * <p>
+     * Tokens already consumed from the bucket are preserved ({@link TokensInheritanceStrategy#ADDITIVE}),
+     * so a configuration change never hands out a fresh burst. If no bucket is cached yet,
+     * only the configuration index is updated and the bucket is built on first use.
+     * GCRA, sliding-window and striped-bucket state is likewise kept and read under the new limits, unless the
+     * configuration switched to another algorithm, in which case the state of the previous one is dropped.
+     * </p>
+     *
+     * @param clientId The client identifier.
+     * @param route    The route/path.
+     */
+    public void refreshConfig(String clientId, String route) {
+        RateLimitConfig config = loadConfig(clientId, route).orElse(null);
+        if (ADMISSION_ROUTE.equals(route)) {
+            if (config != null) {
+                admissionConfigs.put(clientId, config);
+            } else {
+                admissionConfigs.remove(clientId);
+            }
+        } else {
+            configIndex.remove(clientId + ":" + route);
+            index(clientId + ":" + route, config);
+        }
+        applyConfig(clientId, route, config);
+    }
+
+    /**
+     * Applies a configuration to the state cached for a client:route pair, as described for
+     * {@link #refreshConfig}.
+     *
+     * @param clientId The client identifier.
+     * @param route    The route/path.
+     * @param config   The active configuration, or {@code null}.
+     */
+    private void applyConfig(String clientId, String route, RateLimitConfig config) {
+        String cacheKey = clientId + ":" + route;
+        RateLimitAlgorithm algorithm = algorithm(config);
+        long key = RateLimitKeys.hash(clientId, route);
+        if (algorithm != RateLimitAlgorithm.GCRA) {
+            gcraLimiter.remove(key);
+        }
+        if (algorithm != RateLimitAlgorithm.SLIDING_WINDOW) {
+            slidingWindowLimiter.remove(key);
+        }
+        StripedTokenBucket striped = stripedBucketCache.remove(cacheKey);
+        if (striped != null && isStriped(config)) {
+            // same inheritance as for single buckets: the consumed tokens stay consumed
+            long newCapacity = capacity(config, DEFAULT_REQUESTS_PER_MINUTE);
+            long available = striped.availableTokens() + newCapacity - striped.capacity();
+            StripedTokenBucket replacement = createStripedBucket(config, available);
+            stripedBucketCache.put(cacheKey, replacement);
+            scheduleIdleCheck(cacheKey, replacement);
+        }
+
+        Bucket bucket = bucketCache.get(cacheKey);
+        if (bucket == null) {
+            configCache.remove(cacheKey);
+            return;
+        }
+
+        bucket.replaceConfiguration(
+                BucketConfiguration.builder().addLimit(bandwidthFor(route, config)).build(),
+                TokensInheritanceStrategy.ADDITIVE);
+
+        if (config != null) {
+            configCache.put(cacheKey, capacity(config, DEFAULT_REQUESTS_PER_MINUTE));
+        } else {
+            configCache.remove(cacheKey);
+        }
+    }
+
+    /**
+     * Applies a configuration change reported by this or another gateway instance.
+     * Refreshes the bucket under the new key and, if the change moved the configuration
+     * to a different client/route, also the bucket under the previous key. For a bulk import, see
+     * {@link #applyBulkChange}.
+     *
+     * @param event The committed configuration change.
+     */
+    public void applyConfigChange(RateLimitConfigChangeEvent event) {
+        if (event.getKeys() != null) {
+            event.getKeys().forEach(key -> applyBulkChange(key.clientId(), key.route()));
+            return;
+        }
+        refreshConfig(event.getClientId(), event.getRoute());
+        if (event.isRekeyed()) {
+            refreshConfig(event.getPreviousClientId(), event.getPreviousRoute());
+        }
+    }
+
+    /**
+     * Applies a configuration written by a bulk import. Only pairs holding a bucket are refreshed right away, so
+     * their consumed tokens carry over; any other pair just forgets its indexed configuration and loads the new
+     * one on its next request, so an import does not cost every replica one query per row.
+     *
+     * @param clientId The client identifier.
+     * @param route    The route/path.
+     */
+    private void applyBulkChange(String clientId, String route) {
+        String cacheKey = clientId + ":" + route;
+        if (ADMISSION_ROUTE.equals(route) || bucketCache.containsKey(cacheKey) || stripedBucketCache.containsKey(cacheKey)) {
+            refreshConfig(clientId, route);
+        } else {
+            configIndex.remove(cacheKey);
+            configCache.remove(cacheKey);
+        }
     }
 }
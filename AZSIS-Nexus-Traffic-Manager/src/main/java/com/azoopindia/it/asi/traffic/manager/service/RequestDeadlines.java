@@ -0,0 +1,124 @@
+package com.azoopindia.it.asi.traffic.manager.service;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Applies timeouts to routed calls and propagates their absolute deadline to the services.
+ * <p>
+ * The universal router runs every call it forwards through {@link #forward}: a call whose deadline has already
+ * passed is refused with {@code 504 Gateway Timeout} without reaching the service; any other call is forwarded with
+ * its deadline in the {@code dynamic-routing.deadlines.header} header and cancelled with {@code 504} once the
+ * deadline passes, which also closes the connection to the service.
+ * </p>
+ * <p>
+ * The absolute deadline is only as good as the agreement between the gateway's and the service's clocks, so calls
+ * also carry the time left in the {@code dynamic-routing.deadlines.timeout-header} header. Services should take the
+ * deadline as their arrival time plus that timeout, which is off by the network delay only, and fall back to the
+ * absolute deadline for callers that do not send it.
+ * </p>
+ * <p>
+ * Deadlines are applied outside the service's circuit breaker, so an expired call counts as cancelled rather than
+ * failed; otherwise a client sending short deadlines could open a breaker for everyone.
+ * </p>
+ */
+@Slf4j
+@Component
+public class RequestDeadlines {
+
+    private final DynamicRoutingProperties.Deadlines props;
+
+    private final Counter expiredOnArrival;
+
+    private final Counter exceeded;
+
+    public RequestDeadlines(DynamicRoutingProperties props, MeterRegistry meterRegistry) {
+        this.props = props.getDeadlines();
+        this.expiredOnArrival = meterRegistry.counter("gateway.deadline.expired.on.arrival");
+        this.exceeded = meterRegistry.counter("gateway.deadline.exceeded");
+    }
+
+    /**
+     * Runs a routed call under its deadline.
+     *
+     * @param exchange      the current exchange
+     * @param serviceId     the service the call is routed to
+     * @param operationName the GraphQL operation name, or {@code null} for REST calls
+     * @param call          the routed call, given the exchange that carries the deadline header
+     * @return a Mono completing with the call, or failing with a {@code 504} {@link ResponseStatusException}
+     */
+    public Mono<Void> forward(ServerWebExchange exchange, String serviceId, String operationName,
+                              Function<ServerWebExchange, Mono<Void>> call) {
+        if (!props.isEnabled()) {
+            return call.apply(exchange);
+        }
+
+        long now = System.currentTimeMillis();
+        long deadline = deadlineFor(exchange.getRequest(), serviceId, operationName, now);
+        long remaining = deadline - now;
+        if (remaining <= 0) {
+            expiredOnArrival.increment();
+            log.debug("Refusing call to '{}', its deadline passed {} ms ago", serviceId, -remaining);
+            return Mono.error(new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Request deadline has already passed"));
+        }
+
+        ServerWebExchange withDeadline = exchange.mutate()
+                .request(request -> request.headers(headers -> {
+                    headers.set(props.getHeader(), Long.toString(deadline));
+                    headers.set(props.getTimeoutHeader(), Long.toString(remaining));
+                }))
+                .build();
+        return call.apply(withDeadline)
+                .timeout(Duration.ofMillis(remaining), Mono.defer(() -> {
+                    exceeded.increment();
+                    log.warn("Call to '{}' exceeded its deadline after {} ms", serviceId, remaining);
+                    return Mono.error(new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Request deadline exceeded"));
+                }));
+    }
+
+    /**
+     * Computes the deadline of a call: its start plus its timeout, or the client's deadline if that is earlier.
+     *
+     * @param request       the incoming request, possibly carrying the client's deadline
+     * @param serviceId     the service the call is routed to
+     * @param operationName the GraphQL operation name, or {@code null}
+     * @param nowMillis     the call's start in epoch milliseconds
+     * @return the deadline in epoch milliseconds
+     */
+    public long deadlineFor(ServerHttpRequest request, String serviceId, String operationName, long nowMillis) {
+        long deadline = nowMillis + timeoutFor(serviceId, operationName).toMillis();
+        String requested = request.getHeaders().getFirst(props.getHeader());
+        if (requested != null) {
+            try {
+                deadline = Math.min(deadline, Long.parseLong(requested.trim()));
+            } catch (NumberFormatException e) {
+                log.debug("Ignoring malformed {} header: {}", props.getHeader(), requested);
+            }
+        }
+        return deadline;
+    }
+
+    /**
+     * @param serviceId     the service the call is routed to
+     * @param operationName the GraphQL operation name, or {@code null}
+     * @return the operation's timeout, else the service's, else the default one
+     */
+    public Duration timeoutFor(String serviceId, String operationName) {
+        Duration timeout = operationName != null ? props.getOperations().get(operationName) : null;
+        if (timeout == null && serviceId != null) {
+            timeout = props.getServices().get(serviceId.toLowerCase());
+        }
+        return timeout != null ? timeout : props.getDefaultTimeout();
+    }
+}
@@ -0,0 +1,141 @@
+package com.azoopindia.it.asi.traffic.manager.service;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.azoopindia.it.asi.traffic.manager.model.dto.RoutingTableSnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Keeps the last known routing table on local disk, so the gateway can route before and without discovery.
+ * <p>
+ * {@code DynamicUniversalRoutingFilter} {@link #record records} every table discovery produces; a table that differs
+ * from the last one is written to {@code dynamic-routing.routing-snapshot.file}, replacing it atomically. At startup
+ * the filter {@link #load loads} the table and routes from it immediately. Until a discovery refresh succeeds, and
+ * whenever one fails, the load balancer gets the instances of a service from the table if discovery returns none
+ * ({@link #fallbackInstances(String)}).
+ * </p>
+ */
+@Slf4j
+@Component
+public class RoutingTableSnapshotStore {
+
+    private final DynamicRoutingProperties.RoutingSnapshot props;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private volatile RoutingTableSnapshot current;
+
+    /**
+     * Whether the last discovery refresh succeeded; until then the snapshot stands in for discovery.
+     */
+    private volatile boolean discoveryAvailable;
+
+    public RoutingTableSnapshotStore(DynamicRoutingProperties props) {
+        this.props = props.getRoutingSnapshot();
+    }
+
+    /**
+     * Reads the routing table written by the previous run.
+     *
+     * @return the table, or empty if snapshots are disabled or none could be read
+     */
+    public Optional<RoutingTableSnapshot> load() {
+        Path file = Path.of(props.getFile());
+        if (!props.isEnabled() || !Files.exists(file)) {
+            return Optional.empty();
+        }
+        try {
+            RoutingTableSnapshot snapshot = mapper.readValue(file.toFile(), RoutingTableSnapshot.class);
+            if (snapshot.getOperations() == null || snapshot.getServices() == null || snapshot.getInstances() == null) {
+                throw new IOException("incomplete routing table");
+            }
+            current = snapshot;
+            return Optional.of(snapshot);
+        } catch (IOException e) {
+            log.warn("Ignoring routing table snapshot {}: {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Records a routing table produced by a successful discovery refresh and writes it if it changed.
+     *
+     * @param operations service ID per GraphQL operation name
+     * @param services   IDs of the discovered services
+     * @param instances  the discovered instances
+     */
+    public synchronized void record(Map<String, String> operations, Collection<String> services,
+                                    Collection<ServiceInstance> instances) {
+        discoveryAvailable = true;
+        RoutingTableSnapshot snapshot = RoutingTableSnapshot.builder()
+                .writtenAtMillis(System.currentTimeMillis())
+                .operations(new TreeMap<>(operations))
+                .services(new TreeSet<>(services))
+                .instances(instances.stream()
+                        .map(RoutingTableSnapshot.Instance::of)
+                        .sorted(Comparator.comparing(RoutingTableSnapshot.Instance::getServiceId)
+                                .thenComparing(RoutingTableSnapshot.Instance::getHost)
+                                .thenComparingInt(RoutingTableSnapshot.Instance::getPort))
+                        .toList())
+                .build();
+        if (snapshot.sameTable(current)) {
+            return;
+        }
+        current = snapshot;
+        if (props.isEnabled()) {
+            write(snapshot);
+        }
+    }
+
+    /**
+     * Records that a discovery refresh failed, so the snapshot stands in for discovery until one succeeds.
+     */
+    public void discoveryFailed() {
+        discoveryAvailable = false;
+    }
+
+    /**
+     * Returns the instances of a service to use when discovery returns none.
+     *
+     * @param serviceId the service ID, in any case
+     * @return the service's instances from the snapshot while discovery is unavailable, otherwise none
+     */
+    public List<ServiceInstance> fallbackInstances(String serviceId) {
+        RoutingTableSnapshot snapshot = current;
+        if (discoveryAvailable || snapshot == null) {
+            return List.of();
+        }
+        return snapshot.getInstances().stream()
+                .filter(instance -> instance.getServiceId().equalsIgnoreCase(serviceId))
+                .map(RoutingTableSnapshot.Instance::toServiceInstance)
+                .toList();
+    }
+
+    private void write(RoutingTableSnapshot snapshot) {
+        Path file = Path.of(props.getFile()).toAbsolutePath();
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            mapper.writeValue(temp.toFile(), snapshot);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Wrote routing table with {} operations and {} instances to {}",
+                    snapshot.getOperations().size(), snapshot.getInstances().size(), file);
+        } catch (IOException e) {
+            log.warn("Failed to write routing table snapshot {}: {}", file, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.azoopindia.it.asi.traffic.manager.service;
+
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the traffic weights services publish in their Eureka metadata.
+ * <pre>
+ *     eureka.instance.metadata-map:
+ *         routing.version: 2.4.0-canary
+ *         routing.weight: 5
+ * </pre>
+ * <p>
+ * An instance without {@value #WEIGHT_METADATA} weighs {@value #DEFAULT_WEIGHT}; an instance with weight {@code 0}
+ * receives no traffic. The instances of one {@value #VERSION_METADATA} together receive traffic in proportion to
+ * the sum of their weights, so two stable instances and one canary instance of weight {@code 5} send about 2.4% of
+ * requests to the canary.
+ * </p>
+ */
+public final class RoutingWeights {
+
+    /**
+     * Metadata key of an instance's traffic weight.
+     */
+    public static final String WEIGHT_METADATA = "routing.weight";
+
+    /**
+     * Metadata key of an instance's version.
+     */
+    public static final String VERSION_METADATA = "routing.version";
+
+    /**
+     * Weight of an instance that does not declare one.
+     */
+    public static final int DEFAULT_WEIGHT = 100;
+
+    private RoutingWeights() {
+    }
+
+    /**
+     * @param instance a discovered instance
+     * @return the instance's weight; {@value #DEFAULT_WEIGHT} if absent or not a non-negative integer
+     */
+    public static int weightOf(ServiceInstance instance) {
+        String weight = instance.getMetadata() != null ? instance.getMetadata().get(WEIGHT_METADATA) : null;
+        if (weight == null) {
+            return DEFAULT_WEIGHT;
+        }
+        try {
+            int parsed = Integer.parseInt(weight.trim());
+            return parsed >= 0 ? parsed : DEFAULT_WEIGHT;
+        } catch (NumberFormatException e) {
+            return DEFAULT_WEIGHT;
+        }
+    }
+
+    /**
+     * @param instance a discovered instance
+     * @return the instance's version; empty if it declares none
+     */
+    public static String versionOf(ServiceInstance instance) {
+        String version = instance.getMetadata() != null ? instance.getMetadata().get(VERSION_METADATA) : null;
+        return version != null ? version.trim() : "";
+    }
+
+    /**
+     * Groups the instances with a positive weight by version and sums their weights per version.
+     *
+     * @param instances instances of one service
+     * @return the instances of each version, in order of first appearance, and the version's total weight;
+     * empty if no instance has a positive weight
+     */
+    public static Map<List<ServiceInstance>, Integer> weightsByVersion(List<ServiceInstance> instances) {
+        Map<String, List<ServiceInstance>> groups = new LinkedHashMap<>();
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (ServiceInstance instance : instances) {
+            int weight = weightOf(instance);
+            if (weight == 0) {
+                continue;
+            }
+            String version = versionOf(instance);
+            groups.computeIfAbsent(version, v -> new ArrayList<>()).add(instance);
+            weights.merge(version, weight, Integer::sum);
+        }
+        Map<List<ServiceInstance>, Integer> byGroup = new LinkedHashMap<>();
+        groups.forEach((version, group) -> byGroup.put(group, weights.get(version)));
+        return byGroup;
+    }
+
+    /**
+     * Spreads a key's hash over all 64 bits, so it can stand in for random bits in a sticky draw.
+     *
+     * @param key the key
+     * @return a well-mixed 64-bit hash of the key
+     */
+    public static long mix(String key) {
+        long h = key.hashCode() * 0x9E3779B97F4A7C15L;
+        // fmix64 finalizer of MurmurHash3
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
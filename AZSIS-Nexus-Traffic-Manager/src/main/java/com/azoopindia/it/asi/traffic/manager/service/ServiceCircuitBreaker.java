@@ -0,0 +1,235 @@
+package com.azoopindia.it.asi.traffic.manager.service;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.azoopindia.it.asi.traffic.manager.model.dto.CircuitBreakerSnapshot;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker guarding the calls the universal router makes to one downstream service.
+ * <p>
+ * The breaker moves between three states:
+ * <ul>
+ *   <li><b>CLOSED</b> – calls pass; outcomes are recorded in a count-based sliding window. Once the window holds
+ *   at least {@code minimum-calls} outcomes and the failure rate reaches {@code failure-rate-threshold}, the
+ *   breaker opens.</li>
+ *   <li><b>OPEN</b> – calls are rejected without touching the service until {@code open-duration} has passed.</li>
+ *   <li><b>HALF_OPEN</b> – up to {@code half-open-probes} calls are let through. If all succeed the breaker closes
+ *   with an empty window; the first failure opens it again.</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Every permitted call receives a {@link Permit} stamped with the breaker's current generation, which changes on
+ * every state transition. Outcomes reported with a permit from an earlier generation are ignored, so a slow call
+ * started while closed can never be mistaken for a half-open probe.
+ * </p>
+ */
+@Slf4j
+public class ServiceCircuitBreaker {
+
+    /**
+     * State of a circuit breaker.
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /**
+     * Permission to perform one call, to be handed back with its outcome.
+     *
+     * @param generation the breaker generation the permit was issued in
+     */
+    public record Permit(long generation) {
+    }
+
+    @Getter
+    private final String serviceId;
+
+    private final DynamicRoutingProperties.CircuitBreaker config;
+
+    private final LongSupplier nanoClock;
+
+    /**
+     * Ring buffer of recent outcomes in the closed state; {@code true} marks a failure.
+     */
+    private final boolean[] outcomes;
+
+    private int recordedCalls;
+
+    private int failedCalls;
+
+    private int nextSlot;
+
+    private State state = State.CLOSED;
+
+    private long generation;
+
+    private long openedAtNanos;
+
+    private int probesInFlight;
+
+    private int probeSuccesses;
+
+    private long notPermittedCalls;
+
+    public ServiceCircuitBreaker(String serviceId, DynamicRoutingProperties.CircuitBreaker config, LongSupplier nanoClock) {
+        this.serviceId = serviceId;
+        this.config = config;
+        this.nanoClock = nanoClock;
+        this.outcomes = new boolean[config.getSlidingWindowSize()];
+    }
+
+    /**
+     * Asks for permission to call the service.
+     *
+     * @return a permit to report the outcome with, or {@code null} if the call must be rejected
+     */
+    public synchronized Permit tryAcquirePermission() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAtNanos < config.getOpenDuration().toNanos()) {
+                notPermittedCalls++;
+                return null;
+            }
+            transitionTo(State.HALF_OPEN);
+        }
+
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight + probeSuccesses >= config.getHalfOpenProbes()) {
+                notPermittedCalls++;
+                return null;
+            }
+            probesInFlight++;
+        }
+        return new Permit(generation);
+    }
+
+    /**
+     * Records a successful call.
+     *
+     * @param permit the permit the call was made with
+     */
+    public synchronized void onSuccess(Permit permit) {
+        if (permit.generation() != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            probesInFlight--;
+            probeSuccesses++;
+            if (probeSuccesses >= config.getHalfOpenProbes()) {
+                transitionTo(State.CLOSED);
+            }
+        } else if (state == State.CLOSED) {
+            record(false);
+        }
+    }
+
+    /**
+     * Records a failed call: a connection error, timeout or {@code 5xx} response.
+     *
+     * @param permit the permit the call was made with
+     */
+    public synchronized void onFailure(Permit permit) {
+        if (permit.generation() != generation) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+        } else if (state == State.CLOSED) {
+            record(true);
+            if (recordedCalls >= config.getMinimumCalls() && failureRate() >= config.getFailureRateThreshold()) {
+                transitionTo(State.OPEN);
+            }
+        }
+    }
+
+    /**
+     * Releases a permit whose call was abandoned (e.g. cancelled by the client) without an outcome.
+     *
+     * @param permit the permit the call was made with
+     */
+    public synchronized void onIgnored(Permit permit) {
+        if (permit.generation() == generation && state == State.HALF_OPEN && probesInFlight > 0) {
+            probesInFlight--;
+        }
+    }
+
+    /**
+     * Returns the number of seconds until an open breaker starts probing again, at least 1.
+     *
+     * @return seconds suitable for a {@code Retry-After} header
+     */
+    public synchronized long retryAfterSeconds() {
+        long remaining = config.getOpenDuration().toNanos() - (nanoClock.getAsLong() - openedAtNanos);
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(remaining + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    /**
+     * Returns the current state of the breaker. An open breaker whose open duration has elapsed
+     * is reported as open until the next call moves it to half-open.
+     *
+     * @return the current state
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Captures the breaker's state and metrics for monitoring.
+     *
+     * @return an immutable snapshot
+     */
+    public synchronized CircuitBreakerSnapshot snapshot() {
+        return CircuitBreakerSnapshot.builder()
+                .serviceId(serviceId)
+                .state(state.name())
+                .failureRate(recordedCalls == 0 ? 0d : failureRate())
+                .bufferedCalls(recordedCalls)
+                .failedCalls(failedCalls)
+                .notPermittedCalls(notPermittedCalls)
+                .retryAfterSeconds(state == State.OPEN ? retryAfterSeconds() : null)
+                .build();
+    }
+
+    private void record(boolean failure) {
+        if (recordedCalls == outcomes.length) {
+            if (outcomes[nextSlot]) {
+                failedCalls--;
+            }
+        } else {
+            recordedCalls++;
+        }
+        outcomes[nextSlot] = failure;
+        if (failure) {
+            failedCalls++;
+        }
+        nextSlot = (nextSlot + 1) % outcomes.length;
+    }
+
+    private double failureRate() {
+        return failedCalls * 100d / recordedCalls;
+    }
+
+    private void transitionTo(State newState) {
+        log.warn("Circuit breaker for service '{}' changed from {} to {} (failure rate {}%)",
+                serviceId, state, newState, recordedCalls == 0 ? 0 : Math.round(failureRate()));
+
+        state = newState;
+        generation++;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+
+        if (newState == State.OPEN) {
+            openedAtNanos = nanoClock.getAsLong();
+        }
+        if (newState == State.CLOSED) {
+            recordedCalls = 0;
+            failedCalls = 0;
+            nextSlot = 0;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.azoopindia.it.asi.traffic.manager.service;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.azoopindia.it.asi.traffic.manager.model.dto.CircuitBreakerSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Holds one {@link ServiceCircuitBreaker} per downstream service id and applies it around routed calls.
+ * <p>
+ * Breakers are keyed by the same service id the universal router resolves, whether from the REST path prefix
+ * or from the GraphQL operation map, so both paths share a service's breaker. Callers only ask for breakers of
+ * services known from discovery, which bounds the registry by the number of services.
+ * </p>
+ */
+@Component
+@RequiredArgsConstructor
+public class ServiceCircuitBreakerRegistry {
+
+    private final DynamicRoutingProperties props;
+
+    private final ConcurrentMap<String, ServiceCircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the breaker of a service, creating it on first use.
+     *
+     * @param serviceId the downstream service id, which must be a discovered service
+     * @return the service's breaker
+     */
+    public ServiceCircuitBreaker breakerFor(String serviceId) {
+        return breakers.computeIfAbsent(serviceId,
+                id -> new ServiceCircuitBreaker(id, props.getCircuitBreaker(), System::nanoTime));
+    }
+
+    /**
+     * Runs a routed call under the service's breaker.
+     * <p>
+     * If the breaker rejects the call, the response is completed immediately with {@code 503 Service Unavailable}
+     * and a {@code Retry-After} header. Otherwise the call runs; it counts as failed if it errors or leaves a
+     * {@code 5xx} status on the response, and is ignored if it is cancelled.
+     * </p>
+     *
+     * @param exchange  the current exchange
+     * @param serviceId the downstream service id
+     * @param call      the routed call, typically the rest of the gateway filter chain
+     * @return a Mono completing when the call (or the rejection) completes
+     */
+    public Mono<Void> execute(ServerWebExchange exchange, String serviceId, Supplier<Mono<Void>> call) {
+        if (!props.getCircuitBreaker().isEnabled()) {
+            return call.get();
+        }
+
+        ServiceCircuitBreaker breaker = breakerFor(serviceId);
+        ServiceCircuitBreaker.Permit permit = breaker.tryAcquirePermission();
+        if (permit == null) {
+            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(breaker.retryAfterSeconds()));
+            return exchange.getResponse().setComplete();
+        }
+
+        return Mono.defer(call)
+                .doOnSuccess(done -> {
+                    HttpStatusCode status = exchange.getResponse().getStatusCode();
+                    if (status != null && status.is5xxServerError()) {
+                        breaker.onFailure(permit);
+                    } else {
+                        breaker.onSuccess(permit);
+                    }
+                })
+                .doOnError(error -> breaker.onFailure(permit))
+                .doOnCancel(() -> breaker.onIgnored(permit));
+    }
+
+    /**
+     * Captures the state of every breaker created so far, ordered by service id.
+     *
+     * @return snapshots keyed by service id
+     */
+    public Map<String, CircuitBreakerSnapshot> snapshots() {
+        Map<String, CircuitBreakerSnapshot> snapshots = new TreeMap<>();
+        breakers.forEach((serviceId, breaker) -> snapshots.put(serviceId, breaker.snapshot()));
+        return snapshots;
+    }
+
+    /**
+     * Captures the state of one service's breaker.
+     *
+     * @param serviceId the downstream service id
+     * @return the snapshot, or {@code null} if the service has not been called yet
+     */
+    public CircuitBreakerSnapshot snapshot(String serviceId) {
+        ServiceCircuitBreaker breaker = breakers.get(serviceId);
+        return breaker != null ? breaker.snapshot() : null;
+    }
+}
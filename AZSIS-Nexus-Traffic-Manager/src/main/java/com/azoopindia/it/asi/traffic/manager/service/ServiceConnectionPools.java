@@ -0,0 +1,332 @@
+package com.azoopindia.it.asi.traffic.manager.service;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.azoopindia.it.asi.traffic.manager.model.dto.ConnectionPoolSnapshot;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.gateway.config.HttpClientCustomizer;
+import org.springframework.cloud.gateway.config.HttpClientFactory;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientSslConfigurer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionPoolMetrics;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Holds one HTTP client, backed by its own connection pool, per downstream service id.
+ * <p>
+ * A dedicated pool per service keeps one slow or saturated service from starving the connections of the others,
+ * and lets each service be sized for its own traffic. The clients are built like the gateway's shared client
+ * (timeouts, SSL, proxy, wiretap and {@link HttpClientCustomizer}s all apply); only the connection pool differs.
+ * </p>
+ * <p>
+ * Newly discovered instances are warmed up by opening a few connections to them ahead of the first routed request,
+ * so a scale-out or a gateway restart does not make the first users pay for TCP and TLS handshakes.
+ * </p>
+ * <p>
+ * Each pool publishes the gauges {@code gateway.connection.pool.active}, {@code .idle}, {@code .total},
+ * {@code .pending} and {@code .utilization}, tagged with {@code service} and {@code remote.address}.
+ * </p>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ServiceConnectionPools {
+
+    private static final String METRIC_PREFIX = "gateway.connection.pool.";
+
+    private final DynamicRoutingProperties props;
+
+    private final HttpClientProperties httpClientProperties;
+
+    private final ServerProperties serverProperties;
+
+    private final HttpClientSslConfigurer sslConfigurer;
+
+    private final List<HttpClientCustomizer> customizers;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<String, ServicePool> pools = new ConcurrentHashMap<>();
+
+    /**
+     * Live pool metrics, keyed by service id and remote address.
+     */
+    private final ConcurrentMap<String, RegisteredPool> registeredPools = new ConcurrentHashMap<>();
+
+    /**
+     * Instances already seen by {@link #warmUpNewInstances(Collection)}, as {@code serviceId@host:port}.
+     */
+    private final Set<String> knownInstances = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Returns the HTTP client of a service, creating its pool on first use.
+     *
+     * @param serviceId the downstream service id, in any case
+     * @return the service's client, or {@code null} if per-service pools are disabled
+     */
+    public HttpClient clientFor(String serviceId) {
+        if (!props.getConnectionPool().isEnabled()) {
+            return null;
+        }
+        return pools.computeIfAbsent(serviceId.toLowerCase(), this::createPool).client();
+    }
+
+    /**
+     * Warms up the instances not seen by an earlier call and forgets those that are gone.
+     *
+     * @param instances all instances currently known to discovery
+     * @return a Mono completing once every new instance was warmed up or gave up
+     */
+    public Mono<Void> warmUpNewInstances(Collection<ServiceInstance> instances) {
+        if (!props.getConnectionPool().isEnabled()) {
+            return Mono.empty();
+        }
+
+        Set<String> current = new HashSet<>();
+        List<ServiceInstance> added = new ArrayList<>();
+        for (ServiceInstance instance : instances) {
+            String key = instance.getServiceId().toLowerCase() + "@" + instance.getHost() + ":" + instance.getPort();
+            current.add(key);
+            if (knownInstances.add(key)) {
+                added.add(instance);
+            }
+        }
+        knownInstances.retainAll(current);
+
+        return Flux.fromIterable(added)
+                .flatMap(this::warmUp)
+                .then();
+    }
+
+    /**
+     * Opens the configured number of warm-up connections to one instance by sending concurrent {@code HEAD}
+     * requests to it. The connections stay in the service's pool afterward. Failures are logged, never propagated.
+     *
+     * @param instance the instance to connect to
+     * @return a Mono completing when the connections are open or the warm-up gave up
+     */
+    public Mono<Void> warmUp(ServiceInstance instance) {
+        String serviceId = instance.getServiceId().toLowerCase();
+        DynamicRoutingProperties.ConnectionPool config = props.getConnectionPool();
+        int connections = settingsFor(serviceId).warmUpConnections();
+        HttpClient client = clientFor(serviceId);
+        if (client == null || connections <= 0) {
+            return Mono.empty();
+        }
+
+        URI uri = instance.getUri().resolve(config.getWarmUpPath());
+        return Flux.range(0, connections)
+                .flatMap(i -> client.head()
+                        .uri(uri)
+                        .responseSingle((response, body) -> body.then(Mono.just(response.status().code()))),
+                        connections)
+                .count()
+                .timeout(config.getWarmUpTimeout())
+                .doOnNext(opened -> log.info("Warmed up {} connection(s) to '{}' at {}", opened, serviceId, uri))
+                .onErrorResume(error -> {
+                    log.warn("Warm-up of '{}' at {} failed: {}", serviceId, uri, error.toString());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Captures the pool state of every instance connected to so far, grouped by service id.
+     *
+     * @return snapshots keyed by service id, each list ordered by remote address
+     */
+    public Map<String, List<ConnectionPoolSnapshot>> snapshots() {
+        Map<String, List<ConnectionPoolSnapshot>> snapshots = new TreeMap<>();
+        registeredPools.values().forEach(pool ->
+                snapshots.computeIfAbsent(pool.serviceId(), id -> new ArrayList<>()).add(pool.snapshot()));
+        snapshots.values().forEach(list -> list.sort(Comparator.comparing(ConnectionPoolSnapshot::getRemoteAddress)));
+        return snapshots;
+    }
+
+    /**
+     * Captures the pool state of one service's instances.
+     *
+     * @param serviceId the downstream service id
+     * @return the snapshots, or {@code null} if no connection to the service was opened yet
+     */
+    public List<ConnectionPoolSnapshot> snapshot(String serviceId) {
+        return snapshots().get(serviceId.toLowerCase());
+    }
+
+    /**
+     * Closes every pool on shutdown.
+     */
+    @PreDestroy
+    public void dispose() {
+        pools.values().forEach(pool -> pool.provider().dispose());
+        pools.clear();
+    }
+
+    private ServicePool createPool(String serviceId) {
+        DynamicRoutingProperties.ConnectionPool config = props.getConnectionPool();
+        PoolSettings settings = settingsFor(serviceId);
+
+        ConnectionProvider provider = ConnectionProvider.builder("gateway-" + serviceId)
+                .maxConnections(settings.maxConnections())
+                .pendingAcquireMaxCount(settings.pendingAcquireMaxCount())
+                .pendingAcquireTimeout(config.getPendingAcquireTimeout())
+                .maxIdleTime(settings.maxIdleTime())
+                .maxLifeTime(config.getMaxLifeTime())
+                .evictInBackground(config.getEvictionInterval())
+                .metrics(true, () -> new PoolMeterRegistrar(serviceId))
+                .build();
+
+        log.info("Created connection pool for '{}' with {} connection(s) per instance",
+                serviceId, settings.maxConnections());
+
+        HttpClient client = new PooledHttpClientFactory(httpClientProperties, serverProperties, sslConfigurer,
+                customizers, provider).build();
+        return new ServicePool(provider, client);
+    }
+
+    private PoolSettings settingsFor(String serviceId) {
+        DynamicRoutingProperties.ConnectionPool config = props.getConnectionPool();
+        DynamicRoutingProperties.ServicePool override = config.getServices().get(serviceId);
+        if (override == null) {
+            return new PoolSettings(config.getMaxConnections(), config.getPendingAcquireMaxCount(),
+                    config.getMaxIdleTime(), config.getWarmUpConnections());
+        }
+        return new PoolSettings(
+                override.getMaxConnections() != null ? override.getMaxConnections() : config.getMaxConnections(),
+                override.getPendingAcquireMaxCount() != null
+                        ? override.getPendingAcquireMaxCount() : config.getPendingAcquireMaxCount(),
+                override.getMaxIdleTime() != null ? override.getMaxIdleTime() : config.getMaxIdleTime(),
+                override.getWarmUpConnections() != null
+                        ? override.getWarmUpConnections() : config.getWarmUpConnections());
+    }
+
+    private static String format(SocketAddress address) {
+        if (address instanceof InetSocketAddress inet) {
+            return inet.getHostString() + ":" + inet.getPort();
+        }
+        return String.valueOf(address);
+    }
+
+    private record PoolSettings(int maxConnections, int pendingAcquireMaxCount, Duration maxIdleTime,
+                                int warmUpConnections) {
+    }
+
+    private record ServicePool(ConnectionProvider provider, HttpClient client) {
+    }
+
+    private record RegisteredPool(String serviceId, String remoteAddress, ConnectionPoolMetrics metrics,
+                                  List<Meter> meters) {
+
+        ConnectionPoolSnapshot snapshot() {
+            int max = metrics.maxAllocatedSize();
+            return ConnectionPoolSnapshot.builder()
+                    .serviceId(serviceId)
+                    .remoteAddress(remoteAddress)
+                    .activeConnections(metrics.acquiredSize())
+                    .idleConnections(metrics.idleSize())
+                    .totalConnections(metrics.allocatedSize())
+                    .pendingAcquires(metrics.pendingAcquireSize())
+                    .maxConnections(max)
+                    .maxPendingAcquires(metrics.maxPendingAcquireSize())
+                    .utilization(max > 0 ? (double) metrics.acquiredSize() / max : 0d)
+                    .build();
+        }
+    }
+
+    /**
+     * Receives the per-address pools Reactor Netty creates for a service and publishes their gauges.
+     */
+    @RequiredArgsConstructor
+    private class PoolMeterRegistrar implements ConnectionProvider.MeterRegistrar {
+
+        private final String serviceId;
+
+        @Override
+        public void registerMetrics(String poolName, String id, SocketAddress remoteAddress,
+                                    ConnectionPoolMetrics metrics) {
+            String address = format(remoteAddress);
+            Tags tags = Tags.of("service", serviceId, "remote.address", address);
+            List<Meter> meters = List.of(
+                    gauge("active", "Connections carrying a request", tags, metrics, ConnectionPoolMetrics::acquiredSize),
+                    gauge("idle", "Open connections waiting for a request", tags, metrics, ConnectionPoolMetrics::idleSize),
+                    gauge("total", "Open connections", tags, metrics, ConnectionPoolMetrics::allocatedSize),
+                    gauge("pending", "Requests waiting for a connection", tags, metrics,
+                            ConnectionPoolMetrics::pendingAcquireSize),
+                    gauge("utilization", "Share of the connection limit in use", tags, metrics,
+                            m -> m.maxAllocatedSize() > 0 ? (double) m.acquiredSize() / m.maxAllocatedSize() : 0d));
+
+            RegisteredPool previous = registeredPools.put(serviceId + "@" + address,
+                    new RegisteredPool(serviceId, address, metrics, meters));
+            if (previous != null) {
+                previous.meters().forEach(meterRegistry::remove);
+            }
+        }
+
+        @Override
+        public void deRegisterMetrics(String poolName, String id, SocketAddress remoteAddress) {
+            RegisteredPool removed = registeredPools.remove(serviceId + "@" + format(remoteAddress));
+            if (removed != null) {
+                removed.meters().forEach(meterRegistry::remove);
+            }
+        }
+
+        private Meter gauge(String name, String description, Tags tags, ConnectionPoolMetrics metrics,
+                            ToDoubleFunction<ConnectionPoolMetrics> value) {
+            return Gauge.builder(METRIC_PREFIX + name, metrics, value)
+                    .description(description)
+                    .tags(tags)
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Gateway client factory that builds on a given connection pool instead of the shared one.
+     */
+    private static class PooledHttpClientFactory extends HttpClientFactory {
+
+        private final ConnectionProvider provider;
+
+        PooledHttpClientFactory(HttpClientProperties properties, ServerProperties serverProperties,
+                                HttpClientSslConfigurer sslConfigurer, List<HttpClientCustomizer> customizers,
+                                ConnectionProvider provider) {
+            super(properties, serverProperties, sslConfigurer, customizers);
+            this.provider = provider;
+        }
+
+        @Override
+        protected ConnectionProvider buildConnectionProvider(HttpClientProperties properties) {
+            return provider;
+        }
+
+        HttpClient build() {
+            return createInstance();
+        }
+    }
+}
@@ -0,0 +1,492 @@
+package com.azoopindia.it.asi.traffic.manager.simulation;
+
+import com.azoopindia.it.asi.traffic.manager.capture.TrafficCaptureReader;
+import com.azoopindia.it.asi.traffic.manager.capture.TrafficCaptureRecord;
+import com.azoopindia.it.asi.traffic.manager.filter.RateLimiterFilter;
+import com.azoopindia.it.asi.traffic.manager.model.dto.RateLimitConfigRequest;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.algorithm.GcraRateLimiter;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.algorithm.RateLimitKeys;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.algorithm.SegmentedRateLimiter;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.algorithm.SlidingWindowRateLimiter;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity.RateLimitAlgorithm;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity.RateLimitConfig;
+import com.azoopindia.it.asi.traffic.manager.service.RateLimiterService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.TimeMeter;
+import io.github.bucket4j.local.SynchronizationStrategy;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Replays recorded request arrivals against proposed rate-limit configurations, in simulated time.
+ * <p>
+ * Buckets are built with the same {@link RateLimiterService#bandwidth bandwidth}, capacity and token-capping rules
+ * as the gateway's, and configurations with another {@link RateLimitAlgorithm} use the gateway's GCRA and
+ * sliding-window limiters; all of them read a simulated clock, so a day of traffic is evaluated in seconds. For every request the
+ * simulator applies what the gateway does:
+ * </p>
+ * <ol>
+ *   <li>the client's admission bucket ({@value RateLimiterService#ADMISSION_ROUTE}), if admission is enabled;</li>
+ *   <li>the bucket of the route the request is limited under, which is the GraphQL operation's own route when the
+ *   client has a configuration for it ({@link RateLimiterService#resolveRoute}), else the path;</li>
+ *   <li>retries of a rejected request as configured by {@code maxRetries} and {@code retryDelay}
+ *   ({@link RateLimiterFilter.RetryPolicy}). A request that gets through on a retry counts as delayed.</li>
+ * </ol>
+ * <p>
+ * Arrivals come from capture files written by the gateway (see {@link TrafficCaptureRecord}) or from a CSV file
+ * derived from access logs, with lines {@code timestamp,clientId,path[,operationName[,tokens]]} where the timestamp
+ * is in epoch milliseconds or ISO-8601. Configurations are read as NDJSON in the format of the bulk export
+ * ({@link RateLimitConfigRequest}), so the current configurations can be exported, edited and simulated before they
+ * are imported. Only {@code ACTIVE} configurations apply. As captures store client ids hashed, configurations
+ * match a client by its id or by the hash of it.
+ * </p>
+ *
+ * <pre>
+ * java -cp target/app.jar -Dloader.main=com.azoopindia.it.asi.traffic.manager.simulation.RateLimitSimulator \
+ *      org.springframework.boot.loader.launch.PropertiesLauncher capture/ proposed.ndjson [admissionRequestsPerMinute]
+ * </pre>
+ */
+public class RateLimitSimulator {
+
+    private static final String ACTIVE = "ACTIVE";
+
+    /**
+     * Active configurations by {@code clientId:route}, indexed under the plain and the hashed client id.
+     */
+    private final Map<String, RateLimitConfig> configs = new HashMap<>();
+
+    /**
+     * Plain client ids by their hash, to report captured clients under their real id when it is known.
+     */
+    private final Map<String, String> clientNames = new HashMap<>();
+
+    private final long admissionRequestsPerMinute;
+
+    /**
+     * @param configs                    the proposed configurations; inactive ones are ignored
+     * @param admissionRequestsPerMinute admission limit of clients without a {@code *} configuration,
+     *                                   or {@code 0} to leave admission out
+     */
+    public RateLimitSimulator(Collection<RateLimitConfig> configs, long admissionRequestsPerMinute) {
+        for (RateLimitConfig config : configs) {
+            if (!ACTIVE.equals(config.getStatus())) {
+                continue;
+            }
+            String hashedClientId = TrafficCaptureRecord.hashValue(config.getClientId());
+            this.configs.put(config.getClientId() + ":" + config.getRoute(), config);
+            this.configs.put(hashedClientId + ":" + config.getRoute(), config);
+            clientNames.put(hashedClientId, config.getClientId());
+        }
+        this.admissionRequestsPerMinute = admissionRequestsPerMinute;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: RateLimitSimulator <capture file, directory or arrivals .csv> <configs .ndjson>"
+                    + " [admissionRequestsPerMinute]");
+            System.exit(2);
+        }
+        long admission = args.length > 2 ? Long.parseLong(args[2]) : 0;
+        RateLimitSimulator simulator = new RateLimitSimulator(readConfigs(Path.of(args[1])), admission);
+        System.out.print(simulator.run(readArrivals(Path.of(args[0]))).format());
+    }
+
+    /**
+     * Runs the simulation.
+     *
+     * @param arrivals the requests, in any order
+     * @return per-client outcomes
+     */
+    public Report run(List<Arrival> arrivals) {
+        List<Arrival> ordered = new ArrayList<>(arrivals);
+        ordered.sort(Comparator.comparingLong(Arrival::epochMicros));
+        Run run = new Run(ordered.isEmpty() ? 0 : ordered.get(0).epochMicros());
+
+        for (Arrival arrival : ordered) {
+            run.retryUntil(run.nanosOf(arrival.epochMicros()));
+            run.arrive(arrival);
+        }
+        run.retryUntil(Long.MAX_VALUE);
+
+        List<ClientReport> clients = run.stats.values().stream()
+                .map(ClientStats::report)
+                .sorted(Comparator.comparingLong(ClientReport::rejected).reversed().thenComparing(ClientReport::clientId))
+                .toList();
+        Duration span = ordered.isEmpty() ? Duration.ZERO
+                : Duration.of(ordered.get(ordered.size() - 1).epochMicros() - ordered.get(0).epochMicros(), ChronoUnit.MICROS);
+        return new Report(clients, run.unidentified, span);
+    }
+
+    /**
+     * Reads the arrivals of a capture file or directory, or of an arrivals CSV file.
+     *
+     * @param path capture file, capture directory or {@code .csv} file
+     * @return the arrivals, in file order
+     * @throws IOException if the input cannot be read
+     */
+    public static List<Arrival> readArrivals(Path path) throws IOException {
+        return path.getFileName().toString().endsWith(".csv") ? readCsv(path) : readCaptures(path);
+    }
+
+    /**
+     * Reads configurations from NDJSON in the format of the bulk export.
+     *
+     * @param path the NDJSON file
+     * @return the configurations
+     * @throws IOException if the file cannot be read or a line is not a configuration
+     */
+    public static List<RateLimitConfig> readConfigs(Path path) throws IOException {
+        ObjectMapper mapper = new ObjectMapper().findAndRegisterModules();
+        List<RateLimitConfig> configs = new ArrayList<>();
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            RateLimitConfigRequest request = mapper.readValue(line, RateLimitConfigRequest.class);
+            configs.add(RateLimitConfig.builder()
+                    .clientId(request.getClientId())
+                    .route(request.getRoute())
+                    .maxTokensPerWindow(request.getMaxTokensPerWindow())
+                    .timeWindow(request.getTimeWindow())
+                    .timeUnit(request.getTimeUnit())
+                    .burstCapacity(request.getBurstCapacity())
+                    .algorithm(request.getAlgorithm())
+                    .dailyQuota(request.getDailyQuota())
+                    .monthlyQuota(request.getMonthlyQuota())
+                    .priority(request.getPriority())
+                    .expirationDate(request.getExpirationDate())
+                    .status(request.getStatus())
+                    .customAttributes(request.getCustomAttributes())
+                    .build());
+        }
+        return configs;
+    }
+
+    private static List<Arrival> readCaptures(Path path) throws IOException {
+        List<Arrival> arrivals = new ArrayList<>();
+        for (Path file : TrafficCaptureReader.files(path)) {
+            try (TrafficCaptureReader reader = new TrafficCaptureReader(file)) {
+                for (TrafficCaptureRecord record = reader.next(); record != null; record = reader.next()) {
+                    String clientId = record.headers().entrySet().stream()
+                            .filter(header -> header.getKey().equalsIgnoreCase("X-Client-Id"))
+                            .map(Map.Entry::getValue)
+                            .findFirst()
+                            .orElse(null);
+                    arrivals.add(new Arrival(record.arrivalEpochMicros(), clientId, record.path(), record.operationName(), 1));
+                }
+            }
+        }
+        return arrivals;
+    }
+
+    private static List<Arrival> readCsv(Path path) throws IOException {
+        List<Arrival> arrivals = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            long lineNumber = 0;
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lineNumber++;
+                if (line.isBlank() || line.startsWith("#") || line.startsWith("timestamp")) {
+                    continue;
+                }
+                String[] cells = line.split(",", -1);
+                if (cells.length < 3) {
+                    throw new IOException("Line " + lineNumber + ": expected timestamp,clientId,path[,operationName[,tokens]]");
+                }
+                String timestamp = cells[0].trim();
+                long epochMicros = timestamp.chars().allMatch(Character::isDigit)
+                        ? Long.parseLong(timestamp) * 1000
+                        : ChronoUnit.MICROS.between(Instant.EPOCH, Instant.parse(timestamp));
+                String operationName = cells.length > 3 && !cells[3].isBlank() ? cells[3].trim() : null;
+                long tokens = cells.length > 4 && !cells[4].isBlank() ? Long.parseLong(cells[4].trim()) : 1;
+                arrivals.add(new Arrival(epochMicros, cells[1].trim(), cells[2].trim(), operationName, tokens));
+            }
+        }
+        return arrivals;
+    }
+
+    /**
+     * A request arrival.
+     *
+     * @param epochMicros   arrival time in microseconds since the epoch
+     * @param clientId      the {@code X-Client-Id}, possibly hashed, or {@code null}
+     * @param path          the request path
+     * @param operationName the GraphQL operation name, or {@code null}
+     * @param tokens        the tokens the request costs, e.g. a GraphQL query cost
+     */
+    public record Arrival(long epochMicros, String clientId, String path, String operationName, long tokens) {
+    }
+
+    /**
+     * Outcome of a simulation for one client.
+     *
+     * @param clientId            the client id, or its hash if no configuration names it
+     * @param requests            requests of the client
+     * @param admitted            requests let through at once
+     * @param delayed             requests let through on a retry
+     * @param rejected            requests rejected, including those rejected at admission
+     * @param rejectedAtAdmission requests rejected by the admission bucket
+     * @param delayP50Millis      median delay of the delayed requests
+     * @param delayP99Millis      99th percentile delay of the delayed requests
+     * @param delayMaxMillis      longest delay
+     * @param refillWaitP50Millis median time a rejected request would have had to wait for tokens
+     * @param refillWaitP99Millis 99th percentile of that wait
+     */
+    public record ClientReport(String clientId, long requests, long admitted, long delayed, long rejected,
+                               long rejectedAtAdmission, long delayP50Millis, long delayP99Millis, long delayMaxMillis,
+                               long refillWaitP50Millis, long refillWaitP99Millis) {
+
+        /**
+         * @return the share of the client's requests that were rejected
+         */
+        public double rejectionRate() {
+            return requests == 0 ? 0 : (double) rejected / requests;
+        }
+    }
+
+    /**
+     * Outcome of a simulation.
+     *
+     * @param clients      per-client outcomes, most rejected first
+     * @param unidentified requests without a client id, which the gateway does not limit per client
+     * @param span         time between the first and the last arrival
+     */
+    public record Report(List<ClientReport> clients, long unidentified, Duration span) {
+
+        /**
+         * @return the report as a text table
+         */
+        public String format() {
+            StringBuilder out = new StringBuilder(String.format("Simulated %s of traffic, %d requests without client id%n",
+                    span, unidentified));
+            out.append(String.format("%-36s %9s %9s %9s %9s %7s %9s %9s %9s %10s %10s%n", "client", "requests",
+                    "admitted", "delayed", "rejected", "reject%", "admission", "delay-p50", "delay-p99", "refill-p50",
+                    "refill-p99"));
+            for (ClientReport client : clients) {
+                out.append(String.format("%-36s %9d %9d %9d %9d %6.2f%% %9d %7dms %7dms %8dms %8dms%n", client.clientId(),
+                        client.requests(), client.admitted(), client.delayed(), client.rejected(),
+                        client.rejectionRate() * 100, client.rejectedAtAdmission(), client.delayP50Millis(),
+                        client.delayP99Millis(), client.refillWaitP50Millis(), client.refillWaitP99Millis()));
+            }
+            return out.toString();
+        }
+    }
+
+    /**
+     * State of one simulation run: the simulated clock, the buckets and the retries due.
+     */
+    private final class Run {
+
+        private final long originMicros;
+
+        private final SimulatedClock clock = new SimulatedClock();
+
+        private final Map<String, Bucket> buckets = new HashMap<>();
+
+        private final SegmentedRateLimiter gcraLimiter = new GcraRateLimiter(1);
+
+        private final SegmentedRateLimiter slidingWindowLimiter = new SlidingWindowRateLimiter(1);
+
+        private final PriorityQueue<Retry> retries = new PriorityQueue<>(
+                Comparator.comparingLong(Retry::dueNanos).thenComparingLong(Retry::sequence));
+
+        private final Map<String, ClientStats> stats = new HashMap<>();
+
+        private long sequence;
+
+        private long unidentified;
+
+        private Run(long originMicros) {
+            this.originMicros = originMicros;
+        }
+
+        private long nanosOf(long epochMicros) {
+            return (epochMicros - originMicros) * 1000;
+        }
+
+        private void retryUntil(long nanos) {
+            while (!retries.isEmpty() && retries.peek().dueNanos() <= nanos) {
+                Retry retry = retries.poll();
+                clock.nanos = retry.dueNanos();
+                attempt(retry.arrival(), retry.route(), retry.config(), retry.attempt());
+            }
+        }
+
+        private void arrive(Arrival arrival) {
+            clock.nanos = nanosOf(arrival.epochMicros());
+            String clientId = arrival.clientId();
+            if (clientId == null || clientId.isBlank()) {
+                unidentified++;
+                return;
+            }
+            ClientStats client = stats(clientId);
+            client.requests++;
+
+            if (admissionRequestsPerMinute > 0) {
+                RateLimitConfig admission = configs.get(clientId + ":" + RateLimiterService.ADMISSION_ROUTE);
+                ConsumptionProbe probe = RateLimiterService.isUnlimited(admission) ? null
+                        : consume(clientId, RateLimiterService.ADMISSION_ROUTE, admission, admissionRequestsPerMinute, 1);
+                if (probe != null && !probe.isConsumed()) {
+                    client.rejectedAtAdmission++;
+                    client.reject(probe);
+                    return;
+                }
+            }
+
+            String route = resolveRoute(clientId, arrival.path(), arrival.operationName());
+            RateLimitConfig config = configs.get(clientId + ":" + route);
+            if (RateLimiterService.isUnlimited(config)) {
+                client.admitted++;
+                return;
+            }
+            attempt(arrival, route, config, 0);
+        }
+
+        private void attempt(Arrival arrival, String route, RateLimitConfig config, int attempt) {
+            ClientStats client = stats(arrival.clientId());
+            ConsumptionProbe probe = consume(arrival.clientId(), route, config,
+                    RateLimiterService.DEFAULT_REQUESTS_PER_MINUTE, arrival.tokens());
+            if (probe.isConsumed()) {
+                if (attempt == 0) {
+                    client.admitted++;
+                } else {
+                    client.delayed++;
+                    client.delaysNanos.add(clock.nanos - nanosOf(arrival.epochMicros()));
+                }
+                return;
+            }
+
+            RateLimiterFilter.RetryPolicy retryPolicy = RateLimiterFilter.RetryPolicy.of(config);
+            if (attempt < retryPolicy.maxRetries()) {
+                retries.add(new Retry(clock.nanos + retryPolicy.retryDelay() * 1_000_000, sequence++, arrival, route,
+                        config, attempt + 1));
+            } else {
+                client.reject(probe);
+            }
+        }
+
+        private ConsumptionProbe consume(String clientId, String route, RateLimitConfig config,
+                                         long defaultRequestsPerMinute, long tokens) {
+            RateLimitAlgorithm algorithm = RateLimiterService.algorithm(config);
+            if (algorithm != RateLimitAlgorithm.TOKEN_BUCKET) {
+                SegmentedRateLimiter limiter = algorithm == RateLimitAlgorithm.GCRA ? gcraLimiter : slidingWindowLimiter;
+                long capacity = RateLimiterService.capacity(config, defaultRequestsPerMinute);
+                long wait = limiter.tryAcquire(RateLimitKeys.hash(clientId, route), clock.nanos,
+                        RateLimiterService.tokensToConsume(tokens, capacity), capacity,
+                        RateLimiterService.windowNanos(config), RateLimiterService.tokensPerWindow(config));
+                return wait == 0 ? ConsumptionProbe.consumed(0, 0) : ConsumptionProbe.rejected(0, wait, wait);
+            }
+            Bucket bucket = buckets.computeIfAbsent(clientId + ":" + route, key -> Bucket.builder()
+                    .addLimit(RateLimiterService.bandwidth(config, defaultRequestsPerMinute))
+                    .withCustomTimePrecision(clock)
+                    .withSynchronizationStrategy(SynchronizationStrategy.NONE)
+                    .build());
+            long capacity = RateLimiterService.capacity(config, defaultRequestsPerMinute);
+            return bucket.tryConsumeAndReturnRemaining(RateLimiterService.tokensToConsume(tokens, capacity));
+        }
+
+        /**
+         * Mirrors {@link RateLimiterService#resolveRoute}.
+         */
+        private String resolveRoute(String clientId, String path, String operationName) {
+            if (operationName != null && !operationName.isBlank()) {
+                String operationRoute = RateLimiterService.GRAPHQL_OPERATION_ROUTE_PREFIX + operationName;
+                if (configs.containsKey(clientId + ":" + operationRoute)) {
+                    return operationRoute;
+                }
+            }
+            return path;
+        }
+
+        private ClientStats stats(String clientId) {
+            return stats.computeIfAbsent(clientId, id -> new ClientStats(clientNames.getOrDefault(id, id)));
+        }
+    }
+
+    /**
+     * A retry of a rejected request, due at a simulated time.
+     */
+    private record Retry(long dueNanos, long sequence, Arrival arrival, String route, RateLimitConfig config,
+                         int attempt) {
+    }
+
+    /**
+     * Counters of one client during a run.
+     */
+    private static final class ClientStats {
+
+        private final String clientId;
+
+        private final List<Long> delaysNanos = new ArrayList<>();
+
+        private final List<Long> refillWaitsNanos = new ArrayList<>();
+
+        private long requests;
+
+        private long admitted;
+
+        private long delayed;
+
+        private long rejected;
+
+        private long rejectedAtAdmission;
+
+        private ClientStats(String clientId) {
+            this.clientId = clientId;
+        }
+
+        private void reject(ConsumptionProbe probe) {
+            rejected++;
+            refillWaitsNanos.add(probe.getNanosToWaitForRefill());
+        }
+
+        private ClientReport report() {
+            long[] delays = sortedMillis(delaysNanos);
+            long[] waits = sortedMillis(refillWaitsNanos);
+            return new ClientReport(clientId, requests, admitted, delayed, rejected, rejectedAtAdmission,
+                    percentile(delays, 0.5), percentile(delays, 0.99), percentile(delays, 1),
+                    percentile(waits, 0.5), percentile(waits, 0.99));
+        }
+
+        private static long[] sortedMillis(List<Long> nanos) {
+            return nanos.stream().mapToLong(value -> value / 1_000_000).sorted().toArray();
+        }
+
+        private static long percentile(long[] sorted, double quantile) {
+            return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, (long) (sorted.length * quantile))];
+        }
+    }
+
+    /**
+     * Clock of the simulated buckets, advanced by the run.
+     */
+    private static final class SimulatedClock implements TimeMeter {
+
+        private long nanos;
+
+        @Override
+        public long currentTimeNanos() {
+            return nanos;
+        }
+
+        @Override
+        public boolean isWallClockBased() {
+            return false;
+        }
+    }
+}
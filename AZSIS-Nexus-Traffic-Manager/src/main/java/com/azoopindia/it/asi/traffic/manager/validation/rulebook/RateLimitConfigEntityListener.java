@@ -1,9 +1,16 @@
 package com.azoopindia.it.asi.traffic.manager.validation.rulebook;
 
+import com.azoopindia.it.asi.traffic.manager.kafka.model.RateLimitConfigChangeEvent.ChangeType;
 import com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity.RateLimitConfig;
+import com.azoopindia.it.asi.traffic.manager.service.RateLimitConfigChangePublisher;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
 import jakarta.persistence.PrePersist;
 import jakarta.persistence.PreUpdate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
 /**
@@ -19,6 +26,12 @@ import org.springframework.stereotype.Component;
  * </p>
  *
  * <p>
+ * After a row is written or removed it also reports the change to the
+ * {@link RateLimitConfigChangePublisher}, which invalidates the matching bucket on every gateway replica
+ * once the surrounding transaction commits.
+ * </p>
+ *
+ * <p>
  * This listener should be registered on the {@link RateLimitConfig} entity using the {@code @EntityListeners} annotation.
  * </p>
  * <p>
@@ -31,6 +44,7 @@ import org.springframework.stereotype.Component;
  * }</pre>
  *
  * @see ValidateDeprecatedFields
+ * @see RateLimitConfigChangePublisher
  * @see RateLimitConfig
  */
 @Component
@@ -42,6 +56,12 @@ public class RateLimitConfigEntityListener {
      */
     private static ValidateDeprecatedFields validator;
 
+    /**
+     * Static reference to the Spring-managed change publisher.
+     * Initialized via setter injection for the same reason as {@link #validator}.
+     */
+    private static RateLimitConfigChangePublisher changePublisher;
+
     /**
      * Initializes the static validator reference.
      * This method is automatically called by Spring to inject the {@link ValidateDeprecatedFields} bean.
@@ -64,4 +84,54 @@ public class RateLimitConfigEntityListener {
     public void validate(RateLimitConfig config) {
         validator.validate(config);
     }
+
+    /**
+     * Initializes the static change publisher reference.
+     * The publisher is injected lazily because it depends on repositories that are created
+     * by the same {@code EntityManagerFactory} which instantiates this listener.
+     *
+     * @param injectedPublisher the Spring bean that broadcasts configuration changes
+     */
+    @Autowired
+    public void initChangePublisher(@Lazy RateLimitConfigChangePublisher injectedPublisher) {
+        changePublisher = injectedPublisher;
+    }
+
+    /**
+     * JPA lifecycle callback executed after a {@link RateLimitConfig} is loaded.
+     * Remembers the client/route key so a later update can detect that the key was changed.
+     *
+     * @param config the loaded {@link RateLimitConfig} entity
+     */
+    @PostLoad
+    public void snapshotKey(RateLimitConfig config) {
+        config.setLoadedClientId(config.getClientId());
+        config.setLoadedRoute(config.getRoute());
+    }
+
+    /**
+     * JPA lifecycle callback executed after a {@link RateLimitConfig} is inserted or updated.
+     *
+     * @param config the persisted {@link RateLimitConfig} entity
+     */
+    @PostPersist
+    @PostUpdate
+    public void afterWrite(RateLimitConfig config) {
+        if (changePublisher != null) {
+            changePublisher.publish(config, ChangeType.UPSERT);
+        }
+        snapshotKey(config);
+    }
+
+    /**
+     * JPA lifecycle callback executed after a {@link RateLimitConfig} is deleted.
+     *
+     * @param config the removed {@link RateLimitConfig} entity
+     */
+    @PostRemove
+    public void afterRemove(RateLimitConfig config) {
+        if (changePublisher != null) {
+            changePublisher.publish(config, ChangeType.DELETE);
+        }
+    }
 }
@@ -0,0 +1,89 @@
+package com.azoopindia.it.asi.traffic.manager;
+
+import com.azoopindia.it.asi.traffic.manager.service.AliasTable;
+import com.azoopindia.it.asi.traffic.manager.service.RoutingWeights;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Unit tests for {@link AliasTable}.
+ * <p>
+ * Verifies that draws follow the weights, that items of weight zero are never drawn, and that a keyed draw is stable.
+ */
+public class AliasTableTest {
+
+    /**
+     * Verifies that each item is drawn in proportion to its weight.
+     */
+    @Test
+    void sample_shouldFollowWeights() {
+        // Given
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        weights.put("stable", 90);
+        weights.put("canary", 7);
+        weights.put("shadow", 3);
+        AliasTable<String> table = AliasTable.of(weights);
+        SplittableRandom random = new SplittableRandom(42);
+        Map<String, Integer> hits = new HashMap<>();
+
+        // When
+        int draws = 100_000;
+        for (int i = 0; i < draws; i++) {
+            hits.merge(table.sample(random.nextLong()), 1, Integer::sum);
+        }
+
+        // Then
+        assertThat(hits.get("stable") / (double) draws).isCloseTo(0.90, within(0.01));
+        assertThat(hits.get("canary") / (double) draws).isCloseTo(0.07, within(0.01));
+        assertThat(hits.get("shadow") / (double) draws).isCloseTo(0.03, within(0.01));
+    }
+
+    /**
+     * Verifies that items of weight zero are left out and that a table without any positive weight is rejected.
+     */
+    @Test
+    void of_shouldSkipZeroWeights() {
+        // Given
+        AliasTable<String> table = AliasTable.of(Map.of("stable", 1, "drained", 0));
+        SplittableRandom random = new SplittableRandom(7);
+
+        // When / Then
+        assertThat(table.size()).isEqualTo(1);
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(table.sample(random.nextLong())).isEqualTo("stable");
+        }
+        assertThatThrownBy(() -> AliasTable.of(Map.of("drained", 0)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Verifies that draws keyed by a client ID always return the same item and still follow the weights.
+     */
+    @Test
+    void sample_shouldBeStableForKey() {
+        // Given
+        AliasTable<String> table = AliasTable.of(Map.of("stable", 80, "canary", 20));
+
+        // When
+        int canaryClients = 0;
+        for (int client = 0; client < 10_000; client++) {
+            long bits = RoutingWeights.mix("client-" + client);
+            String drawn = table.sample(bits);
+            assertThat(table.sample(bits)).isEqualTo(drawn);
+            if (drawn.equals("canary")) {
+                canaryClients++;
+            }
+        }
+
+        // Then
+        assertThat(canaryClients).isBetween(1_700, 2_300);
+    }
+}
@@ -0,0 +1,80 @@
+package com.azoopindia.it.asi.traffic.manager;
+
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.snapshot.BucketSnapshotFile;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.snapshot.BucketState;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link BucketSnapshotFile} and {@link BucketState}.
+ * <p>
+ * Verifies the round trip through a snapshot file, rejection of invalid files, and the elapsed-time refill.
+ */
+public class BucketSnapshotFileTest {
+
+    @TempDir
+    private Path directory;
+
+    /**
+     * Verifies that a written snapshot reads back unchanged, and that a newer snapshot replaces it.
+     */
+    @Test
+    void write_shouldRoundTripStates() throws IOException {
+        // Given
+        Path file = directory.resolve("state/buckets.snap");
+        Map<String, BucketState> states = Map.of(
+                "client-1:/api/test", new BucketState(12, 1_700_000_000_000L),
+                "client-ü:graphql:createMsgTemplate", new BucketState(0, 1_700_000_000_500L));
+
+        // When
+        BucketSnapshotFile.write(file, Map.of("stale:/api", new BucketState(1, 1)));
+        BucketSnapshotFile.write(file, states);
+        Map<String, BucketState> read = BucketSnapshotFile.read(file);
+
+        // Then
+        assertThat(read).isEqualTo(states);
+        assertThat(BucketSnapshotFile.read(directory.resolve("missing.snap"))).isEmpty();
+        assertThat(Files.exists(directory.resolve("state/buckets.snap.tmp"))).isFalse();
+    }
+
+    /**
+     * Verifies that foreign and truncated files are rejected instead of restoring garbage.
+     */
+    @Test
+    void read_shouldRejectInvalidFiles() throws IOException {
+        // Given
+        Path foreign = Files.write(directory.resolve("foreign.snap"), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+        Path truncated = directory.resolve("truncated.snap");
+        BucketSnapshotFile.write(truncated, Map.of("client-1:/api/test", new BucketState(12, 1)));
+        byte[] content = Files.readAllBytes(truncated);
+        Files.write(truncated, Arrays.copyOf(content, content.length - 4));
+
+        // When / Then
+        assertThatThrownBy(() -> BucketSnapshotFile.read(foreign)).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> BucketSnapshotFile.read(truncated)).isInstanceOf(IOException.class);
+    }
+
+    /**
+     * Verifies that restored tokens are refilled for the elapsed time and capped at the capacity.
+     */
+    @Test
+    void refilledTokens_shouldApplyElapsedRefill() {
+        // Given
+        BucketState state = new BucketState(10, 60_000);
+
+        // When / Then
+        assertThat(state.refilledTokens(60_000, 100, 60, 60_000)).isEqualTo(10);
+        assertThat(state.refilledTokens(90_000, 100, 60, 60_000)).isEqualTo(40);
+        assertThat(state.refilledTokens(600_000, 100, 60, 60_000)).isEqualTo(100);
+        assertThat(state.refilledTokens(0, 100, 60, 60_000)).isEqualTo(10);
+    }
+}
@@ -0,0 +1,119 @@
+package com.azoopindia.it.asi.traffic.manager;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.azoopindia.it.asi.traffic.manager.filter.EarlyAdmissionFilter;
+import com.azoopindia.it.asi.traffic.manager.service.RateLimiterService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link EarlyAdmissionFilter}.
+ */
+@ExtendWith(MockitoExtension.class)
+class EarlyAdmissionFilterTest {
+
+    @Mock
+    private RateLimiterService rateLimiterService;
+
+    @Mock
+    private GatewayFilterChain chain;
+
+    private final AtomicBoolean bodyRead = new AtomicBoolean();
+
+    private EarlyAdmissionFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new EarlyAdmissionFilter(rateLimiterService, new DynamicRoutingProperties());
+    }
+
+    /**
+     * Verifies that an exhausted client is rejected with 429 without its body being read or the chain invoked.
+     */
+    @Test
+    void shouldRejectExhaustedClientWithoutReadingBody() {
+        // Given
+        MockServerWebExchange exchange = exchange("client-1");
+        when(rateLimiterService.tryConsume("client-1", RateLimiterService.ADMISSION_ROUTE, 1)).thenReturn(false);
+
+        // When
+        filter.filter(exchange, chain).block();
+
+        // Then
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+        assertThat(bodyRead).isFalse();
+        verify(chain, never()).filter(any());
+    }
+
+    /**
+     * Verifies that a request without {@code X-Client-Id} is admitted under its IP key.
+     */
+    @Test
+    void shouldFallBackToIpKey() {
+        // Given
+        MockServerWebExchange exchange = exchange(null);
+        when(rateLimiterService.tryConsume("ip:10.0.0.1", RateLimiterService.ADMISSION_ROUTE, 1)).thenReturn(true);
+        when(chain.filter(exchange)).thenReturn(Mono.empty());
+
+        // When
+        filter.filter(exchange, chain).block();
+
+        // Then
+        verify(chain).filter(exchange);
+        assertThat(exchange.getResponse().getStatusCode()).isNull();
+    }
+
+    /**
+     * Verifies that behind the ingress the IP key is the address the ingress appended to {@code X-Forwarded-For},
+     * not the ingress's own address nor an entry the client sent itself.
+     */
+    @Test
+    void shouldKeyByForwardedAddressBehindProxy() {
+        // Given
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/dsc/api/graphql/v1")
+                .remoteAddress(new InetSocketAddress("10.0.0.1", 443))
+                .header("X-Forwarded-For", "198.51.100.9, 203.0.113.7"));
+        when(rateLimiterService.tryConsume("ip:203.0.113.7", RateLimiterService.ADMISSION_ROUTE, 1)).thenReturn(true);
+        when(chain.filter(exchange)).thenReturn(Mono.empty());
+
+        // When
+        filter.filter(exchange, chain).block();
+
+        // Then
+        verify(chain).filter(exchange);
+    }
+
+    private MockServerWebExchange exchange(String clientId) {
+        Flux<DataBuffer> body = Flux.defer(() -> {
+            bodyRead.set(true);
+            return Flux.just(DefaultDataBufferFactory.sharedInstance.wrap("{}".getBytes(StandardCharsets.UTF_8)));
+        });
+        MockServerHttpRequest.BodyBuilder request = MockServerHttpRequest.post("/dsc/api/graphql/v1")
+                .remoteAddress(new InetSocketAddress("10.0.0.1", 443));
+        if (clientId != null) {
+            request.header("X-Client-Id", clientId);
+        }
+        return MockServerWebExchange.from(request.body(body));
+    }
+}
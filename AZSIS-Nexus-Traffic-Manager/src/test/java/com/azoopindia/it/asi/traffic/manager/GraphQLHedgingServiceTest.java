@@ -0,0 +1,132 @@
+package com.azoopindia.it.asi.traffic.manager;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.azoopindia.it.asi.traffic.manager.service.GraphQLHedgingService;
+import com.azoopindia.it.asi.traffic.manager.service.InstanceLoadTracker;
+import com.azoopindia.it.asi.traffic.manager.service.PowerOfTwoChoicesLoadBalancer;
+import graphql.language.OperationDefinition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link GraphQLHedgingService}.
+ * <p>
+ * Upstream calls are answered by a stub exchange function: the primary instance is slow, the other one is fast.
+ */
+public class GraphQLHedgingServiceTest {
+
+    private static final String SERVICE_ID = "localization";
+
+    private static final String QUERY_BODY = "{\"query\":\"query getTranslations { translations { key } }\"}";
+
+    private final ServiceInstance primary = new DefaultServiceInstance("primary", SERVICE_ID, "10.0.0.1", 8080, false);
+
+    private final ServiceInstance secondary = new DefaultServiceInstance("secondary", SERVICE_ID, "10.0.0.2", 8080, false);
+
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+
+    private DynamicRoutingProperties props;
+
+    private GraphQLHedgingService hedgingService;
+
+    @BeforeEach
+    void setUp() {
+        props = new DynamicRoutingProperties();
+        DynamicRoutingProperties.Graphql graphql = new DynamicRoutingProperties.Graphql();
+        graphql.setInboundPath("/dsc/api/graphql/v1");
+        graphql.setServicePath("/graphql");
+        graphql.getHedging().setEnabled(true);
+        graphql.getHedging().setOperations(Set.of("getTranslations"));
+        graphql.getHedging().setMaxDelay(Duration.ofMillis(20));
+        props.setGraphql(graphql);
+
+        @SuppressWarnings("unchecked")
+        ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancerFactory = mock(ReactiveLoadBalancer.Factory.class);
+        when(loadBalancerFactory.getInstance(SERVICE_ID)).thenReturn(request -> Mono.just(new DefaultResponse(
+                request.getContext() instanceof PowerOfTwoChoicesLoadBalancer.HedgeRequestContext ? secondary : primary)));
+
+        WebClient.Builder webClientBuilder = WebClient.builder().exchangeFunction(request -> {
+            upstreamCalls.incrementAndGet();
+            boolean slow = request.url().getHost().equals(primary.getHost());
+            ClientResponse response = ClientResponse.create(HttpStatus.OK)
+                    .header("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                    .body(slow ? "{\"from\":\"primary\"}" : "{\"from\":\"secondary\"}")
+                    .build();
+            return slow ? Mono.delay(Duration.ofMillis(300)).thenReturn(response) : Mono.just(response);
+        });
+
+        hedgingService = new GraphQLHedgingService(loadBalancerFactory,
+                new InstanceLoadTracker(props), props, webClientBuilder);
+    }
+
+    /**
+     * Verifies that only listed query operations are hedged, never mutations.
+     */
+    @Test
+    void isHedgeable_shouldAcceptListedQueriesOnly() {
+        assertThat(hedgingService.isHedgeable("getTranslations", OperationDefinition.Operation.QUERY)).isTrue();
+        assertThat(hedgingService.isHedgeable("getTranslations", OperationDefinition.Operation.MUTATION)).isFalse();
+        assertThat(hedgingService.isHedgeable("otherQuery", OperationDefinition.Operation.QUERY)).isFalse();
+        assertThat(hedgingService.isHedgeable("getTranslations", null)).isFalse();
+    }
+
+    /**
+     * Verifies that a slow primary is overtaken by the hedge sent to the other instance.
+     */
+    @Test
+    void forward_shouldReturnHedgeResponseWhenPrimaryIsSlow() {
+        // Given
+        props.getGraphql().getHedging().setBudgetPercent(100);
+        MockServerWebExchange exchange = exchange();
+
+        // When
+        hedgingService.forward(exchange, SERVICE_ID, "getTranslations", QUERY_BODY.getBytes()).block(Duration.ofSeconds(5));
+
+        // Then
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("{\"from\":\"secondary\"}");
+        assertThat(upstreamCalls.get()).isEqualTo(2);
+    }
+
+    /**
+     * Verifies that no hedge is sent once the hedge budget is exhausted.
+     */
+    @Test
+    void forward_shouldNotHedgeWithoutBudget() {
+        // Given
+        props.getGraphql().getHedging().setBudgetPercent(0);
+        MockServerWebExchange exchange = exchange();
+
+        // When
+        hedgingService.forward(exchange, SERVICE_ID, "getTranslations", QUERY_BODY.getBytes()).block(Duration.ofSeconds(5));
+
+        // Then
+        assertThat(exchange.getResponse().getBodyAsString().block()).isEqualTo("{\"from\":\"primary\"}");
+        assertThat(upstreamCalls.get()).isEqualTo(1);
+    }
+
+    private MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.post("/dsc/api/graphql/v1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(QUERY_BODY));
+    }
+}
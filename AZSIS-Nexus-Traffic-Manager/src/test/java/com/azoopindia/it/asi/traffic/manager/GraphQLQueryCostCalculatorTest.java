@@ -0,0 +1,121 @@
+package com.azoopindia.it.asi.traffic.manager;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.azoopindia.it.asi.traffic.manager.service.GraphQLQueryCostCalculator;
+import com.azoopindia.it.asi.traffic.manager.service.GraphQLQueryCostCalculator.QueryCost;
+import graphql.language.OperationDefinition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+/**
+ * Unit tests for {@link GraphQLQueryCostCalculator}.
+ */
+public class GraphQLQueryCostCalculatorTest {
+
+    private DynamicRoutingProperties props;
+
+    private GraphQLQueryCostCalculator calculator;
+
+    @BeforeEach
+    void setUp() {
+        props = new DynamicRoutingProperties();
+        props.setGraphql(new DynamicRoutingProperties.Graphql());
+        calculator = new GraphQLQueryCostCalculator(props);
+    }
+
+    /**
+     * Verifies that each field costs one and nested fields are multiplied by enclosing page sizes.
+     */
+    @Test
+    void shouldMultiplyNestedFieldsByPageSize() {
+        // Given
+        String body = """
+                {"query":"query { templates(first: 20) { name messages(first: 50) { text } } }"}
+                """;
+        props.getGraphql().getCost().setMaxCost(10_000);
+
+        // When
+        QueryCost cost = calculator.calculate(body);
+
+        // Then
+        assertThat(cost.cost()).isEqualTo(1 + 20 + 20 + 20 * 50);
+        assertThat(cost.depth()).isEqualTo(3);
+    }
+
+    /**
+     * Verifies that page sizes are read from variables, fragments are expanded
+     * and only the named operation is counted and reported.
+     */
+    @Test
+    void shouldResolveVariablesFragmentsAndSelectedOperation() {
+        // Given
+        String body = """
+                {"query":"query Cheap { ping } query Lookup($n: Int) { templates(limit: $n) { ...T } } fragment T on Template { id name }",
+                 "operationName":"Lookup","variables":{"n":10}}
+                """;
+
+        // When
+        QueryCost cost = calculator.calculate(body);
+
+        // Then
+        assertThat(cost.cost()).isEqualTo(1 + 10 * 2);
+        assertThat(cost.depth()).isEqualTo(2);
+        assertThat(cost.operation()).isEqualTo(OperationDefinition.Operation.QUERY);
+    }
+
+    /**
+     * Verifies that fragments spreading the next fragment several times are costed once each, so a document
+     * expanding to billions of fields is costed quickly, and that analysis stops once the maximum cost is exceeded.
+     */
+    @Test
+    void shouldCostFragmentBombWithoutExpandingIt() {
+        // Given
+        StringBuilder query = new StringBuilder("query { root { ...F30 } } fragment F0 on T { leaf }");
+        for (int i = 1; i <= 30; i++) {
+            query.append(" fragment F").append(i).append(" on T { ")
+                    .append(("...F" + (i - 1) + " ").repeat(3)).append("}");
+        }
+        String body = "{\"query\":\"" + query + "\"}";
+        props.getGraphql().getCost().setMaxCost(Long.MAX_VALUE);
+
+        // When
+        QueryCost unbounded = assertTimeoutPreemptively(Duration.ofSeconds(2), () -> calculator.calculate(body));
+        props.getGraphql().getCost().setMaxCost(1000);
+        QueryCost bounded = assertTimeoutPreemptively(Duration.ofSeconds(2), () -> calculator.calculate(body));
+
+        // Then
+        assertThat(unbounded.cost()).isEqualTo(1 + (long) Math.pow(3, 30));
+        assertThat(unbounded.depth()).isEqualTo(2);
+        assertThat(bounded.cost()).isGreaterThan(1000);
+    }
+
+    /**
+     * Verifies that a document with more fragment spreads than allowed is reported as too costly.
+     */
+    @Test
+    void shouldRejectTooManyFragmentSpreads() {
+        // Given
+        props.getGraphql().getCost().setMaxFragmentSpreads(10);
+        String body = "{\"query\":\"query { a { " + "...F ".repeat(11) + "} } fragment F on T { id }\"}";
+
+        // When
+        QueryCost cost = calculator.calculate(body);
+
+        // Then
+        assertThat(cost.cost()).isGreaterThan(props.getGraphql().getCost().getMaxCost());
+    }
+
+    /**
+     * Verifies that bodies that are not GraphQL requests yield no cost.
+     */
+    @Test
+    void shouldReturnNullForUnparsableRequests() {
+        assertThat(calculator.calculate("{\"query\":\"query {\"}")).isNull();
+        assertThat(calculator.calculate("not json")).isNull();
+    }
+}
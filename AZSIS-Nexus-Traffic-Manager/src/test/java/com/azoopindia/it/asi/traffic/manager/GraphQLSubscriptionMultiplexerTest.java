@@ -0,0 +1,420 @@
+package com.azoopindia.it.asi.traffic.manager;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.azoopindia.it.asi.traffic.manager.service.GraphQLSubscriptionMultiplexer;
+import com.azoopindia.it.asi.traffic.manager.service.RateLimiterService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.socket.CloseStatus;
+import org.springframework.web.reactive.socket.HandshakeInfo;
+import org.springframework.web.reactive.socket.WebSocketHandler;
+import org.springframework.web.reactive.socket.WebSocketMessage;
+import org.springframework.web.reactive.socket.WebSocketSession;
+import org.springframework.web.reactive.socket.client.WebSocketClient;
+import org.springframework.web.reactive.socket.server.WebSocketService;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link GraphQLSubscriptionMultiplexer}.
+ * <p>
+ * Client and upstream WebSocket sessions are in-memory fakes; every upstream connection the multiplexer opens is
+ * recorded, so tests can play the service's side of the protocol.
+ */
+public class GraphQLSubscriptionMultiplexerTest {
+
+    private static final String SERVICE_ID = "pigeon";
+
+    private static final Function<String, String> ROUTER = payload -> payload.contains("onNotification") ? SERVICE_ID : null;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final ServiceInstance instance = new DefaultServiceInstance("pigeon-1", SERVICE_ID, "10.0.0.5", 8080, false);
+
+    private final List<FakeSession> upstreams = new ArrayList<>();
+
+    private DynamicRoutingProperties props;
+
+    private RateLimiterService rateLimiterService;
+
+    private GraphQLSubscriptionMultiplexer multiplexer;
+
+    @BeforeEach
+    void setUp() {
+        props = new DynamicRoutingProperties();
+        DynamicRoutingProperties.Graphql graphql = new DynamicRoutingProperties.Graphql();
+        graphql.setInboundPath("/dsc/api/graphql/v1");
+        graphql.setServicePath("/graphql");
+        graphql.getSubscriptions().setConnectionsPerService(1);
+        props.setGraphql(graphql);
+
+        @SuppressWarnings("unchecked")
+        ReactiveLoadBalancer.Factory<ServiceInstance> loadBalancerFactory = mock(ReactiveLoadBalancer.Factory.class);
+        when(loadBalancerFactory.getInstance(SERVICE_ID)).thenReturn(request -> Mono.just(new DefaultResponse(instance)));
+
+        WebSocketClient client = new WebSocketClient() {
+            @Override
+            public Mono<Void> execute(URI url, WebSocketHandler handler) {
+                return execute(url, new HttpHeaders(), handler);
+            }
+
+            @Override
+            public Mono<Void> execute(URI url, HttpHeaders headers, WebSocketHandler handler) {
+                assertThat(url).isEqualTo(URI.create("ws://10.0.0.5:8080/graphql"));
+                assertThat(handler.getSubProtocols()).containsExactly(GraphQLSubscriptionMultiplexer.SUBPROTOCOL);
+                FakeSession upstream = new FakeSession();
+                upstreams.add(upstream);
+                return handler.handle(upstream);
+            }
+        };
+
+        rateLimiterService = mock(RateLimiterService.class);
+        when(rateLimiterService.tryConsume(any(), any(), anyLong())).thenReturn(true);
+
+        multiplexer = new GraphQLSubscriptionMultiplexer(loadBalancerFactory, mock(WebSocketService.class), client,
+                props, rateLimiterService, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Verifies that the subscriptions of two clients share one upstream connection under distinct IDs and that
+     * every upstream message reaches its own client under the client's ID.
+     */
+    @Test
+    void serve_shouldMultiplexClientsOntoOneUpstreamConnection() {
+        // Given
+        FakeSession alice = connect();
+        FakeSession bob = connect();
+        alice.receive("{\"type\":\"connection_init\"}");
+        bob.receive("{\"type\":\"connection_init\"}");
+
+        // When
+        alice.receive("{\"type\":\"subscribe\",\"id\":\"1\",\"payload\":{\"query\":\"subscription onNotification { notification { text } }\"}}");
+        bob.receive("{\"type\":\"subscribe\",\"id\":\"1\",\"payload\":{\"query\":\"subscription onNotification { notification { text } }\"}}");
+        FakeSession upstream = upstreams.get(0);
+        List<String> beforeAck = List.copyOf(upstream.sent);
+        upstream.receive("{\"type\":\"connection_ack\"}");
+        List<JsonNode> subscribes = upstream.sentOfType("subscribe");
+        String aliceUpstreamId = subscribes.get(0).get("id").asText();
+        String bobUpstreamId = subscribes.get(1).get("id").asText();
+        upstream.receive("{\"type\":\"next\",\"id\":\"" + bobUpstreamId + "\",\"payload\":{\"data\":{\"notification\":{\"text\":\"hi bob\"}}}}");
+        upstream.receive("{\"type\":\"next\",\"id\":\"" + aliceUpstreamId + "\",\"payload\":{\"data\":{\"notification\":{\"text\":\"hi alice\"}}}}");
+
+        // Then
+        assertThat(upstreams).hasSize(1);
+        assertThat(beforeAck).singleElement().asString().contains("connection_init");
+        assertThat(aliceUpstreamId).isNotEqualTo(bobUpstreamId);
+        assertThat(alice.sentOfType("next")).singleElement().satisfies(next -> {
+            assertThat(next.get("id").asText()).isEqualTo("1");
+            assertThat(next.at("/payload/data/notification/text").asText()).isEqualTo("hi alice");
+        });
+        assertThat(bob.sentOfType("next")).singleElement()
+                .satisfies(next -> assertThat(next.at("/payload/data/notification/text").asText()).isEqualTo("hi bob"));
+        assertThat(multiplexer.activeSubscriptions()).isEqualTo(2);
+    }
+
+    /**
+     * Verifies that subscriptions completed by the client or left by a disconnecting client are completed upstream,
+     * and that the upstream connection is closed once it carries none.
+     */
+    @Test
+    void serve_shouldCompleteUpstreamWhenClientsLeave() {
+        // Given
+        FakeSession alice = connect();
+        FakeSession bob = connect();
+        alice.receive("{\"type\":\"connection_init\"}");
+        bob.receive("{\"type\":\"connection_init\"}");
+        alice.receive("{\"type\":\"subscribe\",\"id\":\"a\",\"payload\":{\"query\":\"subscription onNotification { notification { text } }\"}}");
+        bob.receive("{\"type\":\"subscribe\",\"id\":\"b\",\"payload\":{\"query\":\"subscription onNotification { notification { text } }\"}}");
+        FakeSession upstream = upstreams.get(0);
+        upstream.receive("{\"type\":\"connection_ack\"}");
+
+        // When
+        alice.receive("{\"type\":\"complete\",\"id\":\"a\"}");
+        boolean openWithBob = upstream.closed;
+        bob.disconnect();
+
+        // Then
+        List<String> subscribed = upstream.sentOfType("subscribe").stream().map(message -> message.get("id").asText()).toList();
+        List<String> completed = upstream.sentOfType("complete").stream().map(message -> message.get("id").asText()).toList();
+        assertThat(completed).containsExactlyElementsOf(subscribed);
+        assertThat(openWithBob).isFalse();
+        assertThat(upstream.closed).isTrue();
+        assertThat(multiplexer.activeSubscriptions()).isZero();
+    }
+
+    /**
+     * Verifies that unroutable subscriptions and subscriptions on a lost upstream connection end with an error,
+     * and that a new subscription opens a fresh connection.
+     */
+    @Test
+    void serve_shouldReportUnroutableAndLostSubscriptions() {
+        // Given
+        FakeSession client = connect();
+        client.receive("{\"type\":\"connection_init\"}");
+
+        // When
+        client.receive("{\"type\":\"subscribe\",\"id\":\"1\",\"payload\":{\"query\":\"subscription onUnknown { unknown }\"}}");
+        client.receive("{\"type\":\"subscribe\",\"id\":\"2\",\"payload\":{\"query\":\"subscription onNotification { notification { text } }\"}}");
+        upstreams.get(0).receive("{\"type\":\"connection_ack\"}");
+        upstreams.get(0).disconnect();
+        client.receive("{\"type\":\"subscribe\",\"id\":\"2\",\"payload\":{\"query\":\"subscription onNotification { notification { text } }\"}}");
+
+        // Then
+        assertThat(client.sentOfType("connection_ack")).hasSize(1);
+        assertThat(client.sentOfType("error")).extracting(error -> error.get("id").asText()).containsExactly("1", "2");
+        assertThat(upstreams).hasSize(2);
+        assertThat(multiplexer.activeSubscriptions()).isEqualTo(1);
+    }
+
+    /**
+     * Verifies that a client subscribing before {@code connection_init} is closed with 4401 and nothing is
+     * forwarded upstream.
+     */
+    @Test
+    void serve_shouldCloseClientSubscribingBeforeInit() {
+        // Given
+        FakeSession client = connect();
+
+        // When
+        client.receive("{\"type\":\"subscribe\",\"id\":\"1\",\"payload\":{\"query\":\"subscription onNotification { notification { text } }\"}}");
+
+        // Then
+        assertThat(client.closeStatus).isEqualTo(new CloseStatus(4401, "Unauthorized"));
+        assertThat(upstreams).isEmpty();
+        assertThat(multiplexer.activeSubscriptions()).isZero();
+    }
+
+    /**
+     * Verifies that subscriptions beyond the per-client limit end with an error without being forwarded.
+     */
+    @Test
+    void serve_shouldRejectSubscriptionsBeyondClientLimit() {
+        // Given
+        props.getGraphql().getSubscriptions().setMaxSubscriptionsPerClient(1);
+        FakeSession client = connect();
+        client.receive("{\"type\":\"connection_init\"}");
+
+        // When
+        client.receive("{\"type\":\"subscribe\",\"id\":\"1\",\"payload\":{\"query\":\"subscription onNotification { notification { text } }\"}}");
+        client.receive("{\"type\":\"subscribe\",\"id\":\"2\",\"payload\":{\"query\":\"subscription onNotification { notification { text } }\"}}");
+        upstreams.get(0).receive("{\"type\":\"connection_ack\"}");
+
+        // Then
+        assertThat(client.sentOfType("error")).singleElement()
+                .satisfies(error -> assertThat(error.get("id").asText()).isEqualTo("2"));
+        assertThat(upstreams.get(0).sentOfType("subscribe")).hasSize(1);
+        assertThat(multiplexer.activeSubscriptions()).isEqualTo(1);
+    }
+
+    /**
+     * Verifies that every subscribe is charged to the handshake's client ID and that a rejected one ends with an
+     * error without being forwarded.
+     */
+    @Test
+    void serve_shouldChargeRateLimitPerSubscribe() {
+        // Given
+        when(rateLimiterService.resolveRoute("client-1", "/dsc/api/graphql/v1", "onNotification")).thenReturn("notifications");
+        when(rateLimiterService.tryConsume("client-1", "notifications", 1)).thenReturn(true, false);
+        FakeSession client = connect();
+        client.receive("{\"type\":\"connection_init\"}");
+
+        // When
+        client.receive("{\"type\":\"subscribe\",\"id\":\"1\",\"payload\":{\"operationName\":\"onNotification\",\"query\":\"subscription onNotification { notification { text } }\"}}");
+        client.receive("{\"type\":\"subscribe\",\"id\":\"2\",\"payload\":{\"operationName\":\"onNotification\",\"query\":\"subscription onNotification { notification { text } }\"}}");
+
+        // Then
+        verify(rateLimiterService, times(2)).tryConsume(eq("client-1"), eq("notifications"), eq(1L));
+        assertThat(client.sentOfType("error")).singleElement().satisfies(error -> {
+            assertThat(error.get("id").asText()).isEqualTo("2");
+            assertThat(error.toString()).contains("Rate limit exceeded");
+        });
+        assertThat(multiplexer.activeSubscriptions()).isEqualTo(1);
+    }
+
+    /**
+     * Verifies that a client not reading its messages is closed with 4413 once its buffer is full, instead of
+     * being buffered without bound.
+     */
+    @Test
+    void serve_shouldCloseClientOverflowingItsBuffer() {
+        // Given
+        props.getGraphql().getSubscriptions().setClientBufferSize(2);
+        FakeSession client = new FakeSession();
+        client.stalled = true;
+        multiplexer.serve(client, ROUTER).subscribe();
+
+        // When
+        client.receive("{\"type\":\"ping\"}");
+        client.receive("{\"type\":\"ping\"}");
+        boolean openWithFullBuffer = client.isOpen();
+        client.receive("{\"type\":\"ping\"}");
+
+        // Then
+        assertThat(openWithFullBuffer).isTrue();
+        assertThat(client.closeStatus).isEqualTo(new CloseStatus(4413, "Too many undelivered messages"));
+    }
+
+    private FakeSession connect() {
+        FakeSession session = new FakeSession();
+        multiplexer.serve(session, ROUTER).subscribe();
+        return session;
+    }
+
+    /**
+     * In-memory WebSocket session: {@link #receive(String)} plays a message from the peer,
+     * {@link #sent} collects the messages written to the peer.
+     */
+    private class FakeSession implements WebSocketSession {
+
+        private final DataBufferFactory bufferFactory = DefaultDataBufferFactory.sharedInstance;
+
+        private final Sinks.Many<WebSocketMessage> inbound = Sinks.many().unicast().onBackpressureBuffer();
+
+        private final List<String> sent = new ArrayList<>();
+
+        private final Map<String, Object> attributes = new HashMap<>();
+
+        private boolean closed;
+
+        private CloseStatus closeStatus;
+
+        /**
+         * Whether the peer never reads, leaving every message the session should send undelivered.
+         */
+        private boolean stalled;
+
+        void receive(String text) {
+            inbound.tryEmitNext(textMessage(text));
+        }
+
+        void disconnect() {
+            inbound.tryEmitComplete();
+        }
+
+        List<JsonNode> sentOfType(String type) {
+            return sent.stream()
+                    .map(text -> {
+                        try {
+                            return mapper.readTree(text);
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    })
+                    .filter(message -> message.path("type").asText().equals(type))
+                    .toList();
+        }
+
+        @Override
+        public String getId() {
+            return Integer.toHexString(System.identityHashCode(this));
+        }
+
+        @Override
+        public HandshakeInfo getHandshakeInfo() {
+            HttpHeaders headers = new HttpHeaders();
+            headers.add("X-Client-Id", "client-1");
+            return new HandshakeInfo(URI.create("ws://gateway/dsc/api/graphql/v1"), headers, Mono.empty(),
+                    GraphQLSubscriptionMultiplexer.SUBPROTOCOL);
+        }
+
+        @Override
+        public DataBufferFactory bufferFactory() {
+            return bufferFactory;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public Flux<WebSocketMessage> receive() {
+            return inbound.asFlux();
+        }
+
+        @Override
+        public Mono<Void> send(Publisher<WebSocketMessage> messages) {
+            if (stalled) {
+                Flux.from(messages).subscribe(new BaseSubscriber<>() {
+                    @Override
+                    protected void hookOnSubscribe(Subscription subscription) {
+                    }
+                });
+                return Mono.never();
+            }
+            return Flux.from(messages).doOnNext(message -> sent.add(message.getPayloadAsText())).then();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return !closed;
+        }
+
+        @Override
+        public Mono<Void> close(CloseStatus status) {
+            return Mono.fromRunnable(() -> {
+                closed = true;
+                closeStatus = status;
+                inbound.tryEmitComplete();
+            });
+        }
+
+        @Override
+        public Mono<CloseStatus> closeStatus() {
+            return Mono.never();
+        }
+
+        @Override
+        public WebSocketMessage textMessage(String payload) {
+            DataBuffer buffer = bufferFactory.wrap(payload.getBytes(StandardCharsets.UTF_8));
+            return new WebSocketMessage(WebSocketMessage.Type.TEXT, buffer);
+        }
+
+        @Override
+        public WebSocketMessage binaryMessage(Function<DataBufferFactory, DataBuffer> payloadFactory) {
+            return new WebSocketMessage(WebSocketMessage.Type.BINARY, payloadFactory.apply(bufferFactory));
+        }
+
+        @Override
+        public WebSocketMessage pingMessage(Function<DataBufferFactory, DataBuffer> payloadFactory) {
+            return new WebSocketMessage(WebSocketMessage.Type.PING, payloadFactory.apply(bufferFactory));
+        }
+
+        @Override
+        public WebSocketMessage pongMessage(Function<DataBufferFactory, DataBuffer> payloadFactory) {
+            return new WebSocketMessage(WebSocketMessage.Type.PONG, payloadFactory.apply(bufferFactory));
+        }
+    }
+}
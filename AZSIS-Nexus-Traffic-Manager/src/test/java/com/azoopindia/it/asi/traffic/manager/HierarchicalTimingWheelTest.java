@@ -0,0 +1,123 @@
+package com.azoopindia.it.asi.traffic.manager;
+
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.expiry.HierarchicalTimingWheel;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.expiry.HierarchicalTimingWheel.Timeout;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link HierarchicalTimingWheel}.
+ * <p>
+ * Verifies firing order within and across levels, deadlines beyond the wheel's range, and cancellation.
+ */
+public class HierarchicalTimingWheelTest {
+
+    private static final long TICK = 1_000;
+
+    /**
+     * Verifies that entries fire at the first tick at or after their deadline, in deadline order, including entries
+     * that cascade down from higher levels.
+     */
+    @Test
+    void advance_shouldFireEntriesInDeadlineOrder() {
+        // Given
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK, 0);
+        wheel.schedule(5_000_000 * TICK, "level-3");
+        wheel.schedule(70_000 * TICK, "level-2");
+        wheel.schedule(100 * TICK, "level-1");
+        wheel.schedule(3 * TICK - 1, "level-0");
+        List<String> fired = new ArrayList<>();
+
+        // When
+        wheel.advance(2 * TICK, fired::add);
+        List<String> early = new ArrayList<>(fired);
+        wheel.advance(3 * TICK, fired::add);
+        wheel.advance(100 * TICK - 1, fired::add);
+        List<String> beforeLevel1 = new ArrayList<>(fired);
+        wheel.advance(100 * TICK, fired::add);
+        wheel.advance(70_000 * TICK, fired::add);
+        wheel.advance(5_000_000 * TICK - 1, fired::add);
+        List<String> beforeLevel3 = new ArrayList<>(fired);
+        wheel.advance(5_000_000 * TICK, fired::add);
+
+        // Then
+        assertThat(early).isEmpty();
+        assertThat(beforeLevel1).containsExactly("level-0");
+        assertThat(beforeLevel3).containsExactly("level-0", "level-1", "level-2");
+        assertThat(fired).containsExactly("level-0", "level-1", "level-2", "level-3");
+        assertThat(wheel.size()).isZero();
+    }
+
+    /**
+     * Verifies that an entry scheduled while the wheel has advanced far fires at its deadline, not early.
+     */
+    @Test
+    void schedule_shouldPlaceRelativeToCurrentTick() {
+        // Given
+        HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(TICK, 0);
+        wheel.advance(4_095 * TICK, t -> { });
+        List<Integer> fired = new ArrayList<>();
+        for (int delay = 1; delay <= 5_000; delay += 7) {
+            wheel.schedule((4_095 + delay) * TICK, delay);
+        }
+
+        // When / Then
+        for (int tick = 4_096; tick <= 4_095 + 5_000; tick++) {
+            fired.clear();
+            wheel.advance(tick * TICK, fired::add);
+            int delay = tick - 4_095;
+            assertThat(fired).isEqualTo((delay - 1) % 7 == 0 ? List.of(delay) : List.of());
+        }
+    }
+
+    /**
+     * Verifies that deadlines beyond the wheel's range and in the past still fire at the right tick.
+     */
+    @Test
+    void schedule_shouldHandleDeadlinesOutsideTheWheel() {
+        // Given
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK, 0);
+        long farTick = (1L << 24) * 3 + 17;
+        wheel.schedule(farTick * TICK, "far");
+        wheel.advance(10 * TICK, t -> { });
+        wheel.schedule(-5 * TICK, "past");
+        List<String> fired = new ArrayList<>();
+
+        // When
+        wheel.advance(11 * TICK, fired::add);
+        wheel.advance((farTick - 1) * TICK, fired::add);
+        List<String> beforeFar = new ArrayList<>(fired);
+        wheel.advance(farTick * TICK, fired::add);
+
+        // Then
+        assertThat(beforeFar).containsExactly("past");
+        assertThat(fired).containsExactly("past", "far");
+    }
+
+    /**
+     * Verifies that a cancelled entry never fires and cannot be cancelled twice.
+     */
+    @Test
+    void cancel_shouldRemoveEntry() {
+        // Given
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK, 0);
+        Timeout<String> cancelled = wheel.schedule(200 * TICK, "cancelled");
+        wheel.schedule(200 * TICK, "kept");
+        List<String> fired = new ArrayList<>();
+
+        // When
+        boolean first = wheel.cancel(cancelled);
+        boolean second = wheel.cancel(cancelled);
+        wheel.advance(200 * TICK, fired::add);
+
+        // Then
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        assertThat(fired).containsExactly("kept");
+        assertThat(wheel.size()).isZero();
+    }
+}
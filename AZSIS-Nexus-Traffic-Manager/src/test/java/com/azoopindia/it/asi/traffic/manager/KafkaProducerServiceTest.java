@@ -0,0 +1,103 @@
+package com.azoopindia.it.asi.traffic.manager;
+
+import com.azoopindia.it.asi.traffic.manager.kafka.model.LocalizationMessageEvent;
+import com.azoopindia.it.asi.traffic.manager.kafka.service.producer.KafkaProducerService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link KafkaProducerService}.
+ */
+@ExtendWith(MockitoExtension.class)
+class KafkaProducerServiceTest {
+
+    @Mock
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Mock
+    private KafkaTemplate<String, LocalizationMessageEvent> localizationKafkaTemplate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private KafkaProducerService producer;
+
+    @BeforeEach
+    void setUp() {
+        producer = new KafkaProducerService(kafkaTemplate, localizationKafkaTemplate, meterRegistry, 1, 3, 1, 5, 0.5);
+    }
+
+    /**
+     * Verifies that a retriable broker error is retried and the send then succeeds.
+     */
+    @Test
+    void shouldRetryRetriableErrorsUntilSuccess() {
+        // Given
+        SendResult<String, String> result = new SendResult<>(new ProducerRecord<>("topic", "key", "value"), null);
+        when(kafkaTemplate.send(record("value")))
+                .thenReturn(CompletableFuture.failedFuture(new TimeoutException("broker unavailable")))
+                .thenReturn(CompletableFuture.completedFuture(result));
+
+        // When
+        SendResult<String, String> sent = producer.send("topic", "key", "value").block(Duration.ofSeconds(5));
+
+        // Then
+        assertThat(sent).isSameAs(result);
+        verify(kafkaTemplate, times(2)).send(record("value"));
+        assertThat(meterRegistry.get("gateway.kafka.send.retries").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("gateway.kafka.send").tag("outcome", "success").timer().count()).isEqualTo(1);
+    }
+
+    /**
+     * Verifies that errors the broker reports as permanent fail the send without a retry.
+     */
+    @Test
+    void shouldNotRetryPermanentErrors() {
+        // Given
+        when(kafkaTemplate.send(record("value")))
+                .thenReturn(CompletableFuture.failedFuture(new RecordTooLargeException("too large")));
+
+        // When / Then
+        assertThatThrownBy(() -> producer.send("topic", "key", "value").block(Duration.ofSeconds(5)))
+                .isInstanceOf(RecordTooLargeException.class);
+        verify(kafkaTemplate, times(1)).send(record("value"));
+    }
+
+    /**
+     * Verifies that sends beyond the in-flight limit are rejected once the retries are exhausted.
+     */
+    @Test
+    void shouldRejectSendsBeyondInFlightLimit() {
+        // Given
+        when(kafkaTemplate.send(record("first"))).thenReturn(new CompletableFuture<>());
+        producer.send("topic", "key", "first").subscribe();
+        assertThat(meterRegistry.get("gateway.kafka.send.in.flight").gauge().value()).isEqualTo(1);
+
+        // When / Then
+        assertThatThrownBy(() -> producer.send("topic", "key", "second").block(Duration.ofSeconds(5)))
+                .isInstanceOf(KafkaProducerService.KafkaBackpressureException.class);
+        assertThat(meterRegistry.get("gateway.kafka.send").tag("outcome", "rejected").timer().count()).isEqualTo(1);
+    }
+
+    private static ProducerRecord<String, String> record(String value) {
+        return argThat(record -> "topic".equals(record.topic()) && "key".equals(record.key()) && value.equals(record.value()));
+    }
+}
@@ -0,0 +1,123 @@
+package com.azoopindia.it.asi.traffic.manager;
+
+import com.azoopindia.it.asi.traffic.manager.kafka.codec.LocalizationMessageEventCodec;
+import com.azoopindia.it.asi.traffic.manager.kafka.codec.LocalizationMessageEventDeserializer;
+import com.azoopindia.it.asi.traffic.manager.kafka.model.LocalizationMessageEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link LocalizationMessageEventCodec} and {@link LocalizationMessageEventDeserializer}.
+ */
+class LocalizationMessageEventCodecTest {
+
+    private final LocalizationMessageEventDeserializer deserializer = new LocalizationMessageEventDeserializer();
+
+    /**
+     * Verifies that every field, including non-ASCII text, survives a round trip and that the binary form is
+     * smaller than the JSON form.
+     */
+    @Test
+    void shouldRoundTripAllFieldsCompactly() throws Exception {
+        // Given
+        LocalizationMessageEvent event = event();
+
+        // When
+        byte[] encoded = LocalizationMessageEventCodec.encode(event);
+        LocalizationMessageEvent decoded = deserializer.deserialize("topic", encoded);
+
+        // Then
+        assertThat(decoded).usingRecursiveComparison().isEqualTo(event);
+        assertThat(encoded.length).isLessThan(new ObjectMapper().writeValueAsBytes(event).length);
+    }
+
+    /**
+     * Verifies that an event without arguments, empty or {@code null}, decodes with an empty argument list, so
+     * consumers never see {@code null} args.
+     */
+    @Test
+    void shouldDecodeMissingArgsAsEmptyList() {
+        // Given
+        LocalizationMessageEvent empty = event();
+        empty.setArgs(List.of());
+        LocalizationMessageEvent absent = event();
+        absent.setArgs(null);
+
+        // When
+        LocalizationMessageEvent decodedEmpty = deserializer.deserialize("topic", LocalizationMessageEventCodec.encode(empty));
+        LocalizationMessageEvent decodedAbsent = deserializer.deserialize("topic", LocalizationMessageEventCodec.encode(absent));
+
+        // Then
+        assertThat(decodedEmpty).usingRecursiveComparison().isEqualTo(empty);
+        assertThat(decodedAbsent.getArgs()).isNotNull().isEmpty();
+    }
+
+    /**
+     * Verifies that fields unknown to this version are skipped, so newer producers stay readable.
+     */
+    @Test
+    void shouldSkipUnknownFields() {
+        // Given
+        LocalizationMessageEvent event = new LocalizationMessageEvent();
+        event.setRequestId("REQ-1");
+        event.setArgs(List.of());
+        byte[] encoded = LocalizationMessageEventCodec.encode(event);
+        byte[] unknownFields = {
+                (byte) 0x9A, 0x06, 2, 'h', 'i', // field 99, length-delimited "hi"
+                (byte) 0xA0, 0x06, 42};         // field 100, varint 42
+        byte[] payload = Arrays.copyOf(encoded, encoded.length + unknownFields.length);
+        System.arraycopy(unknownFields, 0, payload, encoded.length, unknownFields.length);
+
+        // When
+        LocalizationMessageEvent decoded = LocalizationMessageEventCodec.decode(ByteBuffer.wrap(payload));
+
+        // Then
+        assertThat(decoded).usingRecursiveComparison().isEqualTo(event);
+    }
+
+    /**
+     * Verifies that JSON payloads written before the binary format are still accepted, and that garbage is rejected.
+     */
+    @Test
+    void shouldAcceptLegacyJsonAndRejectGarbage() {
+        // Given
+        byte[] json = "{\"requestId\":\"REQ-1\",\"args\":[\"a\"],\"futureField\":true}".getBytes(StandardCharsets.UTF_8);
+
+        // When
+        LocalizationMessageEvent decoded = deserializer.deserialize("topic", json);
+
+        // Then
+        assertThat(decoded.getRequestId()).isEqualTo("REQ-1");
+        assertThat(decoded.getArgs()).containsExactly("a");
+        assertThatThrownBy(() -> deserializer.deserialize("topic", "LocalizationMessageEvent(requestId=REQ-1)".getBytes(StandardCharsets.UTF_8)))
+                .isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> LocalizationMessageEventCodec.decode(ByteBuffer.wrap(new byte[]{LocalizationMessageEventCodec.MARKER, 1, 0x0A, 5, 'x'})))
+                .isInstanceOf(SerializationException.class);
+    }
+
+    private static LocalizationMessageEvent event() {
+        LocalizationMessageEvent event = new LocalizationMessageEvent();
+        event.setRequestId("REQ-MSG-LOCALE-12fd4e02-aefc-437b-a5d6-b3c8329a918e");
+        event.setUserCoRelationID("user-1");
+        event.setServiceCoRelationID("api-gateway");
+        event.setMsgTemplateID("ERR_RATE_LIMIT");
+        event.setSourceService("api-gateway");
+        event.setTargetService("pigeon");
+        event.setLocale("ja");
+        event.setArgs(List.of("100", "1 分", "🚦"));
+        event.setContent("Rate limit of {0} per {1} exceeded {2}");
+        event.setResolvedMessage("レート制限を超えました");
+        event.setMsgResolutionTimestamp("1752048000");
+        event.setMsgCreationTimestamp("2025-07-09T08:00:00Z");
+        return event;
+    }
+}
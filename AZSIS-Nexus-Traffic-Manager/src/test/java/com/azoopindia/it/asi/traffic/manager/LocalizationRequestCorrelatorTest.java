@@ -0,0 +1,115 @@
+package com.azoopindia.it.asi.traffic.manager;
+
+import com.azoopindia.it.asi.traffic.manager.kafka.codec.LocalizationMessageEventCodec;
+import com.azoopindia.it.asi.traffic.manager.kafka.model.KafkaEventHeaders;
+import com.azoopindia.it.asi.traffic.manager.kafka.model.LocalizationMessageEvent;
+import com.azoopindia.it.asi.traffic.manager.kafka.service.LocalizationRequestCorrelator;
+import com.azoopindia.it.asi.traffic.manager.kafka.service.producer.KafkaProducerService;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link LocalizationRequestCorrelator}.
+ */
+@ExtendWith(MockitoExtension.class)
+class LocalizationRequestCorrelatorTest {
+
+    @Mock
+    private KafkaProducerService kafkaProducerService;
+
+    private LocalizationRequestCorrelator correlator;
+
+    @BeforeEach
+    void setUp() {
+        correlator = new LocalizationRequestCorrelator(kafkaProducerService, "localization-tp",
+                "api-gateway", Duration.ofMillis(200), 10, "gateway-group");
+    }
+
+    /**
+     * Verifies that a binary reply in a batch completes the request with the same requestId, that other replies
+     * (including legacy JSON ones) are skipped, and that the request carries its correlation headers.
+     */
+    @Test
+    void shouldCompletePendingRequestFromReplyBatch() throws Exception {
+        // Given
+        when(kafkaProducerService.send(eq("localization-tp"), eq("REQ-1"), any(LocalizationMessageEvent.class), any())).thenAnswer(invocation -> {
+            Iterable<Header> headers = invocation.getArgument(3);
+            assertThat(headers).extracting(Header::key).contains(KafkaEventHeaders.REQUEST_ID, KafkaEventHeaders.EVENT_TYPE);
+            return Mono.empty();
+        });
+        LocalizationMessageEvent request = new LocalizationMessageEvent();
+        request.setRequestId("REQ-1");
+        request.setMsgTemplateID("ERR_RATE_LIMIT");
+
+        LocalizationMessageEvent reply = new LocalizationMessageEvent();
+        reply.setRequestId("REQ-1");
+        reply.setResolvedMessage("Too many requests");
+        List<ConsumerRecord<String, ByteBuffer>> batch = List.of(
+                record(bytes("{\"requestId\":\"REQ-OTHER\",\"resolvedMessage\":\"x\"}")),
+                record(bytes("not json")),
+                record(bytes("not json either"), new RecordHeader(KafkaEventHeaders.REQUEST_ID, bytes("REQ-OTHER"))),
+                record(LocalizationMessageEventCodec.encode(reply), new RecordHeader(KafkaEventHeaders.REQUEST_ID, bytes("REQ-1")),
+                        new RecordHeader(KafkaEventHeaders.EVENT_TYPE, bytes(KafkaEventHeaders.LOCALIZATION_EVENT_TYPE))));
+
+        // When
+        CompletableFuture<LocalizationMessageEvent> response = correlator.request(request).toFuture();
+        int completed = correlator.completeAll(batch);
+
+        // Then
+        assertThat(completed).isEqualTo(1);
+        assertThat(response.get(5, TimeUnit.SECONDS).getResolvedMessage()).isEqualTo("Too many requests");
+        assertThat(request.getServiceCoRelationID()).isEqualTo("api-gateway");
+        assertThat(correlator.pendingCount()).isZero();
+    }
+
+    /**
+     * Verifies that an unanswered request times out and is removed from the pending map.
+     */
+    @Test
+    void shouldTimeOutUnansweredRequest() {
+        // Given
+        when(kafkaProducerService.send(eq("localization-tp"), any(), any(LocalizationMessageEvent.class), any())).thenReturn(Mono.empty());
+        LocalizationMessageEvent request = new LocalizationMessageEvent();
+        request.setMsgTemplateID("ERR_RATE_LIMIT");
+
+        // When / Then
+        assertThatThrownBy(() -> correlator.request(request).block(Duration.ofSeconds(5)))
+                .hasCauseInstanceOf(TimeoutException.class);
+        assertThat(request.getRequestId()).startsWith("REQ-MSG-LOCALE-");
+        assertThat(correlator.pendingCount()).isZero();
+    }
+
+    private static ConsumerRecord<String, ByteBuffer> record(byte[] value, Header... headers) {
+        return new ConsumerRecord<>("replies", 0, 0, ConsumerRecord.NO_TIMESTAMP, TimestampType.NO_TIMESTAMP_TYPE,
+                ConsumerRecord.NULL_SIZE, ConsumerRecord.NULL_SIZE, null, ByteBuffer.wrap(value), new RecordHeaders(headers),
+                Optional.empty());
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
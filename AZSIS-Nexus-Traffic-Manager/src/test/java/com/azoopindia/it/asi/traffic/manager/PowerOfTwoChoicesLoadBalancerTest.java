@@ -0,0 +1,339 @@
+package com.azoopindia.it.asi.traffic.manager;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.azoopindia.it.asi.traffic.manager.service.InstanceLoadTracker;
+import com.azoopindia.it.asi.traffic.manager.service.PowerOfTwoChoicesLoadBalancer;
+import com.azoopindia.it.asi.traffic.manager.service.RoutingTableSnapshotStore;
+import com.azoopindia.it.asi.traffic.manager.service.RoutingWeights;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.LinkedMultiValueMap;
+import reactor.core.publisher.Flux;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link PowerOfTwoChoicesLoadBalancer} together with {@link InstanceLoadTracker}.
+ * <p>
+ * With two registered instances both are always drawn, so the choice is deterministic and reflects the cost ranking.
+ */
+public class PowerOfTwoChoicesLoadBalancerTest {
+
+    private static final String SERVICE_ID = "localization";
+
+    private final ServiceInstance fast = new DefaultServiceInstance("fast", SERVICE_ID, "10.0.0.1", 8080, false);
+
+    private final ServiceInstance slow = new DefaultServiceInstance("slow", SERVICE_ID, "10.0.0.2", 8080, false);
+
+    private DynamicRoutingProperties properties;
+
+    private InstanceLoadTracker loadTracker;
+
+    private PowerOfTwoChoicesLoadBalancer loadBalancer;
+
+    @BeforeEach
+    void setUp() {
+        properties = new DynamicRoutingProperties();
+        properties.getLoadBalancing().setWarmUp(Duration.ZERO);
+        loadTracker = new InstanceLoadTracker(properties);
+        loadBalancer = loadBalancer(fast, slow);
+    }
+
+    /**
+     * Verifies that the instance with the lower latency EWMA is preferred.
+     */
+    @Test
+    void choose_shouldPreferLowerLatencyInstance() {
+        // Given
+        complete(slow, Duration.ofMillis(500), HttpStatus.OK);
+        complete(fast, Duration.ofMillis(5), HttpStatus.OK);
+
+        // When / Then
+        for (int i = 0; i < 20; i++) {
+            assertThat(chosen()).isEqualTo(fast);
+        }
+    }
+
+    /**
+     * Verifies that requests in flight raise an instance's cost even when latencies are equal.
+     */
+    @Test
+    void choose_shouldAvoidInstanceWithMoreRequestsInFlight() {
+        // Given
+        complete(slow, Duration.ofMillis(20), HttpStatus.OK);
+        complete(fast, Duration.ofMillis(20), HttpStatus.OK);
+        for (int i = 0; i < 3; i++) {
+            loadTracker.onStartRequest(new DefaultRequest<>(new RequestDataContext()), new DefaultResponse(fast));
+        }
+
+        // When / Then
+        assertThat(chosen()).isEqualTo(slow);
+    }
+
+    /**
+     * Verifies that a failing instance is backed off even though it is the faster one,
+     * and is used again once it succeeds.
+     */
+    @Test
+    void choose_shouldBackOffFailingInstance() {
+        // Given
+        complete(slow, Duration.ofMillis(500), HttpStatus.OK);
+        complete(fast, Duration.ofMillis(5), HttpStatus.SERVICE_UNAVAILABLE);
+
+        // When / Then
+        assertThat(chosen()).isEqualTo(slow);
+
+        complete(fast, Duration.ofMillis(5), HttpStatus.OK);
+        assertThat(chosen()).isEqualTo(fast);
+    }
+
+    /**
+     * Verifies that with affinity enabled every client keeps hitting the same instance regardless of latency,
+     * and that the clients are spread over the instances.
+     */
+    @Test
+    void choose_shouldPinClientToInstanceWithAffinity() {
+        // Given
+        properties.getLoadBalancing().getAffinity().setEnabled(true);
+        complete(slow, Duration.ofMillis(500), HttpStatus.OK);
+        complete(fast, Duration.ofMillis(5), HttpStatus.OK);
+        Set<ServiceInstance> used = new HashSet<>();
+
+        // When / Then
+        for (int client = 0; client < 20; client++) {
+            ServiceInstance first = chosen("client-" + client);
+            for (int i = 0; i < 5; i++) {
+                assertThat(chosen("client-" + client)).isEqualTo(first);
+            }
+            used.add(first);
+        }
+        assertThat(used).containsExactlyInAnyOrder(fast, slow);
+    }
+
+    /**
+     * Verifies that a client's requests spill over to the next instance while its own carries too many in flight.
+     */
+    @Test
+    void choose_shouldSpillOverFromOverloadedAffinityInstance() {
+        // Given
+        properties.getLoadBalancing().getAffinity().setEnabled(true);
+        ServiceInstance home = chosen("client-1");
+        ServiceInstance other = home.equals(fast) ? slow : fast;
+        for (int i = 0; i < 3; i++) {
+            loadTracker.onStartRequest(new DefaultRequest<>(new RequestDataContext()), new DefaultResponse(home));
+        }
+
+        // When
+        ServiceInstance overloaded = chosen("client-1");
+        properties.getLoadBalancing().getAffinity().setServices(Set.of("pigeon"));
+        ServiceInstance otherService = chosen("client-1");
+
+        // Then
+        assertThat(overloaded).isEqualTo(other);
+        assertThat(otherService).isEqualTo(other);
+    }
+
+    /**
+     * Verifies that a canary version receives its weighted share of the traffic, that a client stays on the version
+     * it drew and that a version of weight 0 receives nothing.
+     */
+    @Test
+    void choose_shouldSplitTrafficByVersionWeight() {
+        // Given
+        ServiceInstance stable1 = versioned("stable-1", "2.3.0", "95");
+        ServiceInstance stable2 = versioned("stable-2", "2.3.0", "95");
+        ServiceInstance canary = versioned("canary", "2.4.0-canary", "10");
+        ServiceInstance drained = versioned("drained", "2.2.0", "0");
+        loadBalancer = loadBalancer(stable1, stable2, canary, drained);
+
+        // When
+        int canaryHits = 0;
+        for (int i = 0; i < 10_000; i++) {
+            ServiceInstance instance = chosen();
+            assertThat(instance).isNotEqualTo(drained);
+            if (instance.equals(canary)) {
+                canaryHits++;
+            }
+        }
+        properties.getLoadBalancing().getAffinity().setEnabled(true);
+        ServiceInstance pinned = chosen("client-7");
+
+        // Then
+        assertThat(canaryHits).isBetween(300, 700);
+        for (int i = 0; i < 50; i++) {
+            assertThat(chosen("client-7").equals(canary)).isEqualTo(pinned.equals(canary));
+        }
+    }
+
+    /**
+     * Verifies that a hedge never goes to the instance of the request it hedges, even if that one is preferred,
+     * and stays on the version the client is pinned to instead of falling back to another one.
+     */
+    @Test
+    void choose_shouldHedgeWithinVersionExcludingPrimary() {
+        // Given
+        complete(slow, Duration.ofMillis(500), HttpStatus.OK);
+        complete(fast, Duration.ofMillis(5), HttpStatus.OK);
+        ServiceInstance hedgeOfFast = hedged("client-1", fast);
+
+        ServiceInstance stable1 = versioned("stable-1", "2.3.0", "50");
+        ServiceInstance stable2 = versioned("stable-2", "2.3.0", "50");
+        ServiceInstance canary = versioned("canary", "2.4.0-canary", "50");
+        loadBalancer = loadBalancer(stable1, stable2, canary);
+        properties.getLoadBalancing().getAffinity().setEnabled(true);
+
+        // When / Then
+        assertThat(hedgeOfFast).isEqualTo(slow);
+        for (int client = 0; client < 50; client++) {
+            ServiceInstance primary = chosen("client-" + client);
+            ServiceInstance hedge = hedged("client-" + client, primary);
+            if (primary.equals(canary)) {
+                assertThat(hedge).isNull();
+            } else {
+                assertThat(hedge).isIn(stable1, stable2).isNotEqualTo(primary);
+            }
+        }
+    }
+
+    /**
+     * Verifies that the split follows a weight change of an instance whose id, and so its equality as a Eureka
+     * instance, stays the same.
+     */
+    @Test
+    void choose_shouldRebuildSplitWhenOnlyMetadataChanges() {
+        // Given
+        AtomicReference<List<ServiceInstance>> registered = new AtomicReference<>(List.of(
+                sameId(versioned("stable", "2.3.0", "100")), sameId(versioned("canary", "2.4.0-canary", "0"))));
+        ServiceInstanceListSupplier supplier = new ServiceInstanceListSupplier() {
+            @Override
+            public String getServiceId() {
+                return SERVICE_ID;
+            }
+
+            @Override
+            public Flux<List<ServiceInstance>> get() {
+                return Flux.just(new ArrayList<>(registered.get()));
+            }
+        };
+        loadBalancer = loadBalancer(supplier);
+        for (int i = 0; i < 100; i++) {
+            assertThat(chosen().getInstanceId()).isEqualTo("stable");
+        }
+
+        // When
+        registered.set(List.of(
+                sameId(versioned("stable", "2.3.0", "0")), sameId(versioned("canary", "2.4.0-canary", "100"))));
+        Set<String> chosenIds = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            chosenIds.add(chosen().getInstanceId());
+        }
+
+        // Then
+        assertThat(chosenIds).containsExactly("canary");
+    }
+
+    private PowerOfTwoChoicesLoadBalancer loadBalancer(ServiceInstance... instances) {
+        return loadBalancer(ServiceInstanceListSuppliers.from(SERVICE_ID, instances));
+    }
+
+    private PowerOfTwoChoicesLoadBalancer loadBalancer(ServiceInstanceListSupplier supplier) {
+        @SuppressWarnings("unchecked")
+        ObjectProvider<ServiceInstanceListSupplier> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable(any())).thenReturn(supplier);
+        return new PowerOfTwoChoicesLoadBalancer(provider, SERVICE_ID, loadTracker,
+                new RoutingTableSnapshotStore(properties), properties);
+    }
+
+    private static ServiceInstance versioned(String instanceId, String version, String weight) {
+        return new DefaultServiceInstance(instanceId, SERVICE_ID, instanceId, 8080, false,
+                Map.of(RoutingWeights.VERSION_METADATA, version, RoutingWeights.WEIGHT_METADATA, weight));
+    }
+
+    /**
+     * Wraps an instance into one that, like a Eureka instance, equals any instance with the same id.
+     */
+    private static ServiceInstance sameId(ServiceInstance instance) {
+        return new DefaultServiceInstance(instance.getInstanceId(), SERVICE_ID, instance.getHost(), instance.getPort(),
+                false, instance.getMetadata()) {
+            @Override
+            public boolean equals(Object other) {
+                return other instanceof ServiceInstance that && getInstanceId().equals(that.getInstanceId());
+            }
+
+            @Override
+            public int hashCode() {
+                return getInstanceId().hashCode();
+            }
+        };
+    }
+
+    private ServiceInstance chosen() {
+        Response<ServiceInstance> response = loadBalancer.choose(new DefaultRequest<>(new RequestDataContext())).block();
+        assertThat(response).isNotNull();
+        return response.getServer();
+    }
+
+    private ServiceInstance chosen(String clientId) {
+        Response<ServiceInstance> response = loadBalancer.choose(new DefaultRequest<>(new RequestDataContext(requestData(clientId))))
+                .block();
+        assertThat(response).isNotNull();
+        return response.getServer();
+    }
+
+    private ServiceInstance hedged(String clientId, ServiceInstance primary) {
+        Response<ServiceInstance> response = loadBalancer.choose(new DefaultRequest<>(
+                new PowerOfTwoChoicesLoadBalancer.HedgeRequestContext(requestData(clientId), primary))).block();
+        assertThat(response).isNotNull();
+        return response.getServer();
+    }
+
+    private static RequestData requestData(String clientId) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Client-Id", clientId);
+        return new RequestData(HttpMethod.GET, URI.create("http://localization/graphql"), headers,
+                new LinkedMultiValueMap<>(), new HashMap<>());
+    }
+
+    /**
+     * Runs one request through the tracker's lifecycle callbacks, backdating its start by {@code latency}.
+     */
+    private void complete(ServiceInstance instance, Duration latency, HttpStatus status) {
+        RequestDataContext context = new RequestDataContext();
+        Request<RequestDataContext> request = new DefaultRequest<>(context);
+        Response<ServiceInstance> lbResponse = new DefaultResponse(instance);
+
+        loadTracker.onStartRequest(request, lbResponse);
+        context.setRequestStartTime(System.nanoTime() - latency.toNanos());
+        loadTracker.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, request, lbResponse,
+                new ResponseData(status, new HttpHeaders(), new LinkedMultiValueMap<>(), null)));
+    }
+}
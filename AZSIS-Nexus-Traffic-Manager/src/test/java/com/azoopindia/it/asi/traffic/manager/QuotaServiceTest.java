@@ -0,0 +1,181 @@
+package com.azoopindia.it.asi.traffic.manager;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.azoopindia.it.asi.traffic.manager.infrastructure.QuotaUsageRepository;
+import com.azoopindia.it.asi.traffic.manager.infrastructure.QuotaUsageRepository.UsageDelta;
+import com.azoopindia.it.asi.traffic.manager.infrastructure.QuotaUsageRepository.UsageKey;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity.QuotaPeriod;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity.RateLimitConfig;
+import com.azoopindia.it.asi.traffic.manager.service.QuotaService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link QuotaService}.
+ */
+@ExtendWith(MockitoExtension.class)
+class QuotaServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 7, 9);
+
+    private static final LocalDate MONTH_START = LocalDate.of(2025, 7, 1);
+
+    @Mock
+    private QuotaUsageRepository repository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private QuotaService quotaService;
+
+    private RateLimitConfig config;
+
+    @BeforeEach
+    void setUp() {
+        DynamicRoutingProperties props = new DynamicRoutingProperties();
+        props.getQuota().setNodeId("node-a");
+        Clock clock = Clock.fixed(Instant.parse("2025-07-09T10:00:00Z"), ZoneOffset.UTC);
+        quotaService = new QuotaService(props, repository, meterRegistry, clock);
+        config = RateLimitConfig.builder()
+                .clientId("client-1")
+                .route("*")
+                .dailyQuota(3)
+                .monthlyQuota(100)
+                .build();
+    }
+
+    /**
+     * Verifies that calls are counted and the daily quota enforced in memory, without touching the database.
+     */
+    @Test
+    void shouldRejectOverQuotaWithoutDatabaseAccess() {
+        // Given
+        int admitted = 0;
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            if (!quotaService.isExhausted("client-1", "*", config)) {
+                quotaService.record("client-1", "*", config);
+                admitted++;
+            }
+        }
+
+        // Then
+        assertThat(admitted).isEqualTo(3);
+        assertThat(quotaService.used("client-1", "*", QuotaPeriod.MONTHLY)).isEqualTo(3);
+        assertThat(meterRegistry.counter("gateway.quota.rejected").count()).isEqualTo(2);
+        verifyNoInteractions(repository);
+    }
+
+    /**
+     * Verifies that a flush writes this node's deltas in one batch and adopts the usage summed over all nodes,
+     * so calls admitted by other nodes count against the quota here.
+     */
+    @Test
+    void shouldFlushDeltasAndAdoptUsageOfAllNodes() {
+        // Given
+        quotaService.record("client-1", "*", config);
+        UsageKey daily = new UsageKey("client-1", "*", QuotaPeriod.DAILY, TODAY);
+        UsageKey monthly = new UsageKey("client-1", "*", QuotaPeriod.MONTHLY, MONTH_START);
+        when(repository.sumUsage(TODAY, MONTH_START)).thenReturn(Map.of(daily, 3L, monthly, 40L));
+
+        // When
+        quotaService.flush();
+
+        // Then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<UsageDelta>> deltas = ArgumentCaptor.forClass(List.class);
+        verify(repository).addUsage(eq("node-a"), deltas.capture());
+        assertThat(deltas.getValue()).containsExactlyInAnyOrder(new UsageDelta(daily, 1), new UsageDelta(monthly, 1));
+        assertThat(quotaService.used("client-1", "*", QuotaPeriod.MONTHLY)).isEqualTo(40);
+        assertThat(quotaService.isExhausted("client-1", "*", config)).isTrue();
+    }
+
+    /**
+     * Verifies that a counter created after a flush, e.g. because its previous one was dropped, starts from the
+     * usage that flush read instead of from zero.
+     */
+    @Test
+    void shouldSeedNewCountersWithLastFlushedUsage() {
+        // Given
+        UsageKey daily = new UsageKey("client-1", "*", QuotaPeriod.DAILY, TODAY);
+        when(repository.sumUsage(TODAY, MONTH_START)).thenReturn(Map.of(daily, 3L));
+        quotaService.flush();
+
+        // When
+        boolean exhausted = quotaService.isExhausted("client-1", "*", config);
+
+        // Then
+        assertThat(exhausted).isTrue();
+        assertThat(quotaService.used("client-1", "*", QuotaPeriod.DAILY)).isEqualTo(3);
+    }
+
+    /**
+     * Verifies that the first flush of a day deletes the rows of periods past the retention, but never those of
+     * the current day and month, and that later flushes that day do not delete again.
+     */
+    @Test
+    void shouldDeleteExpiredUsageOncePerDay() {
+        // Given
+        DynamicRoutingProperties props = new DynamicRoutingProperties();
+        props.getQuota().setNodeId("node-a");
+        props.getQuota().setRetention(Duration.ZERO);
+        QuotaService shortRetention = new QuotaService(props, repository, meterRegistry,
+                Clock.fixed(Instant.parse("2025-07-09T10:00:00Z"), ZoneOffset.UTC));
+
+        // When
+        quotaService.flush();
+        shortRetention.flush();
+        shortRetention.flush();
+
+        // Then
+        verify(repository).deleteUsageBefore(LocalDate.of(2025, 4, 10), LocalDate.of(2025, 4, 10));
+        verify(repository).deleteUsageBefore(TODAY, MONTH_START);
+    }
+
+    /**
+     * Verifies that calls of a failed flush are kept and written by the next one.
+     */
+    @Test
+    void shouldKeepDeltasOfFailedFlush() {
+        // Given
+        quotaService.record("client-1", "*", config);
+        quotaService.record("client-1", "*", config);
+        doThrow(new QueryTimeoutException("timeout")).when(repository).addUsage(eq("node-a"), anyList());
+
+        // When
+        quotaService.flush();
+
+        // Then
+        assertThat(quotaService.used("client-1", "*", QuotaPeriod.DAILY)).isEqualTo(2);
+        assertThat(meterRegistry.counter("gateway.quota.flush.failures").count()).isEqualTo(1);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<UsageDelta>> deltas = ArgumentCaptor.forClass(List.class);
+        verify(repository).addUsage(eq("node-a"), deltas.capture());
+        assertThat(deltas.getValue()).extracting(UsageDelta::calls).containsOnly(2L);
+        verify(repository, never()).sumUsage(any(), any());
+    }
+}
@@ -0,0 +1,287 @@
+package com.azoopindia.it.asi.traffic.manager;
+
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.algorithm.GcraRateLimiter;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.algorithm.LongKeyTable;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.algorithm.RateLimitKeys;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.algorithm.SlidingWindowRateLimiter;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.algorithm.StripedTokenBucket;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Refill;
+import io.github.bucket4j.TimeMeter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link LongKeyTable}, {@link GcraRateLimiter}, {@link SlidingWindowRateLimiter} and
+ * {@link StripedTokenBucket}.
+ */
+class RateLimitAlgorithmsTest {
+
+    private static final long MINUTE = Duration.ofMinutes(1).toNanos();
+
+    /**
+     * Verifies that the table keeps every entry findable through growth and backward-shift removals, checked against
+     * a {@link HashMap} under random inserts and removes.
+     */
+    @Test
+    void longKeyTableShouldMatchHashMapUnderInsertsAndRemoves() {
+        // Given
+        LongKeyTable table = new LongKeyTable(2, 4);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        // When
+        for (int i = 0; i < 20_000; i++) {
+            // a small key space with colliding low bits forces long probe runs
+            long key = (random.nextInt(2_000) + 1) * 1024L;
+            if (random.nextInt(3) == 0) {
+                assertThat(table.remove(key)).isEqualTo(expected.remove(key) != null);
+            } else {
+                int index = table.findOrInsert(key);
+                table.set(index, 1, key * 7);
+                expected.put(key, key * 7);
+            }
+        }
+
+        // Then
+        assertThat(table.size()).isEqualTo(expected.size());
+        assertThat(table.capacity()).isGreaterThan(expected.size());
+        expected.forEach((key, value) -> {
+            int index = table.find(key);
+            assertThat(index).isNotNegative();
+            assertThat(table.get(index, 0)).isZero();
+            assertThat(table.get(index, 1)).isEqualTo(value);
+        });
+        assertThat(table.find(3)).isEqualTo(-1);
+    }
+
+    /**
+     * Verifies that GCRA admits exactly what a Bucket4j token bucket of the same capacity and rate admits.
+     */
+    @Test
+    void gcraShouldAdmitLikeTokenBucket() {
+        // Given
+        GcraRateLimiter gcra = new GcraRateLimiter(4);
+        long key = RateLimitKeys.hash("client-1", "/api/orders");
+        ManualClock clock = new ManualClock();
+        Bucket bucket = Bucket.builder()
+                .addLimit(Bandwidth.classic(15, Refill.greedy(10, Duration.ofMinutes(1))))
+                .withCustomTimePrecision(clock)
+                .build();
+        Random random = new Random(7);
+
+        // When
+        int admittedByGcra = 0;
+        int admittedByBucket = 0;
+        for (int i = 0; i < 2_000; i++) {
+            clock.nanos.addAndGet(random.nextInt(4) * 1_000_000_000L);
+            long tokens = 1 + random.nextInt(3);
+            boolean byGcra = gcra.tryAcquire(key, clock.currentTimeNanos(), tokens, 15, MINUTE, 10) == 0;
+            boolean byBucket = bucket.tryConsume(tokens);
+
+            // Then
+            assertThat(byGcra).as("request %d", i).isEqualTo(byBucket);
+            admittedByGcra += byGcra ? 1 : 0;
+            admittedByBucket += byBucket ? 1 : 0;
+        }
+        assertThat(admittedByGcra).isEqualTo(admittedByBucket).isBetween(100, 1_999);
+    }
+
+    /**
+     * Verifies that GCRA reports how long a rejected request has to wait, and that it is admitted after that wait.
+     */
+    @Test
+    void gcraShouldReportWaitUntilTokensAreAvailable() {
+        // Given
+        GcraRateLimiter gcra = new GcraRateLimiter(1);
+        long key = RateLimitKeys.hash("client-1", "/api/orders");
+        for (int i = 0; i < 5; i++) {
+            assertThat(gcra.tryAcquire(key, 0, 1, 5, MINUTE, 5)).isZero();
+        }
+
+        // When
+        long wait = gcra.tryAcquire(key, 0, 1, 5, MINUTE, 5);
+
+        // Then
+        assertThat(wait).isEqualTo(MINUTE / 5);
+        assertThat(gcra.tryAcquire(key, wait - 1, 1, 5, MINUTE, 5)).isEqualTo(1);
+        assertThat(gcra.tryAcquire(key, wait, 1, 5, MINUTE, 5)).isZero();
+        assertThat(gcra.remove(key)).isTrue();
+        assertThat(gcra.size()).isZero();
+    }
+
+    /**
+     * Verifies that the sliding window does not allow a second full window of requests right after a window
+     * boundary, and that the previous window's weight decays over the following window.
+     */
+    @Test
+    void slidingWindowShouldSmoothBurstAcrossWindowBoundary() {
+        // Given
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(8);
+        long key = RateLimitKeys.hash("client-1", "/api/orders");
+        long lateInFirstWindow = MINUTE - 1_000;
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.tryAcquire(key, lateInFirstWindow, 1, 10, MINUTE, 10)).isZero();
+        }
+
+        // When
+        long justAfterBoundary = MINUTE + 1_000;
+        long wait = limiter.tryAcquire(key, justAfterBoundary, 1, 10, MINUTE, 10);
+        long afterWait = limiter.tryAcquire(key, justAfterBoundary + wait, 1, 10, MINUTE, 10);
+        int admittedAtQuarter = 0;
+        for (int i = 0; i < 10; i++) {
+            admittedAtQuarter += limiter.tryAcquire(key, MINUTE + MINUTE / 4, 1, 10, MINUTE, 10) == 0 ? 1 : 0;
+        }
+        int admittedInThirdWindow = 0;
+        for (int i = 0; i < 12; i++) {
+            admittedInThirdWindow += limiter.tryAcquire(key, 3 * MINUTE, 1, 10, MINUTE, 10) == 0 ? 1 : 0;
+        }
+
+        // Then
+        assertThat(wait).isBetween(MINUTE / 10 - 1_000, MINUTE / 10);
+        assertThat(afterWait).isZero();
+        assertThat(admittedAtQuarter).isEqualTo(1);
+        assertThat(admittedInThirdWindow).isEqualTo(10);
+    }
+
+    /**
+     * Verifies that a sweep drops exactly the keys whose GCRA TAT or sliding window has passed, across the
+     * backward shifts of many removals, and that the keys still in use keep their state.
+     */
+    @Test
+    void sweepShouldDropOnlyIdleKeys() {
+        // Given
+        GcraRateLimiter gcra = new GcraRateLimiter(1);
+        SlidingWindowRateLimiter slidingWindow = new SlidingWindowRateLimiter(1);
+        for (int i = 0; i < 5_000; i++) {
+            long key = RateLimitKeys.hash("client-" + i, "/api/orders");
+            gcra.tryAcquire(key, 0, 1, 5, MINUTE, 5);
+            slidingWindow.tryAcquire(key, 0, 1, 5, MINUTE, 5);
+        }
+        long busy = RateLimitKeys.hash("client-busy", "/api/orders");
+        for (int i = 0; i < 5; i++) {
+            gcra.tryAcquire(busy, MINUTE, 1, 5, MINUTE, 5);
+            slidingWindow.tryAcquire(busy, MINUTE, 1, 5, MINUTE, 5);
+        }
+
+        // When
+        int gcraBeforeTat = gcra.sweep(MINUTE / 5 - 1);
+        int gcraAfterTat = gcra.sweep(MINUTE / 5);
+        int windowBeforeEnd = slidingWindow.sweep(2 * MINUTE - 1);
+        int windowAfterEnd = slidingWindow.sweep(2 * MINUTE);
+
+        // Then
+        assertThat(gcraBeforeTat).isZero();
+        assertThat(gcraAfterTat).isEqualTo(5_000);
+        assertThat(windowBeforeEnd).isZero();
+        assertThat(windowAfterEnd).isEqualTo(5_000);
+        assertThat(gcra.size()).isEqualTo(1);
+        assertThat(slidingWindow.size()).isEqualTo(1);
+        assertThat(gcra.tryAcquire(busy, MINUTE, 1, 5, MINUTE, 5)).isPositive();
+        assertThat(slidingWindow.tryAcquire(busy, MINUTE, 1, 5, MINUTE, 5)).isPositive();
+    }
+
+    /**
+     * Verifies that threads racing on a striped bucket together get exactly its capacity, borrowing from each
+     * other's stripes once their own is empty, including a request that costs more than one stripe holds.
+     */
+    @Test
+    void stripedBucketShouldNeverAdmitMoreThanItsCapacity() throws Exception {
+        // Given
+        StripedTokenBucket bucket = new StripedTokenBucket(1_000, 1_000, Duration.ofMinutes(1), 1_000, 8, 0.05,
+                new ManualClock());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // When
+        boolean largeRequestAdmitted = bucket.tryConsume(300);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            results.add(executor.submit(() -> {
+                int admitted = 0;
+                for (int i = 0; i < 500; i++) {
+                    admitted += bucket.tryConsume(1) ? 1 : 0;
+                }
+                return admitted;
+            }));
+        }
+        int admitted = 0;
+        for (Future<Integer> result : results) {
+            admitted += result.get();
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(bucket.stripeCount()).isEqualTo(8);
+        assertThat(largeRequestAdmitted).isTrue();
+        assertThat(admitted).isEqualTo(700);
+        assertThat(bucket.availableTokens()).isZero();
+        assertThat(bucket.borrowedCount()).isPositive();
+    }
+
+    /**
+     * Verifies that a striped bucket used from a single stripe keeps admitting close to the configured rate, as
+     * rebalancing moves the refill of idle stripes to the used one, and never more than the rate allows.
+     */
+    @Test
+    void stripedBucketShouldStayWithinToleranceOfTheLimit() {
+        // Given
+        ManualClock clock = new ManualClock();
+        StripedTokenBucket bucket = new StripedTokenBucket(100, 100, Duration.ofSeconds(1), 100, 4, 0.05, clock);
+
+        // When
+        int admitted = 0;
+        for (int millis = 0; millis < 10_000; millis++) {
+            clock.nanos.set(Duration.ofMillis(millis).toNanos());
+            for (int i = 0; i < 5; i++) {
+                admitted += bucket.tryConsume(1) ? 1 : 0;
+            }
+        }
+
+        // Then
+        assertThat(admitted).isBetween((int) (1_100 * 0.95), 1_100);
+    }
+
+    /**
+     * Verifies that a striped bucket is never split into stripes without capacity or refill.
+     */
+    @Test
+    void stripedBucketShouldUseFewerStripesForSmallLimits() {
+        // When
+        StripedTokenBucket bucket = new StripedTokenBucket(5, 3, Duration.ofSeconds(1), 5, 16, 0.05, new ManualClock());
+
+        // Then
+        assertThat(bucket.stripeCount()).isEqualTo(3);
+        assertThat(bucket.availableTokens()).isEqualTo(5);
+    }
+
+    /**
+     * Clock advanced by the test.
+     */
+    private static final class ManualClock implements TimeMeter {
+
+        private final AtomicLong nanos = new AtomicLong();
+
+        @Override
+        public long currentTimeNanos() {
+            return nanos.get();
+        }
+
+        @Override
+        public boolean isWallClockBased() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.azoopindia.it.asi.traffic.manager;
+
+import com.azoopindia.it.asi.traffic.manager.infrastructure.RateLimitConfigBulkRepository;
+import com.azoopindia.it.asi.traffic.manager.kafka.model.RateLimitConfigChangeEvent.ConfigKey;
+import com.azoopindia.it.asi.traffic.manager.model.dto.BulkImportRowResult;
+import com.azoopindia.it.asi.traffic.manager.model.dto.BulkImportRowResult.Status;
+import com.azoopindia.it.asi.traffic.manager.model.dto.RateLimitConfigRequest;
+import com.azoopindia.it.asi.traffic.manager.service.RateLimitConfigBulkService;
+import com.azoopindia.it.asi.traffic.manager.service.RateLimitConfigBulkService.Format;
+import com.azoopindia.it.asi.traffic.manager.service.RateLimitConfigChangePublisher;
+import com.azoopindia.it.asi.traffic.manager.validation.rulebook.ValidateDeprecatedFields;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionOperations;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link RateLimitConfigBulkService}.
+ * <p>
+ * Verifies CSV and NDJSON parsing, per-row validation, chunked writes with row-by-row fallback, and paged export.
+ */
+@ExtendWith(MockitoExtension.class)
+public class RateLimitConfigBulkServiceTest {
+
+    private static final String CSV_HEADER = "clientID,route,maxTokensPerWindow,timeWindow,timeUnit,burstCapacity,status,customAttributes";
+
+    @Mock
+    private RateLimitConfigBulkRepository bulkRepository;
+
+    @Mock
+    private RateLimitConfigChangePublisher changePublisher;
+
+    private RateLimitConfigBulkService bulkService;
+
+    @BeforeEach
+    void setUp() {
+        bulkService = new RateLimitConfigBulkService(bulkRepository, new ValidateDeprecatedFields(), changePublisher,
+                TransactionOperations.withoutTransaction(), new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(bulkService, "chunkSize", 2);
+    }
+
+    /**
+     * Verifies that valid CSV rows are upserted in chunks, invalid rows are rejected with their line number,
+     * and one change is published per written chunk.
+     */
+    @Test
+    void importConfigs_shouldUpsertValidCsvRowsAndRejectInvalidOnes() {
+        // Given
+        Flux<String> lines = Flux.just(
+                CSV_HEADER,
+                "client-1,/api/a,100,1,MINUTES,10,ACTIVE,tier=gold;region=eu",
+                "client-2,/api/b,100,1,MINS,10,ACTIVE,",
+                "",
+                "client-3,\"/api/c,d\",50,30,SECONDS,0,ACTIVE,");
+
+        // When
+        List<BulkImportRowResult> results = bulkService.importConfigs(lines, Format.CSV).collectList().block();
+
+        // Then
+        assertThat(results).extracting(BulkImportRowResult::getLine).containsExactly(2L, 3L, 5L);
+        assertThat(results).extracting(BulkImportRowResult::getStatus)
+                .containsExactly(Status.UPSERTED, Status.REJECTED, Status.UPSERTED);
+        assertThat(results.get(1).getMessage()).contains("MINS");
+        assertThat(results.get(2).getRoute()).isEqualTo("/api/c,d");
+
+        verify(bulkRepository).upsertAll(argThat(rows -> rows.size() == 1
+                && Map.of("tier", "gold", "region", "eu").equals(rows.get(0).getCustomAttributes())));
+        verify(bulkRepository).upsertAll(argThat(rows -> rows.size() == 1 && rows.get(0).getRoute().equals("/api/c,d")));
+        verify(changePublisher).publishAll(List.of(new ConfigKey("client-1", "/api/a")));
+        verify(changePublisher).publishAll(List.of(new ConfigKey("client-3", "/api/c,d")));
+        verify(changePublisher, never()).publish(any(), any());
+    }
+
+    /**
+     * Verifies that NDJSON rows are parsed, malformed JSON and deprecated fields are rejected,
+     * and a chunk refused by the database is retried row by row.
+     */
+    @Test
+    void importConfigs_shouldIsolateRowsRefusedByDatabase() {
+        // Given
+        Flux<String> lines = Flux.just(
+                "{\"clientID\":\"client-1\",\"route\":\"/api/a\",\"maxTokensPerWindow\":10,\"timeWindow\":1,\"timeUnit\":\"MINUTES\",\"status\":\"ACTIVE\"}",
+                "{\"clientID\":\"client-2\",\"route\":\"/api/b\",\"maxTokensPerWindow\":10,\"timeWindow\":1,\"timeUnit\":\"MINUTES\",\"status\":\"ACTIVE\"}",
+                "{not json",
+                "{\"clientID\":\"client-4\",\"route\":\"/api/d\",\"requestsPerMinute\":5,\"timeWindow\":1,\"timeUnit\":\"MINUTES\",\"status\":\"ACTIVE\"}");
+
+        doAnswer(invocation -> {
+            List<RateLimitConfigRequest> rows = invocation.getArgument(0);
+            if (rows.stream().anyMatch(row -> row.getClientId().equals("client-2"))) {
+                throw new DataIntegrityViolationException("duplicate route");
+            }
+            return null;
+        }).when(bulkRepository).upsertAll(any());
+
+        // When
+        List<BulkImportRowResult> results = bulkService.importConfigs(lines, Format.NDJSON).collectList().block();
+
+        // Then
+        assertThat(results).extracting(BulkImportRowResult::getStatus)
+                .containsExactly(Status.UPSERTED, Status.FAILED, Status.REJECTED, Status.REJECTED);
+        assertThat(results.get(1).getMessage()).isEqualTo("duplicate route");
+        assertThat(results.get(2).getMessage()).startsWith("Malformed JSON");
+        assertThat(results.get(3).getMessage()).contains("requestsPerMinute");
+        verify(changePublisher, times(1)).publishAll(any());
+        verify(changePublisher).publishAll(List.of(new ConfigKey("client-1", "/api/a")));
+    }
+
+    /**
+     * Verifies that every route of one client is imported as its own configuration, and that a row whose
+     * bucket would hold no tokens is rejected.
+     */
+    @Test
+    void importConfigs_shouldImportEveryRouteOfOneClientAndRejectEmptyBuckets() {
+        // Given
+        Flux<String> lines = Flux.just(
+                CSV_HEADER,
+                "client-1,/api/a,100,1,MINUTES,0,ACTIVE,",
+                "client-1,/api/b,50,1,MINUTES,0,ACTIVE,",
+                "client-1,/api/c,0,1,MINUTES,10,ACTIVE,");
+
+        // When
+        List<BulkImportRowResult> results = bulkService.importConfigs(lines, Format.CSV).collectList().block();
+
+        // Then
+        assertThat(results).extracting(BulkImportRowResult::getStatus)
+                .containsExactly(Status.UPSERTED, Status.UPSERTED, Status.REJECTED);
+        assertThat(results.get(2).getMessage()).contains("maxTokensPerWindow");
+        verify(bulkRepository).upsertAll(argThat(rows -> rows.stream().map(RateLimitConfigRequest::getRoute).toList()
+                .equals(List.of("/api/a", "/api/b"))));
+        verify(changePublisher).publishAll(List.of(new ConfigKey("client-1", "/api/a"), new ConfigKey("client-1", "/api/b")));
+    }
+
+    /**
+     * Verifies that the export keeps reading pages, keyed on the last row, until a short page is returned.
+     */
+    @Test
+    void exportConfigs_shouldPageUntilShortPage() {
+        // Given
+        RateLimitConfigRequest a = RateLimitConfigRequest.builder().clientId("a").route("/1").build();
+        RateLimitConfigRequest b = RateLimitConfigRequest.builder().clientId("a").route("/2").build();
+        RateLimitConfigRequest c = RateLimitConfigRequest.builder().clientId("b").route("/1").build();
+
+        when(bulkRepository.findPageAfter(isNull(), isNull(), eq(2))).thenReturn(List.of(a, b));
+        when(bulkRepository.findPageAfter("a", "/2", 2)).thenReturn(List.of(c));
+
+        // When
+        List<RateLimitConfigRequest> exported = bulkService.exportConfigs().collectList().block();
+
+        // Then
+        assertThat(exported).containsExactly(a, b, c);
+        verify(bulkRepository, never()).findPageAfter("b", "/1", 2);
+    }
+}
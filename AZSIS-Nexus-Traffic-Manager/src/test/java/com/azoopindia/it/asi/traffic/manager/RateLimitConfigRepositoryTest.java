@@ -8,6 +8,8 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -15,6 +17,7 @@ import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 
 /**
  * Integration tests for {@link RateLimitConfigRepository}.
@@ -27,6 +30,9 @@ public class RateLimitConfigRepositoryTest {
     @Autowired
     private RateLimitConfigRepository configRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     /**
      * Cleans up test data after each test method.
      */
@@ -115,4 +121,33 @@ public class RateLimitConfigRepositoryTest {
         // Then
         assertThat(result).isEmpty();
     }
+
+    /**
+     * Verifies that the generated schema keeps one configuration per client and route only: a client may have
+     * several routes, as written by the bulk import, and several clients may share a route such as the
+     * {@code "*"} admission route.
+     */
+    @Test
+    void schema_shouldAllowManyRoutesPerClientButOneConfigPerClientAndRoute() {
+        // Given
+        insertRow("client-001", "/api/a");
+        insertRow("client-001", "/api/b");
+        insertRow("client-001", "*");
+        insertRow("client-002", "*");
+
+        // When / Then
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM rate_limit_config", Long.class)).isEqualTo(4L);
+        assertThatThrownBy(() -> insertRow("client-001", "/api/a"))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        jdbcTemplate.update("DELETE FROM rate_limit_config");
+    }
+
+    private void insertRow(String clientId, String route) {
+        jdbcTemplate.update("""
+                INSERT INTO rate_limit_config (id, client_id, route, requests_per_minute, max_tokens_per_window,
+                                               time_window, time_unit, burst_capacity, priority, status,
+                                               daily_quota, monthly_quota)
+                VALUES (?, ?, ?, 0, 100, 1, 'MINUTES', 0, 0, 'ACTIVE', 0, 0)
+                """, UUID.randomUUID(), clientId, route);
+    }
 }
@@ -0,0 +1,109 @@
+package com.azoopindia.it.asi.traffic.manager;
+
+import com.azoopindia.it.asi.traffic.manager.capture.TrafficCaptureRecord;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity.RateLimitConfig;
+import com.azoopindia.it.asi.traffic.manager.simulation.RateLimitSimulator;
+import com.azoopindia.it.asi.traffic.manager.simulation.RateLimitSimulator.Arrival;
+import com.azoopindia.it.asi.traffic.manager.simulation.RateLimitSimulator.ClientReport;
+import com.azoopindia.it.asi.traffic.manager.simulation.RateLimitSimulator.Report;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link RateLimitSimulator}.
+ */
+class RateLimitSimulatorTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Verifies that a burst beyond the limit is partly delayed by the configured retries and partly rejected, and
+     * that a hashed client id from a capture is matched to its operation-level configuration.
+     */
+    @Test
+    void shouldReportDelaysAndRejectionsPerClient() {
+        // Given
+        RateLimitConfig orders = config("client-1", "/api/orders", 10, Map.of("maxRetries", "2", "retryDelay", "3000"));
+        RateLimitConfig getUser = config("client-2", "graphql:getUser", 5, null);
+        RateLimitSimulator simulator = new RateLimitSimulator(List.of(orders, getUser), 0);
+
+        List<Arrival> arrivals = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            arrivals.add(new Arrival(i * 1000L, "client-1", "/api/orders", null, 1));
+        }
+        String hashedClient2 = TrafficCaptureRecord.hashValue("client-2");
+        for (int i = 0; i < 7; i++) {
+            arrivals.add(new Arrival(i * 1000L, hashedClient2, "/graphql", "getUser", 1));
+        }
+        arrivals.add(new Arrival(0, null, "/api/orders", null, 1));
+
+        // When
+        Report report = simulator.run(arrivals);
+
+        // Then
+        assertThat(report.unidentified()).isEqualTo(1);
+        assertThat(report.clients()).extracting(ClientReport::clientId).containsExactly("client-2", "client-1");
+        ClientReport client1 = report.clients().get(1);
+        assertThat(client1.admitted()).isEqualTo(10);
+        assertThat(client1.delayed()).isEqualTo(1);
+        assertThat(client1.rejected()).isEqualTo(1);
+        assertThat(client1.delayP50Millis()).isEqualTo(6000);
+        assertThat(client1.refillWaitP50Millis()).isBetween(5900L, 6000L);
+        ClientReport client2 = report.clients().get(0);
+        assertThat(client2.admitted()).isEqualTo(5);
+        assertThat(client2.rejected()).isEqualTo(2);
+        assertThat(client2.delayed()).isZero();
+    }
+
+    /**
+     * Verifies that arrivals and configurations are read from access-log CSV and bulk-export NDJSON, and that the
+     * admission bucket rejects before the route bucket is charged.
+     */
+    @Test
+    void shouldReadCsvArrivalsAndNdjsonConfigs() throws Exception {
+        // Given
+        Path csv = Files.writeString(directory.resolve("arrivals.csv"), """
+                timestamp,clientId,path,operationName,tokens
+                2025-07-09T08:00:00Z,client-1,/api/orders,,
+                1752048000100,client-1,/api/orders,,
+                1752048000200,client-1,/api/orders,,
+                """);
+        Path ndjson = Files.writeString(directory.resolve("configs.ndjson"), """
+                {"clientID":"client-1","route":"*","maxTokensPerWindow":2,"timeWindow":1,"timeUnit":"MINUTES","status":"ACTIVE"}
+                {"clientID":"client-1","route":"/api/orders","maxTokensPerWindow":1,"timeWindow":1,"timeUnit":"HOURS","status":"INACTIVE"}
+                """);
+
+        // When
+        Report report = new RateLimitSimulator(RateLimitSimulator.readConfigs(ndjson), 1000)
+                .run(RateLimitSimulator.readArrivals(csv));
+
+        // Then
+        ClientReport client = report.clients().get(0);
+        assertThat(client.requests()).isEqualTo(3);
+        assertThat(client.admitted()).isEqualTo(2);
+        assertThat(client.rejectedAtAdmission()).isEqualTo(1);
+        assertThat(report.span().toMillis()).isEqualTo(200);
+        assertThat(report.format()).contains("client-1");
+    }
+
+    private static RateLimitConfig config(String clientId, String route, long tokensPerMinute, Map<String, String> attributes) {
+        return RateLimitConfig.builder()
+                .clientId(clientId)
+                .route(route)
+                .maxTokensPerWindow(tokensPerMinute)
+                .timeWindow(1)
+                .timeUnit("MINUTES")
+                .status("ACTIVE")
+                .customAttributes(attributes)
+                .build();
+    }
+}
@@ -1,23 +1,40 @@
 package com.azoopindia.it.asi.traffic.manager;
 
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
 import com.azoopindia.it.asi.traffic.manager.infrastructure.RateLimitConfigRepository;
+import com.azoopindia.it.asi.traffic.manager.kafka.model.RateLimitConfigChangeEvent;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity.RateLimitAlgorithm;
 import com.azoopindia.it.asi.traffic.manager.rate.limiting.config.entity.RateLimitConfig;
+import com.azoopindia.it.asi.traffic.manager.rate.limiting.snapshot.BucketState;
+import com.azoopindia.it.asi.traffic.manager.service.QuotaService;
+import com.azoopindia.it.asi.traffic.manager.service.RateLimitExpiryScheduler;
 import com.azoopindia.it.asi.traffic.manager.service.RateLimiterService;
 import io.github.bucket4j.Bucket;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -31,6 +48,15 @@ public class RateLimiterServiceTest {
     @Mock
     private RateLimitConfigRepository mockConfigRepository;
 
+    @Mock
+    private QuotaService quotaService;
+
+    @Mock
+    private RateLimitExpiryScheduler expiryScheduler;
+
+    @Spy
+    private DynamicRoutingProperties routingProperties = new DynamicRoutingProperties();
+
     @InjectMocks
     private RateLimiterService rateLimiterService;
 
@@ -135,4 +161,443 @@ public class RateLimiterServiceTest {
         assertThat(rateLimiterService.getBucketCache()).doesNotContainKey("client-1:/api/test");
         assertThat(rateLimiterService.getConfigCache()).doesNotContainKey("client-1:/api/test");
     }
+
+    /**
+     * Verifies that {@link RateLimiterService#refreshConfig(String, String)} applies a changed config
+     * to the cached bucket without handing back the tokens that were already consumed.
+     */
+    @Test
+    void refreshConfig_shouldReconfigureBucketAndPreserveConsumedTokens() {
+        // Given
+        RateLimitConfig raised = RateLimitConfig.builder()
+                .clientId("client-1")
+                .route("/api/test")
+                .requestsPerMinute(100)
+                .burstCapacity(20)
+                .timeWindow(1)
+                .timeUnit("MINUTES")
+                .status("ACTIVE")
+                .build();
+        when(mockConfigRepository.findFirstByClientIdAndRouteAndStatus("client-1", "/api/test", "ACTIVE"))
+                .thenReturn(Optional.of(config), Optional.of(raised));
+
+        Bucket bucket = rateLimiterService.resolveBucket("client-1", "/api/test");
+        assertThat(bucket.tryConsume(20)).isTrue();
+
+        // When
+        rateLimiterService.refreshConfig("client-1", "/api/test");
+
+        // Then: 60 capacity - 20 consumed, plus the 60 added by the raised capacity of 120
+        assertThat(rateLimiterService.getBucketCache().get("client-1:/api/test")).isSameAs(bucket);
+        assertThat(bucket.getAvailableTokens()).isEqualTo(100L);
+        assertThat(rateLimiterService.getConfigCache().get("client-1:/api/test")).isEqualTo(120L);
+    }
+
+    /**
+     * Verifies that a change which moves a config to another route also refreshes the bucket
+     * under the previous key, which then falls back to the default config.
+     */
+    @Test
+    void applyConfigChange_shouldRefreshPreviousKeyWhenRekeyed() {
+        // Given
+        when(mockConfigRepository.findFirstByClientIdAndRouteAndStatus("client-1", "/api/test", "ACTIVE"))
+                .thenReturn(Optional.of(config), Optional.empty());
+        rateLimiterService.resolveBucket("client-1", "/api/test");
+
+        // When
+        rateLimiterService.applyConfigChange(RateLimitConfigChangeEvent.builder()
+                .changeType(RateLimitConfigChangeEvent.ChangeType.UPSERT)
+                .clientId("client-1")
+                .route("/api/moved")
+                .previousClientId("client-1")
+                .previousRoute("/api/test")
+                .build());
+
+        // Then
+        assertThat(rateLimiterService.getConfigCache()).doesNotContainKey("client-1:/api/test");
+        assertThat(rateLimiterService.getBucketCache().get("client-1:/api/test").getAvailableTokens()).isEqualTo(100L);
+        assertThat(rateLimiterService.getBucketCache()).doesNotContainKey("client-1:/api/moved");
+    }
+
+    /**
+     * Verifies that a bulk change refreshes the pairs holding a bucket right away and leaves every other pair to
+     * load its configuration on next use, without a query per row.
+     */
+    @Test
+    void applyConfigChange_shouldReloadOnlyBucketsOfBulkChange() {
+        // Given
+        when(mockConfigRepository.findFirstByClientIdAndRouteAndStatus("client-1", "/api/test", "ACTIVE"))
+                .thenReturn(Optional.empty(), Optional.of(config));
+        rateLimiterService.resolveBucket("client-1", "/api/test");
+
+        // When
+        rateLimiterService.applyConfigChange(RateLimitConfigChangeEvent.builder()
+                .changeType(RateLimitConfigChangeEvent.ChangeType.UPSERT)
+                .keys(List.of(new RateLimitConfigChangeEvent.ConfigKey("client-1", "/api/test"),
+                        new RateLimitConfigChangeEvent.ConfigKey("client-2", "/api/other")))
+                .build());
+
+        // Then
+        verify(mockConfigRepository, times(2)).findFirstByClientIdAndRouteAndStatus("client-1", "/api/test", "ACTIVE");
+        verify(mockConfigRepository, never()).findFirstByClientIdAndRouteAndStatus("client-2", "/api/other", "ACTIVE");
+        assertThat(rateLimiterService.getConfigCache()).containsKey("client-1:/api/test");
+    }
+
+    /**
+     * Verifies that a cost above the bucket capacity drains the full bucket instead of never fitting.
+     */
+    @Test
+    void tryConsume_shouldCapTokensAtBucketCapacity() {
+        // Given
+        when(mockConfigRepository.findFirstByClientIdAndRouteAndStatus("client-1", "/api/test", "ACTIVE"))
+                .thenReturn(Optional.of(config));
+
+        // When
+        boolean first = rateLimiterService.tryConsume("client-1", "/api/test", 500);
+        boolean second = rateLimiterService.tryConsume("client-1", "/api/test", 1);
+
+        // Then
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        assertThat(rateLimiterService.getBucketCache().get("client-1:/api/test").getAvailableTokens()).isZero();
+    }
+
+    /**
+     * Verifies that a GraphQL call is limited under its operation's route when the client has a configuration
+     * for it, and under the path otherwise.
+     */
+    @Test
+    void resolveRoute_shouldPreferOperationConfig() {
+        // Given
+        config.setRoute("graphql:createMsgTemplate");
+        when(mockConfigRepository.findFirstByClientIdAndRouteAndStatus("client-1", "graphql:createMsgTemplate", "ACTIVE"))
+                .thenReturn(Optional.of(config));
+        when(mockConfigRepository.findFirstByClientIdAndRouteAndStatus("client-1", "graphql:listTemplates", "ACTIVE"))
+                .thenReturn(Optional.empty());
+
+        // When / Then
+        assertThat(rateLimiterService.resolveRoute("client-1", "/dsc/api/graphql/v1", "createMsgTemplate"))
+                .isEqualTo("graphql:createMsgTemplate");
+        assertThat(rateLimiterService.resolveRoute("client-1", "/dsc/api/graphql/v1", "listTemplates"))
+                .isEqualTo("/dsc/api/graphql/v1");
+        assertThat(rateLimiterService.resolveRoute("client-1", "/dsc/api/graphql/v1", null))
+                .isEqualTo("/dsc/api/graphql/v1");
+    }
+
+    /**
+     * Verifies that a configuration marked unlimited never rejects and creates no bucket.
+     */
+    @Test
+    void tryConsume_shouldAlwaysAllowUnlimitedConfig() {
+        // Given
+        config.setRoute("graphql:healthCheck");
+        config.setCustomAttributes(Map.of(RateLimiterService.UNLIMITED_ATTRIBUTE, "true"));
+        when(mockConfigRepository.findFirstByClientIdAndRouteAndStatus("client-1", "graphql:healthCheck", "ACTIVE"))
+                .thenReturn(Optional.of(config));
+
+        // When
+        boolean allowed = true;
+        for (int i = 0; i < 500; i++) {
+            allowed &= rateLimiterService.tryConsume("client-1", "graphql:healthCheck", 1);
+        }
+
+        // Then
+        assertThat(allowed).isTrue();
+        assertThat(rateLimiterService.getBucketCache()).doesNotContainKey("client-1:graphql:healthCheck");
+    }
+
+    /**
+     * Verifies that admission buckets without a configuration use the admission default limit, without querying
+     * the repository.
+     */
+    @Test
+    void tryConsume_shouldUseAdmissionDefaultForAdmissionRoute() {
+        // Given
+        routingProperties.getAdmission().setRequestsPerMinute(3);
+
+        // When
+        int admitted = 0;
+        for (int i = 0; i < 5; i++) {
+            admitted += rateLimiterService.tryConsume("ip:10.0.0.1", RateLimiterService.ADMISSION_ROUTE, 1) ? 1 : 0;
+        }
+
+        // Then
+        assertThat(admitted).isEqualTo(3);
+        verifyNoInteractions(mockConfigRepository);
+    }
+
+    /**
+     * Verifies that admission configurations are loaded up front and then enforced without a repository query
+     * per client.
+     */
+    @Test
+    void tryConsume_shouldEnforcePreloadedAdmissionConfig() {
+        // Given
+        RateLimitConfig admission = RateLimitConfig.builder()
+                .id(UUID.randomUUID())
+                .clientId("client-1")
+                .route(RateLimiterService.ADMISSION_ROUTE)
+                .maxTokensPerWindow(2)
+                .burstCapacity(0)
+                .timeWindow(1)
+                .timeUnit("MINUTES")
+                .status("ACTIVE")
+                .updatedAt(LocalDateTime.now())
+                .build();
+        when(mockConfigRepository.findByRouteAndStatus(RateLimiterService.ADMISSION_ROUTE, "ACTIVE"))
+                .thenReturn(List.of(admission));
+        rateLimiterService.start();
+
+        // When
+        int admitted = 0;
+        try {
+            for (int i = 0; i < 5; i++) {
+                admitted += rateLimiterService.tryConsume("client-1", RateLimiterService.ADMISSION_ROUTE, 1) ? 1 : 0;
+            }
+        } finally {
+            rateLimiterService.stop();
+        }
+
+        // Then
+        assertThat(admitted).isEqualTo(2);
+        verify(mockConfigRepository, never()).findFirstByClientIdAndRouteAndStatus(any(), any(), any());
+    }
+
+    /**
+     * Verifies that indexed lookups are repeated once their entry has expired.
+     */
+    @Test
+    void getConfig_shouldReloadAfterCacheTtl() {
+        // Given
+        routingProperties.getRateLimiting().setConfigCacheTtl(Duration.ZERO);
+        when(mockConfigRepository.findFirstByClientIdAndRouteAndStatus("client-1", "/api/test", "ACTIVE"))
+                .thenReturn(Optional.of(config));
+
+        // When
+        rateLimiterService.getConfig("client-1", "/api/test");
+        rateLimiterService.getConfig("client-1", "/api/test");
+
+        // Then
+        verify(mockConfigRepository, times(2)).findFirstByClientIdAndRouteAndStatus("client-1", "/api/test", "ACTIVE");
+    }
+
+    /**
+     * Verifies that once the index is full, the absence of a configuration is no longer cached, while a
+     * configuration still is.
+     */
+    @Test
+    void getConfig_shouldNotCacheMissesBeyondCacheSize() {
+        // Given
+        routingProperties.getRateLimiting().setConfigCacheSize(1);
+        when(mockConfigRepository.findFirstByClientIdAndRouteAndStatus(any(), eq("/api/test"), eq("ACTIVE")))
+                .thenReturn(Optional.empty());
+        when(mockConfigRepository.findFirstByClientIdAndRouteAndStatus("client-1", "/api/other", "ACTIVE"))
+                .thenReturn(Optional.of(config));
+
+        // When
+        for (int i = 0; i < 2; i++) {
+            rateLimiterService.getConfig("unknown-1", "/api/test");
+            rateLimiterService.getConfig("unknown-2", "/api/test");
+            rateLimiterService.getConfig("client-1", "/api/other");
+        }
+
+        // Then
+        verify(mockConfigRepository, times(1)).findFirstByClientIdAndRouteAndStatus("unknown-1", "/api/test", "ACTIVE");
+        verify(mockConfigRepository, times(2)).findFirstByClientIdAndRouteAndStatus("unknown-2", "/api/test", "ACTIVE");
+        verify(mockConfigRepository, times(1)).findFirstByClientIdAndRouteAndStatus("client-1", "/api/other", "ACTIVE");
+    }
+
+    /**
+     * Verifies that a GCRA configuration is enforced without a Bucket4j bucket, that switching the configuration
+     * back to a token bucket drops the GCRA state, and that the token bucket then enforces the same limit.
+     */
+    @Test
+    void tryConsume_shouldDispatchToConfiguredAlgorithm() {
+        // Given
+        config.setAlgorithm(RateLimitAlgorithm.GCRA);
+        config.setTimeUnit("HOURS");
+        when(mockConfigRepository.findFirstByClientIdAndRouteAndStatus("client-1", "/api/test", "ACTIVE"))
+                .thenReturn(Optional.of(config));
+
+        // When
+        int admitted = 0;
+        for (int i = 0; i < 70; i++) {
+            admitted += rateLimiterService.tryConsume("client-1", "/api/test", 1) ? 1 : 0;
+        }
+        config.setAlgorithm(null);
+        rateLimiterService.refreshConfig("client-1", "/api/test");
+        int admittedByBucket = 0;
+        for (int i = 0; i < 70; i++) {
+            admittedByBucket += rateLimiterService.tryConsume("client-1", "/api/test", 1) ? 1 : 0;
+        }
+
+        // Then
+        assertThat(admitted).isEqualTo(60);
+        assertThat(admittedByBucket).isEqualTo(60);
+        assertThat(rateLimiterService.getGcraLimiter().size()).isZero();
+        assertThat(rateLimiterService.getBucketCache()).containsKey("client-1:/api/test");
+    }
+
+    /**
+     * Verifies that a striped configuration is enforced by a striped bucket with the configured capacity, and that
+     * a refresh to a larger limit keeps the tokens already consumed.
+     */
+    @Test
+    void tryConsume_shouldUseStripedBucketWhenConfigured() {
+        // Given
+        routingProperties.getRateLimiting().setStripes(4);
+        config.setCustomAttributes(Map.of(RateLimiterService.STRIPED_ATTRIBUTE, "true"));
+        config.setTimeUnit("HOURS");
+        when(mockConfigRepository.findFirstByClientIdAndRouteAndStatus("client-1", "/api/test", "ACTIVE"))
+                .thenReturn(Optional.of(config));
+
+        // When
+        int admitted = 0;
+        for (int i = 0; i < 70; i++) {
+            admitted += rateLimiterService.tryConsume("client-1", "/api/test", 1) ? 1 : 0;
+        }
+        config.setBurstCapacity(20);
+        rateLimiterService.refreshConfig("client-1", "/api/test");
+        int admittedAfterRefresh = 0;
+        for (int i = 0; i < 70; i++) {
+            admittedAfterRefresh += rateLimiterService.tryConsume("client-1", "/api/test", 1) ? 1 : 0;
+        }
+
+        // Then
+        assertThat(admitted).isEqualTo(60);
+        assertThat(admittedAfterRefresh).isEqualTo(10);
+        assertThat(rateLimiterService.getStripedBucketCache().get("client-1:/api/test").stripeCount()).isEqualTo(4);
+        assertThat(rateLimiterService.getBucketCache()).doesNotContainKey("client-1:/api/test");
+    }
+
+    /**
+     * Verifies that a call over quota is rejected without consuming tokens, and that admitted calls are counted.
+     */
+    @Test
+    void tryConsume_shouldEnforceQuotaBeforeRateLimit() {
+        // Given
+        config.setDailyQuota(2);
+        when(mockConfigRepository.findFirstByClientIdAndRouteAndStatus("client-1", "/api/test", "ACTIVE"))
+                .thenReturn(Optional.of(config));
+        when(quotaService.isExhausted("client-1", "/api/test", config)).thenReturn(false, false, true);
+
+        // When
+        boolean first = rateLimiterService.tryConsume("client-1", "/api/test", 1);
+        boolean second = rateLimiterService.tryConsume("client-1", "/api/test", 1);
+        boolean third = rateLimiterService.tryConsume("client-1", "/api/test", 1);
+
+        // Then
+        assertThat(first).isTrue();
+        assertThat(second).isTrue();
+        assertThat(third).isFalse();
+        verify(quotaService, times(2)).record("client-1", "/api/test", config);
+        assertThat(rateLimiterService.resolveBucket("client-1", "/api/test").getAvailableTokens()).isEqualTo(58);
+        assertThat(RateLimiterService.hasSingleBucket(config)).isFalse();
+    }
+
+    /**
+     * Verifies that a bucket is evicted once it is full at its idle check, and rechecked while it is not.
+     */
+    @Test
+    void resolveBucket_shouldEvictBucketThatStayedFull() {
+        // Given
+        when(mockConfigRepository.findFirstByClientIdAndRouteAndStatus("client-1", "/api/test", "ACTIVE"))
+                .thenReturn(Optional.of(config));
+        ArgumentCaptor<Runnable> idleCheck = ArgumentCaptor.forClass(Runnable.class);
+        Duration idleTimeout = routingProperties.getRateLimiting().getIdleTimeout();
+        Bucket bucket = rateLimiterService.resolveBucket("client-1", "/api/test");
+        verify(expiryScheduler).schedule(eq(idleTimeout), idleCheck.capture());
+        bucket.tryConsume(1);
+
+        // When
+        idleCheck.getValue().run();
+        boolean cachedWhileInUse = rateLimiterService.getBucketCache().containsKey("client-1:/api/test");
+        verify(expiryScheduler, times(2)).schedule(eq(idleTimeout), idleCheck.capture());
+        bucket.addTokens(1);
+        idleCheck.getValue().run();
+
+        // Then
+        assertThat(cachedWhileInUse).isTrue();
+        assertThat(rateLimiterService.getBucketCache()).doesNotContainKey("client-1:/api/test");
+        assertThat(rateLimiterService.getConfigCache()).doesNotContainKey("client-1:/api/test");
+        verify(expiryScheduler).bucketEvicted();
+    }
+
+    /**
+     * Verifies that an expired configuration is ignored, and that a configuration reaching its expiration date
+     * drops to the default bandwidth.
+     */
+    @Test
+    void getConfig_shouldDropConfigAtExpirationDate() {
+        // Given
+        RateLimitConfig expired = RateLimitConfig.builder()
+                .clientId("client-2").route("/api/test").requestsPerMinute(5).timeWindow(1).timeUnit("MINUTES")
+                .expirationDate(LocalDateTime.now().minusMinutes(1)).status("ACTIVE").build();
+        when(mockConfigRepository.findFirstByClientIdAndRouteAndStatus("client-2", "/api/test", "ACTIVE"))
+                .thenReturn(Optional.of(expired));
+        config.setExpirationDate(LocalDateTime.now().plusSeconds(1));
+        when(mockConfigRepository.findFirstByClientIdAndRouteAndStatus("client-1", "/api/test", "ACTIVE"))
+                .thenReturn(Optional.of(config));
+        ArgumentCaptor<Runnable> expiry = ArgumentCaptor.forClass(Runnable.class);
+
+        // When
+        RateLimitConfig expiredConfig = rateLimiterService.getConfig("client-2", "/api/test");
+        RateLimitConfig activeConfig = rateLimiterService.getConfig("client-1", "/api/test");
+        verify(expiryScheduler).schedule(any(Duration.class), expiry.capture());
+        config.setExpirationDate(LocalDateTime.now().minusSeconds(1));
+        expiry.getValue().run();
+
+        // Then
+        assertThat(expiredConfig).isNull();
+        assertThat(activeConfig).isSameAs(config);
+        assertThat(rateLimiterService.getConfig("client-1", "/api/test")).isNull();
+        verify(expiryScheduler).configExpired();
+    }
+
+    /**
+     * Verifies that reloading a configuration keeps its pending expiry, and that moving its expiration date
+     * replaces that expiry instead of adding one.
+     */
+    @Test
+    void refreshConfig_shouldKeepOneExpiryPerConfig() {
+        // Given
+        config.setExpirationDate(LocalDateTime.now().plusDays(30));
+        when(mockConfigRepository.findFirstByClientIdAndRouteAndStatus("client-1", "/api/test", "ACTIVE"))
+                .thenReturn(Optional.of(config));
+        rateLimiterService.getConfig("client-1", "/api/test");
+
+        // When
+        rateLimiterService.refreshConfig("client-1", "/api/test");
+        rateLimiterService.refreshConfig("client-1", "/api/test");
+        config.setExpirationDate(LocalDateTime.now().plusDays(60));
+        rateLimiterService.refreshConfig("client-1", "/api/test");
+
+        // Then
+        verify(expiryScheduler, times(2)).schedule(any(Duration.class), any(Runnable.class));
+        verify(expiryScheduler).cancel(any());
+    }
+
+    /**
+     * Verifies that a bucket restored from a snapshot starts with its snapshot tokens plus the elapsed refill, and
+     * that partly drained buckets are captured in the next snapshot.
+     */
+    @Test
+    void restoreBucketStates_shouldStartBucketFromSnapshot() {
+        // Given
+        when(mockConfigRepository.findFirstByClientIdAndRouteAndStatus("client-1", "/api/test", "ACTIVE"))
+                .thenReturn(Optional.of(config));
+        long thirtySecondsAgo = System.currentTimeMillis() - 30_000;
+        rateLimiterService.restoreBucketStates(Map.of(
+                "client-1:/api/test", new BucketState(5, thirtySecondsAgo),
+                "client-9:/api/other", new BucketState(3, thirtySecondsAgo)));
+
+        // When
+        long restored = rateLimiterService.resolveBucket("client-1", "/api/test").getAvailableTokens();
+        Map<String, BucketState> snapshot = rateLimiterService.snapshotBucketStates();
+
+        // Then
+        assertThat(restored).isBetween(29L, 31L);
+        assertThat(snapshot.get("client-1:/api/test").tokens()).isEqualTo(restored);
+        assertThat(snapshot.get("client-9:/api/other")).isEqualTo(new BucketState(3, thirtySecondsAgo));
+    }
 }
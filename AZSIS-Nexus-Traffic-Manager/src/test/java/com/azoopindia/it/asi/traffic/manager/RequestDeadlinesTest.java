@@ -0,0 +1,113 @@
+package com.azoopindia.it.asi.traffic.manager;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.azoopindia.it.asi.traffic.manager.service.RequestDeadlines;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Unit tests for {@link RequestDeadlines}.
+ * <p>
+ * Verifies which timeout applies to a call, that the deadline is propagated, and that expired and overrunning
+ * calls end with {@code 504}.
+ */
+public class RequestDeadlinesTest {
+
+    private DynamicRoutingProperties props;
+
+    private RequestDeadlines deadlines;
+
+    @BeforeEach
+    void setUp() {
+        props = new DynamicRoutingProperties();
+        props.getDeadlines().setDefaultTimeout(Duration.ofSeconds(30));
+        props.getDeadlines().getServices().put("pigeon", Duration.ofSeconds(5));
+        props.getDeadlines().getOperations().put("createMsgTemplate", Duration.ofSeconds(2));
+        deadlines = new RequestDeadlines(props, new SimpleMeterRegistry());
+    }
+
+    /**
+     * Verifies that an operation's timeout beats its service's, which beats the default,
+     * and that an earlier client deadline wins over all of them.
+     */
+    @Test
+    void deadlineFor_shouldUseMostSpecificTimeoutAndEarlierClientDeadline() {
+        // Given
+        long now = 1_000_000L;
+        MockServerHttpRequest plain = MockServerHttpRequest.post("/graphql").build();
+        MockServerHttpRequest withDeadline = MockServerHttpRequest.post("/graphql")
+                .header("X-Request-Deadline", Long.toString(now + 500)).build();
+        MockServerHttpRequest withLateDeadline = MockServerHttpRequest.post("/graphql")
+                .header("X-Request-Deadline", Long.toString(now + 60_000)).build();
+
+        // When / Then
+        assertThat(deadlines.deadlineFor(plain, "Pigeon", "createMsgTemplate", now)).isEqualTo(now + 2_000);
+        assertThat(deadlines.deadlineFor(plain, "Pigeon", "getMsgTemplate", now)).isEqualTo(now + 5_000);
+        assertThat(deadlines.deadlineFor(plain, "sentinel", null, now)).isEqualTo(now + 30_000);
+        assertThat(deadlines.deadlineFor(withDeadline, "pigeon", "createMsgTemplate", now)).isEqualTo(now + 500);
+        assertThat(deadlines.deadlineFor(withLateDeadline, "pigeon", null, now)).isEqualTo(now + 5_000);
+    }
+
+    /**
+     * Verifies that the deadline and the time left are forwarded to the service and that a call past the deadline
+     * is cancelled with 504.
+     */
+    @Test
+    void forward_shouldPropagateDeadlineAndTimeOut() {
+        // Given
+        props.getDeadlines().getServices().put("pigeon", Duration.ofMillis(50));
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/graphql").build());
+        AtomicReference<String> forwarded = new AtomicReference<>();
+        AtomicReference<String> forwardedTimeout = new AtomicReference<>();
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        // When
+        Mono<Void> call = deadlines.forward(exchange, "pigeon", null, routed -> {
+            forwarded.set(routed.getRequest().getHeaders().getFirst("X-Request-Deadline"));
+            forwardedTimeout.set(routed.getRequest().getHeaders().getFirst("X-Request-Timeout"));
+            return Mono.delay(Duration.ofSeconds(5)).doOnCancel(() -> cancelled.set(true)).then();
+        });
+
+        // Then
+        assertThatThrownBy(() -> call.block(Duration.ofSeconds(2)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.GATEWAY_TIMEOUT));
+        assertThat(Long.parseLong(forwarded.get())).isBetween(System.currentTimeMillis() - 1_000, System.currentTimeMillis());
+        assertThat(Long.parseLong(forwardedTimeout.get())).isBetween(1L, 50L);
+        assertThat(cancelled).isTrue();
+    }
+
+    /**
+     * Verifies that a call whose client deadline has already passed never reaches the service.
+     */
+    @Test
+    void forward_shouldRefuseExpiredCall() {
+        // Given
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.post("/graphql")
+                .header("X-Request-Deadline", Long.toString(System.currentTimeMillis() - 1))
+                .build());
+        AtomicBoolean called = new AtomicBoolean();
+
+        // When
+        Mono<Void> call = deadlines.forward(exchange, "pigeon", null, routed -> Mono.fromRunnable(() -> called.set(true)));
+
+        // Then
+        assertThatThrownBy(call::block)
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.GATEWAY_TIMEOUT));
+        assertThat(called).isFalse();
+    }
+}
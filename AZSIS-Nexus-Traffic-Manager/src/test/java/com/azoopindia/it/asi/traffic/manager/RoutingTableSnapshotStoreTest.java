@@ -0,0 +1,112 @@
+package com.azoopindia.it.asi.traffic.manager;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.azoopindia.it.asi.traffic.manager.model.dto.RoutingTableSnapshot;
+import com.azoopindia.it.asi.traffic.manager.service.RoutingTableSnapshotStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link RoutingTableSnapshotStore}.
+ * <p>
+ * Verifies that the routing table survives a restart, is only rewritten when it changes, and stands in for
+ * discovery only while discovery is unavailable.
+ */
+public class RoutingTableSnapshotStoreTest {
+
+    @TempDir
+    private Path directory;
+
+    private DynamicRoutingProperties properties;
+
+    private final ServiceInstance instance = new DefaultServiceInstance("10.0.4.17:localization:8080",
+            "LOCALIZATION", "10.0.4.17", 8080, false, Map.of("graphql.operations", "createMsgTemplate"));
+
+    @BeforeEach
+    void setUp() {
+        properties = new DynamicRoutingProperties();
+        properties.getRoutingSnapshot().setFile(directory.resolve("state/routing-table.json").toString());
+    }
+
+    /**
+     * Verifies that a recorded table is loaded by the next instance and used as fallback until discovery answers.
+     */
+    @Test
+    void load_shouldRestoreRecordedTable() {
+        // Given
+        new RoutingTableSnapshotStore(properties)
+                .record(Map.of("createMsgTemplate", "localization"), Set.of("localization"), List.of(instance));
+        RoutingTableSnapshotStore restarted = new RoutingTableSnapshotStore(properties);
+
+        // When
+        Optional<RoutingTableSnapshot> loaded = restarted.load();
+        List<ServiceInstance> beforeDiscovery = restarted.fallbackInstances("Localization");
+        restarted.record(Map.of("createMsgTemplate", "localization"), Set.of("localization"), List.of(instance));
+        List<ServiceInstance> afterDiscovery = restarted.fallbackInstances("localization");
+
+        // Then
+        assertThat(loaded).isPresent();
+        assertThat(loaded.get().getOperations()).containsEntry("createMsgTemplate", "localization");
+        assertThat(loaded.get().getServices()).containsExactly("localization");
+        assertThat(beforeDiscovery).singleElement().satisfies(fallback -> {
+            assertThat(fallback.getHost()).isEqualTo("10.0.4.17");
+            assertThat(fallback.getPort()).isEqualTo(8080);
+            assertThat(fallback.getMetadata()).containsEntry("graphql.operations", "createMsgTemplate");
+        });
+        assertThat(afterDiscovery).isEmpty();
+    }
+
+    /**
+     * Verifies that an unchanged table is not rewritten and that a failed refresh enables the fallback again.
+     */
+    @Test
+    void record_shouldOnlyWriteChangedTables() throws IOException {
+        // Given
+        RoutingTableSnapshotStore store = new RoutingTableSnapshotStore(properties);
+        Path file = directory.resolve("state/routing-table.json");
+        store.record(Map.of(), Set.of("localization"), List.of(instance));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(0));
+
+        // When
+        store.record(Map.of(), Set.of("localization"), List.of(instance));
+        long unchanged = Files.getLastModifiedTime(file).toMillis();
+        store.discoveryFailed();
+        List<ServiceInstance> fallback = store.fallbackInstances("localization");
+        store.record(Map.of("createMsgTemplate", "localization"), Set.of("localization"), List.of(instance));
+
+        // Then
+        assertThat(unchanged).isZero();
+        assertThat(fallback).hasSize(1);
+        assertThat(Files.getLastModifiedTime(file).toMillis()).isPositive();
+        assertThat(new RoutingTableSnapshotStore(properties).load().orElseThrow().getOperations())
+                .containsKey("createMsgTemplate");
+    }
+
+    /**
+     * Verifies that an unreadable snapshot is ignored.
+     */
+    @Test
+    void load_shouldIgnoreCorruptSnapshot() throws IOException {
+        // Given
+        Path file = directory.resolve("state/routing-table.json");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "{\"operations\":");
+
+        // When / Then
+        assertThat(new RoutingTableSnapshotStore(properties).load()).isEmpty();
+    }
+}
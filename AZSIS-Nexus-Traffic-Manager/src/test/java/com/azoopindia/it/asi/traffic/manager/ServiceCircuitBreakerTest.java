@@ -0,0 +1,159 @@
+package com.azoopindia.it.asi.traffic.manager;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.azoopindia.it.asi.traffic.manager.service.ServiceCircuitBreaker;
+import com.azoopindia.it.asi.traffic.manager.service.ServiceCircuitBreaker.Permit;
+import com.azoopindia.it.asi.traffic.manager.service.ServiceCircuitBreaker.State;
+import com.azoopindia.it.asi.traffic.manager.service.ServiceCircuitBreakerRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link ServiceCircuitBreaker} and {@link ServiceCircuitBreakerRegistry}.
+ * <p>
+ * A manual clock drives the open duration so state transitions are deterministic.
+ */
+public class ServiceCircuitBreakerTest {
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+
+    private DynamicRoutingProperties.CircuitBreaker config;
+
+    private ServiceCircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        config = new DynamicRoutingProperties.CircuitBreaker();
+        config.setSlidingWindowSize(10);
+        config.setMinimumCalls(4);
+        config.setFailureRateThreshold(50);
+        config.setOpenDuration(Duration.ofSeconds(10));
+        config.setHalfOpenProbes(2);
+        breaker = new ServiceCircuitBreaker("localization", config, clock::get);
+    }
+
+    /**
+     * Verifies that the breaker opens once the failure rate over the minimum number of calls reaches the threshold,
+     * and rejects calls while open.
+     */
+    @Test
+    void shouldOpenWhenFailureRateReachesThreshold() {
+        // Given
+        breaker.onSuccess(breaker.tryAcquirePermission());
+        breaker.onSuccess(breaker.tryAcquirePermission());
+        breaker.onFailure(breaker.tryAcquirePermission());
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+
+        // When
+        breaker.onFailure(breaker.tryAcquirePermission());
+
+        // Then
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isNull();
+        assertThat(breaker.snapshot().getNotPermittedCalls()).isEqualTo(1);
+        assertThat(breaker.retryAfterSeconds()).isEqualTo(10);
+    }
+
+    /**
+     * Verifies that after the open duration a limited number of probes is let through
+     * and the breaker closes when they all succeed.
+     */
+    @Test
+    void shouldCloseAfterSuccessfulProbes() {
+        // Given
+        tripBreaker();
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        // When
+        Permit first = breaker.tryAcquirePermission();
+        Permit second = breaker.tryAcquirePermission();
+
+        // Then
+        assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(breaker.tryAcquirePermission()).isNull();
+
+        breaker.onSuccess(first);
+        breaker.onSuccess(second);
+        assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+        assertThat(breaker.snapshot().getBufferedCalls()).isZero();
+    }
+
+    /**
+     * Verifies that a failed probe reopens the breaker and that outcomes of calls permitted
+     * in an earlier state are ignored.
+     */
+    @Test
+    void shouldReopenOnFailedProbeAndIgnoreStalePermits() {
+        // Given
+        Permit stale = breaker.tryAcquirePermission();
+        tripBreaker();
+        clock.addAndGet(Duration.ofSeconds(10).toNanos());
+        Permit probe = breaker.tryAcquirePermission();
+
+        // When
+        breaker.onSuccess(stale);
+        breaker.onFailure(probe);
+
+        // Then
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+        assertThat(breaker.tryAcquirePermission()).isNull();
+    }
+
+    /**
+     * Verifies that the registry answers 503 with Retry-After without invoking the call while the breaker is open.
+     */
+    @Test
+    void registry_shouldFailFastWhileOpen() {
+        // Given
+        DynamicRoutingProperties props = new DynamicRoutingProperties();
+        props.setCircuitBreaker(config);
+        ServiceCircuitBreakerRegistry registry = new ServiceCircuitBreakerRegistry(props);
+        for (int i = 0; i < 4; i++) {
+            MockServerWebExchange failing = exchange();
+            registry.execute(failing, "localization", () -> {
+                failing.getResponse().setStatusCode(HttpStatus.BAD_GATEWAY);
+                return Mono.empty();
+            }).block();
+        }
+
+        AtomicBoolean invoked = new AtomicBoolean();
+        MockServerWebExchange exchange = exchange();
+
+        // When
+        registry.execute(exchange, "localization", () -> {
+            invoked.set(true);
+            return Mono.empty();
+        }).block();
+
+        // Then
+        assertThat(invoked).isFalse();
+        assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isNotNull();
+        assertThat(registry.snapshots()).containsKey("localization");
+        assertThat(registry.snapshot("localization").getState()).isEqualTo("OPEN");
+    }
+
+    private void tripBreaker() {
+        for (int i = 0; i < 4; i++) {
+            breaker.onFailure(breaker.tryAcquirePermission());
+        }
+        assertThat(breaker.getState()).isEqualTo(State.OPEN);
+    }
+
+    private static MockServerWebExchange exchange() {
+        return MockServerWebExchange.from(MockServerHttpRequest.get("/dsc/api/localization/messages"));
+    }
+}
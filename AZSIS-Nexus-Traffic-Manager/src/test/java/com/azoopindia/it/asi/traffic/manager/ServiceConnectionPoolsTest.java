@@ -0,0 +1,150 @@
+package com.azoopindia.it.asi.traffic.manager;
+
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.azoopindia.it.asi.traffic.manager.model.dto.ConnectionPoolSnapshot;
+import com.azoopindia.it.asi.traffic.manager.service.ServiceConnectionPools;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.gateway.config.HttpClientProperties;
+import org.springframework.cloud.gateway.config.HttpClientSslConfigurer;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link ServiceConnectionPools}, run against a local Reactor Netty server.
+ */
+public class ServiceConnectionPoolsTest {
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private DisposableServer server;
+
+    private DynamicRoutingProperties props;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ServiceConnectionPools pools;
+
+    @BeforeEach
+    void setUp() {
+        // A short delay keeps the warm-up requests overlapping, so each needs its own connection.
+        server = HttpServer.create()
+                .port(0)
+                .handle((request, response) -> {
+                    requests.incrementAndGet();
+                    return Mono.delay(Duration.ofMillis(100)).then(response.send());
+                })
+                .bindNow();
+
+        props = new DynamicRoutingProperties();
+        props.getConnectionPool().setWarmUpConnections(3);
+
+        HttpClientProperties httpClientProperties = new HttpClientProperties();
+        ServerProperties serverProperties = new ServerProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        pools = new ServiceConnectionPools(props, httpClientProperties, serverProperties,
+                new HttpClientSslConfigurer(httpClientProperties.getSsl(), serverProperties, null),
+                List.of(), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pools.dispose();
+        server.disposeNow();
+    }
+
+    /**
+     * Verifies that a new instance gets the configured number of idle connections, visible in the snapshot
+     * and the gauges, and that a known instance is not warmed up again.
+     */
+    @Test
+    void shouldOpenWarmUpConnectionsOnlyForNewInstances() {
+        // Given
+        ServiceInstance instance = new DefaultServiceInstance("localization-1", "LOCALIZATION",
+                "127.0.0.1", server.port(), false);
+
+        // When
+        pools.warmUpNewInstances(List.of(instance)).block(Duration.ofSeconds(10));
+        pools.warmUpNewInstances(List.of(instance)).block(Duration.ofSeconds(10));
+
+        // Then
+        assertThat(requests).hasValue(3);
+        awaitIdleConnections("localization", 3);
+
+        List<ConnectionPoolSnapshot> snapshots = pools.snapshot("localization");
+        assertThat(snapshots).hasSize(1);
+        assertThat(snapshots.get(0).getIdleConnections()).isEqualTo(3);
+        assertThat(snapshots.get(0).getActiveConnections()).isZero();
+        assertThat(snapshots.get(0).getMaxConnections()).isEqualTo(100);
+
+        assertThat(meterRegistry.get("gateway.connection.pool.idle").tag("service", "localization").gauge().value())
+                .isEqualTo(3d);
+    }
+
+    /**
+     * Verifies that per-service overrides replace the defaults for that service only.
+     */
+    @Test
+    void shouldApplyPerServiceOverrides() {
+        // Given
+        DynamicRoutingProperties.ServicePool override = new DynamicRoutingProperties.ServicePool();
+        override.setMaxConnections(7);
+        override.setWarmUpConnections(1);
+        props.getConnectionPool().getServices().put("localization", override);
+        ServiceInstance instance = new DefaultServiceInstance("localization-1", "localization",
+                "127.0.0.1", server.port(), false);
+
+        // When
+        pools.warmUp(instance).block(Duration.ofSeconds(10));
+
+        // Then
+        assertThat(requests).hasValue(1);
+        assertThat(pools.snapshot("localization").get(0).getMaxConnections()).isEqualTo(7);
+    }
+
+    /**
+     * Verifies that disabling per-service pools falls back to the shared client and skips warm-up.
+     */
+    @Test
+    void shouldDoNothingWhenDisabled() {
+        // Given
+        props.getConnectionPool().setEnabled(false);
+        ServiceInstance instance = new DefaultServiceInstance("localization-1", "localization",
+                "127.0.0.1", server.port(), false);
+
+        // When
+        pools.warmUpNewInstances(List.of(instance)).block(Duration.ofSeconds(10));
+
+        // Then
+        assertThat(pools.clientFor("localization")).isNull();
+        assertThat(requests).hasValue(0);
+        assertThat(pools.snapshots()).isEmpty();
+    }
+
+    /**
+     * Connections return to the pool asynchronously after the response completes, so poll briefly.
+     */
+    private void awaitIdleConnections(String serviceId, int expected) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (System.nanoTime() < deadline) {
+            List<ConnectionPoolSnapshot> snapshots = pools.snapshot(serviceId);
+            if (snapshots != null && snapshots.get(0).getIdleConnections() == expected) {
+                return;
+            }
+            LockSupport.parkNanos(Duration.ofMillis(10).toNanos());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.azoopindia.it.asi.traffic.manager;
+
+import com.azoopindia.it.asi.traffic.manager.capture.TrafficCaptureRecord;
+import com.azoopindia.it.asi.traffic.manager.capture.TrafficCaptureWriter;
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import com.azoopindia.it.asi.traffic.manager.filter.DynamicUniversalRoutingFilter;
+import com.azoopindia.it.asi.traffic.manager.filter.TrafficCaptureFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link TrafficCaptureFilter}.
+ */
+@ExtendWith(MockitoExtension.class)
+class TrafficCaptureFilterTest {
+
+    private static final String BODY = "{\"query\":\"query getUser { user { id } }\"}";
+
+    @Mock
+    private TrafficCaptureWriter writer;
+
+    @Mock
+    private GatewayFilterChain chain;
+
+    private final DynamicRoutingProperties props = new DynamicRoutingProperties();
+
+    private TrafficCaptureFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        props.getCapture().setEnabled(true);
+        props.getCapture().setSampleRate(1.0);
+        filter = new TrafficCaptureFilter(props, writer, exchange -> Mono.just("10.0.0.1"));
+    }
+
+    /**
+     * Verifies that a sampled request is recorded with its timing, status and operation name, while the query
+     * string, non-listed headers and the body are left out and the client id is hashed.
+     */
+    @Test
+    void shouldRecordSampledRequestWithoutSensitiveData() throws Exception {
+        // Given
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest
+                .post("/dsc/api/graphql/v1?token=secret")
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer secret")
+                .header("X-Client-Id", "client-1")
+                .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(BODY.getBytes(StandardCharsets.UTF_8)))));
+        when(chain.filter(any())).thenAnswer(invocation -> {
+            ServerWebExchange routed = invocation.getArgument(0);
+            return DataBufferUtils.join(routed.getRequest().getBody())
+                    .doOnNext(DataBufferUtils::release)
+                    .then(Mono.fromRunnable(() -> {
+                        routed.getAttributes().put(DynamicUniversalRoutingFilter.GRAPHQL_OPERATION_NAME_ATTR, "getUser");
+                        routed.getResponse().setStatusCode(HttpStatus.OK);
+                    }));
+        });
+
+        // When
+        filter.filter(exchange, chain).block();
+
+        // Then
+        ArgumentCaptor<TrafficCaptureRecord> captured = ArgumentCaptor.forClass(TrafficCaptureRecord.class);
+        verify(writer).submit(captured.capture());
+        TrafficCaptureRecord record = captured.getValue();
+        assertThat(record.method()).isEqualTo("POST");
+        assertThat(record.path()).isEqualTo("/dsc/api/graphql/v1");
+        assertThat(record.status()).isEqualTo(200);
+        assertThat(record.operationName()).isEqualTo("getUser");
+        assertThat(record.headers()).containsEntry("Content-Type", "application/json").doesNotContainKey("Authorization");
+        assertThat(record.headers().get("X-Client-Id")).hasSize(32).doesNotContain("client-1");
+        assertThat(record.bodyHash()).isEqualTo(MessageDigest.getInstance("SHA-256").digest(BODY.getBytes(StandardCharsets.UTF_8)));
+        assertThat(record.body()).isNull();
+        assertThat(record.arrivalEpochMicros()).isPositive();
+    }
+
+    /**
+     * Verifies that nothing is recorded or decorated when no client is sampled.
+     */
+    @Test
+    void shouldPassUnsampledRequestThrough() {
+        // Given
+        props.getCapture().setSampleRate(0.0);
+        MockServerWebExchange exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/api/users/1")
+                .header("X-Client-Id", "client-1"));
+        when(chain.filter(exchange)).thenReturn(Mono.empty());
+
+        // When
+        filter.filter(exchange, chain).block();
+
+        // Then
+        verify(chain).filter(exchange);
+        verify(writer, never()).submit(any());
+    }
+}
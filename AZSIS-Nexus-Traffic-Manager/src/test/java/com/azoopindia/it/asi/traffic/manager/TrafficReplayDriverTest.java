@@ -0,0 +1,82 @@
+package com.azoopindia.it.asi.traffic.manager;
+
+import com.azoopindia.it.asi.traffic.manager.capture.TrafficCaptureReader;
+import com.azoopindia.it.asi.traffic.manager.capture.TrafficCaptureRecord;
+import com.azoopindia.it.asi.traffic.manager.capture.TrafficCaptureWriter;
+import com.azoopindia.it.asi.traffic.manager.capture.TrafficReplayDriver;
+import com.azoopindia.it.asi.traffic.manager.config.DynamicRoutingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests for {@link TrafficCaptureWriter}, {@link TrafficCaptureReader} and {@link TrafficReplayDriver}.
+ */
+class TrafficReplayDriverTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Verifies that captured records survive file rotation and a torn last record, and that the replay sends them
+     * in arrival order with their headers, skipping the request whose body was only hashed.
+     */
+    @Test
+    void shouldReplayCapturedTrafficInArrivalOrder() throws Exception {
+        // Given
+        DynamicRoutingProperties props = new DynamicRoutingProperties();
+        props.getCapture().setEnabled(true);
+        props.getCapture().setDirectory(directory.toString());
+        props.getCapture().setMaxFileBytes(1024);
+        TrafficCaptureWriter writer = new TrafficCaptureWriter(props, new SimpleMeterRegistry());
+        writer.start();
+        long now = System.currentTimeMillis() * 1000;
+        byte[] body = "x".repeat(900).getBytes(StandardCharsets.UTF_8);
+        writer.submit(record(now + 2_000, "POST", "/api/orders", body, new byte[32]));
+        writer.submit(record(now, "GET", "/api/users/1", null, null));
+        writer.submit(record(now + 1_000, "POST", "/api/payments", null, new byte[32]));
+        writer.stop();
+
+        List<Path> files = TrafficCaptureReader.files(directory);
+        Files.write(files.get(files.size() - 1), new byte[]{0, 0, 1}, StandardOpenOption.APPEND);
+
+        List<ClientRequest> requests = new CopyOnWriteArrayList<>();
+        WebClient webClient = WebClient.builder().exchangeFunction(request -> {
+            requests.add(request);
+            return Mono.just(ClientResponse.create(HttpStatus.OK).build());
+        }).build();
+
+        // When
+        TrafficReplayDriver.Summary summary = new TrafficReplayDriver(webClient, "http://localhost:8080/", 1000).replay(files);
+
+        // Then
+        assertThat(files).hasSizeGreaterThan(1);
+        assertThat(summary.sent()).isEqualTo(2);
+        assertThat(summary.skipped()).isEqualTo(1);
+        assertThat(summary.failed()).isZero();
+        assertThat(summary.statuses()).containsExactly(Map.entry(200, 2L));
+        assertThat(requests).extracting(request -> request.url().toString())
+                .containsExactly("http://localhost:8080/api/users/1", "http://localhost:8080/api/orders");
+        assertThat(requests.get(0).headers().getFirst("X-Client-Id")).isEqualTo("5e1f");
+    }
+
+    private static TrafficCaptureRecord record(long arrivalEpochMicros, String method, String path, byte[] body, byte[] bodyHash) {
+        return new TrafficCaptureRecord(arrivalEpochMicros, 1500, 200, method, path, Map.of("X-Client-Id", "5e1f"),
+                null, bodyHash, body);
+    }
+}